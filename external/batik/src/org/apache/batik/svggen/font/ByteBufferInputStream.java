@@ -0,0 +1,60 @@
+package org.apache.batik.svggen.font;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream reading from a buffer, which can go back to its start.
+ */
+class ByteBufferInputStream extends InputStream {
+
+    private ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        this.buffer.position(0);
+    }
+
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        len = Math.min(len, buffer.remaining());
+        buffer.get(b, off, len);
+        return len;
+    }
+
+    public long skip(long n) {
+        int skipped = (int)Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    public int available() {
+        return buffer.remaining();
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void mark(int readlimit) {
+    }
+
+    /**
+     * Goes back to the start of the buffer.
+     */
+    public void reset() {
+        buffer.position(0);
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.batik.svggen.font;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import org.apache.batik.svggen.font.table.CmapTable;
 import org.apache.batik.svggen.font.table.GlyfTable;
@@ -42,7 +43,7 @@ import org.apache.batik.svggen.font.table.TableFactory;
  */
 public class Font {
 
-    private byte[] bs;
+    private ByteBuffer bs;
 //    private Interpreter interp = null;
 //    private Parser parser = null;
     private TableDirectory tableDirectory = null;
@@ -81,6 +82,10 @@ public class Font {
         return cmap;
     }
     
+    public GlyfTable getGlyfTable() {
+        return glyf;
+    }
+
     public HeadTable getHeadTable() {
         return head;
     }
@@ -138,7 +143,16 @@ public class Font {
      * @param pathName Path to the TTF font file
      */
     protected void read(byte[] fontInBytes) {
-	bs = fontInBytes;
+        read(ByteBuffer.wrap(fontInBytes));
+    }
+
+    /**
+     * The tables that are big keep parts of the buffer instead of copying
+     * them, so the buffer can be a file mapped in memory.
+     * @param fontInBuffer The contents of the TTF font file
+     */
+    protected void read(ByteBuffer fontInBuffer) {
+	bs = fontInBuffer;
         try {
             RandomAccessFileEmulator raf = new RandomAccessFileEmulator(bs, "r");
             tableDirectory = new TableDirectory(raf);
@@ -186,4 +200,14 @@ public class Font {
         f.read(fontInBytes);
         return f;
     }
+
+    /**
+     * @param fontInBuffer The contents of the TTF font file, such as the
+     * file mapped in memory
+     */
+    public static Font create(ByteBuffer fontInBuffer) {
+        Font f = new Font();
+        f.read(fontInBuffer);
+        return f;
+    }
 }
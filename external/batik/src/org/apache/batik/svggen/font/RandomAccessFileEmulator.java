@@ -1,15 +1,39 @@
 package org.apache.batik.svggen.font;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class RandomAccessFileEmulator extends DataInputStream{
+
+	private ByteBuffer buffer;
 	
 	public RandomAccessFileEmulator(byte[] byteArray, String accesMode){
-		super(new ByteArrayInputStream(byteArray));
+		this(ByteBuffer.wrap(byteArray), accesMode);
+	}
+
+	/**
+	 * Reads from a buffer, such as a file mapped in memory, without
+	 * copying it.
+	 */
+	public RandomAccessFileEmulator(ByteBuffer buffer, String accesMode){
+		super(new ByteBufferInputStream(buffer));
+		this.buffer = buffer;
 	}
 
 	public void seek(long n) throws IOException{
 		reset();
 		skip(n);
 	}
+
+	/**
+	 * @return A part of the data, sharing it instead of copying it.  The
+	 * part is cut if it goes past the end of the data.
+	 */
+	public ByteBuffer slice(int offset, int length){
+		ByteBuffer b = buffer.duplicate();
+		int start = Math.max(0, Math.min(offset, b.capacity()));
+		b.position(start);
+		b.limit(Math.min(b.capacity(), start + Math.max(0, length)));
+		return b.slice();
+	}
 }
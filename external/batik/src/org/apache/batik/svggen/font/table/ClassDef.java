@@ -29,6 +29,12 @@ public abstract class ClassDef {
 
     public abstract int getFormat();
 
+    /**
+     * @param glyphId The ID of the glyph.
+     * @return The class of the glyph, 0 if the glyph is in no class.
+     */
+    public abstract int getGlyphClass(int glyphId);
+
     protected static ClassDef read(RandomAccessFileEmulator raf) throws IOException {
         ClassDef c = null;
         int format = raf.readUnsignedShort();
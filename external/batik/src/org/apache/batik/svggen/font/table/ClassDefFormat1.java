@@ -45,4 +45,11 @@ public class ClassDefFormat1 extends ClassDef {
         return 1;
     }
 
+    public int getGlyphClass(int glyphId) {
+        if (startGlyph <= glyphId && glyphId < startGlyph + glyphCount) {
+            return classValues[glyphId - startGlyph];
+        }
+        return 0;
+    }
+
 }
@@ -43,4 +43,13 @@ public class ClassDefFormat2 extends ClassDef {
         return 2;
     }
 
+    public int getGlyphClass(int glyphId) {
+        for (int i = 0; i < classRangeCount; i++) {
+            if (classRangeRecords[i].isInRange(glyphId)) {
+                return classRangeRecords[i].getStartCoverageIndex();
+            }
+        }
+        return 0;
+    }
+
 }
@@ -35,6 +35,11 @@ public abstract class Coverage {
      * can't be found.
      */
     public abstract int findGlyph(int glyphId);
+
+    /**
+     * @return The IDs of the glyphs of the coverage, by coverage index.
+     */
+    public abstract int[] getGlyphIds();
     
     protected static Coverage read(RandomAccessFileEmulator raf) throws IOException {
         Coverage c = null;
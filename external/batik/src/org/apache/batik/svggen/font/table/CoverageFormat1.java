@@ -43,6 +43,10 @@ public class CoverageFormat1 extends Coverage {
         return 1;
     }
 
+    public int[] getGlyphIds() {
+        return glyphIds;
+    }
+
     public int findGlyph(int glyphId) {
         for (int i = 0; i < glyphCount; i++) {
             if (glyphIds[i] == glyphId) {
@@ -43,6 +43,22 @@ public class CoverageFormat2 extends Coverage {
         return 2;
     }
 
+    public int[] getGlyphIds() {
+        int count = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            count = Math.max(count, rangeRecords[i].getStartCoverageIndex()
+                + rangeRecords[i].getEnd() - rangeRecords[i].getStart() + 1);
+        }
+        int[] glyphIds = new int[count];
+        for (int i = 0; i < rangeCount; i++) {
+            RangeRecord r = rangeRecords[i];
+            for (int g = r.getStart(); g <= r.getEnd(); g++) {
+                glyphIds[r.getStartCoverageIndex() + g - r.getStart()] = g;
+            }
+        }
+        return glyphIds;
+    }
+
     public int findGlyph(int glyphId) {
         for (int i = 0; i < rangeCount; i++) {
             int n = rangeRecords[i].getCoverageIndex(glyphId);
@@ -45,6 +45,18 @@ public class FeatureList {
         }
     }
 
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public FeatureRecord getFeatureRecord(int i) {
+        return featureRecords[i];
+    }
+
+    public Feature getFeature(int i) {
+        return features[i];
+    }
+
     public Feature findFeature(LangSys langSys, String tag) {
         if (tag.length() != 4) {
             return null;
@@ -110,12 +110,14 @@ public class GlyfCompositeDescript extends GlyfDescript {
 
     public int getPointCount() {
         GlyfCompositeComp c = (GlyfCompositeComp) components.elementAt(components.size()-1);
-        return c.getFirstIndex() + parentTable.getDescription(c.getGlyphIndex()).getPointCount();
+        GlyphDescription gd = parentTable.getDescription(c.getGlyphIndex());
+        return c.getFirstIndex() + ((gd != null) ? gd.getPointCount() : 0);
     }
 
     public int getContourCount() {
         GlyfCompositeComp c = (GlyfCompositeComp) components.elementAt(components.size()-1);
-        return c.getFirstContour() + parentTable.getDescription(c.getGlyphIndex()).getContourCount();
+        GlyphDescription gd = parentTable.getDescription(c.getGlyphIndex());
+        return c.getFirstContour() + ((gd != null) ? gd.getContourCount() : 0);
     }
 
     public int getComponentIndex(int i) {
@@ -131,7 +133,7 @@ public class GlyfCompositeDescript extends GlyfDescript {
         for (int n = 0; n < components.size(); n++) {
             c = (GlyfCompositeComp) components.elementAt(n);
             GlyphDescription gd = parentTable.getDescription(c.getGlyphIndex());
-            if (c.getFirstIndex() <= i && i < (c.getFirstIndex() + gd.getPointCount())) {
+            if (gd != null && c.getFirstIndex() <= i && i < (c.getFirstIndex() + gd.getPointCount())) {
                 return c;
             }
         }
@@ -143,7 +145,7 @@ public class GlyfCompositeDescript extends GlyfDescript {
         for (int j = 0; j < components.size(); j++) {
             c = (GlyfCompositeComp) components.elementAt(j);
             GlyphDescription gd = parentTable.getDescription(c.getGlyphIndex());
-            if (c.getFirstContour() <= i && i < (c.getFirstContour() + gd.getContourCount())) {
+            if (gd != null && c.getFirstContour() <= i && i < (c.getFirstContour() + gd.getContourCount())) {
                 return c;
             }
         }
@@ -19,6 +19,7 @@ package org.apache.batik.svggen.font.table;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.apache.batik.svggen.font.*;
 
 /**
@@ -27,13 +28,21 @@ import org.apache.batik.svggen.font.*;
  */
 public class GlyfTable implements Table {
 
-    private byte[] buf = null;
+    private ByteBuffer buf = null;
     private GlyfDescript[] descript;
+    private boolean[] decoding;
+    private LocaTable loca;
+    private int numGlyphs = 0;
+
+    // Ring of the indexes of the decoded glyphs, when the cache is bounded
+    private int cacheSize = 0;
+    private int[] cached = null;
+    private int numCached = 0;
+    private int nextCached = 0;
 
     protected GlyfTable(DirectoryEntry de, RandomAccessFileEmulator raf) throws IOException {
-        raf.seek(de.getOffset());
-        buf = new byte[de.getLength()];
-        raf.read(buf);
+        // Only the glyphs used are copied out of the font data
+        buf = raf.slice(de.getOffset(), de.getLength());
 /*
         TableMaxp t_maxp = (TableMaxp) td.getEntryByTag(maxp).getTable();
         TableLoca t_loca = (TableLoca) td.getEntryByTag(loca).getTable();
@@ -66,42 +75,92 @@ public class GlyfTable implements Table {
 */
     }
 
+    /**
+     * Prepares the table for reading the glyphs.  The glyph descriptions
+     * are not decoded here but on the first call to getDescription, so
+     * only the glyphs actually used take memory.
+     */
     public void init(int numGlyphs, LocaTable loca) {
         if (buf == null) {
             return;
         }
+        this.numGlyphs = numGlyphs;
+        this.loca = loca;
         descript = new GlyfDescript[numGlyphs];
-        ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-        for (int i = 0; i < numGlyphs; i++) {
-            int len = loca.getOffset((short)(i + 1)) - loca.getOffset(i);
-            if (len > 0) {
-                bais.reset();
-                bais.skip(loca.getOffset(i));
-                short numberOfContours = (short)(bais.read()<<8 | bais.read());
-                if (numberOfContours >= 0) {
-                    descript[i] = new GlyfSimpleDescript(this, numberOfContours, bais);
-                }
-            } else {
+        decoding = new boolean[numGlyphs];
+    }
+
+    /**
+     * Limits the number of decoded glyph descriptions kept in memory.  When
+     * the limit is reached the description decoded first is dropped, and
+     * decoded again if it is needed later.
+     * @param size the maximum number of descriptions kept, or 0 to keep
+     * all of them (the default)
+     */
+    public synchronized void setCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative cache size: " + size);
+        }
+        cacheSize = size;
+        cached = (size > 0) ? new int[size] : null;
+        numCached = 0;
+        nextCached = 0;
+        if (descript != null) {
+            for (int i = 0; i < descript.length; i++) {
                 descript[i] = null;
             }
         }
+    }
 
-        for (int i = 0; i < numGlyphs; i++) {
-            int len = loca.getOffset((short)(i + 1)) - loca.getOffset(i);
-            if (len > 0) {
-                bais.reset();
-                bais.skip(loca.getOffset(i));
-                short numberOfContours = (short)(bais.read()<<8 | bais.read());
-                if (numberOfContours < 0) {
-                    descript[i] = new GlyfCompositeDescript(this, bais);
-                }
+    public synchronized GlyfDescript getDescription(int i) {
+        if (descript == null || i < 0 || i >= numGlyphs) {
+            return null;
+        }
+        if (descript[i] != null) {
+            return descript[i];
+        }
+
+        // A composite glyph referring to itself, directly or not, has no
+        // description
+        if (decoding[i]) {
+            return null;
+        }
+
+        int offset = loca.getOffset(i);
+        int len = loca.getOffset(i + 1) - offset;
+        if (len <= 0 || offset < 0 || offset + len > buf.capacity()) {
+            return null;
+        }
+
+        GlyfDescript desc;
+        decoding[i] = true;
+        try {
+            byte[] data = new byte[len];
+            ByteBuffer b = buf.duplicate();
+            b.position(offset);
+            b.get(data);
+            ByteArrayInputStream bais = new ByteArrayInputStream(data);
+            short numberOfContours = (short)(bais.read()<<8 | bais.read());
+            if (numberOfContours >= 0) {
+                desc = new GlyfSimpleDescript(this, numberOfContours, bais);
+            } else {
+                desc = new GlyfCompositeDescript(this, bais);
             }
+        } finally {
+            decoding[i] = false;
         }
-        buf = null;
-    }
 
-    public GlyfDescript getDescription(int i) {
-        return descript[i];
+        if (cacheSize > 0) {
+            if (numCached == cacheSize) {
+                descript[cached[nextCached]] = null;
+            } else {
+                numCached++;
+            }
+            cached[nextCached] = i;
+            nextCached = (nextCached + 1) % cacheSize;
+        }
+        descript[i] = desc;
+        return desc;
     }
 
     public int getType() {
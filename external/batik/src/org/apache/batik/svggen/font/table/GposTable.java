@@ -18,6 +18,8 @@
 package org.apache.batik.svggen.font.table;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Vector;
 import org.apache.batik.svggen.font.*;
 
 /**
@@ -25,43 +27,135 @@ import org.apache.batik.svggen.font.*;
  * @author <a href="mailto:david@steadystate.co.uk">David Schweinsberg</a>
  * @version $Id: GposTable.java,v 1.4 2004/08/18 07:15:21 vhardy Exp $
  */
-public class GposTable implements Table {
+public class GposTable implements Table, LookupSubtableFactory {
+
+    private ByteBuffer buf = null;
+    private ScriptList scriptList;
+    private FeatureList featureList;
+    private LookupList lookupList;
 
     protected GposTable(DirectoryEntry de,RandomAccessFileEmulator raf) throws IOException {
-        raf.seek(de.getOffset());
-
-        // GPOS Header
-        /* int version     = */ raf.readInt();
-        /* int scriptList  = */ raf.readInt();
-        /* int featureList = */ raf.readInt();
-        /* int lookupList  = */ raf.readInt();
-/*        
-        for (int i = 0; i < t_maxp.getNumGlyphs(); i++) {
-            raf.seek(tde.getOffset() + t_loca.getOffset(i));
-            int len = t_loca.getOffset((short)(i + 1)) - t_loca.getOffset(i);
-            if (len > 0) {
-                short numberOfContours = raf.readShort();
-                if (numberOfContours < 0) {
-                    //          descript[i] = new TableGlyfCompositeDescript(this, raf);
-                } else {
-                    descript[i] = new TableGlyfSimpleDescript(this, numberOfContours, raf);
+        buf = raf.slice(de.getOffset(), de.getLength());
+    }
+
+    /**
+     * Reads the lists of the table the first time they are needed, so that
+     * opening a font does not pay for the positioning it may never use.
+     */
+    private synchronized void init() {
+        if (buf == null) {
+            return;
+        }
+        RandomAccessFileEmulator raf = new RandomAccessFileEmulator(buf, "r");
+        try {
+            // GPOS Header
+            /* int version = */     raf.readInt();
+            int scriptListOffset  = raf.readUnsignedShort();
+            int featureListOffset = raf.readUnsignedShort();
+            int lookupListOffset  = raf.readUnsignedShort();
+
+            // Script List
+            scriptList = new ScriptList(raf, scriptListOffset);
+
+            // Feature List
+            featureList = new FeatureList(raf, featureListOffset);
+
+            // Lookup List
+            lookupList = new LookupList(raf, lookupListOffset, this);
+        } catch (IOException e) {
+            // A damaged table leaves the font without positioning, but usable
+            scriptList = null;
+            featureList = null;
+            lookupList = null;
+        }
+        buf = null;
+    }
+
+    /**
+     * 1 - Single adjustment - Adjust position of a single glyph
+     * 2 - Pair adjustment - Adjust position of a pair of glyphs
+     * 3 - Cursive attachment - Attach cursive glyphs
+     * 4 - MarkToBase attachment - Attach a combining mark to a base glyph
+     * 5 - MarkToLigature attachment - Attach a combining mark to a ligature
+     * 6 - MarkToMark attachment - Attach a combining mark to another mark
+     * 7 - Context positioning - Position one or more glyphs in context
+     * 8 - Chained Context positioning - Position one or more glyphs in chained context
+     * 9 - Extension positioning - Extension mechanism for other positionings
+     */
+    public LookupSubtable read(int type, RandomAccessFileEmulator raf, int offset)
+    throws IOException {
+        LookupSubtable s = null;
+        switch (type) {
+        case 2:
+            s = PairPos.read(raf, offset);
+            break;
+        case 9:
+            raf.seek(offset);
+            /* int format = */  raf.readUnsignedShort();
+            int extensionType   = raf.readUnsignedShort();
+            int extensionOffset = raf.readInt();
+            if (extensionType != 9) {
+                s = read(extensionType, raf, offset + extensionOffset);
+            }
+            break;
+        }
+        return s;
+    }
+
+    /**
+     * @return The pair adjustment subtables of the lookups of the kerning
+     * features of all the scripts, in the order of the lookup list, or an
+     * empty array if the font has none.
+     */
+    public PairPos[] getKerningSubtables() {
+        init();
+        if (featureList == null || lookupList == null) {
+            return new PairPos[0];
+        }
+
+        int kernTag = ('k'<<24) | ('e'<<16) | ('r'<<8) | 'n';
+        boolean[] used = new boolean[lookupList.getLookupCount()];
+        for (int i = 0; i < featureList.getFeatureCount(); i++) {
+            if (featureList.getFeatureRecord(i).getTag() == kernTag) {
+                Feature feature = featureList.getFeature(i);
+                for (int j = 0; j < feature.getLookupCount(); j++) {
+                    int index = feature.getLookupListIndex(j);
+                    if (index < used.length) {
+                        used[index] = true;
+                    }
                 }
-            } else {
-                descript[i] = null;
             }
         }
 
-        for (int i = 0; i < t_maxp.getNumGlyphs(); i++) {
-            raf.seek(tde.getOffset() + t_loca.getOffset(i));
-            int len = t_loca.getOffset((short)(i + 1)) - t_loca.getOffset(i);
-            if (len > 0) {
-                short numberOfContours = raf.readShort();
-                if (numberOfContours < 0) {
-                    descript[i] = new TableGlyfCompositeDescript(this, raf);
+        Vector subtables = new Vector();
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                Lookup lookup = lookupList.getLookup(i);
+                for (int j = 0; j < lookup.getSubtableCount(); j++) {
+                    if (lookup.getSubtable(j) instanceof PairPos) {
+                        subtables.addElement(lookup.getSubtable(j));
+                    }
                 }
             }
         }
-*/
+        PairPos[] result = new PairPos[subtables.size()];
+        subtables.copyInto(result);
+        return result;
+    }
+
+    public ScriptList getScriptList() {
+        init();
+        return scriptList;
+    }
+
+    public FeatureList getFeatureList() {
+        init();
+        return featureList;
+    }
+
+    public LookupList getLookupList() {
+        init();
+        return lookupList;
     }
 
     /** Get the table type, as a table directory value.
@@ -38,6 +38,13 @@ public class KerningPair {
         value = raf.readShort();
     }
 
+    /** Creates new KerningPair from its values */
+    protected KerningPair(int left, int right, short value) {
+        this.left = left;
+        this.right = right;
+        this.value = value;
+    }
+
     public int getLeft() {
         return left;
     }
@@ -17,8 +17,8 @@
  */
 package org.apache.batik.svggen.font.table;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.apache.batik.svggen.font.*;
 
 /**
@@ -27,42 +27,42 @@ import org.apache.batik.svggen.font.*;
  */
 public class LocaTable implements Table {
 
-    private byte[] buf = null;
-    private int[] offsets = null;
+    private ByteBuffer buf = null;
+    private int numGlyphs = 0;
     private short factor = 0;
 
     protected LocaTable(DirectoryEntry de, RandomAccessFileEmulator raf) throws IOException {
-        raf.seek(de.getOffset());
-        buf = new byte[de.getLength()];
-        raf.read(buf);
+        buf = raf.slice(de.getOffset(), de.getLength());
     }
 
+    /**
+     * Prepares the table for reading the offsets.  The offsets are read
+     * from the table data when needed instead of being decoded here.
+     */
     public void init(int numGlyphs, boolean shortEntries) {
         if (buf == null) {
             return;
         }
-        offsets = new int[numGlyphs + 1];
-        ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-        if (shortEntries) {
-            factor = 2;
-            for (int i = 0; i <= numGlyphs; i++) {
-                offsets[i] = (bais.read()<<8 | bais.read());
-            }
-        } else {
-            factor = 1;
-            for (int i = 0; i <= numGlyphs; i++) {
-                offsets[i] = (bais.read()<<24 | bais.read()<<16 | 
-                              bais.read()<< 8 | bais.read());
-            }
-        }
-        buf = null;
+        this.numGlyphs = numGlyphs;
+        factor = (short)(shortEntries ? 2 : 1);
     }
-    
+
     public int getOffset(int i) {
-        if (offsets == null) {
+        if (factor == 0 || i < 0 || i > numGlyphs) {
+            return 0;
+        }
+        if (factor == 2) {
+            int pos = i * 2;
+            if (pos + 2 > buf.capacity()) {
+                return 0;
+            }
+            return (buf.getShort(pos) & 0xffff) * 2;
+        }
+        int pos = i * 4;
+        if (pos + 4 > buf.capacity()) {
             return 0;
         }
-        return offsets[i] * factor;
+        return buf.getInt(pos);
     }
 
     public int getType() {
@@ -46,6 +46,14 @@ public class LookupList {
         }
     }
 
+    public int getLookupCount() {
+        return lookupCount;
+    }
+
+    public Lookup getLookup(int i) {
+        return lookups[i];
+    }
+
     public Lookup getLookup(Feature feature, int index) {
 	if(feature==null){
 	       System.out.println("Feature is null!! Index is "+index+"!!");
@@ -0,0 +1,80 @@
+/*
+
+   Copyright 2001,2003  The Apache Software Foundation 
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.batik.svggen.font.table;
+
+import java.io.IOException;
+import org.apache.batik.svggen.font.*;
+
+/**
+ * Pair adjustment positioning subtable of the GPOS table, which tells how
+ * the advance of a glyph changes when it is followed by another one.  Only
+ * the horizontal advance of the first glyph is kept, which is what kerning
+ * uses.
+ *
+ * @version $Id$
+ */
+public abstract class PairPos extends LookupSubtable {
+
+    // ValueFormat bit enumeration
+    public static final int X_PLACEMENT = 0x0001;
+    public static final int Y_PLACEMENT = 0x0002;
+    public static final int X_ADVANCE = 0x0004;
+    public static final int Y_ADVANCE = 0x0008;
+
+    protected Coverage coverage;
+
+    public abstract int getFormat();
+
+    /**
+     * @return The coverage of the first glyphs of the pairs.
+     */
+    public Coverage getCoverage() {
+        return coverage;
+    }
+
+    public static PairPos read(RandomAccessFileEmulator raf, int offset) throws IOException {
+        PairPos p = null;
+        raf.seek(offset);
+        int format = raf.readUnsignedShort();
+        if (format == 1) {
+            p = new PairPosFormat1(raf, offset);
+        } else if (format == 2) {
+            p = new PairPosFormat2(raf, offset);
+        }
+        return p;
+    }
+
+    /**
+     * Reads a value record and returns its horizontal advance.
+     * @param valueFormat The fields present in the record.
+     */
+    protected static short readXAdvance(RandomAccessFileEmulator raf, int valueFormat)
+    throws IOException {
+        short xAdvance = 0;
+        for (int bit = 1; bit <= 0x80; bit <<= 1) {
+            if ((valueFormat & bit) != 0) {
+                short value = raf.readShort();
+                if (bit == X_ADVANCE) {
+                    xAdvance = value;
+                }
+            }
+        }
+        return xAdvance;
+    }
+}
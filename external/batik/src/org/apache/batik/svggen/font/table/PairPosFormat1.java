@@ -0,0 +1,84 @@
+/*
+
+   Copyright 2001,2003  The Apache Software Foundation 
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.batik.svggen.font.table;
+
+import java.io.IOException;
+import org.apache.batik.svggen.font.*;
+
+/**
+ * Pair adjustment subtable listing the adjusted pairs one by one.
+ *
+ * @version $Id$
+ */
+public class PairPosFormat1 extends PairPos {
+
+    private KerningPair[] kerningPairs;
+
+    /** Creates new PairPosFormat1 */
+    protected PairPosFormat1(RandomAccessFileEmulator raf, int offset) throws IOException {
+        int coverageOffset = raf.readUnsignedShort();
+        int valueFormat1 = raf.readUnsignedShort();
+        int valueFormat2 = raf.readUnsignedShort();
+        int pairSetCount = raf.readUnsignedShort();
+        int[] pairSetOffsets = new int[pairSetCount];
+        for (int i = 0; i < pairSetCount; i++) {
+            pairSetOffsets[i] = raf.readUnsignedShort();
+        }
+        raf.seek(offset + coverageOffset);
+        coverage = Coverage.read(raf);
+        int[] firstGlyphs = coverage.getGlyphIds();
+
+        int[] pairValueCounts = new int[pairSetCount];
+        int nPairs = 0;
+        for (int i = 0; i < pairSetCount; i++) {
+            raf.seek(offset + pairSetOffsets[i]);
+            pairValueCounts[i] = raf.readUnsignedShort();
+            nPairs += pairValueCounts[i];
+        }
+
+        kerningPairs = new KerningPair[nPairs];
+        int n = 0;
+        for (int i = 0; i < pairSetCount && i < firstGlyphs.length; i++) {
+            raf.seek(offset + pairSetOffsets[i] + 2);
+            for (int j = 0; j < pairValueCounts[i]; j++) {
+                int secondGlyph = raf.readUnsignedShort();
+                short xAdvance = readXAdvance(raf, valueFormat1);
+                readXAdvance(raf, valueFormat2);
+                kerningPairs[n++] = new KerningPair(firstGlyphs[i], secondGlyph, xAdvance);
+            }
+        }
+        if (n < nPairs) {
+            KerningPair[] pairs = new KerningPair[n];
+            System.arraycopy(kerningPairs, 0, pairs, 0, n);
+            kerningPairs = pairs;
+        }
+    }
+
+    public int getFormat() {
+        return 1;
+    }
+
+    public int getKerningPairCount() {
+        return kerningPairs.length;
+    }
+
+    public KerningPair getKerningPair(int i) {
+        return kerningPairs[i];
+    }
+}
@@ -0,0 +1,91 @@
+/*
+
+   Copyright 2001,2003  The Apache Software Foundation 
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.batik.svggen.font.table;
+
+import java.io.IOException;
+import org.apache.batik.svggen.font.*;
+
+/**
+ * Pair adjustment subtable giving the adjustments between classes of
+ * glyphs.
+ *
+ * @version $Id$
+ */
+public class PairPosFormat2 extends PairPos {
+
+    private ClassDef classDef1;
+    private ClassDef classDef2;
+    private int class1Count;
+    private int class2Count;
+    private short[] xAdvances;
+
+    /** Creates new PairPosFormat2 */
+    protected PairPosFormat2(RandomAccessFileEmulator raf, int offset) throws IOException {
+        int coverageOffset = raf.readUnsignedShort();
+        int valueFormat1 = raf.readUnsignedShort();
+        int valueFormat2 = raf.readUnsignedShort();
+        int classDef1Offset = raf.readUnsignedShort();
+        int classDef2Offset = raf.readUnsignedShort();
+        class1Count = raf.readUnsignedShort();
+        class2Count = raf.readUnsignedShort();
+        xAdvances = new short[class1Count * class2Count];
+        for (int i = 0; i < xAdvances.length; i++) {
+            xAdvances[i] = readXAdvance(raf, valueFormat1);
+            readXAdvance(raf, valueFormat2);
+        }
+        raf.seek(offset + coverageOffset);
+        coverage = Coverage.read(raf);
+        raf.seek(offset + classDef1Offset);
+        classDef1 = ClassDef.read(raf);
+        raf.seek(offset + classDef2Offset);
+        classDef2 = ClassDef.read(raf);
+    }
+
+    public int getFormat() {
+        return 2;
+    }
+
+    public ClassDef getClassDef1() {
+        return classDef1;
+    }
+
+    public ClassDef getClassDef2() {
+        return classDef2;
+    }
+
+    public int getClass1Count() {
+        return class1Count;
+    }
+
+    public int getClass2Count() {
+        return class2Count;
+    }
+
+    /**
+     * @return The change of the advance of the first glyph of a pair,
+     * given the classes of both glyphs.
+     */
+    public short getXAdvance(int class1, int class2) {
+        if (class1 < 0 || class1 >= class1Count
+            || class2 < 0 || class2 >= class2Count) {
+            return 0;
+        }
+        return xAdvances[class1 * class2Count + class2];
+    }
+}
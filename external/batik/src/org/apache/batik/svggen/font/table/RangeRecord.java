@@ -39,6 +39,22 @@ public class RangeRecord {
         startCoverageIndex = raf.readUnsignedShort();
     }
 
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The coverage index of the first glyph of the range, or the
+     * class of the glyphs of the range in a class definition.
+     */
+    public int getStartCoverageIndex() {
+        return startCoverageIndex;
+    }
+
     public boolean isInRange(int glyphId) {
         return (start <= glyphId && glyphId <= end);
     }
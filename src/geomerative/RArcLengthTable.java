@@ -0,0 +1,204 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+/**
+ * Table of points sampled along the paths of a shape with the length of the path up to each of them, used to find the point and the direction at a given distance along the shape without walking its commands and measuring its curves again for each position.  The paths of the shape are taken one after the other, in the same order as getPoints, and the jumps between them do not count in the length.
+ * @invisible
+ */
+class RArcLengthTable
+{
+  /* The largest distance between the control points of a curve covered by one sample */
+  private static final float SAMPLE_LENGTH = 2F;
+  private static final int MIN_CURVE_SAMPLES = 4;
+  private static final int MAX_CURVE_SAMPLES = 256;
+
+  /* The samples, as coordinates and as the length of the shape up to each one */
+  private float[] xs = new float[64];
+  private float[] ys = new float[64];
+  private float[] lengths = new float[64];
+  private int numSamples = 0;
+
+  /* Whether the shape is a single closed path, along which the distances wrap around */
+  private boolean closed = false;
+
+  /* The segment found last, where the search starts from since the distances asked for usually follow each other */
+  private int cursor = 0;
+
+  RArcLengthTable(RShape shp){
+    int numPaths = countPaths(shp);
+    add(shp);
+    closed = numPaths == 1 && firstPath(shp).closed;
+  }
+
+  /* The length of the paths of the shape */
+  float getLength(){
+    return (numSamples == 0) ? 0F : lengths[numSamples - 1];
+  }
+
+  boolean isClosed(){
+    return closed;
+  }
+
+  /* Write the point at a distance along the shape and the angle of the shape there into out, starting at a position.  The distances past the ends of a closed shape wrap around, and it returns false for the ones past the ends of an open shape */
+  boolean locate(float s, float[] out, int at){
+    float length = getLength();
+    if(numSamples < 2 || length <= 0){
+      return false;
+    }
+
+    if(closed){
+      s = s % length;
+      if(s < 0){
+        s += length;
+      }
+    }else if(s < 0 || s > length){
+      return false;
+    }
+
+    // The table is shared by the users of the shape, the cursor is only a hint
+    int i = cursor;
+    if(s < lengths[i]){
+      i = search(s);
+    }
+    while(i < numSamples - 2 && lengths[i + 1] <= s){
+      i++;
+    }
+    cursor = i;
+
+    float dx = xs[i + 1] - xs[i];
+    float dy = ys[i + 1] - ys[i];
+    float dl = lengths[i + 1] - lengths[i];
+    float t = (dl > 0) ? (s - lengths[i]) / dl : 0F;
+
+    out[at] = xs[i] + dx * t;
+    out[at + 1] = ys[i] + dy * t;
+    out[at + 2] = (float)Math.atan2(dy, dx);
+    return true;
+  }
+
+  /* The last sample at or before a distance */
+  private int search(float s){
+    int lo = 0;
+    int hi = numSamples - 2;
+    while(lo < hi){
+      int mid = (lo + hi + 1) >>> 1;
+      if(lengths[mid] <= s){
+        lo = mid;
+      }else{
+        hi = mid - 1;
+      }
+    }
+    return lo;
+  }
+
+  private void add(RShape shp){
+    for(int i = 0; i < shp.countPaths(); i++){
+      add(shp.paths[i]);
+    }
+    for(int i = 0; i < shp.countChildren(); i++){
+      add(shp.children[i]);
+    }
+  }
+
+  private void add(RPath path){
+    int numCommands = path.countCommands();
+    if(numCommands == 0){
+      return;
+    }
+
+    // The jump from the previous path adds a sample without adding to the length
+    RPoint start = path.commands[0].startPoint;
+    addSample(start.x, start.y, numSamples == 0 ? 0F : lengths[numSamples - 1]);
+
+    for(int i = 0; i < numCommands; i++){
+      RCommand c = path.commands[i];
+      if(c.getCommandType() == RCommand.LINETO){
+        addPoint(c.endPoint.x, c.endPoint.y);
+        continue;
+      }
+
+      // The curves are sampled more finely the longer their control polygon
+      float hull = 0;
+      RPoint prev = c.startPoint;
+      RPoint[] cps = c.controlPoints;
+      for(int j = 0; cps != null && j <= cps.length; j++){
+        RPoint next = (j < cps.length) ? cps[j] : c.endPoint;
+        hull += prev.dist(next);
+        prev = next;
+      }
+      int steps = Math.max(MIN_CURVE_SAMPLES, Math.min(MAX_CURVE_SAMPLES, (int)Math.ceil(hull / SAMPLE_LENGTH)));
+      for(int j = 1; j < steps; j++){
+        RPoint p = c.getPoint((float)j / (float)steps);
+        addPoint(p.x, p.y);
+      }
+      addPoint(c.endPoint.x, c.endPoint.y);
+    }
+  }
+
+  /* Add a point following the last sample, measuring the distance to it, unless it is the same point */
+  private void addPoint(float x, float y){
+    float dx = x - xs[numSamples - 1];
+    float dy = y - ys[numSamples - 1];
+    if(dx == 0 && dy == 0){
+      return;
+    }
+    addSample(x, y, lengths[numSamples - 1] + (float)Math.sqrt(dx*dx + dy*dy));
+  }
+
+  private void addSample(float x, float y, float length){
+    if(numSamples == xs.length){
+      xs = grow(xs);
+      ys = grow(ys);
+      lengths = grow(lengths);
+    }
+    xs[numSamples] = x;
+    ys[numSamples] = y;
+    lengths[numSamples] = length;
+    numSamples++;
+  }
+
+  private static float[] grow(float[] array){
+    float[] result = new float[array.length * 2];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static int countPaths(RShape shp){
+    int count = shp.countPaths();
+    for(int i = 0; i < shp.countChildren(); i++){
+      count += countPaths(shp.children[i]);
+    }
+    return count;
+  }
+
+  private static RPath firstPath(RShape shp){
+    if(shp.countPaths() > 0){
+      return shp.paths[0];
+    }
+    for(int i = 0; i < shp.countChildren(); i++){
+      RPath path = firstPath(shp.children[i]);
+      if(path != null){
+        return path;
+      }
+    }
+    return null;
+  }
+}
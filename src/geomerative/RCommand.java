@@ -71,6 +71,16 @@ public class RCommand extends RGeomElem
   static final float segmentCollinearityEpsilon = 1.192092896e-07F;
   static final float segmentAngleTolEpsilon = 0.01F;
 
+  /**
+   * @invisible
+   */
+  public static final int LOD_MIN_LEVEL = -4;
+  /**
+   * Highest level of detail, shapes drawn zoomed more than 2^LOD_MAX_LEVEL times are segmented as if they were at that zoom.
+   * @invisible
+   */
+  public static final int LOD_MAX_LEVEL = 10;
+
   static float segmentGfxStrokeWeight = 1.0F;
   static float segmentGfxScale = 1.0F;
   static float segmentApproxScale = 1.0F;
@@ -82,7 +92,13 @@ public class RCommand extends RGeomElem
   /* Parameters for UNIFORMLENGTH (dependent of the PGraphics on which drawing) */
   static float segmentLength = 4.0F;
   static float segmentOffset = 0.0F;
-  static float segmentAccOffset = 0.0F;
+
+  /* The length left until the next point, carried from one command to the next of a path, for each thread so that shapes can be segmented in parallel */
+  private static final ThreadLocal<float[]> segmentAccOffset = new ThreadLocal<float[]>(){
+    protected float[] initialValue(){
+      return new float[1];
+    }
+  };
 
   /* Parameters for UNIFORMSTEP */
   static int segmentSteps = 0;
@@ -287,6 +303,19 @@ public class RCommand extends RGeomElem
     segmentType = segmentatorType;
   }
 
+  /* The settings of the segmentator that change the result of segmenting a command, for the caches of segmented or tesselated geometry */
+  static int[] getSegmentatorSettings(){
+    return new int[] {
+      segmentType,
+      Float.floatToIntBits(segmentDistTolSqr),
+      Float.floatToIntBits(segmentDistTolMnhttn),
+      Float.floatToIntBits(segmentAngleTol),
+      Float.floatToIntBits(segmentLength),
+      segmentSteps,
+      segmentLines ? 1 : 0
+    };
+  }
+
   /**
    * Use this to set the segmentator graphic context.
    * @eexample setSegmentGraphic
@@ -294,13 +323,8 @@ public class RCommand extends RGeomElem
    * */
   public static void setSegmentGraphic(PGraphics g){
     // Set the segmentApproxScale from the graphic context g
-    segmentApproxScale = 1.0F;
-
-    // Set all the gfx-context dependent parameters for all segmentators
+    setSegmentScale(getGraphicScale(g));
 
-    segmentDistTolSqr = 0.5F / segmentApproxScale;
-    segmentDistTolSqr *= segmentDistTolSqr;
-    segmentDistTolMnhttn = 4.0F / segmentApproxScale;
     segmentAngleTol = 0.0F;
 
     if(g.stroke && (g.strokeWeight * segmentApproxScale > 1.0F))
@@ -309,6 +333,71 @@ public class RCommand extends RGeomElem
       }
   }
 
+  /**
+   * Use this to set the scale at which the commands will be drawn.  The distance tolerances of the ADAPTATIVE segmentator are adapted so that the segmentation error stays under half a pixel at that scale.
+   * @eexample setSegmentScale
+   * @param scale  the ratio between screen units and shape units.
+   * */
+  public static void setSegmentScale(float scale){
+    if(scale <= 0F){
+      throw new RuntimeException("The segment scale must be a value bigger than 0.");
+    }
+
+    segmentApproxScale = scale;
+
+    // Set all the gfx-context dependent parameters for all segmentators
+    segmentDistTolSqr = 0.5F / segmentApproxScale;
+    segmentDistTolSqr *= segmentDistTolSqr;
+    segmentDistTolMnhttn = 4.0F / segmentApproxScale;
+  }
+
+  /**
+   * Use this to get the scale of the current transformation of a graphics object.  This is the square root of the determinant of the linear part of the matrix, so that non-uniform scalings get their mean scale.
+   * @eexample getGraphicScale
+   * @param g  the graphics object from which to take the transformation.
+   * @return float, the scale of the transformation, 1 if the renderer does not provide one.
+   * */
+  public static float getGraphicScale(PGraphics g){
+    PMatrix m = null;
+    try{
+      m = g.getMatrix();
+    }catch(RuntimeException e){
+      // The renderer does not keep a matrix
+    }
+
+    float det = 0F;
+    if(m instanceof PMatrix2D){
+      PMatrix2D m2 = (PMatrix2D)m;
+      det = m2.m00 * m2.m11 - m2.m01 * m2.m10;
+    }else if(m instanceof PMatrix3D){
+      PMatrix3D m3 = (PMatrix3D)m;
+      det = m3.m00 * m3.m11 - m3.m01 * m3.m10;
+    }
+
+    det = Math.abs(det);
+    if(det < segmentDistanceEpsilon || Float.isNaN(det) || Float.isInfinite(det)){
+      return 1.0F;
+    }
+
+    return (float)Math.sqrt(det);
+  }
+
+  /**
+   * Use this to get the level of detail that corresponds to a given scale.  Levels are powers of two of the scale, clamped between LOD_MIN_LEVEL and LOD_MAX_LEVEL, so the segmentation error stays under half a pixel for zooms up to 1024 times.
+   * @param scale  the ratio between screen units and shape units.
+   * @return int, the level of detail
+   * @invisible
+   * */
+  public static int getLevelOfDetail(float scale){
+    if(scale <= 0F){
+      return LOD_MIN_LEVEL;
+    }
+
+    // Round up, to never draw with less detail than needed
+    int level = (int)Math.ceil(Math.log(scale) / Math.log(2.0) - 0.01);
+    return Math.max(LOD_MIN_LEVEL, Math.min(LOD_MAX_LEVEL, level));
+  }
+
   /**
    * Use this to set the segmentator angle tolerance for the ADAPTATIVE segmentator and set the segmentator to ADAPTATIVE.
    * @eexample setSegmentAngle
@@ -371,6 +460,14 @@ public class RCommand extends RGeomElem
   }
 
 
+  static float getSegmentAccOffset(){
+    return segmentAccOffset.get()[0];
+  }
+
+  static void setSegmentAccOffset(float offset){
+    segmentAccOffset.get()[0] = offset;
+  }
+
   protected void saveSegmentatorContext(){
     oldSegmentType = RCommand.segmentType;
 
@@ -386,7 +483,7 @@ public class RCommand extends RGeomElem
     /* Parameters for UNIFORMLENGTH (dependent of the PGraphics on which drawing) */
     oldSegmentLength = RCommand.segmentLength;
     oldSegmentOffset = RCommand.segmentOffset;
-    oldSegmentAccOffset = RCommand.segmentAccOffset;
+    oldSegmentAccOffset = getSegmentAccOffset();
 
     /* Parameters for UNIFORMSTEP */
     oldSegmentSteps = RCommand.segmentSteps;
@@ -408,7 +505,7 @@ public class RCommand extends RGeomElem
     /* Parameters for UNIFORMLENGTH (dependent of the PGraphics on which drawing) */
     RCommand.segmentLength = oldSegmentLength;
     RCommand.segmentOffset = oldSegmentOffset;
-    RCommand.segmentAccOffset = oldSegmentAccOffset;
+    setSegmentAccOffset(oldSegmentAccOffset);
 
     /* Parameters for UNIFORMSTEP */
     RCommand.segmentSteps = oldSegmentSteps;
@@ -466,6 +563,30 @@ public class RCommand extends RGeomElem
     return controlPoints;
   }
 
+  /* The points of the command segmented with the ADAPTATIVE segmentator for a given scale, leaving the settings of the segmentator untouched */
+  RPoint[] getPointsForScale(float scale){
+    float distTolSqr = 0.5F / scale;
+    distTolSqr *= distTolSqr;
+    float distTolMnhttn = 4.0F / scale;
+
+    switch(commandType){
+    case QUADBEZIERTO:
+      quadBezierAdaptative(distTolSqr, distTolMnhttn);
+      break;
+
+    case CUBICBEZIERTO:
+      cubicBezierAdaptative(distTolSqr, distTolMnhttn);
+      break;
+
+    default:
+      return new RPoint[] {startPoint, endPoint};
+    }
+
+    RPoint[] result = curvePoints;
+    curvePoints = null;
+    return result;
+  }
+
   /**
    * Use this to return the points on the curve.  It returns the points in the way of an array of RPoint.
    * @eexample getPoints
@@ -478,9 +599,9 @@ public class RCommand extends RGeomElem
   protected RPoint[] getPoints(boolean resetSegmentator){
 
     if(resetSegmentator){
+      // Only the offset of this thread is changed, the one of the paths being segmented by other threads is not
       saveSegmentatorContext();
-      RCommand.segmentOffset = 0F;
-      RCommand.segmentAccOffset = 0F;
+      setSegmentAccOffset(0F);
     }
 
 
@@ -495,13 +616,13 @@ public class RCommand extends RGeomElem
         break;
 
       case QUADBEZIERTO:
-        quadBezierAdaptative();
+        quadBezierAdaptative(segmentDistTolSqr, segmentDistTolMnhttn);
         result = curvePoints;
         curvePoints = null;
         break;
 
       case CUBICBEZIERTO:
-        cubicBezierAdaptative();
+        cubicBezierAdaptative(segmentDistTolSqr, segmentDistTolMnhttn);
         result = curvePoints;
         curvePoints = null;
         break;
@@ -934,13 +1055,13 @@ public class RCommand extends RGeomElem
     return result;
   }
 
-  private void quadBezierAdaptative(){
+  private void quadBezierAdaptative(float distTolSqr, float distTolMnhttn){
     addCurvePoint(new RPoint(startPoint));
-    quadBezierAdaptativeRecursive(startPoint.x, startPoint.y, controlPoints[0].x, controlPoints[0].y, endPoint.x, endPoint.y, 0);
+    quadBezierAdaptativeRecursive(startPoint.x, startPoint.y, controlPoints[0].x, controlPoints[0].y, endPoint.x, endPoint.y, 0, distTolSqr, distTolMnhttn);
     addCurvePoint(new RPoint(endPoint));
   }
 
-  private void quadBezierAdaptativeRecursive(float x1, float y1, float x2, float y2, float x3, float y3, int level){
+  private void quadBezierAdaptativeRecursive(float x1, float y1, float x2, float y2, float x3, float y3, int level, float distTolSqr, float distTolMnhttn){
 
     if(level > segmentRecursionLimit)
       {
@@ -964,7 +1085,7 @@ public class RCommand extends RGeomElem
       {
         // Regular care
         //-----------------
-        if(d * d <= segmentDistTolSqr * (dx*dx + dy*dy))
+        if(d * d <= distTolSqr * (dx*dx + dy*dy))
           {
             // If the curvature doesn't exceed the distance_tolerance value
             // we tend to finish subdivisions.
@@ -991,7 +1112,7 @@ public class RCommand extends RGeomElem
       }
     else
       {
-        if(Math.abs(x1 + x3 - x2 - x2) + Math.abs(y1 + y3 - y2 - y2) <= segmentDistTolMnhttn)
+        if(Math.abs(x1 + x3 - x2 - x2) + Math.abs(y1 + y3 - y2 - y2) <= distTolMnhttn)
           {
             addCurvePoint(new RPoint(x123, y123));
             return;
@@ -1000,17 +1121,17 @@ public class RCommand extends RGeomElem
 
     // Continue subdivision
     //----------------------
-    quadBezierAdaptativeRecursive(x1, y1, x12, y12, x123, y123, level + 1);
-    quadBezierAdaptativeRecursive(x123, y123, x23, y23, x3, y3, level + 1);
+    quadBezierAdaptativeRecursive(x1, y1, x12, y12, x123, y123, level + 1, distTolSqr, distTolMnhttn);
+    quadBezierAdaptativeRecursive(x123, y123, x23, y23, x3, y3, level + 1, distTolSqr, distTolMnhttn);
   }
 
-  private void cubicBezierAdaptative(){
+  private void cubicBezierAdaptative(float distTolSqr, float distTolMnhttn){
     addCurvePoint(new RPoint(startPoint));
-    cubicBezierAdaptativeRecursive(startPoint.x, startPoint.y, controlPoints[0].x, controlPoints[0].y, controlPoints[1].x, controlPoints[1].y, endPoint.x, endPoint.y, 0);
+    cubicBezierAdaptativeRecursive(startPoint.x, startPoint.y, controlPoints[0].x, controlPoints[0].y, controlPoints[1].x, controlPoints[1].y, endPoint.x, endPoint.y, 0, distTolSqr, distTolMnhttn);
     addCurvePoint(new RPoint(endPoint));
   }
 
-  private void cubicBezierAdaptativeRecursive(float x1, float y1, float x2, float y2, float x3, float y3, float x4, float y4, int level){
+  private void cubicBezierAdaptativeRecursive(float x1, float y1, float x2, float y2, float x3, float y3, float x4, float y4, int level, float distTolSqr, float distTolMnhttn){
     if(level > segmentRecursionLimit)
       {
         return;
@@ -1049,7 +1170,7 @@ public class RCommand extends RGeomElem
       if(Math.abs(x1 + x3 - x2 - x2) +
          Math.abs(y1 + y3 - y2 - y2) +
          Math.abs(x2 + x4 - x3 - x3) +
-         Math.abs(y2 + y4 - y3 - y3) <= segmentDistTolMnhttn)
+         Math.abs(y2 + y4 - y3 - y3) <= distTolMnhttn)
         {
           addCurvePoint(new RPoint(x1234, y1234));
           return;
@@ -1059,7 +1180,7 @@ public class RCommand extends RGeomElem
     case 1:
       // p1,p2,p4 are collinear, p3 is considerable
       //----------------------
-      if(d3 * d3 <= segmentDistTolSqr * (dx*dx + dy*dy))
+      if(d3 * d3 <= distTolSqr * (dx*dx + dy*dy))
         {
           if(segmentAngleTol < segmentAngleTolEpsilon)
             {
@@ -1093,7 +1214,7 @@ public class RCommand extends RGeomElem
     case 2:
       // p1,p3,p4 are collinear, p2 is considerable
       //----------------------
-      if(d2 * d2 <= segmentDistTolSqr * (dx*dx + dy*dy))
+      if(d2 * d2 <= distTolSqr * (dx*dx + dy*dy))
         {
           if(segmentAngleTol < segmentAngleTolEpsilon)
             {
@@ -1127,7 +1248,7 @@ public class RCommand extends RGeomElem
     case 3:
       // Regular care
       //-----------------
-      if((d2 + d3)*(d2 + d3) <= segmentDistTolSqr * (dx*dx + dy*dy))
+      if((d2 + d3)*(d2 + d3) <= distTolSqr * (dx*dx + dy*dy))
         {
           // If the curvature doesn't exceed the distance_tolerance value
           // we tend to finish subdivisions.
@@ -1174,8 +1295,8 @@ public class RCommand extends RGeomElem
 
     // Continue subdivision
     //----------------------
-    cubicBezierAdaptativeRecursive(x1, y1, x12, y12, x123, y123, x1234, y1234, level + 1);
-    cubicBezierAdaptativeRecursive(x1234, y1234, x234, y234, x34, y34, x4, y4, level + 1);
+    cubicBezierAdaptativeRecursive(x1, y1, x12, y12, x123, y123, x1234, y1234, level + 1, distTolSqr, distTolMnhttn);
+    cubicBezierAdaptativeRecursive(x1234, y1234, x234, y234, x34, y34, x4, y4, level + 1, distTolSqr, distTolMnhttn);
   }
 
   private void lineUniformStep(){
@@ -1331,7 +1452,7 @@ public class RCommand extends RGeomElem
     float dt = 1F/steps;
 
     // This holds how much length has to bee advanced until adding a point
-    float untilPoint = RCommand.segmentAccOffset;
+    float untilPoint = getSegmentAccOffset();
 
     float fx, fy, fdx, fdy;
 
@@ -1356,7 +1477,7 @@ public class RCommand extends RGeomElem
     }
 
     //addCurvePoint(new RPoint(endPoint));
-    RCommand.segmentAccOffset = untilPoint;
+    setSegmentAccOffset(untilPoint);
   }
 
   // Use Horner's method to advance
@@ -1373,7 +1494,7 @@ public class RCommand extends RGeomElem
     if(steps < 4) steps = 4;
 
     float dt = 1F/steps;
-    float untilPoint = RCommand.segmentAccOffset;
+    float untilPoint = getSegmentAccOffset();
 
     float fx, fy, fdx, fdy, fddx, fddy, fdd_per_2x, fdd_per_2y, fix, fiy;
     float temp = dt * dt;
@@ -1408,7 +1529,7 @@ public class RCommand extends RGeomElem
     }
 
     //addCurvePoint(new RPoint(endPoint));
-    RCommand.segmentAccOffset = untilPoint;
+    setSegmentAccOffset(untilPoint);
   }
 
   // Use Horner's method to advance
@@ -1430,7 +1551,7 @@ public class RCommand extends RGeomElem
     if(steps < 4) steps = 4;
 
     float dt = 1F/steps;
-    float untilPoint = RCommand.segmentAccOffset;
+    float untilPoint = getSegmentAccOffset();
 
     float fx, fy, fdx, fdy, fddx, fddy, fdddx, fdddy, fdd_per_2x, fdd_per_2y, fddd_per_2x, fddd_per_2y, fddd_per_6x, fddd_per_6y, fix, fiy;
     float temp = dt * dt;
@@ -1475,7 +1596,7 @@ public class RCommand extends RGeomElem
     }
 
     //addCurvePoint(new RPoint(endPoint));
-    RCommand.segmentAccOffset = untilPoint;
+    setSegmentAccOffset(untilPoint);
   }
 
   private float quadBezierLength(){
@@ -234,6 +234,17 @@ public class RContour extends RGeomElem
       }
   }
   
+  /**
+   * Use this to simplify the contour using the current simplifier, so that it deviates less than the tolerance from the original.  Closed contours never collapse to less than a triangle.
+   * @eexample simplify
+   * @param tolerance  the maximum distance between the original and the simplified contour
+   * @related RSimplifier
+   */
+  public void simplify(float tolerance){
+    points = RSimplifier.simplify(points, tolerance, closed);
+    clearCache();
+  }
+
   public void addClose(){
     if(points == null){
       return;
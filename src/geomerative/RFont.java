@@ -18,6 +18,17 @@
 */
 
 package geomerative;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import processing.core.*;
 
 import org.apache.batik.svggen.font.*;
@@ -60,12 +71,39 @@ public class RFont implements PConstants{
    * Should we try to use ASCII, rather than Unicode?
    */
   public boolean forceAscii = false;
+
+  final static int DEFAULT_CACHE_SIZE = 512;
+
+  /* The outlines of the glyphs already used, in font units, by glyph index, the least recently used first */
+  private LinkedHashMap<Integer, Outline> outlines = new LinkedHashMap<Integer, Outline>(64, 0.75f, true);
+  private int cacheSize = DEFAULT_CACHE_SIZE;
+  private int cacheHits = 0;
+  private int cacheMisses = 0;
+
+  /* The shapes drawn for the glyphs at the current size and settings of the segmentator, the least recently used first */
+  private LinkedHashMap<Integer, GlyphDrawing> drawings = new LinkedHashMap<Integer, GlyphDrawing>(64, 0.75f, true);
+  private float drawingsScale = 0;
+  private int[] drawingsSettings = null;
+
+  /* The cmap table used, with the glyphs of the characters already looked up in it */
+  private CmapFormat cmap;
+  private boolean cmapAscii = false;
+  private boolean cmapResolved = false;
+  private char[][] glyphPages;
+
+  /* The distance between the baselines of the lines of a paragraph, or 0 for the one given by the font */
+  private float lineSpacing = 0;
+
+  /* The kerning of the pairs of glyphs, read from the font the first time it is needed */
+  private boolean kerningEnabled = true;
+  private RKerning kerning;
+  private boolean kerningRead = false;
   
   
   /**
    * The constructor of the RFont object.  Use this in order to create a font with which we will be able to draw and obtain outlines of text.
    * @eexample RFont
-   * @param fontPath String, the name of the TrueType Font file which should be situated in the data folder of the sketch.
+   * @param fontPath String, the name of the TrueType Font file which should be situated in the data folder of the sketch, or its path if the library has not been initialized.
    * @param size int, the point size of the font in points.
    * @param align int, this can only take the following values: RFont.LEFT, RFont.CENTER and RFont.RIGHT.
    * @related toGroup ( )
@@ -75,9 +113,8 @@ public class RFont implements PConstants{
    * @related draw ( )
    */
   public RFont(String fontPath, int size, int align) throws RuntimeException{   
-    // Try to find the font as font path
-    byte[] bs = RG.parent().loadBytes(fontPath);
-    f = Font.create(bs);
+    // The fonts opened from the same file share the parsed face
+    f = RFontRegistry.get(fontPath);
     
     setSize(size);
     setAlign(align);
@@ -107,30 +144,33 @@ public class RFont implements PConstants{
     //System.out.println(scaleFactorFixed);
   }
 
+  /**
+   * Use this method to set the distance between the baselines of the lines of the paragraphs laid out by the font.
+   * @eexample setLineSpacing
+   * @param spacing float, the distance between two lines, or 0 in order to use the one given by the font.
+   * @related getLineSpacing ( )
+   * @related toLines ( )
+   */
+  public void setLineSpacing(float spacing){
+    this.lineSpacing = spacing;
+  }
+
+  /**
+   * Use this method to get the distance between the baselines of the lines of the paragraphs laid out by the font.  Unless it has been set, it is the one given by the horizontal header table of the font: the ascender minus the descender plus the line gap.
+   * @eexample getLineSpacing
+   * @return float, the distance between two lines.
+   * @related setLineSpacing ( )
+   * @related toLines ( )
+   */
   public float getLineSpacing() {
+    if (lineSpacing > 0) {
+      return lineSpacing;
+    }
+
     // More info at:
     //    http://fontforge.sourceforge.net/faq.html#linespace
     //    http://typophile.com/node/13081
-    short unitsPerEm = f.getHeadTable().getUnitsPerEm();
-    System.out.println("UnitsPerEm (emsize): " + unitsPerEm);
-
-    // HHEA table method:
-    float hheaLineGap = (f.getHheaTable().getAscender() - f.getHheaTable().getDescender() + f.getHheaTable().getLineGap()) * this.scaleFactor;
-    System.out.println("HHEA lineGap: " + hheaLineGap);
-
-    // OS2 table typographic line gap method:
-    float os2TypoLineGap = (f.getOS2Table().getTypoAscender() - f.getOS2Table().getTypoDescender() + f.getOS2Table().getTypoLineGap()) * this.scaleFactor;
-    System.out.println("Os2 Typo lineGap: " + os2TypoLineGap);
-
-    // OS2 table win line gap method:
-    float os2WinLineGap = (f.getOS2Table().getWinAscent() + f.getOS2Table().getWinDescent()) * this.scaleFactor;
-    System.out.println("Os2 Win lineGap: " + os2WinLineGap);
-
-    // Automatic calculation
-    float autoLineGap = f.getHeadTable().getUnitsPerEm() * 1.25f * this.scaleFactor;
-    System.out.println("Automatic lineGap: " + autoLineGap);
-
-    return hheaLineGap;
+    return (f.getHheaTable().getAscender() - f.getHheaTable().getDescender() + f.getHheaTable().getLineGap()) * this.scaleFactor;
   }
   
   /**
@@ -154,6 +194,181 @@ public class RFont implements PConstants{
     return f.getNameTable().getRecord(org.apache.batik.svggen.font.table.Table.nameFontFamilyName);
   }
   
+  /**
+   * Use this method to set how many outlines of glyphs the font keeps in order not to outline again the characters that are repeated in the texts.  The outlines are kept in font units, so they serve all the sizes of the font.  The same number of glyphs is kept ready to be drawn, with their meshes, at the current size.  When the limit is reached the outlines used least recently are dropped.
+   * @eexample setCacheSize
+   * @param size int, the maximum number of outlines kept, or 0 in order not to keep any.
+   * @related getCacheHits ( )
+   * @related getCacheMisses ( )
+   */
+  public void setCacheSize(int size){
+    if(size < 0){
+      throw new RuntimeException("The size of the cache of outlines cannot be negative.");
+    }
+
+    synchronized(outlines){
+      cacheSize = size;
+      trimCache(outlines);
+    }
+    synchronized(drawings){
+      trimCache(drawings);
+    }
+  }
+
+  /**
+   * Use this method to know how many times the outline of a glyph was found in the cache of the font.
+   * @eexample getCacheHits
+   * @return int, the number of outlines taken from the cache.
+   * @related setCacheSize ( )
+   * @related getCacheMisses ( )
+   */
+  public int getCacheHits(){
+    synchronized(outlines){
+      return cacheHits;
+    }
+  }
+
+  /**
+   * Use this method to know how many times the outline of a glyph had to be built because it was not in the cache of the font.
+   * @eexample getCacheMisses
+   * @return int, the number of outlines built.
+   * @related setCacheSize ( )
+   * @related getCacheHits ( )
+   */
+  public int getCacheMisses(){
+    synchronized(outlines){
+      return cacheMisses;
+    }
+  }
+
+  /**
+   * Use this method to empty the caches of outlines and of shapes drawn of the font and reset its counts of hits and misses.
+   * @eexample clearCache
+   * @related setCacheSize ( )
+   */
+  public void clearCache(){
+    synchronized(outlines){
+      outlines.clear();
+      cacheHits = 0;
+      cacheMisses = 0;
+    }
+    synchronized(drawings){
+      drawings.clear();
+    }
+  }
+
+  /**
+   * Use this method to set whether the space between the characters of a text is adjusted for each pair of characters, as given by the kerning of the font.  Kerning is on by default.
+   * @eexample setKerning
+   * @param kerning boolean, true in order to adjust the space between the pairs of characters.
+   * @related getKerning ( )
+   */
+  public void setKerning(boolean kerning){
+    this.kerningEnabled = kerning;
+  }
+
+  /**
+   * Use this method to get the adjustment of the space between two characters given by the kerning of the font.
+   * @eexample getKerning
+   * @param left char, the first character of the pair.
+   * @param right char, the character following it.
+   * @return float, the change of the horizontal advance of the first character at the size of the font, usually negative.
+   * @related setKerning ( )
+   */
+  public float getKerning(char left, char right){
+    CmapFormat cmapFmt = getCmapFormat();
+    RKerning kern = getKerningTable();
+    if (cmapFmt == null || kern == null) {
+      return 0;
+    }
+    return kern.get(mapChar(left), mapChar(right)) * scaleFactor;
+  }
+
+  private synchronized RKerning getKerningTable(){
+    if(!kerningRead){
+      kerning = RKerning.create(f);
+      kerningRead = true;
+    }
+    return kerning;
+  }
+
+  /* The outline of a glyph, from the cache if possible */
+  private Outline getOutline(int glyphIndex){
+    return getOutline(glyphIndex, null);
+  }
+
+  /* The outline of a glyph, from the given map of the outlines used by a thread, or else from the cache, without locking the cache for the glyphs already in the map */
+  private Outline getOutline(int glyphIndex, HashMap<Integer, Outline> local){
+    Integer key = Integer.valueOf(glyphIndex);
+    if(local != null){
+      Outline outline = local.get(key);
+      if(outline != null){
+        return outline;
+      }
+      outline = getOutline(glyphIndex, null);
+      local.put(key, outline);
+      return outline;
+    }
+
+    synchronized(outlines){
+      Outline outline = outlines.get(key);
+      if(outline != null){
+        cacheHits++;
+        return outline;
+      }
+      cacheMisses++;
+    }
+
+    // The points of the glyph are left in font units, the scale is applied when placing the outline
+    Outline outline;
+    Glyph glyph = f.getGlyph(glyphIndex);
+    if(glyph != null){
+      outline = new Outline(getGlyphAsShape(f, glyph, glyphIndex), glyph.getAdvanceWidth());
+    }else{
+      // Glyphs without contours, such as spaces, only move the next ones
+      outline = new Outline(null, f.getHmtxTable().getAdvanceWidth(glyphIndex));
+    }
+
+    synchronized(outlines){
+      if(cacheSize > 0){
+        outlines.put(key, outline);
+        trimCache(outlines);
+      }
+    }
+    return outline;
+  }
+
+  private void trimCache(LinkedHashMap<Integer, ?> cache){
+    Iterator<Integer> it = cache.keySet().iterator();
+    while(cache.size() > cacheSize && it.hasNext()){
+      it.next();
+      it.remove();
+    }
+  }
+
+  /* The outline of a glyph at the origin in font units, or null if it has no contours, with its advance width */
+  private static class Outline{
+    final RShape shape;
+    final int advance;
+
+    Outline(RShape shape, int advance){
+      this.shape = shape;
+      this.advance = advance;
+    }
+
+    /* A copy of the outline scaled, with the y axis pointing down, and moved */
+    RShape place(float scale, float x, float y){
+      return place(new RMatrix(scale, 0, x, 0, -scale, y));
+    }
+
+    /* A copy of the outline transformed from font units */
+    RShape place(RMatrix matrix){
+      RShape result = new RShape(shape);
+      result.transform(matrix);
+      return result;
+    }
+  }
+
   /**
    * Use this method to get the outlines of a character in the form of an RShape.
    * @eexample RFont_toShape
@@ -183,7 +398,42 @@ public class RFont implements PConstants{
   }
   
   
+  /* The cmap table for the current value of forceAscii, looked up only when that value changes */
   private CmapFormat getCmapFormat() {
+    boolean ascii = forceAscii;
+    if (!cmapResolved || cmapAscii != ascii) {
+      synchronized(this){
+        cmap = findCmapFormat(ascii);
+        glyphPages = new char[256][];
+        cmapAscii = ascii;
+        cmapResolved = true;
+      }
+    }
+    return cmap;
+  }
+
+  /* The glyph of a character in the current cmap table, remembered for the characters of the Basic Multilingual Plane in pages of 256 characters allocated as they are used */
+  private int mapChar(char c) {
+    return mapChar(glyphPages, cmap, c);
+  }
+
+  private static int mapChar(char[][] pages, CmapFormat cmapFmt, char c) {
+    char[] page = pages[c >> 8];
+    if (page == null) {
+      page = new char[256];
+      pages[c >> 8] = page;
+    }
+
+    // The glyphs are kept plus one, so that 0 means that the character has not been looked up
+    int glyph = page[c & 0xff];
+    if (glyph == 0) {
+      glyph = cmapFmt.mapCharCode(c) + 1;
+      page[c & 0xff] = (char)glyph;
+    }
+    return glyph - 1;
+  }
+
+  private CmapFormat findCmapFormat(boolean forceAscii) {
     if (forceAscii) {
       // We've been asked to use the ASCII/Macintosh cmap format
       return f.getCmapTable().getCmapFormat(
@@ -262,20 +512,22 @@ public class RFont implements PConstants{
       }
       }*/
     
+    // Keep the advance in font units so that it does not drift with the rounding at small sizes
+    RKerning kern = kerningEnabled ? getKerningTable() : null;
+    int previousIndex = -1;
     int x = 0;
     for (short i = 0; i < text.length(); i++) {
-      int glyphIndex = cmapFmt.mapCharCode(text.charAt(i));
-      Glyph glyph = f.getGlyph(glyphIndex);
-      int default_advance_x = f.getHmtxTable().getAdvanceWidth(glyphIndex);
-      if (glyph != null) {
-        glyph.scale(scaleFactor);
+      int glyphIndex = mapChar(text.charAt(i));
+      if (kern != null && previousIndex >= 0) {
+        x += kern.get(previousIndex, glyphIndex);
+      }
+      previousIndex = glyphIndex;
+      Outline outline = getOutline(glyphIndex);
+      if (outline.shape != null) {
         // Add the Glyph to the Shape with an horizontal offset of x
-        result.addElement(getGlyphAsShape(f,glyph, glyphIndex,x));
-        x += glyph.getAdvanceWidth();
-      }else{
-        x += (int)((float)default_advance_x*scaleFactor);
+        result.addElement(outline.place(scaleFactor, x*scaleFactor, 0));
       }
-      
+      x += outline.advance;
     }
     
     if(align!=LEFT && align!=CENTER && align!=RIGHT){
@@ -305,8 +557,6 @@ public class RFont implements PConstants{
   }
 
   public RShape toShape(String text)  throws RuntimeException{
-    RShape result = new RShape();
-    
     // Decide upon a cmap table to use for our character to glyph look-up
     CmapFormat cmapFmt = getCmapFormat();
     
@@ -341,24 +591,32 @@ public class RFont implements PConstants{
       }
       }*/
     
+    if(align!=LEFT && align!=CENTER && align!=RIGHT){
+      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+    }
+
+    return toShape(text, cmapFmt, glyphPages, kerningEnabled ? getKerningTable() : null, null);
+  }
+
+  /* The outlines of a text looking up its glyphs in the given pages, and its outlines also in the given map if it is not null, so that several threads can lay out texts at once with their own pages and maps */
+  private RShape toShape(String text, CmapFormat cmapFmt, char[][] pages, RKerning kern, HashMap<Integer, Outline> local){
+    RShape result = new RShape();
+
+    // Keep the advance in font units so that it does not drift with the rounding at small sizes
+    int previousIndex = -1;
     int x = 0;
     for (short i = 0; i < text.length(); i++) {
-      int glyphIndex = cmapFmt.mapCharCode(text.charAt(i));
-      Glyph glyph = f.getGlyph(glyphIndex);
-      int default_advance_x = f.getHmtxTable().getAdvanceWidth(glyphIndex);
-      if (glyph != null) {
-        glyph.scale(scaleFactor);
+      int glyphIndex = mapChar(pages, cmapFmt, text.charAt(i));
+      if (kern != null && previousIndex >= 0) {
+        x += kern.get(previousIndex, glyphIndex);
+      }
+      previousIndex = glyphIndex;
+      Outline outline = getOutline(glyphIndex, local);
+      if (outline.shape != null) {
         // Add the Glyph to the Shape with an horizontal offset of x
-        result.addChild(getGlyphAsShape(f,glyph, glyphIndex,x));
-        x += glyph.getAdvanceWidth();
-      }else{
-        x += (int)((float)default_advance_x*scaleFactor);
+        result.addChild(outline.place(scaleFactor, x*scaleFactor, 0));
       }
-      
-    }
-    
-    if(align!=LEFT && align!=CENTER && align!=RIGHT){
-      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+      x += outline.advance;
     }
     
     RRectangle r;
@@ -382,7 +640,431 @@ public class RFont implements PConstants{
     }
     return result;
   }
-  
+
+  /**
+   * Use this method to get the outlines of many strings at once, such as the labels of a map.  The strings are outlined in parallel on the available processors, each of them as toShape(String) would.  The font and the segmentator must not be changed until the method returns.
+   * @eexample RFont_toShapes
+   * @param texts String[], the strings we want the outlines from.
+   * @return RShape[], the outlines of each string, in the same order as the strings.
+   * @related toShape ( )
+   * @related toPolygons ( )
+   */
+  public RShape[] toShapes(String[] texts) throws RuntimeException{
+    return toShapes(texts, RThreadPool.size());
+  }
+
+  /**
+   * Use this method to get the outlines of many strings at once with a given number of threads.
+   * @param texts String[], the strings we want the outlines from.
+   * @param threads int, the number of blocks of strings outlined at the same time by the threads shared by the library, or 1 in order to outline the strings one after the other.
+   * @return RShape[], the outlines of each string, in the same order as the strings.
+   */
+  public RShape[] toShapes(String[] texts, int threads) throws RuntimeException{
+    RShape[] result = new RShape[texts.length];
+    outlineAll(texts, result, null, threads);
+    return result;
+  }
+
+  /**
+   * Use this method to get the outlines of many strings at once in the form of RPolygons, as given by the current segmentator.  Both the outlining and the segmentation of the strings are done in parallel on the available processors.  The font and the segmentator must not be changed until the method returns.
+   * @eexample RFont_toShapes
+   * @param texts String[], the strings we want the outlines from.
+   * @return RPolygon[], the outlines of each string, in the same order as the strings.
+   * @related toShapes ( )
+   * @related toPolygon ( )
+   */
+  public RPolygon[] toPolygons(String[] texts) throws RuntimeException{
+    return toPolygons(texts, RThreadPool.size());
+  }
+
+  /**
+   * Use this method to get the polygons of many strings at once with a given number of threads.
+   * @param texts String[], the strings we want the outlines from.
+   * @param threads int, the number of blocks of strings outlined at the same time by the threads shared by the library, or 1 in order to outline the strings one after the other.
+   * @return RPolygon[], the outlines of each string, in the same order as the strings.
+   */
+  public RPolygon[] toPolygons(String[] texts, int threads) throws RuntimeException{
+    RPolygon[] result = new RPolygon[texts.length];
+    outlineAll(texts, null, result, threads);
+    return result;
+  }
+
+  /* Outline the texts into shapes, or into polygons if the array of polygons is given.  The cmap and kerning tables are looked up before the threads start, and each block of texts keeps its own pages of glyphs and map of outlines, so that the threads only share the cache of the font when they use a glyph for the first time */
+  private void outlineAll(final String[] texts, final RShape[] shapes, final RPolygon[] polygons, int threads) throws RuntimeException{
+    final CmapFormat cmapFmt = getCmapFormat();
+    if (cmapFmt == null) {
+      throw new RuntimeException("Cannot find a suitable cmap table");
+    }
+    if(align!=LEFT && align!=CENTER && align!=RIGHT){
+      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+    }
+    final RKerning kern = kerningEnabled ? getKerningTable() : null;
+
+    int numThreads = Math.max(1, Math.min(threads, texts.length));
+    if(numThreads < 2){
+      outlineAll(texts, 0, texts.length, shapes, polygons, cmapFmt, kern);
+      return;
+    }
+
+    // The shared threads run as many tasks as threads asked for, each one taking the next block of texts until there are none left
+    ExecutorService executor = RThreadPool.get();
+    List<Future<?>> results = new ArrayList<Future<?>>();
+    try{
+      // Several blocks per thread, so that the threads given the shorter texts take more blocks
+      final int chunk = Math.max(1, texts.length / (numThreads * 8));
+      final AtomicInteger next = new AtomicInteger(0);
+      for(int t = 0; t < numThreads; t++){
+        results.add(executor.submit(new Runnable(){
+            public void run(){
+              for(int from = next.getAndAdd(chunk); from < texts.length; from = next.getAndAdd(chunk)){
+                outlineAll(texts, from, Math.min(texts.length, from + chunk), shapes, polygons, cmapFmt, kern);
+              }
+            }
+          }));
+      }
+
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).get();
+      }
+    }catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The outlining of the texts was interrupted.");
+    }catch(ExecutionException e){
+      if(e.getCause() instanceof RuntimeException){
+        throw (RuntimeException)e.getCause();
+      }
+      throw new RuntimeException("The outlining of the texts failed: " + e.getCause());
+    }finally{
+      // The shared threads are kept, only the work left is dropped
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).cancel(true);
+      }
+    }
+  }
+
+  private void outlineAll(String[] texts, int from, int to, RShape[] shapes, RPolygon[] polygons, CmapFormat cmapFmt, RKerning kern){
+    char[][] pages = new char[256][];
+    HashMap<Integer, Outline> local = new HashMap<Integer, Outline>();
+    for(int i = from; i < to; i++){
+      RShape shp = toShape(texts[i], cmapFmt, pages, kern, local);
+      if(polygons != null){
+        polygons[i] = shp.toPolygon();
+      }else{
+        shapes[i] = shp;
+      }
+    }
+  }
+
+  /**
+   * Use this method to get the outlines of a string laid out along a path, each character turned to follow the direction of the path at its middle.  The path is measured the first time and the measure is kept with it until it changes, so that moving the string along the path does not measure it again, and the characters are placed in a single pass along it, which is much faster than adapting the outlines of the string to the path.  The alignment of the font tells whether the string starts, is centered or ends at the given distance along the path.  The string wraps around a closed path, and the characters falling past the ends of an open path are left out.
+   * @eexample RFont_toShape
+   * @param text String, the string we want the outlines from.
+   * @param path RShape, the shape along which the string is laid out.
+   * @param offset float, the distance along the path at which the string is placed.
+   * @param baseline float, the distance between the path and the baseline of the string, positive values moving the string to the side of the tops of the characters.
+   * @return RShape, the outlines of the characters placed along the path.
+   * @related toShape ( )
+   * @related draw ( )
+   */
+  public RShape toShape(String text, RShape path, float offset, float baseline) throws RuntimeException{
+    int[] glyphs = new int[text.length()];
+    float[] places = new float[4 * text.length()];
+    int count = placeOnPath(text, path, offset, glyphs, places);
+
+    RShape result = new RShape();
+    for (int i = 0; i < count; i++) {
+      float cos = (float)Math.cos(places[4*i + 2]);
+      float sin = (float)Math.sin(places[4*i + 2]);
+      float half = places[4*i + 3];
+
+      // Scale and flip the glyph, move its middle to the origin and its baseline off the path, then turn it and move it onto the path
+      RMatrix matrix = new RMatrix(cos*scaleFactor, sin*scaleFactor, places[4*i] - cos*half + sin*baseline,
+                                   sin*scaleFactor, -cos*scaleFactor, places[4*i + 1] - sin*half - cos*baseline);
+      result.addChild(getOutline(glyphs[i]).place(matrix));
+    }
+    return result;
+  }
+
+  /* Place the glyphs of a text along a path, writing for each glyph with contours its index into glyphs, and the point of the path at its middle, the angle of the path there and half its advance into places, and return the number of glyphs placed */
+  private int placeOnPath(String text, RShape path, float offset, int[] glyphs, float[] places) throws RuntimeException{
+    CmapFormat cmapFmt = getCmapFormat();
+    if (cmapFmt == null) {
+      throw new RuntimeException("Cannot find a suitable cmap table");
+    }
+
+    if(align!=LEFT && align!=CENTER && align!=RIGHT){
+      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+    }
+
+    // The glyphs and their advances, in font units, to know the width of the text before placing it
+    int length = text.length();
+    int[] advances = new int[length];
+    int[] xs = new int[length];
+    RKerning kern = kerningEnabled ? getKerningTable() : null;
+    int previousIndex = -1;
+    int x = 0;
+    for (int i = 0; i < length; i++) {
+      int glyphIndex = mapChar(text.charAt(i));
+      if (kern != null && previousIndex >= 0) {
+        x += kern.get(previousIndex, glyphIndex);
+      }
+      previousIndex = glyphIndex;
+      glyphs[i] = glyphIndex;
+      xs[i] = x;
+      advances[i] = getOutline(glyphIndex).advance;
+      x += advances[i];
+    }
+
+    float start = offset;
+    switch(this.align){
+    case RFont.CENTER:
+      start -= x*scaleFactor/2;
+      break;
+    case RFont.RIGHT:
+      start -= x*scaleFactor;
+      break;
+    }
+
+    RArcLengthTable table = path.getArcLengthTable();
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      int glyphIndex = glyphs[i];
+      if (getOutline(glyphIndex).shape == null) {
+        continue;
+      }
+
+      float half = advances[i]*scaleFactor/2;
+      if (table.locate(start + xs[i]*scaleFactor + half, places, 4*count)) {
+        glyphs[count] = glyphIndex;
+        places[4*count + 3] = half;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Use this method to get the outlines of a paragraph in the form of an RShape, with the lines broken so that none is wider than a given width.  All the characters are children of the shape, as with toShape(String).
+   * @eexample RFont_toShape
+   * @param text String, the paragraph we want the outlines from.  The lines are also broken at its new line characters.
+   * @param width float, the maximum width of the lines, or 0 in order to break the lines only at the new line characters.
+   * @return RShape, the outlines of the characters of the paragraph.
+   * @related toLines ( )
+   * @related setLineSpacing ( )
+   */
+  public RShape toShape(String text, float width) throws RuntimeException{
+    RShape[] lines = toLines(text, width);
+    int count = 0;
+    for (int i = 0; i < lines.length; i++) {
+      count += lines[i].countChildren();
+    }
+
+    RShape result = new RShape();
+    if (count == 0) {
+      return result;
+    }
+
+    RShape[] chars = new RShape[count];
+    int n = 0;
+    for (int i = 0; i < lines.length; i++) {
+      for (int j = 0; j < lines[i].countChildren(); j++) {
+        chars[n++] = lines[i].children[j];
+      }
+    }
+    result.setChildren(chars);
+    return result;
+  }
+
+  /**
+   * Use this method to lay out a paragraph, with the lines broken at the spaces between the words so that none is wider than a given width.  Each line is aligned as given by the alignment of the font and placed below the previous one at the distance given by the line spacing.  Only the characters that have an outline are added to the lines, not the spaces.
+   * @eexample toLines
+   * @param text String, the paragraph we want the outlines from.  The lines are also broken at its new line characters.
+   * @param width float, the maximum width of the lines, or 0 in order to break the lines only at the new line characters.
+   * @return RShape[], one shape for each line, with the outlines of its characters as children.
+   * @related toShape ( )
+   * @related setLineSpacing ( )
+   * @related setAlign ( )
+   */
+  public RShape[] toLines(String text, float width) throws RuntimeException{
+    CmapFormat cmapFmt = getCmapFormat();
+    if (cmapFmt == null) {
+      throw new RuntimeException("Cannot find a suitable cmap table");
+    }
+
+    if(align!=LEFT && align!=CENTER && align!=RIGHT){
+      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+    }
+
+    int length = text.length();
+    RKerning kern = kerningEnabled ? getKerningTable() : null;
+    int maxWidth = (width > 0) ? (int)Math.floor(width / scaleFactor) : Integer.MAX_VALUE;
+
+    // The glyphs and their positions in font units, from the start of their line
+    int[] glyphs = new int[length];
+    int[] xs = new int[length];
+
+    // The first character of each line, the character after its last visible one, and its width
+    int[] lineStarts = new int[8];
+    int[] lineEnds = new int[8];
+    int[] lineWidths = new int[8];
+    int numLines = 0;
+
+    int start = 0;        // the first character of the current line
+    int x = 0;            // the position of the next character in the line
+    int end = 0;          // the character after the last one of the line that is not a space
+    int lineWidth = 0;    // the width of the line up to end
+    int breakAt = -1;     // the first character after the last place where the line can be broken
+    int breakEnd = 0;     // and the end and width of the line if it is broken there
+    int breakWidth = 0;
+    int previousIndex = -1;
+
+    // The end of the text ends the last line as a new line would
+    for (int i = 0; i <= length; i++) {
+      char c = (i < length) ? text.charAt(i) : '\n';
+      if (c == '\r') {
+        glyphs[i] = -1;
+        xs[i] = x;
+        continue;
+      }
+
+      if (c == '\n') {
+        if (numLines == lineStarts.length) {
+          lineStarts = grow(lineStarts);
+          lineEnds = grow(lineEnds);
+          lineWidths = grow(lineWidths);
+        }
+        lineStarts[numLines] = start;
+        lineEnds[numLines] = end;
+        lineWidths[numLines] = lineWidth;
+        numLines++;
+
+        if (i < length) {
+          glyphs[i] = -1;
+        }
+        start = i + 1;
+        end = i + 1;
+        x = 0;
+        lineWidth = 0;
+        breakAt = -1;
+        previousIndex = -1;
+        continue;
+      }
+
+      boolean space = Character.isWhitespace(c);
+      int glyphIndex = mapChar(c);
+      if (kern != null && previousIndex >= 0) {
+        x += kern.get(previousIndex, glyphIndex);
+      }
+      previousIndex = glyphIndex;
+      int advance = f.getHmtxTable().getAdvanceWidth(glyphIndex);
+      glyphs[i] = glyphIndex;
+      xs[i] = x;
+
+      // A word that does not fit goes to the next line, or is cut if it is alone in its line
+      if (!space && x + advance > maxWidth && end > start) {
+        int next = i;
+        if (breakAt > start && breakEnd > start) {
+          next = breakAt;
+          end = breakEnd;
+          lineWidth = breakWidth;
+        }
+
+        if (numLines == lineStarts.length) {
+          lineStarts = grow(lineStarts);
+          lineEnds = grow(lineEnds);
+          lineWidths = grow(lineWidths);
+        }
+        lineStarts[numLines] = start;
+        lineEnds[numLines] = end;
+        lineWidths[numLines] = lineWidth;
+        numLines++;
+
+        // The new line starts after the spaces where the line was broken, with the rest of the word
+        while (next < i && Character.isWhitespace(text.charAt(next))) {
+          next++;
+        }
+        int offset = xs[next];
+        for (int j = next; j <= i; j++) {
+          xs[j] -= offset;
+        }
+        x -= offset;
+        start = next;
+        end = next;
+        lineWidth = 0;
+        breakAt = -1;
+        for (int j = next; j < i; j++) {
+          if (glyphs[j] >= 0) {
+            end = j + 1;
+            lineWidth = xs[j] + f.getHmtxTable().getAdvanceWidth(glyphs[j]);
+          }
+        }
+      }
+
+      x += advance;
+      if (space) {
+        // The line can be broken after a space
+        breakAt = i + 1;
+        breakEnd = end;
+        breakWidth = lineWidth;
+      } else {
+        end = i + 1;
+        lineWidth = x;
+        if (c == '-') {
+          // or after a hyphen, which stays in the line
+          breakAt = i + 1;
+          breakEnd = end;
+          breakWidth = lineWidth;
+        }
+      }
+    }
+
+    // A new line at the end of the text does not start another line
+    if (length > 0 && text.charAt(length - 1) == '\n') {
+      numLines--;
+    }
+
+    float spacing = getLineSpacing();
+    RShape[] result = new RShape[numLines];
+    for (int l = 0; l < numLines; l++) {
+      float lineX = 0;
+      switch (this.align) {
+      case RFont.CENTER:
+        lineX = -lineWidths[l] * scaleFactor / 2;
+        break;
+      case RFont.RIGHT:
+        lineX = -lineWidths[l] * scaleFactor;
+        break;
+      }
+
+      // Only the glyphs with outlines are built
+      RShape line = new RShape();
+      int count = 0;
+      RShape[] chars = new RShape[lineEnds[l] - lineStarts[l]];
+      for (int i = lineStarts[l]; i < lineEnds[l]; i++) {
+        if (glyphs[i] < 0 || Character.isWhitespace(text.charAt(i))) {
+          continue;
+        }
+        Outline outline = getOutline(glyphs[i]);
+        if (outline.shape != null) {
+          chars[count++] = outline.place(scaleFactor, lineX + xs[i] * scaleFactor, l * spacing);
+        }
+      }
+      if (count > 0) {
+        RShape[] lineChars = new RShape[count];
+        System.arraycopy(chars, 0, lineChars, 0, count);
+        line.setChildren(lineChars);
+      }
+      result[l] = line;
+    }
+    return result;
+  }
+
+  private static int[] grow(int[] array){
+    int[] result = new int[array.length * 2];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
   /**
    * Use this method to draw a character on a certain canvas.
    * @eexample RFont_draw
@@ -392,7 +1074,7 @@ public class RFont implements PConstants{
    * @related toGroup ( )
    */
   public void draw(char character, PGraphics g) throws RuntimeException{
-    this.toShape(character).draw(g);
+    this.drawText(Character.toString(character), g);
   }
   
   /**
@@ -404,7 +1086,7 @@ public class RFont implements PConstants{
    * @related toGroup ( )
    */  
   public void draw(String text, PGraphics g) throws RuntimeException{
-    this.toGroup(text).draw(g);
+    this.drawText(text, g);
   }
   
   /**
@@ -416,7 +1098,7 @@ public class RFont implements PConstants{
    * @related toGroup ( )
    */
   public void draw(char character, PApplet g) throws RuntimeException{
-    this.toShape(character).draw(g);
+    this.drawText(Character.toString(character), g.g);
   }
   
   /**
@@ -428,15 +1110,159 @@ public class RFont implements PConstants{
    * @related toGroup ( )
    */  
   public void draw(String text, PApplet g) throws RuntimeException{
-    this.toGroup(text).draw(g);
+    this.drawText(text, g.g);
   }
   
   public void draw(String text) throws RuntimeException{
-    this.toGroup(text).draw();
+    this.drawText(text, RG.parent().g);
   }
   
   public void draw(char character) throws RuntimeException{
-    this.toShape(character).draw();
+    this.drawText(Character.toString(character), RG.parent().g);
+  }
+
+  /**
+   * Use this method to draw a string along a path, laid out as toShape(String, RShape, float, float) would lay it out.  The characters are drawn from the shapes kept by the font for each glyph, so that a string can be moved along a path at every frame without outlining it again.
+   * @eexample RFont_draw
+   * @param text String, the string to be drawn.
+   * @param path RShape, the shape along which the string is laid out.
+   * @param offset float, the distance along the path at which the string is placed.
+   * @param baseline float, the distance between the path and the baseline of the string, positive values moving the string to the side of the tops of the characters.
+   * @param g PGraphics, the graphics object on which to draw the string.
+   * @related toShape ( )
+   */
+  public void draw(String text, RShape path, float offset, float baseline, PGraphics g) throws RuntimeException{
+    int[] glyphs = new int[text.length()];
+    float[] places = new float[4 * text.length()];
+    int count = placeOnPath(text, path, offset, glyphs, places);
+
+    for (int i = 0; i < count; i++) {
+      g.pushMatrix();
+      g.translate(places[4*i], places[4*i + 1]);
+      g.rotate(places[4*i + 2]);
+      g.translate(-places[4*i + 3], -baseline);
+      getGlyphDrawing(glyphs[i]).shape.draw(g);
+      g.popMatrix();
+    }
+  }
+
+  public void draw(String text, RShape path, float offset, float baseline, PApplet g) throws RuntimeException{
+    this.draw(text, path, offset, baseline, g.g);
+  }
+
+  public void draw(String text, RShape path, float offset, float baseline) throws RuntimeException{
+    this.draw(text, path, offset, baseline, RG.parent().g);
+  }
+
+  /* Draw a text as toGroup would lay it out, drawing the same shape translated for all the occurrences of each glyph, so that the meshes of the glyphs are only tesselated once */
+  private void drawText(String text, PGraphics g) throws RuntimeException{
+    CmapFormat cmapFmt = getCmapFormat();
+    if (cmapFmt == null) {
+      throw new RuntimeException("Cannot find a suitable cmap table");
+    }
+
+    if(align!=LEFT && align!=CENTER && align!=RIGHT){
+      throw new RuntimeException("Alignment unknown.  The only accepted values are: RFont.LEFT, RFont.CENTER and RFont.RIGHT");
+    }
+
+    int length = text.length();
+    RShape[] shapes = new RShape[length];
+    float[] xs = new float[length];
+    float minX = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+
+    RKerning kern = kerningEnabled ? getKerningTable() : null;
+    int previousIndex = -1;
+    int x = 0;
+    for (int i = 0; i < length; i++) {
+      int glyphIndex = mapChar(text.charAt(i));
+      if (kern != null && previousIndex >= 0) {
+        x += kern.get(previousIndex, glyphIndex);
+      }
+      previousIndex = glyphIndex;
+
+      GlyphDrawing drawing = getGlyphDrawing(glyphIndex);
+      if (drawing.shape != null) {
+        shapes[i] = drawing.shape;
+        xs[i] = x*scaleFactor;
+        minX = Math.min(minX, xs[i] + drawing.minX);
+        maxX = Math.max(maxX, xs[i] + drawing.maxX);
+      }
+      x += drawing.advance;
+    }
+
+    // The same alignment as toGroup, from the bounds of the glyphs
+    float offset = 0;
+    if (minX <= maxX) {
+      switch(this.align){
+      case RFont.CENTER:
+        offset = (minX-maxX)/2;
+        break;
+      case RFont.RIGHT:
+        offset = minX-maxX;
+        break;
+      }
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (shapes[i] != null) {
+        g.pushMatrix();
+        g.translate(offset + xs[i], 0);
+        shapes[i].draw(g);
+        g.popMatrix();
+      }
+    }
+  }
+
+  /* The shape drawn for a glyph at the current size, kept with the meshes cached by the shape while the settings of the segmentator do not change */
+  private GlyphDrawing getGlyphDrawing(int glyphIndex){
+    Integer key = Integer.valueOf(glyphIndex);
+    int[] settings = RCommand.getSegmentatorSettings();
+    synchronized(drawings){
+      if (drawingsScale != scaleFactor || !Arrays.equals(drawingsSettings, settings)) {
+        drawings.clear();
+        drawingsScale = scaleFactor;
+        drawingsSettings = settings;
+      }
+
+      GlyphDrawing drawing = drawings.get(key);
+      if (drawing != null) {
+        return drawing;
+      }
+    }
+
+    Outline outline = getOutline(glyphIndex);
+    GlyphDrawing drawing = new GlyphDrawing(outline, scaleFactor);
+    synchronized(drawings){
+      if (cacheSize > 0) {
+        drawings.put(key, drawing);
+        trimCache(drawings);
+      }
+    }
+    return drawing;
+  }
+
+  /* The shape of a glyph scaled to the size of the font, or null if it has no contours, with its horizontal extent and its advance in font units */
+  private static class GlyphDrawing{
+    final RShape shape;
+    final float minX;
+    final float maxX;
+    final int advance;
+
+    GlyphDrawing(Outline outline, float scale){
+      this.advance = outline.advance;
+      if (outline.shape == null) {
+        this.shape = null;
+        this.minX = 0;
+        this.maxX = 0;
+        return;
+      }
+
+      this.shape = outline.place(scale, 0, 0);
+      RRectangle r = shape.getBounds();
+      this.minX = r.getMinX();
+      this.maxX = r.getMaxX();
+    }
   }
   
   
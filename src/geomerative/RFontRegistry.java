@@ -0,0 +1,121 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.apache.batik.svggen.font.Font;
+
+/**
+ * Registry of the font files opened by RFont, so that the fonts created from the same file at different sizes or alignments share a single parsed face.  The files are mapped in memory instead of being read, and the glyphs are only copied out of them when they are used.  A face is forgotten once no font uses it anymore.
+ * @invisible
+ */
+class RFontRegistry
+{
+  /* The parsed faces, by the canonical path of their file */
+  private static final HashMap<String, WeakReference<Font>> faces = new HashMap<String, WeakReference<Font>>();
+
+  private RFontRegistry(){
+  }
+
+  /* The parsed face of a font file, looked for in the data folder of the sketch if the library is initialized, or else as a path */
+  static synchronized Font get(String fontPath){
+    File file = find(fontPath);
+    String key;
+    try{
+      key = (file != null) ? file.getCanonicalPath() : "sketch:" + fontPath;
+    }catch(IOException e){
+      key = file.getAbsolutePath();
+    }
+
+    WeakReference<Font> ref = faces.get(key);
+    Font face = (ref == null) ? null : ref.get();
+    if(face != null){
+      return face;
+    }
+
+    if(file != null){
+      face = Font.create(map(file));
+    }else{
+      // Fonts inside the jar of the sketch or at a URL can only be read
+      byte[] bs = RG.initialized() ? RG.parent().loadBytes(fontPath) : null;
+      if(bs == null){
+        throw new RuntimeException("Could not find the font file " + fontPath);
+      }
+      face = Font.create(bs);
+    }
+
+    removeForgotten();
+    faces.put(key, new WeakReference<Font>(face));
+    return face;
+  }
+
+  private static File find(String fontPath){
+    if(RG.initialized()){
+      File file = RG.parent().dataFile(fontPath);
+      if(file.isFile()){
+        return file;
+      }
+      file = new File(RG.parent().sketchPath(fontPath));
+      if(file.isFile()){
+        return file;
+      }
+    }
+
+    File file = new File(fontPath);
+    return file.isFile() ? file : null;
+  }
+
+  private static void removeForgotten(){
+    Iterator<WeakReference<Font>> it = faces.values().iterator();
+    while(it.hasNext()){
+      if(it.next().get() == null){
+        it.remove();
+      }
+    }
+  }
+
+  private static ByteBuffer map(File file){
+    RandomAccessFile raf = null;
+    try{
+      raf = new RandomAccessFile(file, "r");
+      FileChannel channel = raf.getChannel();
+
+      // The mapping stays valid after the file is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }catch(IOException e){
+      throw new RuntimeException("Could not open the font file " + file + ": " + e.getMessage());
+    }finally{
+      if(raf != null){
+        try{
+          raf.close();
+        }catch(IOException e){
+        }
+      }
+    }
+  }
+}
@@ -45,6 +45,31 @@ public class RG implements PConstants{
    */
   public static boolean useFastClip = true;
 
+  /**
+   * @invisible
+   */
+  public static boolean useLevelOfDetail = false;
+
+  /**
+   * @invisible
+   */
+  public static boolean useInternalTesselator = false;
+
+  /**
+   * @invisible
+   */
+  public static boolean useMeshCache = false;
+
+  /**
+   * @invisible
+   */
+  public static boolean useParallelLoading = false;
+
+  /**
+   * @invisible
+   */
+  public static boolean useLazyLoading = false;
+
   /**
    * The adaptor adapts the shape to a particular shape by adapting each of the groups points.  This can cause deformations of the individual elements in the group.
    */
@@ -89,6 +114,16 @@ public class RG implements PConstants{
    * UNIFORMSTEP segmentator is the fastest segmentator and it segments the curve based on a constant value of the step of the curve parameter, or on the number of segments wanted.  This can be useful when segmpointsentating very often a Shape or when we know the amount of segments necessary for our specific application.
    */
   public static int UNIFORMSTEP = RCommand.UNIFORMSTEP;
+
+  /**
+   * DOUGLASPEUCKER simplifier keeps the vertices that are further than the tolerance from the simplified polyline.
+   */
+  public static int DOUGLASPEUCKER = RSimplifier.DOUGLASPEUCKER;
+
+  /**
+   * VISVALINGAM simplifier removes iteratively the vertices that form the triangle with the smallest area.  It tends to give smoother results than DOUGLASPEUCKER.
+   */
+  public static int VISVALINGAM = RSimplifier.VISVALINGAM;
   
   static int dpi = 72;
 
@@ -590,6 +625,83 @@ public class RG implements PConstants{
     ignoreStyles = true;
   }
 
+  /**
+   * Draw the shapes as polygons segmented with a precision adapted to the current scale of the graphics object.  The segmentations are cached for a few levels of detail, which makes drawing faster when the shapes are drawn repeatedly or zoomed.
+   * @eexample useLevelOfDetail
+   * @param value  value to which the useLevelOfDetail state should be set
+   */
+  public static void useLevelOfDetail(boolean value){
+    useLevelOfDetail = value;
+  }
+
+  /**
+   * Draw the fills and the strokes of the shapes as triangle meshes computed by Geomerative instead of letting Processing tesselate them.  The meshes are cached, which makes drawing faster when the shapes are drawn repeatedly without being modified.
+   * @eexample useInternalTesselator
+   * @param value  value to which the useInternalTesselator state should be set
+   */
+  public static void useInternalTesselator(boolean value){
+    useInternalTesselator = value;
+  }
+
+  /**
+   * Keep the meshes of the shapes that have been tesselated, so that shapes with the same geometry at different positions, such as the repeated glyphs of a text, are only tesselated once.  The cached meshes are used by toMesh() and when drawing with the internal tesselator.
+   * @eexample useMeshCache
+   * @param value  value to which the useMeshCache state should be set
+   * @related setMeshCacheSize ( )
+   */
+  public static void useMeshCache(boolean value){
+    useMeshCache = value;
+  }
+
+  /**
+   * Use this to set the maximum size of the mesh cache.  When the cache grows bigger the least recently used meshes are discarded.
+   * @eexample useMeshCache
+   * @param maxPoints  the maximum number of points held by the cache, counting the vertices of the meshes and the control points of the shapes
+   * @related useMeshCache ( )
+   */
+  public static void setMeshCacheSize(int maxPoints){
+    RMeshCache.setMaxSize(maxPoints);
+  }
+
+  /**
+   * Use this to discard all the meshes of the mesh cache.
+   * @eexample useMeshCache
+   * @related useMeshCache ( )
+   */
+  public static void clearMeshCache(){
+    RMeshCache.clear();
+  }
+
+  /**
+   * Use this to know the ratio of the tesselations that were found in the mesh cache.
+   * @eexample useMeshCache
+   * @return float, the hit rate of the mesh cache, from 0 to 1
+   * @related useMeshCache ( )
+   */
+  public static float getMeshCacheHitRate(){
+    return RMeshCache.getHitRate();
+  }
+
+  /**
+   * Use this to build the shapes of the elements of the SVG files loaded by loadShape() with one thread for each processor available.  The elements keep the order and the styles they have in the document.
+   * @eexample useParallelLoading
+   * @param value  value to which the useParallelLoading state should be set
+   * @related loadShape ( )
+   */
+  public static void useParallelLoading(boolean value){
+    useParallelLoading = value;
+  }
+
+  /**
+   * Use this to build the paths of the shapes of the SVG files loaded by loadShape() only when they are first used.  Loading is faster and uses less memory when only some of the shapes are used, for example when picking a few children by name with getChild().
+   * @eexample useLazyLoading
+   * @param value  value to which the useLazyLoading state should be set
+   * @related loadShape ( )
+   */
+  public static void useLazyLoading(boolean value){
+    useLazyLoading = value;
+  }
+
 
   /**
    * Use this to set the adaptor type.
@@ -671,4 +783,17 @@ public class RG implements PConstants{
     RCommand.setSegmentStep(step);
   }
 
+  /**
+   * Use this to set the simplifier type used by the simplify methods.
+   *
+   * @param simplifierMethod  can be RG.DOUGLASPEUCKER or RG.VISVALINGAM.
+   *
+   * @eexample setSimplifier
+   * @related DOUGLASPEUCKER
+   * @related VISVALINGAM
+   * */
+  public static void setSimplifier(int simplifierMethod){
+    RSimplifier.setSimplifier(simplifierMethod);
+  }
+
 }
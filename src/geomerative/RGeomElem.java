@@ -256,102 +256,116 @@ public abstract class RGeomElem
 
   public String name = "";  
 
-  protected RStyle style = new RStyle();
+  /* The style of the element, which can be shared with other elements and is then copied before being changed */
+  protected RStyle style = RStyle.DEFAULT;
 
   public void setFill(boolean _fill){
-    style.setFill(_fill);
+    ownStyle().setFill(_fill);
   }
 
   public void setFill(int _fillColor){
-    style.setFill(_fillColor);
+    ownStyle().setFill(_fillColor);
   }
 
   public void setFill(String str){
-    style.setFill(str);
+    ownStyle().setFill(str);
   }
 
   public void setStroke(boolean _stroke){
-    style.setStroke(_stroke);
+    ownStyle().setStroke(_stroke);
   }
 
   public void setStroke(int _strokeColor){
-    style.setStroke(_strokeColor);
+    ownStyle().setStroke(_strokeColor);
   }
 
   public void setStroke(String str){
-    style.setStroke(str);
+    ownStyle().setStroke(str);
   }
 
   public void setStrokeWeight(float value){
-    style.setStrokeWeight(value);
+    ownStyle().setStrokeWeight(value);
   }
 
   public void setStrokeWeight(String str){
-    style.setStrokeWeight(str);
+    ownStyle().setStrokeWeight(str);
   }
 
   public void setStrokeCap(String str){
-    style.setStrokeCap(str);
+    ownStyle().setStrokeCap(str);
   }
 
   public void setStrokeJoin(String str){
-    style.setStrokeJoin(str);
+    ownStyle().setStrokeJoin(str);
   }
 
   public void setStrokeAlpha(int opacity){
-    style.setStrokeAlpha(opacity);
+    ownStyle().setStrokeAlpha(opacity);
   }
 
   public void setStrokeAlpha(String str){
-    style.setStrokeAlpha(str);
+    ownStyle().setStrokeAlpha(str);
   }
 
   public void setFillAlpha(int opacity){
-    style.setFillAlpha(opacity);
+    ownStyle().setFillAlpha(opacity);
   }
 
   public void setFillAlpha(String str){
-    style.setFillAlpha(str);
+    ownStyle().setFillAlpha(str);
   }  
 
   public void setAlpha(float opacity){
-    style.setAlpha(opacity);
+    ownStyle().setAlpha(opacity);
   }
 
   public void setAlpha(int opacity){
-    style.setAlpha(opacity);
+    ownStyle().setAlpha(opacity);
   }
 
   public void setAlpha(String str){
-    style.setAlpha(str);
+    ownStyle().setAlpha(str);
   }
 
+  /**
+   * Use this method to get the style of the element.  When the style is shared with other elements, such as the elements with the same style in a loaded SVG file, the element gets its own copy of it first, so that changing it only changes this element.
+   * @eexample getStyle
+   * @return RStyle, the style of the element
+   */
   public RStyle getStyle() {
-    return this.style;
+    return ownStyle();
+  }
+
+  /* The style of the element, copied first when it is shared, before being changed */
+  RStyle ownStyle(){
+    if(style.shared){
+      style = new RStyle(style);
+    }
+    return style;
   }
 
-  protected void saveContext(PGraphics g){
-    style.saveContext(g);
+  protected RStyle.Context saveContext(PGraphics g){
+    return style.saveContext(g);
   }
 
-  protected void saveContext(PApplet p){
-    style.saveContext(p);
+  protected RStyle.Context saveContext(PApplet p){
+    return style.saveContext(p);
 }
 
-  protected void saveContext(){
-    style.saveContext();
+  protected RStyle.Context saveContext(){
+    return style.saveContext();
   }
 
-  protected void restoreContext(PGraphics g){
-    style.restoreContext(g);
+  protected void restoreContext(PGraphics g, RStyle.Context old){
+    style.restoreContext(g, old);
   }
 
-  protected void restoreContext(PApplet p){
-    style.restoreContext(p);
+  protected void restoreContext(PApplet p, RStyle.Context old){
+    style.restoreContext(p, old);
   }
 
-  protected void restoreContext(){
-    style.restoreContext();
+  protected void restoreContext(RStyle.Context old){
+    style.restoreContext(old);
   }
 
   protected void setContext(PGraphics g){
@@ -377,11 +391,11 @@ public abstract class RGeomElem
     origWidth = p.origWidth;
     origHeight = p.origHeight;
 
-    style = new RStyle(p.style);
+    style = p.style.shared ? p.style : new RStyle(p.style);
   }
 
   protected void setStyle(String styleString){
-    style.setStyle(styleString);
+    ownStyle().setStyle(styleString);
   }
 
   public void setName(String str){
@@ -438,6 +452,17 @@ public abstract class RGeomElem
     for(int i=0; i<ps.length; i++){
       ps[i].transform(m);
     }
+
+    clearCache();
+  }
+
+  /**
+   * Clear the values cached from the geometry of the element.  Must be called whenever the points of the element are modified.
+   * @invisible
+   */
+  protected void clearCache(){
+    lenCurves = null;
+    lenCurve = -1F;
   }
 
   /**
@@ -136,32 +136,38 @@ public class RGroup extends RGeomElem
    * @param g PGraphics, the graphics object on which to draw the group
    */
   public void draw(PGraphics g){
+    RStyle.Context old = null;
     if(!RG.ignoreStyles){
-      saveContext(g);
+      old = saveContext(g);
       setContext(g);
     }
 
-    for(int i=0; i<countElements(); i++){
-      elements[i].draw(g);
-    }
-
-    if(!RG.ignoreStyles){
-      restoreContext(g);
+    try{
+      for(int i=0; i<countElements(); i++){
+        elements[i].draw(g);
+      }
+    }finally{
+      if(old != null){
+        restoreContext(g, old);
+      }
     }
   }
   
   public void draw(PApplet a){
+    RStyle.Context old = null;
     if(!RG.ignoreStyles){
-      saveContext(a);
+      old = saveContext(a);
       setContext(a);
     }
 
-    for(int i=0; i<countElements(); i++){
-      elements[i].draw(a);
-    }
-    
-    if(!RG.ignoreStyles){
-      restoreContext(a);
+    try{
+      for(int i=0; i<countElements(); i++){
+        elements[i].draw(a);
+      }
+    }finally{
+      if(old != null){
+        restoreContext(a, old);
+      }
     }
   }
   
@@ -355,7 +361,7 @@ public class RGroup extends RGeomElem
       return null;
     }
 
-    RCommand.segmentAccOffset = RCommand.segmentOffset;    
+    RCommand.setSegmentAccOffset(RCommand.segmentOffset);    
     RPoint[] result=null;
     RPoint[] newresult=null;
     for(int i=0;i<numElements;i++){
@@ -720,6 +726,14 @@ public class RGroup extends RGeomElem
   }
   
   
+  protected void clearCache(){
+    super.clearCache();
+
+    for(int i=0;i<countElements();i++){
+      elements[i].clearCache();
+    }
+  }
+
   protected void calculateCurveLengths(){
     lenCurves = new float[countElements()];
     lenCurve = 0F;
@@ -0,0 +1,202 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package geomerative ;
+
+import org.apache.batik.svggen.font.Font;
+import org.apache.batik.svggen.font.table.*;
+
+/**
+ * Kerning of the pairs of glyphs of a font, taken from the pair adjustments of its GPOS table or, if it has none, from its kern table.  The pairs given one by one are kept in a hash table of primitives, and the pairs given by classes in arrays of the class of each glyph, so that finding the kerning of a pair takes no allocation.
+ * @invisible
+ */
+class RKerning
+{
+  private static final int EMPTY = -1;
+
+  /* Open addressing hash table of the pairs, with the first glyph in the high 16 bits of the key and the second in the low ones */
+  private int[] keys;
+  private short[] values;
+  private int numPairs = 0;
+
+  /* For each table of classes: the class of each glyph as first glyph (-1 if it is not covered), as second glyph, and the adjustments by pair of classes */
+  private int[][] firstClasses = new int[0][];
+  private int[][] secondClasses = new int[0][];
+  private short[][] classValues = new short[0][];
+  private int[] numSecondClasses = new int[0];
+
+  private RKerning(int capacity){
+    int size = 16;
+    while(size < capacity * 2){
+      size <<= 1;
+    }
+    keys = new int[size];
+    values = new short[size];
+    for(int i = 0; i < size; i++){
+      keys[i] = EMPTY;
+    }
+  }
+
+  /* The kerning of a font, or null if it has none */
+  static RKerning create(Font font){
+    int numGlyphs = font.getNumGlyphs();
+
+    GposTable gpos = (GposTable)font.getTable(Table.GPOS);
+    PairPos[] subtables = (gpos != null) ? gpos.getKerningSubtables() : new PairPos[0];
+    if(subtables.length > 0){
+      int capacity = 0;
+      for(int i = 0; i < subtables.length; i++){
+        if(subtables[i] instanceof PairPosFormat1){
+          capacity += ((PairPosFormat1)subtables[i]).getKerningPairCount();
+        }
+      }
+
+      RKerning kerning = new RKerning(capacity);
+      for(int i = 0; i < subtables.length; i++){
+        if(subtables[i] instanceof PairPosFormat1){
+          PairPosFormat1 pairs = (PairPosFormat1)subtables[i];
+          for(int j = 0; j < pairs.getKerningPairCount(); j++){
+            kerning.put(pairs.getKerningPair(j));
+          }
+        }else if(subtables[i] instanceof PairPosFormat2){
+          kerning.addClasses((PairPosFormat2)subtables[i], numGlyphs);
+        }
+      }
+      return kerning;
+    }
+
+    KernTable kern = (KernTable)font.getTable(Table.kern);
+    if(kern == null){
+      return null;
+    }
+
+    int capacity = 0;
+    for(int i = 0; i < kern.getSubtableCount(); i++){
+      if(kern.getSubtable(i) != null){
+        capacity += kern.getSubtable(i).getKerningPairCount();
+      }
+    }
+    if(capacity == 0){
+      return null;
+    }
+
+    RKerning kerning = new RKerning(capacity);
+    for(int i = 0; i < kern.getSubtableCount(); i++){
+      KernSubtable pairs = kern.getSubtable(i);
+      if(pairs != null){
+        for(int j = 0; j < pairs.getKerningPairCount(); j++){
+          kerning.put(pairs.getKerningPair(j));
+        }
+      }
+    }
+    return kerning;
+  }
+
+  /* The change of the advance of the first glyph, in font units, when followed by the second one */
+  int get(int first, int second){
+    if(numPairs > 0){
+      int key = (first << 16) | (second & 0xffff);
+      int mask = keys.length - 1;
+      for(int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask){
+        if(keys[i] == key){
+          return values[i];
+        }
+      }
+    }
+
+    // The first table of classes covering the first glyph gives the adjustment
+    for(int t = 0; t < firstClasses.length; t++){
+      if(first >= 0 && first < firstClasses[t].length && firstClasses[t][first] >= 0){
+        int secondClass = (second >= 0 && second < secondClasses[t].length) ? secondClasses[t][second] : 0;
+        return classValues[t][firstClasses[t][first] * numSecondClasses[t] + secondClass];
+      }
+    }
+    return 0;
+  }
+
+  /* The pairs found first are kept, as the subtables found first take precedence */
+  private void put(KerningPair pair){
+    int key = (pair.getLeft() << 16) | (pair.getRight() & 0xffff);
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while(keys[i] != EMPTY){
+      if(keys[i] == key){
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = pair.getValue();
+    numPairs++;
+  }
+
+  private void addClasses(PairPosFormat2 subtable, int numGlyphs){
+    if(subtable.getClass1Count() == 0 || subtable.getClass2Count() == 0 || subtable.getCoverage() == null
+       || subtable.getClassDef1() == null || subtable.getClassDef2() == null){
+      return;
+    }
+
+    int[] first = new int[numGlyphs];
+    for(int g = 0; g < numGlyphs; g++){
+      first[g] = -1;
+    }
+    int[] covered = subtable.getCoverage().getGlyphIds();
+    for(int i = 0; i < covered.length; i++){
+      if(covered[i] < numGlyphs){
+        first[covered[i]] = Math.min(subtable.getClassDef1().getGlyphClass(covered[i]), subtable.getClass1Count() - 1);
+      }
+    }
+
+    int[] second = new int[numGlyphs];
+    for(int g = 0; g < numGlyphs; g++){
+      second[g] = Math.min(subtable.getClassDef2().getGlyphClass(g), subtable.getClass2Count() - 1);
+    }
+
+    short[] adjustments = new short[subtable.getClass1Count() * subtable.getClass2Count()];
+    for(int c1 = 0; c1 < subtable.getClass1Count(); c1++){
+      for(int c2 = 0; c2 < subtable.getClass2Count(); c2++){
+        adjustments[c1 * subtable.getClass2Count() + c2] = subtable.getXAdvance(c1, c2);
+      }
+    }
+
+    int n = firstClasses.length;
+    int[][] newFirst = new int[n + 1][];
+    int[][] newSecond = new int[n + 1][];
+    short[][] newValues = new short[n + 1][];
+    int[] newCounts = new int[n + 1];
+    System.arraycopy(firstClasses, 0, newFirst, 0, n);
+    System.arraycopy(secondClasses, 0, newSecond, 0, n);
+    System.arraycopy(classValues, 0, newValues, 0, n);
+    System.arraycopy(numSecondClasses, 0, newCounts, 0, n);
+    newFirst[n] = first;
+    newSecond[n] = second;
+    newValues[n] = adjustments;
+    newCounts[n] = subtable.getClass2Count();
+    firstClasses = newFirst;
+    secondClasses = newSecond;
+    classValues = newValues;
+    numSecondClasses = newCounts;
+  }
+
+  private static int hash(int key){
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,269 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RMeshCache keeps the meshes of the paths that have already been tesselated, so that paths with the same geometry at different positions (such as the glyphs of a text) are only tesselated once.  The meshes are looked up by the command types and the control points of the paths relative to their first point, together with the settings of the segmentator.  The least recently used meshes are evicted when the cache grows over its size limit.
+ */
+class RMeshCache
+{
+  /* Maximum number of points held by the cache, counting both the keys and the meshes */
+  static int maxSize = 1 << 20;
+
+  /* Fraction of the segmentator tolerance used to quantize the control points */
+  static final float QUANTUM_FRACTION = 1F / 64F;
+
+  private static int size = 0;
+  private static int hits = 0;
+  private static int misses = 0;
+
+  private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75F, true);
+
+  static final class Key {
+    final int[] data;
+    final int hash;
+
+    Key(int[] data){
+      this.data = data;
+      this.hash = Arrays.hashCode(data);
+    }
+
+    public int hashCode(){
+      return hash;
+    }
+
+    public boolean equals(Object o){
+      if(!(o instanceof Key)){
+        return false;
+      }
+      Key k = (Key)o;
+      return hash == k.hash && Arrays.equals(data, k.data);
+    }
+  }
+
+  static final class Entry {
+    /* The mesh and the position of the first point of the paths from which it was made */
+    final RMesh mesh;
+    final float x;
+    final float y;
+    final int size;
+
+    Entry(RMesh mesh, float x, float y, int size){
+      this.mesh = mesh;
+      this.x = x;
+      this.y = y;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Get the mesh of the fill of some paths, tesselating them only if no paths with the same geometry have been tesselated before.  The mesh returned is shared and must not be modified, it must be drawn or copied using the translation returned in offset.
+   * @param paths  the paths to tesselate
+   * @param offset  a point in which to return the translation from the mesh to the paths
+   * @return RMesh, the shared mesh or null if the paths could not be tesselated
+   */
+  static RMesh getMesh(ArrayList<RPath> paths, RPoint offset){
+    RPoint origin = getOrigin(paths);
+    Key key = createKey(paths, origin);
+
+    Entry entry;
+    synchronized(entries){
+      entry = entries.get(key);
+      if(entry != null){
+        hits++;
+      }
+    }
+
+    if(entry == null){
+      RMesh mesh = tesselate(paths);
+      if(mesh == null){
+        return null;
+      }
+
+      entry = new Entry(mesh, origin.x, origin.y, key.data.length / 2 + countVertices(mesh));
+      synchronized(entries){
+        misses++;
+        if(entries.put(key, entry) == null){
+          size += entry.size;
+        }
+        evict();
+      }
+    }
+
+    offset.x = origin.x - entry.x;
+    offset.y = origin.y - entry.y;
+    return entry.mesh;
+  }
+
+  /**
+   * Get a copy of the mesh of the fill of some paths placed at the position of the paths.
+   */
+  static RMesh getMeshCopy(ArrayList<RPath> paths){
+    RPoint offset = new RPoint();
+    RMesh mesh = getMesh(paths, offset);
+    if(mesh == null){
+      return null;
+    }
+
+    RMesh result = new RMesh();
+    for(int i = 0; i < mesh.countStrips(); i++){
+      RPoint[] vertices = mesh.strips[i].vertices;
+      RStrip strip = new RStrip();
+      if(vertices != null){
+        strip.vertices = new RPoint[vertices.length];
+        for(int j = 0; j < vertices.length; j++){
+          strip.vertices[j] = new RPoint(vertices[j].x + offset.x, vertices[j].y + offset.y);
+        }
+      }
+      result.addStrip(strip);
+    }
+
+    result.setStyle(mesh);
+    return result;
+  }
+
+  static void setMaxSize(int maxPoints){
+    if(maxPoints < 0){
+      throw new RuntimeException("The size of the mesh cache must be a positive value.");
+    }
+
+    synchronized(entries){
+      maxSize = maxPoints;
+      evict();
+    }
+  }
+
+  static void clear(){
+    synchronized(entries){
+      entries.clear();
+      size = 0;
+      hits = 0;
+      misses = 0;
+    }
+  }
+
+  /* The number of points held by the cache */
+  static int getSize(){
+    synchronized(entries){
+      return size;
+    }
+  }
+
+  static float getHitRate(){
+    synchronized(entries){
+      int total = hits + misses;
+      return (total == 0) ? 0F : (float)hits / (float)total;
+    }
+  }
+
+  private static void evict(){
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while(size > maxSize && it.hasNext()){
+      size -= it.next().getValue().size;
+      it.remove();
+    }
+  }
+
+  private static RMesh tesselate(ArrayList<RPath> paths){
+    RPolygon poly = new RPolygon();
+    for(int i = 0; i < paths.size(); i++){
+      RPath path = paths.get(i);
+      RPoint[] pnts = path.getPoints();
+      if(pnts != null){
+        RContour c = new RContour(pnts);
+        c.closed = path.closed;
+        poly.addContour(c);
+      }
+    }
+
+    return poly.toMesh();
+  }
+
+  private static int countVertices(RMesh mesh){
+    int count = 0;
+    for(int i = 0; i < mesh.countStrips(); i++){
+      count += mesh.strips[i].countVertices();
+    }
+    return count;
+  }
+
+  private static RPoint getOrigin(ArrayList<RPath> paths){
+    for(int i = 0; i < paths.size(); i++){
+      RPath path = paths.get(i);
+      if(path.countCommands() > 0){
+        return new RPoint(path.commands[0].startPoint);
+      }
+    }
+    return new RPoint();
+  }
+
+  private static Key createKey(ArrayList<RPath> paths, RPoint origin){
+    int[] settings = RCommand.getSegmentatorSettings();
+    int length = settings.length + 1 + 2 * paths.size();
+    for(int i = 0; i < paths.size(); i++){
+      RPath path = paths.get(i);
+      for(int j = 0; j < path.countCommands(); j++){
+        length += 5 + 2 * path.commands[j].countControlPoints();
+      }
+    }
+
+    int[] data = new int[length];
+    int k = 0;
+
+    // The settings of the segmentator
+    System.arraycopy(settings, 0, data, k, settings.length);
+    k += settings.length;
+    data[k++] = paths.size();
+
+    // Quantize the control points relative to the origin, with a step much smaller than the segmentator tolerance
+    float quantum = (float)Math.sqrt(RCommand.segmentDistTolSqr) * QUANTUM_FRACTION;
+    if(RCommand.segmentType == RCommand.UNIFORMLENGTH){
+      quantum = Math.min(quantum, RCommand.segmentLength * QUANTUM_FRACTION);
+    }
+    float invQuantum = 1F / quantum;
+
+    for(int i = 0; i < paths.size(); i++){
+      RPath path = paths.get(i);
+      int numCommands = path.countCommands();
+      data[k++] = path.closed ? 1 : 0;
+      data[k++] = numCommands;
+      for(int j = 0; j < numCommands; j++){
+        RCommand c = path.commands[j];
+        data[k++] = c.getCommandType();
+        data[k++] = Math.round((c.startPoint.x - origin.x) * invQuantum);
+        data[k++] = Math.round((c.startPoint.y - origin.y) * invQuantum);
+        for(int l = 0; l < c.countControlPoints(); l++){
+          data[k++] = Math.round((c.controlPoints[l].x - origin.x) * invQuantum);
+          data[k++] = Math.round((c.controlPoints[l].y - origin.y) * invQuantum);
+        }
+        data[k++] = Math.round((c.endPoint.x - origin.x) * invQuantum);
+        data[k++] = Math.round((c.endPoint.y - origin.y) * invQuantum);
+      }
+    }
+
+    return new Key(data);
+  }
+}
@@ -53,6 +53,9 @@ public class RPath extends RGeomElem
   public RPoint lastPoint;
 
   boolean closed = false;
+
+  /* Cache of the points of the path for each level of detail */
+  RPoint[][] lodPoints = null;
   
   /**
    * Create a new empty path.
@@ -170,19 +173,22 @@ public class RPath extends RGeomElem
    * @return RPoint[], the vertices returned in an array.
    * */
   public RPoint[] getPoints(){
-    int numCommands = countCommands();
-    if(numCommands == 0){
+    if(countCommands() == 0){
       return null;
     }
-    
-    // Add the curve points of each command
-    
+
     // First set the accumulated offset to the value of the inital offset
-    RCommand.segmentAccOffset = RCommand.segmentOffset;
+    RCommand.setSegmentAccOffset(RCommand.segmentOffset);
+    return getPoints(0F);
+  }
+
+  /* Join the points of the commands, segmented with the current segmentator or with the ADAPTATIVE one for a scale bigger than 0 */
+  private RPoint[] getPoints(float scale){
+    int numCommands = countCommands();
     RPoint[] result=null;
     RPoint[] newresult=null;
     for(int i=0;i<numCommands;i++){
-      RPoint[] newPoints = commands[i].getPoints(false);
+      RPoint[] newPoints = (scale > 0F) ? commands[i].getPointsForScale(scale) : commands[i].getPoints(false);
       if(newPoints!=null){
         if(result==null){
           result = new RPoint[newPoints.length];
@@ -535,8 +541,7 @@ public class RPath extends RGeomElem
     insert( splittedCommands[0], indOfElement );
 
     // Clear the cache
-    lenCurves = null;
-    lenCurve = -1F;
+    clearCache();
 
     return;
   }
@@ -570,8 +575,7 @@ public class RPath extends RGeomElem
     }
 
     // Clear the cache
-    lenCurves = null;
-    lenCurve = -1F;
+    clearCache();
     
     return;
   }
@@ -645,6 +649,71 @@ public class RPath extends RGeomElem
       }
       this.commands = result.commands;
     }
+
+    clearCache();
+  }
+
+  /**
+   * Use this to simplify the path.  The path is first segmented using the current segmentator and then the resulting polyline is simplified using the current simplifier, so that it deviates less than the tolerance from the original.  Closed paths never collapse to less than a triangle.
+   * @eexample simplify
+   * @param tolerance  the maximum distance between the original and the simplified path
+   * @related polygonize ( )
+   * @related RSimplifier
+   */
+  public void simplify(float tolerance){
+    RPoint[] points = getPoints();
+    if(points == null){
+      return;
+    }
+
+    float[] xy = RSimplifier.toBuffer(points);
+    int numPoints = RSimplifier.simplify(xy, points.length, tolerance, closed);
+    setPolyline(xy, numPoints);
+  }
+
+  /* Replace the commands of the path by lines joining the points of a buffer */
+  void setPolyline(float[] xy, int numPoints){
+    if(numPoints == 0){
+      this.commands = null;
+      this.lastPoint = new RPoint();
+    }else{
+      RPath result = new RPath(new RPoint(xy[0], xy[1]));
+      for(int i = 1; i < numPoints; i++){
+        result.addLineTo(new RPoint(xy[2*i], xy[2*i+1]));
+      }
+      this.commands = result.commands;
+      this.lastPoint = result.lastPoint;
+    }
+
+    clearCache();
+  }
+
+  /**
+   * Use this to return the points of the path segmented for drawing at a given scale.  The path is segmented with the ADAPTATIVE segmentator using a tolerance of half a pixel at that scale.  The scale is rounded up to a power of two, between 2^RCommand.LOD_MIN_LEVEL and 2^RCommand.LOD_MAX_LEVEL, and the resulting points are cached, so that successive calls at similar scales do not segment the path again.  The type and the tolerances of the current segmentator are left untouched.
+   * @eexample getPointsForScale
+   * @param scale  the ratio between screen units and path units, as returned by RCommand.getGraphicScale(g)
+   * @return RPoint[], the points of the path at the given level of detail
+   * @related getPoints ( )
+   */
+  public RPoint[] getPointsForScale(float scale){
+    int level = RCommand.getLevelOfDetail(scale);
+    int ind = level - RCommand.LOD_MIN_LEVEL;
+
+    if(lodPoints == null){
+      lodPoints = new RPoint[RCommand.LOD_MAX_LEVEL - RCommand.LOD_MIN_LEVEL + 1][];
+    }
+
+    if(lodPoints[ind] == null && countCommands() > 0){
+      // The tolerance is given to the commands, the settings of the segmentator are not changed
+      lodPoints[ind] = getPoints((float)Math.pow(2.0, level));
+    }
+
+    return lodPoints[ind];
+  }
+
+  protected void clearCache(){
+    super.clearCache();
+    lodPoints = null;
   }
   
   /**
@@ -704,6 +773,7 @@ public class RPath extends RGeomElem
    */
   public void addCommand(RCommand p){
     this.append(p);
+    clearCache();
     
     lastPoint = commands[commands.length-1].endPoint;
   }
@@ -796,6 +866,7 @@ public class RPath extends RGeomElem
     }
     
     closed = true;
+    clearCache();
   }
   
   /**
@@ -818,6 +889,52 @@ public class RPath extends RGeomElem
   public RMesh toMesh(){
     return this.toPolygon().toMesh();
   }
+
+  /**
+   * Use this method to create a new mesh covering the stroke of the path, using the stroke weight, cap and join of the style of the path.  The mesh can be drawn, transformed and exported like the meshes of the fills.
+   * @eexample toStrokeMesh
+   * @return RMesh, the mesh made of a tristrip covering the stroke of the path
+   * @related toMesh ( )
+   */
+  public RMesh toStrokeMesh(){
+    return toStrokeMesh(style.strokeWeight, style.strokeCap, style.strokeJoin);
+  }
+
+  /**
+   * Use this method to create a new mesh covering the stroke of the path.
+   * @eexample toStrokeMesh
+   * @param weight  the width of the stroke
+   * @param cap  the ends of the stroke, it can be RG.SQUARE, RG.PROJECT or RG.ROUND
+   * @param join  the joins between the segments of the stroke, it can be RG.MITER, RG.BEVEL or RG.ROUND
+   * @return RMesh, the mesh made of a tristrip covering the stroke of the path
+   * @related toMesh ( )
+   */
+  public RMesh toStrokeMesh(float weight, int cap, int join){
+    RMesh mesh = new RMesh();
+    addStrokeStrip(mesh, weight, cap, join);
+
+    mesh.setStyle(this);
+    mesh.setFill(style.strokeColor);
+    mesh.setFillAlpha(style.strokeAlphaDef ? style.strokeAlpha : (style.strokeColor >>> 24));
+    mesh.setStroke(false);
+    return mesh;
+  }
+
+  void addStrokeStrip(RMesh mesh, float weight, int cap, int join){
+    // By default always stroke with an adaptative segmentator
+    int lastSegmentator = RCommand.segmentType;
+    RCommand.setSegmentator(RCommand.ADAPTATIVE);
+
+    RPoint[] points = getPoints();
+
+    // Restore the user set segmentator
+    RCommand.setSegmentator(lastSegmentator);
+
+    RStrip strip = RStroker.strokePolyline(points, closed, weight, cap, join);
+    if(strip != null){
+      mesh.addStrip(strip);
+    }
+  }
   
   /**
    * Use this method to get the type of element this is.
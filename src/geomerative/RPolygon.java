@@ -370,6 +370,35 @@ public class RPolygon extends RGeomElem
     contours[contours.length - 1].addClose();
   }
 
+  /**
+   * Use this to simplify all the contours of the polygon using the current simplifier, so that they deviate less than the tolerance from the original.  The borders shared by several contours are simplified once, so that the contours stay joined.
+   * @eexample simplify
+   * @param tolerance  the maximum distance between the original and the simplified contours
+   * @related RSimplifier
+   */
+  public void simplify(float tolerance){
+    int numContours = countContours();
+    float[][] xys = new float[numContours][];
+    int[] numPoints = new int[numContours];
+    boolean[] closed = new boolean[numContours];
+    for(int i=0;i<numContours;i++){
+      RPoint[] pnts = contours[i].points;
+      xys[i] = (pnts == null) ? new float[0] : RSimplifier.toBuffer(pnts);
+      numPoints[i] = (pnts == null) ? 0 : pnts.length;
+      closed[i] = contours[i].closed;
+    }
+
+    RSimplifier.simplify(xys, numPoints, closed, tolerance);
+
+    for(int i=0;i<numContours;i++){
+      if(contours[i].points != null){
+        contours[i].points = RSimplifier.toPoints(xys[i], numPoints[i]);
+      }
+    }
+
+    clearCache();
+  }
+
   /**
    * Use this method to create a new mesh from a given polygon.
    * @eexample toMesh
@@ -563,53 +592,56 @@ public class RPolygon extends RGeomElem
     int numContours = countContours();
     if(numContours!=0){
       if(isIn(g)){
+        RStyle.Context old = null;
         if(!RG.ignoreStyles){
-          saveContext(g);
+          old = saveContext(g);
           setContext(g);
         }
 
-        // Check whether to draw the fill or not
-        if(g.fill){
-          // Since we are drawing the different tristrips we must turn off the stroke or make it the same color as the fill
-          // NOTE: there's currently no way of drawing the outline of a mesh, since no information is kept about what vertices are at the edge
-
-          // Save the information about the current stroke color and turn off
-          boolean stroking = g.stroke;
-          g.noStroke();
-
-          // Save smoothing state and turn off
-          int smoothing = g.smooth;
-          try{
-            if(smoothing > 0){
-              g.noSmooth();
+        try{
+          // Check whether to draw the fill or not
+          if(g.fill){
+            // Since we are drawing the different tristrips we must turn off the stroke or make it the same color as the fill
+            // NOTE: there's currently no way of drawing the outline of a mesh, since no information is kept about what vertices are at the edge
+
+            // Save the information about the current stroke color and turn off
+            boolean stroking = g.stroke;
+            g.noStroke();
+
+            // Save smoothing state and turn off
+            int smoothing = g.smooth;
+            try{
+              if(smoothing > 0){
+                g.noSmooth();
+              }
+            }catch(Exception e){
             }
-          }catch(Exception e){
-          }
 
-          RMesh tempMesh = this.toMesh();
-          tempMesh.draw(g);
+            RMesh tempMesh = this.toMesh();
+            tempMesh.draw(g);
 
-          // Restore the old stroke color
-          if(stroking) g.stroke(g.strokeColor);
+            // Restore the old stroke color
+            if(stroking) g.stroke(g.strokeColor);
 
-          // Restore the old smoothing state
-          try{
-            if(smoothing > 0){
-              g.smooth();
+            // Restore the old smoothing state
+            try{
+              if(smoothing > 0){
+                g.smooth();
+              }
+            }catch(Exception e){
             }
-          }catch(Exception e){
           }
-        }
 
-        // Check whether to draw the stroke or not
-        if(g.stroke){
-          for(int i=0;i<numContours;i++){
-            contours[i].draw(g);
+          // Check whether to draw the stroke or not
+          if(g.stroke){
+            for(int i=0;i<numContours;i++){
+              contours[i].draw(g);
+            }
+          }
+        }finally{
+          if(old != null){
+            restoreContext(g, old);
           }
-        }
-
-        if(!RG.ignoreStyles){
-          restoreContext(g);
         }
       }
     }
@@ -619,54 +651,57 @@ public class RPolygon extends RGeomElem
     int numContours = countContours();
     if(numContours!=0){
       if(isIn(g)){
+        RStyle.Context old = null;
         if(!RG.ignoreStyles){
-          saveContext(g);
+          old = saveContext(g);
           setContext(g);
         }
 
-        // Check whether to draw the fill or not
-        if(g.g.fill){
-          // Since we are drawing the different tristrips we must turn off the stroke or make it the same color as the fill
-          // NOTE: there's currently no way of drawing the outline of a mesh, since no information is kept about what vertices are at the edge
-
-          // Save the information about the current stroke color and turn off
-          boolean stroking = g.g.stroke;
-          g.noStroke();
-
-          // Save smoothing state and turn off
-          int smoothing = g.g.smooth;
-          try{
-            if(smoothing > 0){
-              g.noSmooth();
+        try{
+          // Check whether to draw the fill or not
+          if(g.g.fill){
+            // Since we are drawing the different tristrips we must turn off the stroke or make it the same color as the fill
+            // NOTE: there's currently no way of drawing the outline of a mesh, since no information is kept about what vertices are at the edge
+
+            // Save the information about the current stroke color and turn off
+            boolean stroking = g.g.stroke;
+            g.noStroke();
+
+            // Save smoothing state and turn off
+            int smoothing = g.g.smooth;
+            try{
+              if(smoothing > 0){
+                g.noSmooth();
+              }
+            }catch(Exception e){
             }
-          }catch(Exception e){
-          }
 
-          RMesh tempMesh = this.toMesh();
-          if(tempMesh != null)
-            tempMesh.draw(g);
+            RMesh tempMesh = this.toMesh();
+            if(tempMesh != null)
+              tempMesh.draw(g);
 
-          // Restore the old stroke color
-          if(stroking) g.stroke(g.g.strokeColor);
+            // Restore the old stroke color
+            if(stroking) g.stroke(g.g.strokeColor);
 
-          // Restore the old smoothing state
-          try{
-            if(smoothing > 0){
-              g.smooth();
+            // Restore the old smoothing state
+            try{
+              if(smoothing > 0){
+                g.smooth();
+              }
+            }catch(Exception e){
             }
-          }catch(Exception e){
           }
-        }
 
-        // Check whether to draws the stroke or not
-        if(g.g.stroke){
-          for(int i=0;i<numContours;i++){
-            contours[i].draw(g);
+          // Check whether to draws the stroke or not
+          if(g.g.stroke){
+            for(int i=0;i<numContours;i++){
+              contours[i].draw(g);
+            }
+          }
+        }finally{
+          if(old != null){
+            restoreContext(g, old);
           }
-        }
-
-        if(!RG.ignoreStyles){
-          restoreContext(g);
         }
       }
     }
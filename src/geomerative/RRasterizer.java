@@ -0,0 +1,668 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * RRasterizer draws shapes into a buffer of ARGB pixels without the need of a PApplet or a PGraphics, which makes it usable on servers without display.  Shapes are filled with antialiasing using their style colors, and the rows of the buffer are rasterized in parallel on all the available processors.
+ * @eexample RRasterizer
+ * @usage Geometry
+ * @related RShape
+ * @related RPolygon
+ * @extended
+ */
+public class RRasterizer
+{
+  /**
+   * NONZERO fill rule fills the points around which the contours turn a non zero number of times.
+   */
+  public static final int NONZERO = 0;
+
+  /**
+   * EVENODD fill rule fills the points that are inside an odd number of contours.
+   */
+  public static final int EVENODD = 1;
+
+  /* Number of scanlines sampled inside each row of pixels */
+  static final int SUBSAMPLES = 8;
+
+  /* Minimum number of rows of pixels rasterized by each thread */
+  static final int MIN_BAND_HEIGHT = 16;
+
+  /**
+   * The width of the pixel buffer.
+   */
+  public int width;
+
+  /**
+   * The height of the pixel buffer.
+   */
+  public int height;
+
+  /**
+   * The pixel buffer, in ARGB format, ordered by rows.
+   */
+  public int[] pixels;
+
+  int fillRule = NONZERO;
+  RMatrix matrix = null;
+
+  /* Filled contours waiting to be rasterized, in drawing order */
+  private ArrayList<Layer> layers = new ArrayList<Layer>();
+
+  /**
+   * Create a new rasterizer with a transparent pixel buffer.
+   * @eexample RRasterizer
+   * @param width  the width of the buffer in pixels
+   * @param height  the height of the buffer in pixels
+   */
+  public RRasterizer(int width, int height){
+    this(new int[width * height], width, height);
+  }
+
+  /**
+   * Create a new rasterizer drawing on an existing pixel buffer, such as the pixels of a PImage.
+   * @eexample RRasterizer
+   * @param pixels  the buffer of ARGB pixels
+   * @param width  the width of the buffer in pixels
+   * @param height  the height of the buffer in pixels
+   */
+  public RRasterizer(int[] pixels, int width, int height){
+    if(width <= 0 || height <= 0){
+      throw new RuntimeException("The size of the rasterizer must be bigger than 0.");
+    }
+
+    if(pixels.length < width * height){
+      throw new RuntimeException("The pixel buffer is smaller than the size of the rasterizer.");
+    }
+
+    this.pixels = pixels;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Use this to set the rule that decides which points are inside the contours when filling.
+   * @eexample setFillRule
+   * @param rule  RRasterizer.NONZERO or RRasterizer.EVENODD
+   */
+  public void setFillRule(int rule){
+    if(rule != NONZERO && rule != EVENODD){
+      throw new RuntimeException("The fill rule must be NONZERO or EVENODD.");
+    }
+
+    fillRule = rule;
+  }
+
+  /**
+   * Use this to set the transformation from shape coordinates to pixel coordinates.  By default shapes are drawn in pixel coordinates.
+   * @eexample setMatrix
+   * @param m  the transformation matrix or null to draw in pixel coordinates
+   */
+  public void setMatrix(RMatrix m){
+    matrix = (m == null) ? null : new RMatrix(m);
+  }
+
+  /**
+   * Use this to fill all the pixel buffer with a color.
+   * @eexample background
+   * @param argb  the color in ARGB format
+   */
+  public void background(int argb){
+    Arrays.fill(pixels, 0, width * height, argb);
+  }
+
+  /**
+   * Use this to draw a shape and its children, using their styles.  Shapes without a defined style are filled white and stroked black, as in Processing.
+   * @eexample RRasterizer_draw
+   * @param shp  the shape to draw
+   */
+  public void draw(RShape shp){
+    addShape(shp, new Paint());
+    rasterize();
+  }
+
+  /**
+   * Use this to draw a polygon, using its style.
+   * @eexample RRasterizer_draw
+   * @param poly  the polygon to draw
+   */
+  public void draw(RPolygon poly){
+    Paint paint = new Paint().resolve(poly.style);
+    if(paint.fill){
+      addFill(poly.getPointsInPaths(), paint.fillColor);
+    }
+    rasterize();
+  }
+
+  /**
+   * Use this to fill a set of contours with a color.  The contours are always closed.
+   * @eexample fill
+   * @param contours  the points of each contour
+   * @param argb  the color in ARGB format
+   */
+  public void fill(RPoint[][] contours, int argb){
+    addFill(contours, argb);
+    rasterize();
+  }
+
+  // ----------------------
+  // --- Private Methods ---
+  // ----------------------
+
+  /* Style inherited by the children of a shape */
+  private static final class Paint {
+    boolean fill = true;
+    int fillColor = 0xffffffff;
+    boolean stroke = true;
+    int strokeColor = 0xff000000;
+    float strokeWeight = 1F;
+    int strokeCap = RG.ROUND;
+    int strokeJoin = RG.MITER;
+
+    Paint resolve(RStyle s){
+      Paint p = new Paint();
+      p.fill = fill;
+      p.fillColor = fillColor;
+      p.stroke = stroke;
+      p.strokeColor = strokeColor;
+      p.strokeWeight = strokeWeight;
+      p.strokeCap = strokeCap;
+      p.strokeJoin = strokeJoin;
+
+      if(RG.ignoreStyles || s == null){
+        return p;
+      }
+
+      if(s.fillDef){
+        p.fill = s.fill;
+        p.fillColor = s.fillColor;
+      }
+      if(s.fillAlphaDef){
+        p.fillColor = ((s.fillAlpha << 24) & 0xff000000) | (p.fillColor & 0x00ffffff);
+      }
+      if(s.strokeDef){
+        p.stroke = s.stroke;
+        p.strokeColor = s.strokeColor;
+      }
+      if(s.strokeAlphaDef){
+        p.strokeColor = ((s.strokeAlpha << 24) & 0xff000000) | (p.strokeColor & 0x00ffffff);
+      }
+      if(s.strokeWeightDef) p.strokeWeight = s.strokeWeight;
+      if(s.strokeCapDef) p.strokeCap = s.strokeCap;
+      if(s.strokeJoinDef) p.strokeJoin = s.strokeJoin;
+      return p;
+    }
+  }
+
+  /* Edges of filled contours, going down, sorted by their top */
+  private static final class Layer {
+    int color;
+    int rule;
+    int numEdges = 0;
+    float[] xTop = new float[16];
+    float[] yTop = new float[16];
+    float[] yBottom = new float[16];
+    float[] slope = new float[16];
+    int[] winding = new int[16];
+    float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+    Layer(int color, int rule){
+      this.color = color;
+      this.rule = rule;
+    }
+
+    void addEdge(float x0, float y0, float x1, float y1){
+      if(y0 == y1 || Float.isNaN(x0) || Float.isNaN(x1)){
+        return;
+      }
+
+      int w = 1;
+      if(y0 > y1){
+        float t = x0; x0 = x1; x1 = t;
+        t = y0; y0 = y1; y1 = t;
+        w = -1;
+      }
+
+      if(numEdges == xTop.length){
+        int n = numEdges * 2;
+        xTop = grow(xTop, n);
+        yTop = grow(yTop, n);
+        yBottom = grow(yBottom, n);
+        slope = grow(slope, n);
+        int[] newWinding = new int[n];
+        System.arraycopy(winding, 0, newWinding, 0, numEdges);
+        winding = newWinding;
+      }
+
+      xTop[numEdges] = x0;
+      yTop[numEdges] = y0;
+      yBottom[numEdges] = y1;
+      slope[numEdges] = (x1 - x0) / (y1 - y0);
+      winding[numEdges] = w;
+      numEdges++;
+
+      minX = Math.min(minX, Math.min(x0, x1));
+      maxX = Math.max(maxX, Math.max(x0, x1));
+      minY = Math.min(minY, y0);
+      maxY = Math.max(maxY, y1);
+    }
+
+    void sort(){
+      // Sort the edges by their top, packed with their index in the low bits of a key
+      long[] order = new long[numEdges];
+      for(int i = 0; i < numEdges; i++){
+        int bits = Float.floatToIntBits(yTop[i]);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        order[i] = ((long)bits << 32) | i;
+      }
+      Arrays.sort(order);
+
+      float[] sxTop = new float[numEdges], syTop = new float[numEdges];
+      float[] syBottom = new float[numEdges], sslope = new float[numEdges];
+      int[] swinding = new int[numEdges];
+      for(int i = 0; i < numEdges; i++){
+        int j = (int)order[i];
+        sxTop[i] = xTop[j];
+        syTop[i] = yTop[j];
+        syBottom[i] = yBottom[j];
+        sslope[i] = slope[j];
+        swinding[i] = winding[j];
+      }
+      xTop = sxTop; yTop = syTop; yBottom = syBottom; slope = sslope; winding = swinding;
+    }
+
+    private static float[] grow(float[] a, int n){
+      float[] b = new float[n];
+      System.arraycopy(a, 0, b, 0, a.length);
+      return b;
+    }
+  }
+
+  private void addShape(RShape shp, Paint parent){
+    Paint paint = parent.resolve(shp.style);
+
+    int numPaths = shp.countPaths();
+    if(numPaths > 0){
+      RPoint[][] contours = new RPoint[numPaths][];
+      for(int i = 0; i < numPaths; i++){
+        contours[i] = shp.paths[i].getPointsForScale(getScale());
+      }
+
+      if(paint.fill){
+        addFill(contours, paint.fillColor);
+      }
+
+      if(paint.stroke){
+        for(int i = 0; i < numPaths; i++){
+          addStroke(contours[i], shp.paths[i].closed, paint);
+        }
+      }
+    }
+
+    for(int i = 0; i < shp.countChildren(); i++){
+      addShape(shp.children[i], paint);
+    }
+  }
+
+  private void addFill(RPoint[][] contours, int color){
+    if(contours == null || (color >>> 24) == 0){
+      return;
+    }
+
+    Layer layer = new Layer(color, fillRule);
+    for(int i = 0; i < contours.length; i++){
+      RPoint[] pnts = contours[i];
+      if(pnts == null || pnts.length < 2){
+        continue;
+      }
+
+      float[] xy = transformPoints(pnts);
+      int n = pnts.length;
+      for(int j = 0; j < n; j++){
+        int k = (j + 1) % n;
+        layer.addEdge(xy[2*j], xy[2*j+1], xy[2*k], xy[2*k+1]);
+      }
+    }
+    addLayer(layer);
+  }
+
+  private void addStroke(RPoint[] pnts, boolean closed, Paint paint){
+    if(pnts == null || (paint.strokeColor >>> 24) == 0){
+      return;
+    }
+
+    float[] xy = transformPoints(pnts);
+    RPoint[] transformed = RSimplifier.toPoints(xy, pnts.length);
+    RStrip strip = RStroker.strokePolyline(transformed, closed, paint.strokeWeight * getScale(), paint.strokeCap, paint.strokeJoin);
+    if(strip == null){
+      return;
+    }
+
+    // Orient all the triangles of the strip the same way, so that their union is filled with the nonzero rule
+    Layer layer = new Layer(paint.strokeColor, NONZERO);
+    RPoint[] v = strip.vertices;
+    for(int i = 2; i < v.length; i++){
+      RPoint a = v[i-2], b = v[i-1], c = v[i];
+      float area = (b.x - a.x) * (c.y - a.y) - (c.x - a.x) * (b.y - a.y);
+      if(area == 0F){
+        continue;
+      }
+      if(area < 0F){
+        RPoint t = b; b = c; c = t;
+      }
+      layer.addEdge(a.x, a.y, b.x, b.y);
+      layer.addEdge(b.x, b.y, c.x, c.y);
+      layer.addEdge(c.x, c.y, a.x, a.y);
+    }
+    addLayer(layer);
+  }
+
+  private void addLayer(Layer layer){
+    if(layer.numEdges == 0 || layer.maxY < 0F || layer.minY >= height || layer.maxX < 0F || layer.minX >= width){
+      return;
+    }
+    layer.sort();
+    layers.add(layer);
+  }
+
+  private float getScale(){
+    if(matrix == null){
+      return 1F;
+    }
+    float det = Math.abs(matrix.m00 * matrix.m11 - matrix.m01 * matrix.m10);
+    return (det > 0F) ? (float)Math.sqrt(det) : 1F;
+  }
+
+  private float[] transformPoints(RPoint[] pnts){
+    float[] xy = new float[pnts.length * 2];
+    for(int i = 0; i < pnts.length; i++){
+      float x = pnts[i].x, y = pnts[i].y;
+      if(matrix != null){
+        xy[2*i] = matrix.m00 * x + matrix.m01 * y + matrix.m02;
+        xy[2*i+1] = matrix.m10 * x + matrix.m11 * y + matrix.m12;
+      }else{
+        xy[2*i] = x;
+        xy[2*i+1] = y;
+      }
+    }
+    return xy;
+  }
+
+  /* Rasterize the pending layers in bands of rows, in parallel when possible */
+  private void rasterize(){
+    if(layers.isEmpty()){
+      return;
+    }
+
+    final Layer[] todo = layers.toArray(new Layer[layers.size()]);
+    layers.clear();
+
+    int numThreads = RThreadPool.size();
+    int bandHeight = Math.max(MIN_BAND_HEIGHT, (height + 4 * numThreads - 1) / (4 * numThreads));
+    int numBands = (height + bandHeight - 1) / bandHeight;
+
+    if(numThreads < 2 || numBands < 2){
+      new BandRasterizer(todo).rasterize(0, height);
+      return;
+    }
+
+    ExecutorService executor = RThreadPool.get();
+    List<Future<?>> results = new ArrayList<Future<?>>();
+    try{
+      for(int top = 0; top < height; top += bandHeight){
+        final int from = top;
+        final int to = Math.min(height, top + bandHeight);
+        results.add(executor.submit(new Runnable(){
+            public void run(){
+              new BandRasterizer(todo).rasterize(from, to);
+            }
+          }));
+      }
+
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).get();
+      }
+    }catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The rasterization was interrupted.");
+    }catch(ExecutionException e){
+      throw new RuntimeException("The rasterization failed: " + e.getCause());
+    }finally{
+      // The shared threads are kept, only the bands left are dropped
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).cancel(true);
+      }
+    }
+  }
+
+  /* Rasterizes a band of rows, with its own buffers so that bands can be rasterized concurrently */
+  private final class BandRasterizer {
+    final Layer[] todo;
+
+    /* Coverage of the pixels of a row: fractional part and difference array of the full pixels */
+    final float[] area = new float[width + 2];
+    final float[] cover = new float[width + 2];
+
+    int[] active = new int[16];
+    float[] crossX = new float[16];
+    int[] crossW = new int[16];
+
+    BandRasterizer(Layer[] todo){
+      this.todo = todo;
+    }
+
+    void rasterize(int top, int bottom){
+      for(int l = 0; l < todo.length; l++){
+        Layer layer = todo[l];
+        if(layer.maxY <= top || layer.minY >= bottom){
+          continue;
+        }
+        rasterizeLayer(layer, top, bottom);
+      }
+    }
+
+    void rasterizeLayer(Layer layer, int top, int bottom){
+      int minX = Math.max(0, (int)Math.floor(layer.minX));
+      int maxX = Math.min(width - 1, (int)Math.floor(layer.maxX));
+      int firstRow = Math.max(top, (int)Math.floor(layer.minY));
+      int lastRow = Math.min(bottom - 1, (int)Math.floor(layer.maxY));
+
+      int next = 0;
+      int numActive = 0;
+
+      for(int y = firstRow; y <= lastRow; y++){
+        boolean touched = false;
+
+        for(int k = 0; k < SUBSAMPLES; k++){
+          float sy = y + (k + 0.5F) / SUBSAMPLES;
+
+          // Update the active edges
+          while(next < layer.numEdges && layer.yTop[next] <= sy){
+            if(layer.yBottom[next] > sy){
+              if(numActive == active.length){
+                int[] newActive = new int[numActive * 2];
+                System.arraycopy(active, 0, newActive, 0, numActive);
+                active = newActive;
+              }
+              active[numActive++] = next;
+            }
+            next++;
+          }
+
+          int numCross = 0;
+          for(int i = 0; i < numActive; i++){
+            int e = active[i];
+            if(layer.yBottom[e] <= sy){
+              active[i--] = active[--numActive];
+              continue;
+            }
+            if(numCross == crossX.length){
+              float[] newX = new float[numCross * 2];
+              int[] newW = new int[numCross * 2];
+              System.arraycopy(crossX, 0, newX, 0, numCross);
+              System.arraycopy(crossW, 0, newW, 0, numCross);
+              crossX = newX;
+              crossW = newW;
+            }
+            crossX[numCross] = layer.xTop[e] + (sy - layer.yTop[e]) * layer.slope[e];
+            crossW[numCross] = layer.winding[e];
+            numCross++;
+          }
+
+          if(numCross < 2){
+            continue;
+          }
+
+          sortCrossings(0, numCross - 1);
+
+          // Accumulate the spans that are inside
+          int wind = 0;
+          for(int i = 0; i < numCross - 1; i++){
+            wind += crossW[i];
+            boolean inside = (layer.rule == EVENODD) ? ((wind & 1) != 0) : (wind != 0);
+            if(inside){
+              addSpan(crossX[i], crossX[i+1]);
+              touched = true;
+            }
+          }
+        }
+
+        if(touched){
+          compositeRow(y, minX, maxX, layer.color);
+        }
+      }
+    }
+
+    void addSpan(float xa, float xb){
+      xa = Math.max(0F, xa);
+      xb = Math.min((float)width, xb);
+      if(xb <= xa){
+        return;
+      }
+
+      int ia = (int)xa;
+      int ib = (int)xb;
+      if(ia == ib){
+        area[ia] += xb - xa;
+        return;
+      }
+
+      area[ia] += (ia + 1) - xa;
+      cover[ia + 1] += 1F;
+      cover[ib] -= 1F;
+      area[ib] += xb - ib;
+    }
+
+    void compositeRow(int y, int minX, int maxX, int color){
+      int alpha = color >>> 24;
+      int offset = y * width;
+      float running = 0F;
+      for(int x = minX; x <= maxX; x++){
+        running += cover[x];
+        float coverage = (running + area[x]) / SUBSAMPLES;
+        area[x] = 0F;
+        cover[x] = 0F;
+
+        if(coverage <= 0F){
+          continue;
+        }
+        if(coverage > 1F){
+          coverage = 1F;
+        }
+
+        int a = (int)(alpha * coverage + 0.5F);
+        if(a > 0){
+          pixels[offset + x] = blend(pixels[offset + x], color, a);
+        }
+      }
+
+      // Clear what was accumulated past the end of the layer
+      for(int x = maxX + 1; x < cover.length; x++){
+        if(cover[x] == 0F && area[x] == 0F){
+          break;
+        }
+        cover[x] = 0F;
+        area[x] = 0F;
+      }
+    }
+
+    /* Sort the crossings by x, the crossings of successive scanlines being almost sorted */
+    void sortCrossings(int lo, int hi){
+      while(hi - lo > 16){
+        float pivot = crossX[(lo + hi) >>> 1];
+        int i = lo, j = hi;
+        while(i <= j){
+          while(crossX[i] < pivot) i++;
+          while(crossX[j] > pivot) j--;
+          if(i <= j){
+            swap(i, j);
+            i++;
+            j--;
+          }
+        }
+        if(j - lo < hi - i){
+          sortCrossings(lo, j);
+          lo = i;
+        }else{
+          sortCrossings(i, hi);
+          hi = j;
+        }
+      }
+
+      for(int i = lo + 1; i <= hi; i++){
+        for(int j = i; j > lo && crossX[j-1] > crossX[j]; j--){
+          swap(j, j - 1);
+        }
+      }
+    }
+
+    void swap(int i, int j){
+      float tx = crossX[i]; crossX[i] = crossX[j]; crossX[j] = tx;
+      int tw = crossW[i]; crossW[i] = crossW[j]; crossW[j] = tw;
+    }
+  }
+
+  /* Source over compositing of a color with a given alpha on a non premultiplied ARGB pixel */
+  static int blend(int dst, int src, int a){
+    if(a >= 255){
+      return src | 0xff000000;
+    }
+
+    int da = dst >>> 24;
+    int dw = da * (255 - a) / 255;
+    int oa = a + dw;
+    if(oa == 0){
+      return 0;
+    }
+
+    int r = (((src >> 16) & 0xff) * a + ((dst >> 16) & 0xff) * dw) / oa;
+    int g = (((src >> 8) & 0xff) * a + ((dst >> 8) & 0xff) * dw) / oa;
+    int b = ((src & 0xff) * a + (dst & 0xff) * dw) / oa;
+    return (oa << 24) | (r << 16) | (g << 8) | b;
+  }
+}
@@ -22,6 +22,10 @@ package geomerative;
 import processing.core.*;
 import processing.data.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
 /**
  * @extended
  */
@@ -43,27 +47,53 @@ public class RSVG
   }
 
   public void saveShape(String filename, RShape shp) {
-    String str = fromShape(shp);
-    String[] strs = PApplet.split(str, "\n");
-    RG.parent().saveStrings(filename, strs);
+    RSVGWriter writer = new RSVGWriter(RG.parent().createOutput(filename));
+    boolean written = false;
+    try{
+      writer.writeShape(shp);
+      written = true;
+    }finally{
+      if(written){
+        writer.close();
+      }else{
+        // Don't let a failing close hide the error that stopped the writing
+        try{
+          writer.close();
+        }catch(RuntimeException e){
+        }
+      }
+    }
   }
 
   public String fromShape(RShape shape) {
-    String header = "<?xml version=\"1.0\" standalone=\"no\"?>\n<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n<svg width=\"100%\" height=\"100%\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">\n";
-
-    return header + shapeToString(shape) + "</svg>";
+    StringWriter str = new StringWriter();
+    new RSVGWriter(str).writeShape(shape);
+    return str.toString();
   }
 
   public void saveGroup(String filename, RGroup grp) {
-    String str = fromGroup(grp);
-    String[] strs = PApplet.split(str, "\n");
-    RG.parent().saveStrings(filename, strs);
+    RSVGWriter writer = new RSVGWriter(RG.parent().createOutput(filename));
+    boolean written = false;
+    try{
+      writer.writeGroup(grp);
+      written = true;
+    }finally{
+      if(written){
+        writer.close();
+      }else{
+        // Don't let a failing close hide the error that stopped the writing
+        try{
+          writer.close();
+        }catch(RuntimeException e){
+        }
+      }
+    }
   }
 
   public String fromGroup(RGroup group) {
-    String header = "<?xml version=\"1.0\" standalone=\"no\"?>\n<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n<svg width=\"100%\" height=\"100%\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">\n";
-
-    return header + groupToString(group) + "</svg>";
+    StringWriter str = new StringWriter();
+    new RSVGWriter(str).writeGroup(group);
+    return str.toString();
   }
 
   
@@ -132,37 +162,24 @@ public class RSVG
 
   public RShape toShape(String filename)
   {
-      XML svg = null;
-    try{
-       svg = RG.parent().loadXML(filename);
-    } catch (Exception e) {
-        e.printStackTrace();
+    // Stream the shapes from the file instead of loading its whole XML tree
+    InputStream in = RG.parent().createInput(filename);
+    if (in == null) {
+      PApplet.println("The file \"" + filename + "\" is missing or inaccessible.");
+      return new RShape();
     }
-    
-    if (svg == null) return new RShape();
 
-    if ( !svg.getName().equals("svg") )
-	{
-      throw new RuntimeException("root is not <svg>, it's <" + svg.getName() + ">");
-    }
-
-    RShape result = elemToCompositeShape(svg);
-
-    result.origWidth = result.getWidth();
-    result.origHeight = result.getHeight();
-
-    if (svg.hasAttribute("width") && svg.hasAttribute("height")) {
-      String widthStr = svg.getString("width").trim();
-      String heightStr = svg.getString("height").trim();
-            
-      result.width = unitsToPixels(widthStr, result.origWidth);
-      result.height = unitsToPixels(heightStr, result.origHeight);
-    } else {
-      result.width = result.origWidth;
-      result.height = result.origHeight;
+    try {
+      RSVGReader reader = new RSVGReader();
+      reader.setParallel(RG.useParallelLoading);
+      reader.setLazy(RG.useLazyLoading);
+      return reader.read(in);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+      }
     }
-    
-    return result;
   }
 
   public RPolygon toPolygon(String filename)
@@ -176,169 +193,25 @@ public class RSVG
   }
 
   public String groupToString(RGroup grp) {
-    String result = "";
-    result += "<g ";
-    result += styleToString(grp.getStyle());
-    result += ">\n";
-
-    for(int i=0;i<grp.countElements();i++) {
-      switch(grp.elements[i].getType()){
-      case RGeomElem.GROUP:
-        result += groupToString((RGroup)grp.elements[i]);
-        break;
-
-      case RGeomElem.POLYGON:
-        result += polygonToString((RPolygon)grp.elements[i]);
-        break;
-
-      case RGeomElem.SHAPE:
-        result += shapeToString((RShape)grp.elements[i]);
-        break;
-
-      }
-    }
-
-    result += "</g>\n";
-    return result;
+    StringWriter str = new StringWriter();
+    new RSVGWriter(str).writeGroupElement(grp);
+    return str.toString();
   }
 
   public String polygonToString(RPolygon poly) {
-    String result = "";
-    result += shapeToString(poly.toShape());
-    return result;
+    return shapeToString(poly.toShape());
   }
 
   public String shapeToString(RShape shp) {
-    String result = "";
-
-    // If it has children it is a group
-    result += "<g ";
-    result += styleToString(shp.getStyle());
-    result += ">\n";
-
-    if (shp.countPaths() > 0) {
-      result += "<path ";
-      result += "d=\"";
-
-      for(int i=0; i<shp.countPaths(); i++) {
-        RPath sushp = shp.paths[i];
-        boolean init = true;
-        for ( int j = 0; j < sushp.countCommands(); j++ ) {
-          RCommand cmd = sushp.commands[j];
-
-          if (init) {
-            result += "M" + cmd.startPoint.x + " " + cmd.startPoint.y + " ";
-            init = false;
-          }
-
-          switch( cmd.getCommandType() )
-            {
-            case RCommand.LINETO:
-              result += "L" + cmd.endPoint.x + " " + cmd.endPoint.y + " ";
-              break;
-
-            case RCommand.QUADBEZIERTO:
-              result += "Q" + cmd.controlPoints[0].x + " " + cmd.controlPoints[0].y + cmd.endPoint.x + " " + cmd.endPoint.y + " ";
-              break;
-
-            case RCommand.CUBICBEZIERTO:
-              result += "C" + cmd.controlPoints[0].x + " " + cmd.controlPoints[0].y + " " + cmd.controlPoints[1].x + " " + cmd.controlPoints[1].y + " " + cmd.endPoint.x + " " + cmd.endPoint.y + " ";
-              break;
-            }
-        }
-
-        if (sushp.closed) {
-          result += "Z ";
-        }
-      }
-
-      result += "\"/>\n";
-    }
-
-    for (int i=0; i<shp.countChildren(); i++) {
-      result+=shapeToString(shp.children[i]);
-    }
-
-    result += "</g>\n";
-    return result;
+    StringWriter str = new StringWriter();
+    new RSVGWriter(str).writeShapeElement(shp);
+    return str.toString();
   }
 
   public String styleToString(RStyle style) {
-    String result = " style=\"";
-
-    if (style.fillDef) {
-      if (!style.fill) {
-        result += "fill:none;";
-      } else {
-        result += "fill:#" + PApplet.hex(style.fillColor, 6) + ";";
-      }
-    }
-
-    if (style.fillAlphaDef) {
-      result += "fill-opacity:" + style.fillAlpha/255.0f + ";";
-    }
-
-    if (style.strokeDef) {
-      if (!style.stroke) {
-        result += "stroke:none;";
-      } else {
-        result += "stroke:#" + PApplet.hex(style.strokeColor, 6) + ";";
-      }
-    }
-
-    if (style.strokeAlphaDef) {
-      result += "stroke-opacity:" + style.strokeAlpha/255.0f + ";";
-    }
-
-    if (style.strokeWeightDef) {
-      result += "stroke-width:" + style.strokeWeight + ";";
-    }
-
-
-    if(style.strokeCapDef) {
-      result += "stroke-linecap:";
-
-      switch (style.strokeCap) {
-      case RG.PROJECT:
-        result += "butt";
-        break;
-      case RG.ROUND:
-        result += "round";
-        break;
-      case RG.SQUARE:
-        result += "square";
-        break;
-
-      default:
-        break;
-      }
-
-      result += ";";
-    }
-
-    if(style.strokeJoinDef) {
-      result += "stroke-linejoin:";
-
-      switch (style.strokeJoin) {
-      case RG.MITER:
-        result += "miter";
-        break;
-      case RG.ROUND:
-        result += "round";
-        break;
-      case RG.BEVEL:
-        result += "bevel";
-        break;
-
-      default:
-        break;
-      }
-
-      result += ";";
-    }
-
-    result += "\" ";
-    return result;
+    StringWriter str = new StringWriter();
+    new RSVGWriter(str).writeStyle(style);
+    return str.toString();
   }
 
   /**
@@ -731,43 +604,7 @@ public class RSVG
    */
   private RShape getPolyline(String s)
   {
-    RShape poly = new RShape();
-    boolean first = true;
-
-    //format string to usable format
-    char charline[]=s.toCharArray();
-    for(int i=0;i<charline.length;i++)
-      {
-        switch(charline[i])
-          {
-          case '-':
-            if(i>0 && charline[i-1] != 'e' && charline[i-1] != 'E'){
-              charline=PApplet.splice(charline,' ',i);
-              i++;
-            }
-            break;
-          case ',':
-          case '\n':
-          case '\r':
-          case '\t':
-            charline[i]=' ';
-            break;
-          }
-      }
-    String formatted=new String(charline);
-    String tags[]=PApplet.splitTokens(formatted,", ");
-    for(int i=0;i<tags.length;i++){
-      float x = PApplet.parseFloat(tags[i]);
-      float y = PApplet.parseFloat(tags[i+1]);
-      i++;
-      if(first){
-        poly.addMoveTo(x,y);
-        first = false;
-      }else{
-        poly.addLineTo(x,y);
-      }
-    }
-    return poly;
+    return RSVGPathParser.parsePolyline(s);
   }
 
   /**
@@ -775,195 +612,6 @@ public class RSVG
    */
   private RShape getShape(String s)
   {
-    RShape shp = new RShape();
-
-    if(s == null){
-      return shp;
-    }
-
-    //format string to usable format
-    char charline[] = s.toCharArray();
-    for( int i = 0 ; i < charline.length ; i++)
-      {
-        switch(charline[i])
-          {
-          case 'M':
-          case 'm':
-          case 'Z':
-          case 'z':
-          case 'C':
-          case 'c':
-          case 'S':
-          case 's':
-          case 'L':
-          case 'l':
-          case 'H':
-          case 'h':
-          case 'V':
-          case 'v':
-            charline = PApplet.splice(charline,' ',i);
-            i ++;
-            charline = PApplet.splice(charline,' ',i+1);
-            i ++;
-            break;
-
-          case '-':
-            if(i>0 && charline[i-1] != 'e' && charline[i-1] != 'E'){
-              charline=PApplet.splice(charline,' ',i);
-              i++;
-            }
-            break;
-          case ',':
-          case '\n':
-          case '\r':
-          case '\t':
-            charline[i] = ' ';
-            break;
-
-          }
-      }
-    String formatted = new String(charline);
-    String[] tags = PApplet.splitTokens(formatted);
-
-    //PApplet.println("formatted: " + formatted);
-    //PApplet.println("tags: ");
-    //PApplet.println(tags);
-    
-    //build points
-    RPoint curp = new RPoint();
-    RPoint relp = new RPoint();
-    RPoint refp = new RPoint();
-    RPoint strp = new RPoint();
-
-    char command = 'a';
-
-    for (int i=0;i<tags.length;i++)
-      {
-        char nextChar = tags[i].charAt(0);
-        switch(nextChar)
-          {
-          case 'm':
-          case 'M':
-          case 'c':
-          case 'C':
-          case 's':
-          case 'S':
-          case 'l':
-          case 'L':
-          case 'h':
-          case 'H':
-          case 'v':
-          case 'V':
-            i += 1;
-          case 'z':
-          case 'Z':
-            command = nextChar;
-            break;
-          default:
-            if (command == 'm') {
-              command = 'l';
-            } else if (command == 'M') {
-              command = 'L';
-            }
-        }
-
-        relp.setLocation(0F, 0F);
-
-        switch(command)
-          {
-          case 'm':
-            relp.setLocation(curp.x, curp.y);
-          case 'M':
-            i = move(shp, curp, relp, refp, strp, tags, i);
-            break;
-
-          case 'z':
-            relp.setLocation(curp.x, curp.y);
-          case 'Z':
-            shp.addClose();
-            break;
-
-          case 'c':
-            relp.setLocation(curp.x, curp.y);
-          case 'C':
-            i = curve(shp, curp, relp, refp, strp, tags, i);
-            break;
-
-          case 's':
-            relp.setLocation(curp.x, curp.y);
-          case 'S':
-            i = smooth(shp, curp, relp, refp, strp, tags, i);
-            break;
-
-          case 'l':
-            relp.setLocation(curp.x, curp.y);
-          case 'L':
-            i = line(shp, curp, relp, refp, strp, tags, i);
-            break;
-
-          case 'h':
-            relp.setLocation(curp.x, curp.y);
-          case 'H':
-            i = horizontal(shp, curp, relp, refp, strp, tags, i);
-            break;
-
-          case 'v':
-            relp.setLocation(curp.x, curp.y);
-          case 'V':
-            i = vertical(shp, curp, relp, refp, strp, tags, i);
-            break;
-          }
-      }
-    return shp;
-  }
-
-  private int move(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addMoveTo(PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y);
-
-    curp.setLocation(PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y);
-    refp.setLocation(curp.x,curp.y);
-    strp.setLocation(curp.x,curp.y);
-    //relp.setLocation(0F, 0F);
-    return i + 1;
-  }
-
-  private int curve(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addBezierTo(PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y, PApplet.parseFloat(tags[i+2])+relp.x, PApplet.parseFloat(tags[i+3])+relp.y, PApplet.parseFloat(tags[i+4])+relp.x, PApplet.parseFloat(tags[i+5])+relp.y);
-
-    curp.setLocation(PApplet.parseFloat(tags[i+4])+relp.x, PApplet.parseFloat(tags[i+5])+relp.y);
-    refp.setLocation(2.0f*curp.x-(PApplet.parseFloat(tags[i+2])+relp.x), 2.0f*curp.y-(PApplet.parseFloat(tags[i+3])+relp.y));
-    return i + 5;
-  }
-
-  private int smooth(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addBezierTo(refp.x, refp.y, PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y, PApplet.parseFloat(tags[i+2])+relp.x, PApplet.parseFloat(tags[i+3])+relp.y);
-
-    curp.setLocation(PApplet.parseFloat(tags[i+2])+relp.x, PApplet.parseFloat(tags[i+3])+relp.y);
-    refp.setLocation(2.0f*curp.x-(PApplet.parseFloat(tags[i])+relp.x), 2.0f*curp.y-(PApplet.parseFloat(tags[i+1])+relp.y));
-    return i + 3;
-  }
-
-  private int line(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addLineTo(PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y);
-
-    curp.setLocation(PApplet.parseFloat(tags[i])+relp.x, PApplet.parseFloat(tags[i+1])+relp.y);
-    refp.setLocation(curp.x, curp.y);
-    return i + 1;
-  }
-
-  private int horizontal(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addLineTo(PApplet.parseFloat(tags[i])+relp.x, curp.y);
-
-    curp.setLocation(PApplet.parseFloat(tags[i])+relp.x, curp.y);
-    refp.setLocation(curp.x, curp.y);
-    return i;
-  }
-
-  private int vertical(RShape shp, RPoint curp, RPoint relp, RPoint refp, RPoint strp, String[] tags, int i){
-    shp.addLineTo(curp.x, PApplet.parseFloat(tags[i])+relp.y);
-
-    curp.setLocation(curp.x, PApplet.parseFloat(tags[i])+relp.y);
-    refp.setLocation(curp.x, curp.y);
-    return i;
+    return RSVGPathParser.parseShape(s);
   }
 }
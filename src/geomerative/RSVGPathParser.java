@@ -0,0 +1,591 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+/**
+ * RSVGPathParser reads the path data of the SVG "d" and "points" attributes in a single pass over the characters, parsing the numbers in place and building the commands of the shape as they are read.  As the SVG specification asks, the parsing stops at the first error and the shape contains the path data read until then.
+ */
+class RSVGPathParser
+{
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /* Numbers with more significant digits than these are parsed by Float.parseFloat */
+  private static final int MAX_FAST_DIGITS = 15;
+
+  private final String data;
+  private final int length;
+  private int pos = 0;
+
+  /* The arguments of the command being read */
+  private final float[] args = new float[7];
+
+  /* The paths already finished and the commands of the current path */
+  private RPath[] paths = new RPath[4];
+  private int numPaths = 0;
+  private RCommand[] commands = new RCommand[16];
+  private int numCommands = 0;
+  private boolean pathStarted = false;
+  private boolean pathClosed = false;
+  private RPoint startPoint;
+  private RPoint lastPoint = new RPoint();
+
+  RSVGPathParser(String data){
+    this.data = data;
+    this.length = (data == null) ? 0 : data.length();
+  }
+
+  /**
+   * Parse the path data of the "d" attribute of a path element.
+   */
+  static RShape parseShape(String d){
+    return new RSVGPathParser(d).parsePathData();
+  }
+
+  /**
+   * Parse the list of coordinates of the "points" attribute of a polyline or a polygon element.
+   */
+  static RShape parsePolyline(String points){
+    return new RSVGPathParser(points).parsePoints();
+  }
+
+  RShape parsePathData(){
+    // The current point and the start of the subpath
+    float curx = 0F, cury = 0F;
+    float strx = 0F, stry = 0F;
+
+    // The reflection of the last control point, and the type of curve it belongs to, for the smooth curves
+    float refx = 0F, refy = 0F;
+    char refType = 0;
+
+    char command = 0;
+
+    while(skipSpaces()){
+      char c = data.charAt(pos);
+      if(isCommand(c)){
+        command = c;
+        pos++;
+      }else if(command == 0 || command == 'Z' || command == 'z' || !isNumberStart(c)){
+        // Only the commands can be repeated implicitly
+        break;
+      }
+
+      boolean relative = Character.isLowerCase(command);
+      float relx = relative ? curx : 0F;
+      float rely = relative ? cury : 0F;
+      char type = 0;
+
+      switch(command){
+      case 'M':
+      case 'm':
+        if(!readArgs(0, 2)) return finish();
+        curx = strx = args[0] + relx;
+        cury = stry = args[1] + rely;
+        moveTo(curx, cury);
+
+        // The coordinates following a moveto are implicit linetos
+        command = relative ? 'l' : 'L';
+        break;
+
+      case 'Z':
+      case 'z':
+        close();
+        curx = strx;
+        cury = stry;
+        break;
+
+      case 'L':
+      case 'l':
+        if(!readArgs(0, 2)) return finish();
+        curx = args[0] + relx;
+        cury = args[1] + rely;
+        lineTo(curx, cury);
+        break;
+
+      case 'H':
+      case 'h':
+        if(!readArgs(0, 1)) return finish();
+        curx = args[0] + relx;
+        lineTo(curx, cury);
+        break;
+
+      case 'V':
+      case 'v':
+        if(!readArgs(0, 1)) return finish();
+        cury = args[0] + rely;
+        lineTo(curx, cury);
+        break;
+
+      case 'C':
+      case 'c':
+        if(!readArgs(0, 6)) return finish();
+        bezierTo(args[0] + relx, args[1] + rely, args[2] + relx, args[3] + rely, args[4] + relx, args[5] + rely);
+        curx = args[4] + relx;
+        cury = args[5] + rely;
+        refx = 2F * curx - (args[2] + relx);
+        refy = 2F * cury - (args[3] + rely);
+        type = 'C';
+        break;
+
+      case 'S':
+      case 's':
+        if(!readArgs(0, 4)) return finish();
+        if(refType != 'C'){
+          refx = curx;
+          refy = cury;
+        }
+        bezierTo(refx, refy, args[0] + relx, args[1] + rely, args[2] + relx, args[3] + rely);
+        curx = args[2] + relx;
+        cury = args[3] + rely;
+        refx = 2F * curx - (args[0] + relx);
+        refy = 2F * cury - (args[1] + rely);
+        type = 'C';
+        break;
+
+      case 'Q':
+      case 'q':
+        if(!readArgs(0, 4)) return finish();
+        quadTo(args[0] + relx, args[1] + rely, args[2] + relx, args[3] + rely);
+        curx = args[2] + relx;
+        cury = args[3] + rely;
+        refx = 2F * curx - (args[0] + relx);
+        refy = 2F * cury - (args[1] + rely);
+        type = 'Q';
+        break;
+
+      case 'T':
+      case 't':
+        if(!readArgs(0, 2)) return finish();
+        if(refType != 'Q'){
+          refx = curx;
+          refy = cury;
+        }
+        quadTo(refx, refy, args[0] + relx, args[1] + rely);
+        curx = args[0] + relx;
+        cury = args[1] + rely;
+        refx = 2F * curx - refx;
+        refy = 2F * cury - refy;
+        type = 'Q';
+        break;
+
+      case 'A':
+      case 'a':
+        if(!readArgs(0, 3) || !readFlag(3) || !readFlag(4) || !readArgs(5, 2)) return finish();
+        arcTo(curx, cury, args[0], args[1], args[2], args[3] != 0F, args[4] != 0F, args[5] + relx, args[6] + rely);
+        curx = args[5] + relx;
+        cury = args[6] + rely;
+        break;
+      }
+
+      refType = type;
+    }
+
+    return finish();
+  }
+
+  RShape parsePoints(){
+    boolean first = true;
+    while(skipSpaces() && readArgs(0, 2)){
+      if(first){
+        moveTo(args[0], args[1]);
+        first = false;
+      }else{
+        lineTo(args[0], args[1]);
+      }
+    }
+
+    return finish();
+  }
+
+  /**
+   * Skip the white spaces and return whether there are more characters to read.
+   */
+  private boolean skipSpaces(){
+    while(pos < length && isSpace(data.charAt(pos))){
+      pos++;
+    }
+    return pos < length;
+  }
+
+  /**
+   * Skip the white spaces and at most one comma after a number.
+   */
+  private void skipSeparator(){
+    if(skipSpaces() && data.charAt(pos) == ','){
+      pos++;
+      skipSpaces();
+    }
+  }
+
+  private boolean readArgs(int first, int count){
+    for(int i = first; i < first + count; i++){
+      skipSpaces();
+      float value = readNumber();
+      if(value != value){
+        return false;
+      }
+      args[i] = value;
+      skipSeparator();
+    }
+    return true;
+  }
+
+  /**
+   * Read one of the flags of an arc, which may be followed by the next argument without any separator.
+   */
+  private boolean readFlag(int i){
+    if(!skipSpaces()){
+      return false;
+    }
+
+    char c = data.charAt(pos);
+    if(c != '0' && c != '1'){
+      return false;
+    }
+
+    pos++;
+    args[i] = (c == '1') ? 1F : 0F;
+    skipSeparator();
+    return true;
+  }
+
+  /**
+   * Read a number at the current position.  The number ends at the first character that can not continue it, so that "1.5.5" or "1-2" are read as two numbers.
+   * @return float, the value of the number, or NaN if there is no number at the current position
+   */
+  private float readNumber(){
+    int start = pos;
+    int i = pos;
+    boolean negative = false;
+
+    if(i < length){
+      char c = data.charAt(i);
+      if(c == '-' || c == '+'){
+        negative = (c == '-');
+        i++;
+      }
+    }
+
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+
+    // Integer part
+    while(i < length){
+      int d = data.charAt(i) - '0';
+      if(d < 0 || d > 9) break;
+      hasDigits = true;
+      if(significantDigits < 18){
+        mantissa = mantissa * 10 + d;
+        if(mantissa != 0) significantDigits++;
+      }else{
+        exponent++;
+      }
+      i++;
+    }
+
+    // Fractional part
+    if(i < length && data.charAt(i) == '.'){
+      i++;
+      while(i < length){
+        int d = data.charAt(i) - '0';
+        if(d < 0 || d > 9) break;
+        hasDigits = true;
+        if(significantDigits < 18){
+          mantissa = mantissa * 10 + d;
+          if(mantissa != 0) significantDigits++;
+          exponent--;
+        }
+        i++;
+      }
+    }
+
+    if(!hasDigits){
+      return Float.NaN;
+    }
+
+    // Exponent, only if it has digits
+    if(i < length && (data.charAt(i) == 'e' || data.charAt(i) == 'E')){
+      int j = i + 1;
+      boolean negativeExponent = false;
+      if(j < length && (data.charAt(j) == '-' || data.charAt(j) == '+')){
+        negativeExponent = (data.charAt(j) == '-');
+        j++;
+      }
+
+      int exponentValue = 0;
+      boolean hasExponentDigits = false;
+      while(j < length){
+        int d = data.charAt(j) - '0';
+        if(d < 0 || d > 9) break;
+        hasExponentDigits = true;
+        if(exponentValue < 10000){
+          exponentValue = exponentValue * 10 + d;
+        }
+        j++;
+      }
+
+      if(hasExponentDigits){
+        exponent += negativeExponent ? -exponentValue : exponentValue;
+        i = j;
+      }
+    }
+
+    pos = i;
+
+    double value;
+    if(mantissa == 0){
+      value = 0;
+    }else if(significantDigits <= MAX_FAST_DIGITS && exponent >= -22 && exponent <= 22){
+      // Both the mantissa and the power of ten are exact doubles, so the result is correctly rounded
+      value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+    }else{
+      return Float.parseFloat(data.substring(start, i));
+    }
+
+    return (float)(negative ? -value : value);
+  }
+
+  private void moveTo(float x, float y){
+    if(pathStarted && numCommands == 0){
+      // A moveto following another one only moves the start of the path
+      lastPoint = new RPoint(x, y);
+      startPoint = lastPoint;
+      pathClosed = false;
+      return;
+    }
+
+    endPath();
+    beginPath(x, y);
+  }
+
+  private void lineTo(float x, float y){
+    ensurePath();
+    addCommand(RCommand.createLine(lastPoint, new RPoint(x, y)));
+  }
+
+  private void bezierTo(float cp1x, float cp1y, float cp2x, float cp2y, float x, float y){
+    ensurePath();
+    addCommand(RCommand.createBezier4(lastPoint, new RPoint(cp1x, cp1y), new RPoint(cp2x, cp2y), new RPoint(x, y)));
+  }
+
+  private void quadTo(float cpx, float cpy, float x, float y){
+    ensurePath();
+    addCommand(RCommand.createBezier3(lastPoint, new RPoint(cpx, cpy), new RPoint(x, y)));
+  }
+
+  /**
+   * Add an elliptical arc as the minimal number of cubic beziers, one for each quarter of ellipse or less, following the implementation notes of the SVG specification.
+   */
+  private void arcTo(float x0, float y0, float rx, float ry, float angle, boolean largeArc, boolean sweep, float x, float y){
+    if(x0 == x && y0 == y){
+      // An arc with the same endpoints is omitted
+      return;
+    }
+
+    rx = Math.abs(rx);
+    ry = Math.abs(ry);
+    if(rx == 0F || ry == 0F){
+      lineTo(x, y);
+      return;
+    }
+
+    double phi = Math.toRadians(angle);
+    double cosPhi = Math.cos(phi);
+    double sinPhi = Math.sin(phi);
+
+    // The midpoint between the endpoints in the coordinates of the ellipse
+    double dx = (x0 - x) / 2.0;
+    double dy = (y0 - y) / 2.0;
+    double x1 = cosPhi * dx + sinPhi * dy;
+    double y1 = -sinPhi * dx + cosPhi * dy;
+
+    // Scale up the radii if they are too small to join the endpoints
+    double rxs = (double)rx * rx;
+    double rys = (double)ry * ry;
+    double lambda = x1 * x1 / rxs + y1 * y1 / rys;
+    if(lambda > 1.0){
+      double s = Math.sqrt(lambda);
+      rxs *= lambda;
+      rys *= lambda;
+      rx *= s;
+      ry *= s;
+    }
+
+    // The center of the ellipse
+    double num = rxs * rys - rxs * y1 * y1 - rys * x1 * x1;
+    double den = rxs * y1 * y1 + rys * x1 * x1;
+    double coef = Math.sqrt(Math.max(0.0, num / den));
+    if(largeArc == sweep){
+      coef = -coef;
+    }
+    double cx1 = coef * rx * y1 / ry;
+    double cy1 = -coef * ry * x1 / rx;
+    double cx = cosPhi * cx1 - sinPhi * cy1 + (x0 + x) / 2.0;
+    double cy = sinPhi * cx1 + cosPhi * cy1 + (y0 + y) / 2.0;
+
+    // The start angle and the extent of the arc on the unit circle
+    double theta = Math.atan2((y1 - cy1) / ry, (x1 - cx1) / rx);
+    double extent = Math.atan2((-y1 - cy1) / ry, (-x1 - cx1) / rx) - theta;
+    if(sweep && extent < 0){
+      extent += 2.0 * Math.PI;
+    }else if(!sweep && extent > 0){
+      extent -= 2.0 * Math.PI;
+    }
+
+    int numSegments = Math.max(1, (int)Math.ceil(Math.abs(extent) / (Math.PI / 2.0) - 1e-7));
+    double delta = extent / numSegments;
+    double k = 4.0 / 3.0 * Math.tan(delta / 4.0);
+
+    double cos1 = Math.cos(theta);
+    double sin1 = Math.sin(theta);
+    for(int i = 0; i < numSegments; i++){
+      double theta2 = theta + (i + 1) * delta;
+      double cos2 = Math.cos(theta2);
+      double sin2 = Math.sin(theta2);
+
+      // The control points on the unit circle, transformed to the ellipse
+      double ux1 = cos1 - k * sin1;
+      double uy1 = sin1 + k * cos1;
+      double ux2 = cos2 + k * sin2;
+      double uy2 = sin2 - k * cos2;
+
+      float cp1x = (float)(cx + rx * ux1 * cosPhi - ry * uy1 * sinPhi);
+      float cp1y = (float)(cy + rx * ux1 * sinPhi + ry * uy1 * cosPhi);
+      float cp2x = (float)(cx + rx * ux2 * cosPhi - ry * uy2 * sinPhi);
+      float cp2y = (float)(cy + rx * ux2 * sinPhi + ry * uy2 * cosPhi);
+
+      if(i == numSegments - 1){
+        // End exactly on the endpoint given
+        bezierTo(cp1x, cp1y, cp2x, cp2y, x, y);
+      }else{
+        bezierTo(cp1x, cp1y, cp2x, cp2y, (float)(cx + rx * cos2 * cosPhi - ry * sin2 * sinPhi), (float)(cy + rx * cos2 * sinPhi + ry * sin2 * cosPhi));
+      }
+
+      cos1 = cos2;
+      sin1 = sin2;
+    }
+  }
+
+  private void close(){
+    if(!pathStarted || numCommands == 0){
+      return;
+    }
+
+    RCommand last = commands[numCommands - 1];
+    RPoint first = commands[0].startPoint;
+    if(last.endPoint.x == first.x && last.endPoint.y == first.y){
+      last.endPoint = new RPoint(first.x, first.y);
+      lastPoint = last.endPoint;
+    }else{
+      addCommand(RCommand.createLine(lastPoint, new RPoint(first.x, first.y)));
+    }
+
+    pathClosed = true;
+  }
+
+  /* Drawing after a closepath starts a new subpath at the start of the closed one */
+  private void ensurePath(){
+    if(!pathStarted){
+      beginPath(0F, 0F);
+    }else if(pathClosed){
+      RPoint start = startPoint;
+      endPath();
+      beginPath(start.x, start.y);
+    }
+  }
+
+  private void beginPath(float x, float y){
+    lastPoint = new RPoint(x, y);
+    startPoint = lastPoint;
+    numCommands = 0;
+    pathClosed = false;
+    pathStarted = true;
+  }
+
+  private void addCommand(RCommand cmd){
+    if(numCommands == commands.length){
+      RCommand[] newcommands = new RCommand[commands.length * 2];
+      System.arraycopy(commands, 0, newcommands, 0, numCommands);
+      commands = newcommands;
+    }
+    commands[numCommands++] = cmd;
+    lastPoint = cmd.endPoint;
+  }
+
+  private void endPath(){
+    if(!pathStarted){
+      return;
+    }
+
+    RPath path = new RPath(startPoint);
+    if(numCommands > 0){
+      path.commands = new RCommand[numCommands];
+      System.arraycopy(commands, 0, path.commands, 0, numCommands);
+      path.lastPoint = lastPoint;
+    }
+    path.closed = pathClosed;
+
+    if(numPaths == paths.length){
+      RPath[] newpaths = new RPath[paths.length * 2];
+      System.arraycopy(paths, 0, newpaths, 0, numPaths);
+      paths = newpaths;
+    }
+    paths[numPaths++] = path;
+    pathStarted = false;
+  }
+
+  private RShape finish(){
+    endPath();
+
+    RShape shp = new RShape();
+    if(numPaths > 0){
+      shp.paths = new RPath[numPaths];
+      System.arraycopy(paths, 0, shp.paths, 0, numPaths);
+      shp.currentPath = numPaths - 1;
+    }
+    return shp;
+  }
+
+  private static boolean isSpace(char c){
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
+  private static boolean isNumberStart(char c){
+    return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+';
+  }
+
+  private static boolean isCommand(char c){
+    switch(c){
+    case 'M': case 'm':
+    case 'Z': case 'z':
+    case 'L': case 'l':
+    case 'H': case 'h':
+    case 'V': case 'v':
+    case 'C': case 'c':
+    case 'S': case 's':
+    case 'Q': case 'q':
+    case 'T': case 't':
+    case 'A': case 'a':
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,961 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * RSVGReader loads the shapes of an SVG document while it is being parsed, without building the XML tree of the whole document first.  Each element is turned into a shape as soon as it is read and added to its parent when it ends, and an RSVGVisitor can be notified of every element in order to skip some of them or to stop reading.  In parallel mode the shapes of the elements are built by several threads while the document is being read, and in lazy mode they are only built when first used.  It does not need the library to be initialized with a PApplet.
+ * @eexample RSVGReader
+ * @usage Geometry
+ * @related RSVGVisitor
+ * @related RShape
+ */
+public class RSVGReader
+{
+  /* The attributes setting the style of an element, in the order in which they are applied */
+  private static final String[] STYLE_ATTRIBUTES = {"style", "fill", "fill-opacity", "stroke", "stroke-width", "stroke-linecap", "stroke-linejoin", "stroke-opacity", "opacity"};
+
+  /* Number of elements built by each task in parallel mode */
+  static final int BATCH_SIZE = 32;
+
+  private RSVGVisitor visitor = null;
+  private boolean parallel = false;
+  private boolean lazy = false;
+
+  /* Whether the shapes are being built by several threads, in parallel mode unless reading lazily */
+  private boolean threads = false;
+
+  /* The reader of the document, while it is being read */
+  private XMLStreamReader xml = null;
+
+  /* The elements being read, from the root to the current one */
+  private RShape[] shapes = new RShape[16];
+  private RMatrix[] matrices = new RMatrix[16];
+  private String[] names = new String[16];
+  private Element[] elements = new Element[16];
+  private RShape[][] children = new RShape[16][];
+  private int[] numChildren = new int[16];
+  private int depth = 0;
+
+  /* The number of levels of unknown or skipped elements being ignored */
+  private int skipDepth = 0;
+
+  /* The depth of the element of which the visitor is being notified */
+  private int visitDepth = 0;
+
+  private String rootWidth;
+  private String rootHeight;
+
+  /* The styles of the document, shared by all the elements with the same style */
+  private HashMap<IntBuffer, RStyle> styles = new HashMap<IntBuffer, RStyle>();
+
+  /* The number of <defs> and <symbol> elements open, whose content is only drawn by <use> elements */
+  private int defsDepth = 0;
+
+  /* The shapes of the elements with an id inside <defs> and <symbol> elements */
+  private HashMap<String, RShape> resources = new HashMap<String, RShape>();
+
+  /* The transformations of the parents of the elements with an id drawn in the document, undone when they are used */
+  private HashMap<String, RMatrix> contexts = new HashMap<String, RMatrix>();
+
+  /* The <use> elements referring to elements not read yet, with the ids referred to and the transformations placing them */
+  private ArrayList<RShape> pendingUses = new ArrayList<RShape>();
+  private ArrayList<String> pendingRefs = new ArrayList<String>();
+  private ArrayList<RMatrix> pendingMatrices = new ArrayList<RMatrix>();
+
+  /* In parallel mode, the elements waiting to be built and the elements that ended, which the visitor is notified of in document order once they are built */
+  private ExecutorService executor = null;
+  private ArrayList<Element> batch = new ArrayList<Element>();
+  private ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+  private ArrayList<Ended> ended = new ArrayList<Ended>();
+  private int endedHead = 0;
+
+  /* The attributes of a leaf element, from which its shape is built */
+  private static final class Element implements Runnable {
+    final String type;
+    final String[] geometry;
+    final String transform;
+    final RMatrix matrix;
+    final String[] style;
+    final String id;
+    final RShape shape = new RShape();
+    Future<?> task = null;
+
+    Element(String type, String[] geometry, String transform, RMatrix matrix, String[] style, String id){
+      this.type = type;
+      this.geometry = geometry;
+      this.transform = transform;
+      this.matrix = matrix;
+      this.style = style;
+      this.id = id;
+    }
+
+    /* Build the paths of the shape, with the transformations of the element and of its parents */
+    void buildPaths(){
+      RShape geom = createShape(type, geometry);
+      geom.updateOrigParams();
+
+      RMatrix m = matrix;
+      if(transform != null){
+        RMatrix local = new RMatrix(transform);
+        if(m != null){
+          m = new RMatrix(m);
+          m.apply(local);
+        }else{
+          m = local;
+        }
+      }
+      if(m != null){
+        geom.transform(m);
+      }
+
+      shape.paths = geom.paths;
+      shape.currentPath = geom.currentPath;
+      shape.origWidth = geom.origWidth;
+      shape.origHeight = geom.origHeight;
+    }
+
+    void buildStyle(){
+      if(id != null){
+        shape.name = id;
+      }
+
+      setStyle(shape, style);
+    }
+
+    /* Build the paths of a shape loaded lazily */
+    public void run(){
+      buildPaths();
+    }
+  }
+
+  /* An element that ended, waiting for its shape to be built */
+  private static final class Ended {
+    final String name;
+    final RShape shape;
+    final Element element;
+    final int depth;
+    final boolean visible;
+
+    Ended(String name, RShape shape, Element element, int depth, boolean visible){
+      this.name = name;
+      this.shape = shape;
+      this.element = element;
+      this.depth = depth;
+      this.visible = visible;
+    }
+  }
+
+  /**
+   * Create a new reader.
+   * @eexample RSVGReader
+   */
+  public RSVGReader(){
+  }
+
+  /**
+   * Create a new reader that notifies a visitor of the elements read.
+   * @eexample RSVGReader
+   * @param visitor  the visitor of the elements
+   */
+  public RSVGReader(RSVGVisitor visitor){
+    this.visitor = visitor;
+  }
+
+  /**
+   * Use this method to set the visitor notified of the elements read.
+   * @eexample setVisitor
+   * @param visitor  the visitor of the elements, or null to read the whole document
+   */
+  public void setVisitor(RSVGVisitor visitor){
+    this.visitor = visitor;
+  }
+
+  /**
+   * Use this method to build the shapes of the elements with several threads, the ones shared by the library, one for each processor available.  It is off by default, as it only pays off for big documents on several processors.  The document is still read by a single thread, which keeps the order of the elements and the inheritance of the styles.  In this mode the visitor is notified of the end of the elements in document order but later than they are read, so when it stops the reading the shape returned may hold a few more elements.
+   * @eexample setParallel
+   * @param parallel  true to build the shapes in parallel
+   */
+  public void setParallel(boolean parallel){
+    this.parallel = parallel;
+  }
+
+  /**
+   * Use this method to build the paths of the elements only when they are first needed, such as when they are drawn, measured or transformed.  Until then each shape only keeps the attributes of its element, which makes loading much faster and lighter when only a few of the shapes of a big document are used.  The names and the styles of the shapes are set while reading, so children can be looked up with getChild() before any path is built.  The paths field of a shape is only set once its paths are built, use countPaths() before reading it.  The original size of the groups is not kept in this mode, and the shapes are never built in parallel.
+   * @eexample setLazy
+   * @param lazy  true to build the paths of the shapes when they are first needed
+   * @related RShape.getChild ( )
+   */
+  public void setLazy(boolean lazy){
+    this.lazy = lazy;
+  }
+
+  /**
+   * Read the shapes of an SVG file.  Files ending in .svgz are uncompressed while they are read.
+   * @eexample read
+   * @param filename  the path of the file
+   * @return RShape, the shape of the document
+   */
+  public RShape read(String filename){
+    InputStream in = null;
+    try{
+      in = new BufferedInputStream(new FileInputStream(filename), 1 << 16);
+      if(filename.toLowerCase().endsWith(".svgz")){
+        in = new GZIPInputStream(in, 1 << 16);
+      }
+      return read(in);
+    }catch(IOException e){
+      throw new RuntimeException("Could not read the SVG file " + filename + ": " + e.getMessage());
+    }finally{
+      if(in != null){
+        try{
+          in.close();
+        }catch(IOException e){
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the shapes of an SVG document from a stream of bytes.  The encoding is taken from the XML declaration of the document.
+   * @param in  the stream from which to read
+   * @return RShape, the shape of the document
+   */
+  public RShape read(InputStream in){
+    try{
+      return read(createFactory().createXMLStreamReader(in));
+    }catch(XMLStreamException e){
+      throw new RuntimeException("Could not read the SVG document: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Read the shapes of an SVG document from a stream of characters.
+   * @param in  the stream from which to read
+   * @return RShape, the shape of the document
+   */
+  public RShape read(Reader in){
+    try{
+      return read(createFactory().createXMLStreamReader(in));
+    }catch(XMLStreamException e){
+      throw new RuntimeException("Could not read the SVG document: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this method to get an attribute of the element that has just started.  It can only be used in the startElement method of the visitor.
+   * @eexample getAttribute
+   * @param name  the name of the attribute, with its prefix if it has one, such as "inkscape:label"
+   * @return String, the value of the attribute or null if the element does not have it
+   */
+  public String getAttribute(String name){
+    if(xml == null || xml.getEventType() != XMLStreamConstants.START_ELEMENT){
+      throw new RuntimeException("The attributes can only be read when an element starts.");
+    }
+
+    for(int i = 0; i < xml.getAttributeCount(); i++){
+      if(name.equals(qualifiedName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)))){
+        return xml.getAttributeValue(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Use this method to get the depth of the element being visited, 0 being the root of the document.
+   * @eexample getDepth
+   * @return int, the depth of the element
+   */
+  public int getDepth(){
+    return visitDepth;
+  }
+
+  private RShape read(XMLStreamReader reader) throws XMLStreamException {
+    xml = reader;
+    depth = 0;
+    skipDepth = 0;
+    rootWidth = null;
+    rootHeight = null;
+    threads = parallel && !lazy;
+
+    if(threads){
+      executor = RThreadPool.get();
+    }
+
+    RShape result;
+    try{
+      boolean reading = true;
+      try{
+        while(reading && xml.hasNext()){
+          switch(xml.next()){
+          case XMLStreamConstants.START_ELEMENT:
+            reading = startElement();
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            reading = endElement();
+            break;
+          }
+        }
+      }finally{
+        xml.close();
+        xml = null;
+      }
+
+      if(threads && reading){
+        notifyEnded(true);
+      }
+
+      // Close the elements left open when stopping before the end
+      ArrayList<RShape> open = new ArrayList<RShape>();
+      while(depth > 1){
+        boolean container = names[depth - 1].equalsIgnoreCase("defs") || names[depth - 1].equalsIgnoreCase("symbol");
+        RShape shp = closeElement();
+        if(!container){
+          addChild(shp);
+        }
+        open.add(shp);
+      }
+
+      result = (depth == 1) ? closeElement() : (shapes[0] != null ? shapes[0] : new RShape());
+      open.add(result);
+
+      if(threads){
+        finishTasks();
+        for(int i = 0; i < open.size(); i++){
+          open.get(i).updateOrigParams();
+        }
+      }
+
+      resolveUses(result);
+    }finally{
+      // The shared threads are kept, only the elements left to build when failing are dropped
+      for(int i = 0; i < tasks.size(); i++){
+        tasks.get(i).cancel(true);
+      }
+      executor = null;
+      batch.clear();
+      tasks.clear();
+      ended.clear();
+      endedHead = 0;
+      styles.clear();
+      resources.clear();
+      contexts.clear();
+      pendingUses.clear();
+      pendingRefs.clear();
+      pendingMatrices.clear();
+      defsDepth = 0;
+      while(depth > 0){
+        closeElement();
+      }
+      shapes[0] = null;
+    }
+
+    // The size of a document loaded lazily is only measured when it does not give it, as it needs all the paths
+    boolean sized = rootWidth != null && rootHeight != null && !rootWidth.trim().endsWith("%") && !rootHeight.trim().endsWith("%");
+    if(!lazy || !sized){
+      result.origWidth = result.getWidth();
+      result.origHeight = result.getHeight();
+    }
+    if(rootWidth != null && rootHeight != null){
+      RSVG svg = new RSVG();
+      result.width = svg.unitsToPixels(rootWidth.trim(), result.origWidth);
+      result.height = svg.unitsToPixels(rootHeight.trim(), result.origHeight);
+    }else{
+      result.width = result.origWidth;
+      result.height = result.origHeight;
+    }
+
+    return result;
+  }
+
+  private boolean startElement(){
+    // The children of the skipped elements, of the leaves and of the <use> elements are ignored
+    if(skipDepth > 0 || (depth > 0 && (elements[depth - 1] != null || names[depth - 1].equalsIgnoreCase("use")))){
+      skipDepth++;
+      return true;
+    }
+
+    String name = qualifiedName(xml.getPrefix(), xml.getLocalName());
+    String type = name.toLowerCase();
+
+    if(depth == 0){
+      if(!type.equals("svg")){
+        throw new RuntimeException("root is not <svg>, it's <" + name + ">");
+      }
+    }else if(!isSupported(type)){
+      skipDepth = 1;
+      return true;
+    }
+
+    // The visitor is not notified of the elements that are only drawn by <use> elements
+    boolean resource = defsDepth > 0 || type.equals("defs") || type.equals("symbol");
+    if(visitor != null && !resource){
+      visitDepth = depth;
+      int action = visitor.startElement(this, name);
+      if(action == RSVGVisitor.STOP){
+        return false;
+      }else if(action == RSVGVisitor.SKIP){
+        skipDepth = 1;
+        return true;
+      }
+    }
+
+    RMatrix matrix = (depth == 0) ? null : matrices[depth - 1];
+    if(depth > 0 && !resource){
+      addContext(getAttribute("id"), matrix);
+    }
+
+    if(depth == 0){
+      rootWidth = getAttribute("width");
+      rootHeight = getAttribute("height");
+      push(createRoot(), null, name, null);
+
+    }else if(type.equals("g")){
+      RShape shp = new RShape();
+
+      String transform = getAttribute("transform");
+      if(transform != null){
+        RMatrix local = new RMatrix(transform);
+        if(matrix != null){
+          matrix = new RMatrix(matrix);
+          matrix.apply(local);
+        }else{
+          matrix = local;
+        }
+      }
+
+      String id = getAttribute("id");
+      if(id != null){
+        shp.name = id;
+      }
+
+      setStyle(shp, getAttributes(STYLE_ATTRIBUTES));
+      shp.style = RStyle.intern(shp.style, styles);
+      addResource(shp);
+      push(shp, matrix, name, null);
+
+    }else if(type.equals("defs") || type.equals("symbol")){
+      // The content is placed by the <use> elements, regardless of the transformations of the parents
+      RShape shp = new RShape();
+      String id = getAttribute("id");
+      if(id != null){
+        shp.name = id;
+      }
+
+      setStyle(shp, getAttributes(STYLE_ATTRIBUTES));
+      shp.style = RStyle.intern(shp.style, styles);
+      defsDepth++;
+      addResource(shp);
+      push(shp, null, name, null);
+
+    }else if(type.equals("use")){
+      RMatrix m = (matrix != null) ? new RMatrix(matrix) : new RMatrix();
+      String transform = getAttribute("transform");
+      if(transform != null){
+        m.apply(new RMatrix(transform));
+      }
+      m.translate(parseLength(getAttribute("x")), parseLength(getAttribute("y")));
+
+      RShape shp = new RShape();
+      String id = getAttribute("id");
+      if(id != null){
+        shp.name = id;
+      }
+
+      setStyle(shp, getAttributes(STYLE_ATTRIBUTES));
+      shp.style = RStyle.intern(shp.style, styles);
+
+      String ref = getAttribute("xlink:href");
+      if(ref == null){
+        ref = getAttribute("href");
+      }
+      if(ref != null && ref.startsWith("#")){
+        ref = ref.substring(1);
+        RShape target = resources.get(ref);
+        if(target != null){
+          // An element still open contains the <use> element, it can not be drawn
+          if(!isOpen(target)){
+            shp.setInstance(target, m);
+          }
+        }else{
+          pendingUses.add(shp);
+          pendingRefs.add(ref);
+          pendingMatrices.add(m);
+        }
+      }
+
+      addResource(shp);
+      push(shp, matrix, name, null);
+
+    }else{
+      Element element = new Element(type, getAttributes(geometryAttributes(type)), getAttribute("transform"), matrix, getAttributes(STYLE_ATTRIBUTES), getAttribute("id"));
+      element.buildStyle();
+      element.shape.style = RStyle.intern(element.shape.style, styles);
+      addResource(element.shape);
+      if(lazy){
+        element.shape.loader = element;
+      }else if(threads){
+        batch.add(element);
+        if(batch.size() == BATCH_SIZE){
+          submitBatch();
+        }
+      }else{
+        element.buildPaths();
+      }
+      push(element.shape, matrix, name, element);
+    }
+
+    return true;
+  }
+
+  private boolean endElement(){
+    if(skipDepth > 0){
+      skipDepth--;
+      return true;
+    }
+
+    String name = names[depth - 1];
+    Element element = elements[depth - 1];
+    boolean resource = defsDepth > 0;
+    boolean container = name.equalsIgnoreCase("defs") || name.equalsIgnoreCase("symbol");
+    RShape shp = closeElement();
+
+    if(container){
+      defsDepth--;
+    }
+
+    if(depth > 0){
+      if(!container){
+        addChild(shp);
+      }
+    }else{
+      shapes[0] = shp;
+    }
+
+    if(threads){
+      ended.add(new Ended(name, shp, element, depth, !resource));
+      return notifyEnded(false);
+    }
+
+    int action = RSVGVisitor.CONTINUE;
+    if(visitor != null && !resource){
+      visitDepth = depth;
+      action = visitor.endElement(this, name, shp);
+    }
+    return action != RSVGVisitor.STOP;
+  }
+
+  /* Pop the current element and give it the children read */
+  private RShape closeElement(){
+    depth--;
+    RShape shp = shapes[depth];
+    if(numChildren[depth] > 0){
+      RShape[] shps = new RShape[numChildren[depth]];
+      System.arraycopy(children[depth], 0, shps, 0, numChildren[depth]);
+      shp.setChildren(shps);
+      Arrays.fill(children[depth], 0, numChildren[depth], null);
+    }
+
+    // The leaves got their original size before being transformed, in parallel mode the groups get it once their children are built
+    if(!threads && !lazy && elements[depth] == null){
+      shp.updateOrigParams();
+    }
+
+    shapes[depth] = null;
+    matrices[depth] = null;
+    names[depth] = null;
+    elements[depth] = null;
+    numChildren[depth] = 0;
+    return shp;
+  }
+
+  /* Keep the shapes of the elements inside <defs> and <symbol> elements, for the <use> elements */
+  private void addResource(RShape shp){
+    if(defsDepth > 0 && shp.name != null && shp.name.length() > 0 && !resources.containsKey(shp.name)){
+      resources.put(shp.name, shp);
+    }
+  }
+
+  /* Keep the transformation of the parents of an element drawn in the document, for the <use> elements */
+  private void addContext(String id, RMatrix matrix){
+    if(id != null && id.length() > 0 && matrix != null && !contexts.containsKey(id)){
+      contexts.put(id, matrix);
+    }
+  }
+
+  /* The inverse of an affine transformation, or null if it can not be inverted */
+  private static RMatrix invert(RMatrix m){
+    float det = m.m00 * m.m11 - m.m01 * m.m10;
+    if(det == 0F){
+      return null;
+    }
+
+    float i00 = m.m11 / det;
+    float i01 = -m.m01 / det;
+    float i10 = -m.m10 / det;
+    float i11 = m.m00 / det;
+    return new RMatrix(i00, i01, -(i00 * m.m02 + i01 * m.m12),
+                       i10, i11, -(i10 * m.m02 + i11 * m.m12));
+  }
+
+  private boolean isOpen(RShape shp){
+    for(int i = 0; i < depth; i++){
+      if(shapes[i] == shp){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* Place the shapes of the <use> elements that referred to elements read after them */
+  private void resolveUses(RShape root){
+    for(int i = 0; i < pendingUses.size(); i++){
+      RShape shp = pendingUses.get(i);
+      String ref = pendingRefs.get(i);
+
+      RShape target = resources.get(ref);
+      if(target == null){
+        // The elements drawn in the document are copied, as they may be changed once loaded
+        target = root.getChild(ref);
+        if(target != null && !refersTo(target, shp)){
+          // The copy is placed by its own transformation only, the ones of its parents are undone
+          target = new RShape(target);
+          RMatrix context = contexts.get(ref);
+          RMatrix inverse = (context != null) ? invert(context) : null;
+          if(inverse != null){
+            target.transform(inverse);
+          }
+        }
+      }
+
+      if(target != null && !refersTo(target, shp)){
+        shp.setInstance(target, pendingMatrices.get(i));
+        if(!lazy){
+          shp.updateOrigParams();
+        }
+      }
+    }
+  }
+
+  /* Whether a shape draws another one, which would make an instance draw itself */
+  private static boolean refersTo(RShape shp, RShape target){
+    if(shp == target || (shp.instanceOf != null && refersTo(shp.instanceOf, target))){
+      return true;
+    }
+
+    if(shp.children != null){
+      for(int i = 0; i < shp.children.length; i++){
+        if(refersTo(shp.children[i], target)){
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void submitBatch(){
+    if(batch.isEmpty()){
+      return;
+    }
+
+    final Element[] toBuild = batch.toArray(new Element[batch.size()]);
+    batch.clear();
+
+    Future<?> task = executor.submit(new Runnable(){
+        public void run(){
+          for(int i = 0; i < toBuild.length; i++){
+            toBuild[i].buildPaths();
+          }
+        }
+      });
+
+    tasks.add(task);
+    for(int i = 0; i < toBuild.length; i++){
+      toBuild[i].task = task;
+    }
+  }
+
+  /**
+   * Notify the visitor of the elements that ended and whose shapes are built, in document order.  The groups are complete once the elements before them are.
+   * @return boolean, false if the visitor asked to stop
+   */
+  private boolean notifyEnded(boolean wait){
+    if(wait){
+      submitBatch();
+    }
+
+    while(endedHead < ended.size()){
+      Ended e = ended.get(endedHead);
+      if(e.element != null){
+        if(e.element.task == null || (!wait && !e.element.task.isDone())){
+          break;
+        }
+        waitFor(e.element.task);
+      }else{
+        e.shape.updateOrigParams();
+      }
+
+      ended.set(endedHead, null);
+      endedHead++;
+
+      if(visitor != null && e.visible){
+        visitDepth = e.depth;
+        if(visitor.endElement(this, e.name, e.shape) == RSVGVisitor.STOP){
+          return false;
+        }
+      }
+    }
+
+    if(endedHead == ended.size()){
+      ended.clear();
+      endedHead = 0;
+    }
+    return true;
+  }
+
+  /* Wait for all the shapes to be built, and complete the groups not notified yet */
+  private void finishTasks(){
+    submitBatch();
+    for(int i = 0; i < tasks.size(); i++){
+      waitFor(tasks.get(i));
+    }
+
+    for(int i = endedHead; i < ended.size(); i++){
+      Ended e = ended.get(i);
+      if(e.element == null){
+        e.shape.updateOrigParams();
+      }
+    }
+  }
+
+  private void waitFor(Future<?> task){
+    try{
+      task.get();
+    }catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The reading of the SVG document was interrupted.");
+    }catch(ExecutionException e){
+      throw new RuntimeException("The reading of the SVG document failed: " + e.getCause());
+    }
+  }
+
+  private void push(RShape shp, RMatrix matrix, String name, Element element){
+    if(depth == shapes.length){
+      int size = depth * 2;
+      RShape[] newshapes = new RShape[size];
+      System.arraycopy(shapes, 0, newshapes, 0, depth);
+      shapes = newshapes;
+
+      RMatrix[] newmatrices = new RMatrix[size];
+      System.arraycopy(matrices, 0, newmatrices, 0, depth);
+      matrices = newmatrices;
+
+      String[] newnames = new String[size];
+      System.arraycopy(names, 0, newnames, 0, depth);
+      names = newnames;
+
+      Element[] newelements = new Element[size];
+      System.arraycopy(elements, 0, newelements, 0, depth);
+      elements = newelements;
+
+      RShape[][] newchildren = new RShape[size][];
+      System.arraycopy(children, 0, newchildren, 0, depth);
+      children = newchildren;
+
+      int[] newnumchildren = new int[size];
+      System.arraycopy(numChildren, 0, newnumchildren, 0, depth);
+      numChildren = newnumchildren;
+    }
+
+    shapes[depth] = shp;
+    matrices[depth] = matrix;
+    names[depth] = name;
+    elements[depth] = element;
+    numChildren[depth] = 0;
+    depth++;
+  }
+
+  private void addChild(RShape shp){
+    int level = depth - 1;
+    if(children[level] == null){
+      children[level] = new RShape[16];
+    }else if(numChildren[level] == children[level].length){
+      RShape[] newchildren = new RShape[numChildren[level] * 2];
+      System.arraycopy(children[level], 0, newchildren, 0, numChildren[level]);
+      children[level] = newchildren;
+    }
+    children[level][numChildren[level]++] = shp;
+  }
+
+  private RShape createRoot(){
+    RShape shp = new RShape();
+
+    // Set the defaults SVG styles for the root
+    shp.setFill(0);  // By default in SVG it's black
+    shp.setFillAlpha(255);  // By default in SVG it's 1
+    shp.setStroke(false);  // By default in SVG it's none
+    shp.setStrokeWeight(1F);  // By default in SVG it's none
+    shp.setStrokeCap("butt");  // By default in SVG it's 'butt'
+    shp.setStrokeJoin("miter");  // By default in SVG it's 'miter'
+    shp.setStrokeAlpha(255);  // By default in SVG it's 1
+    shp.setAlpha(255);  // By default in SVG it's 1F
+
+    return shp;
+  }
+
+  private String[] getAttributes(String[] attributes){
+    String[] values = new String[attributes.length];
+    for(int i = 0; i < attributes.length; i++){
+      values[i] = getAttribute(attributes[i]);
+    }
+    return values;
+  }
+
+  private static String[] geometryAttributes(String type){
+    if(type.equals("path")){
+      return new String[] {"d"};
+    }else if(type.equals("polygon") || type.equals("polyline")){
+      return new String[] {"points"};
+    }else if(type.equals("circle")){
+      return new String[] {"cx", "cy", "r"};
+    }else if(type.equals("ellipse")){
+      return new String[] {"cx", "cy", "rx", "ry"};
+    }else if(type.equals("rect")){
+      return new String[] {"x", "y", "width", "height"};
+    }else{
+      return new String[] {"x1", "y1", "x2", "y2"};
+    }
+  }
+
+  private static RShape createShape(String type, String[] geometry){
+    if(type.equals("path")){
+      return RSVGPathParser.parseShape(geometry[0]);
+
+    }else if(type.equals("polygon")){
+      RShape shp = RSVGPathParser.parsePolyline(geometry[0]);
+      shp.addClose();
+      return shp;
+
+    }else if(type.equals("polyline")){
+      return RSVGPathParser.parsePolyline(geometry[0]);
+
+    }else if(type.equals("circle")){
+      float r = parseLength(geometry[2]);
+      return RShape.createEllipse(parseLength(geometry[0]), parseLength(geometry[1]), r*2F, r*2F);
+
+    }else if(type.equals("ellipse")){
+      return RShape.createEllipse(parseLength(geometry[0]), parseLength(geometry[1]), parseLength(geometry[2])*2F, parseLength(geometry[3])*2F);
+
+    }else if(type.equals("rect")){
+      return RShape.createRectangle(parseLength(geometry[0]), parseLength(geometry[1]), parseLength(geometry[2]), parseLength(geometry[3]));
+
+    }else{
+      RShape shp = new RShape();
+      shp.addMoveTo(parseLength(geometry[0]), parseLength(geometry[1]));
+      shp.addLineTo(parseLength(geometry[2]), parseLength(geometry[3]));
+      return shp;
+    }
+  }
+
+  private static void setStyle(RShape shp, String[] style){
+    for(int i = 0; i < style.length; i++){
+      String value = style[i];
+      if(value == null){
+        continue;
+      }
+
+      switch(i){
+      case 0: shp.setStyle(value); break;
+      case 1: shp.setFill(value); break;
+      case 2: shp.setFillAlpha(value); break;
+      case 3: shp.setStroke(value); break;
+      case 4: shp.setStrokeWeight(value); break;
+      case 5: shp.setStrokeCap(value); break;
+      case 6: shp.setStrokeJoin(value); break;
+      case 7: shp.setStrokeAlpha(value); break;
+      case 8: shp.setAlpha(value); break;
+      }
+    }
+  }
+
+  private static float parseLength(String value){
+    if(value == null){
+      return 0F;
+    }
+
+    value = value.trim();
+    if(value.endsWith("px")){
+      value = value.substring(0, value.length() - 2);
+    }
+
+    try{
+      return Float.parseFloat(value);
+    }catch(NumberFormatException e){
+      return 0F;
+    }
+  }
+
+  private static boolean isSupported(String type){
+    return type.equals("g") || type.equals("defs") || type.equals("symbol") || type.equals("use") || type.equals("path") || type.equals("polygon") || type.equals("polyline") || type.equals("circle") || type.equals("ellipse") || type.equals("rect") || type.equals("line");
+  }
+
+  private static String qualifiedName(String prefix, String localName){
+    if(prefix == null || prefix.length() == 0){
+      return localName;
+    }
+    return prefix + ":" + localName;
+  }
+
+  private static XMLInputFactory createFactory(){
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+    // Never fetch the external DTDs of the documents
+    factory.setXMLResolver(new XMLResolver(){
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace){
+          return new ByteArrayInputStream(new byte[0]);
+        }
+      });
+    return factory;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+/**
+ * RSVGVisitor is notified by RSVGReader of the elements of an SVG document as they are read.  Extend it and override the methods needed in order to skip some elements (such as the layers that should not be loaded), to use the shapes as soon as they are built, or to stop reading the document.
+ * @eexample RSVGVisitor
+ * @related RSVGReader
+ */
+public abstract class RSVGVisitor
+{
+  /**
+   * Keep on reading the document.
+   */
+  public static final int CONTINUE = 0;
+
+  /**
+   * Skip the element and all its children.  Only meaningful when returned by startElement.
+   */
+  public static final int SKIP = 1;
+
+  /**
+   * Stop reading the document.  The shape returned by the reader holds the elements read until then.
+   */
+  public static final int STOP = 2;
+
+  /**
+   * Called when an element starts, before any of its children is read.  The attributes of the element can be queried on the reader during this call.
+   * @param reader  the reader of the document
+   * @param name  the name of the element
+   * @return int, CONTINUE, SKIP or STOP
+   */
+  public int startElement(RSVGReader reader, String name){
+    return CONTINUE;
+  }
+
+  /**
+   * Called when the shape of an element has been built, with all its children.  The coordinates of the shape already include the transformations of the element and of its parents.
+   * @param reader  the reader of the document
+   * @param name  the name of the element
+   * @param shape  the shape of the element
+   * @return int, CONTINUE or STOP
+   */
+  public int endElement(RSVGReader reader, String name, RShape shape){
+    return CONTINUE;
+  }
+}
@@ -0,0 +1,543 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+/**
+ * RSVGWriter writes shapes and groups as SVG directly to a Writer or an OutputStream, without building the document in memory.  The numbers can be written with a limited precision, and the path data with relative coordinates and without redundant separators, which makes the files much smaller.
+ * @eexample RSVGWriter
+ * @usage Geometry
+ * @related RSVG
+ * @extended
+ */
+public class RSVGWriter
+{
+  static final String HEADER = "<?xml version=\"1.0\" standalone=\"no\"?>\n<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n<svg width=\"100%\" height=\"100%\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">\n";
+
+  static final String FOOTER = "</svg>";
+
+  private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+
+  private Writer out;
+
+  private int precision = -1;
+  private boolean relative = false;
+  private boolean compact = false;
+
+  /* Reusable buffer for the formatting of numbers */
+  private char[] digits = new char[32];
+
+  /* State of the path data being written */
+  private char lastCommand;
+  private boolean lastHasDot;
+  private boolean separatorPending;
+  private boolean started;
+  private boolean absolute;
+  private float currentX, currentY;
+  private float startX, startY;
+
+  /**
+   * Create a new writer on a character stream.
+   * @eexample RSVGWriter
+   * @param out  the stream on which to write
+   */
+  public RSVGWriter(Writer out){
+    this.out = out;
+  }
+
+  /**
+   * Create a new writer on a byte stream, encoding the characters in UTF-8.
+   * @eexample RSVGWriter
+   * @param out  the stream on which to write
+   */
+  public RSVGWriter(OutputStream out){
+    try{
+      this.out = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 1 << 16);
+    }catch(UnsupportedEncodingException e){
+      throw new RuntimeException("UTF-8 encoding is not supported.");
+    }
+  }
+
+  /**
+   * Use this to set the maximum number of decimals of the numbers written.  Trailing zeros are never written.
+   * @eexample setPrecision
+   * @param decimals  the number of decimals from 0 to 9, or -1 to write the numbers without losing precision
+   */
+  public void setPrecision(int decimals){
+    if(decimals < -1 || decimals >= POWERS_OF_TEN.length){
+      throw new RuntimeException("The precision must be a value between -1 and " + (POWERS_OF_TEN.length - 1) + ".");
+    }
+
+    precision = decimals;
+  }
+
+  /**
+   * Use this to write the path data with coordinates relative to the previous point.
+   * @eexample setRelative
+   * @param value  whether to use relative coordinates
+   */
+  public void setRelative(boolean value){
+    relative = value;
+  }
+
+  /**
+   * Use this to write the path data with the fewest possible separators and without repeating the commands.
+   * @eexample setCompact
+   * @param value  whether to use the compact syntax
+   */
+  public void setCompact(boolean value){
+    compact = value;
+  }
+
+  /**
+   * Use this to write a shape as a complete SVG document.
+   * @eexample RSVGWriter
+   * @param shp  the shape to write
+   */
+  public void writeShape(RShape shp){
+    try{
+      out.write(HEADER);
+      shapeElement(shp);
+      out.write(FOOTER);
+      out.flush();
+    }catch(IOException e){
+      throw new RuntimeException("Error writing the SVG: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this to write a group as a complete SVG document.
+   * @eexample RSVGWriter
+   * @param grp  the group to write
+   */
+  public void writeGroup(RGroup grp){
+    try{
+      out.write(HEADER);
+      groupElement(grp);
+      out.write(FOOTER);
+      out.flush();
+    }catch(IOException e){
+      throw new RuntimeException("Error writing the SVG: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this to write only the SVG element of a shape, without the document header.
+   * @param shp  the shape to write
+   */
+  public void writeShapeElement(RShape shp){
+    try{
+      shapeElement(shp);
+      out.flush();
+    }catch(IOException e){
+      throw new RuntimeException("Error writing the SVG: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this to write only the SVG element of a group, without the document header.
+   * @param grp  the group to write
+   */
+  public void writeGroupElement(RGroup grp){
+    try{
+      groupElement(grp);
+      out.flush();
+    }catch(IOException e){
+      throw new RuntimeException("Error writing the SVG: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this to write the style attribute of an element.
+   * @param style  the style to write
+   */
+  public void writeStyle(RStyle style){
+    try{
+      style(style);
+      out.flush();
+    }catch(IOException e){
+      throw new RuntimeException("Error writing the SVG: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Use this to close the underlying stream.
+   */
+  public void close(){
+    try{
+      out.close();
+    }catch(IOException e){
+      throw new RuntimeException("Error closing the SVG: " + e.getMessage());
+    }
+  }
+
+  // ----------------------
+  // --- Private Methods ---
+  // ----------------------
+
+  private void groupElement(RGroup grp) throws IOException {
+    out.write("<g ");
+    style(grp.style);
+    out.write(">\n");
+
+    for(int i=0;i<grp.countElements();i++) {
+      switch(grp.elements[i].getType()){
+      case RGeomElem.GROUP:
+        groupElement((RGroup)grp.elements[i]);
+        break;
+
+      case RGeomElem.POLYGON:
+        shapeElement(((RPolygon)grp.elements[i]).toShape());
+        break;
+
+      case RGeomElem.SHAPE:
+        shapeElement((RShape)grp.elements[i]);
+        break;
+      }
+    }
+
+    out.write("</g>\n");
+  }
+
+  private void shapeElement(RShape shp) throws IOException {
+    out.write("<g ");
+    style(shp.style);
+    out.write(">\n");
+
+    if (shp.countPaths() > 0) {
+      out.write("<path d=\"");
+      pathData(shp);
+      out.write("\"/>\n");
+    }
+
+    for (int i=0; i<shp.countChildren(); i++) {
+      shapeElement(shp.children[i]);
+    }
+
+    out.write("</g>\n");
+  }
+
+  private void pathData(RShape shp) throws IOException {
+    lastCommand = 0;
+    separatorPending = false;
+    started = false;
+    currentX = currentY = 0F;
+    startX = startY = 0F;
+
+    for(int i=0; i<shp.countPaths(); i++) {
+      RPath path = shp.paths[i];
+      int numCommands = path.countCommands();
+      for ( int j = 0; j < numCommands; j++ ) {
+        RCommand cmd = path.commands[j];
+
+        // A closed path that ends back on its start point is ended with an absolute command, so that the readers summing up the relative coordinates find exactly the same point when closing it
+        absolute = !relative || (path.closed && j == numCommands - 1 && cmd.endPoint.x == path.commands[0].startPoint.x && cmd.endPoint.y == path.commands[0].startPoint.y);
+
+        if (j == 0) {
+          command('M');
+          point(cmd.startPoint.x, cmd.startPoint.y, true);
+          startX = currentX;
+          startY = currentY;
+
+          // After a moveto the implicit command is a lineto
+          lastCommand = relative ? 'l' : 'L';
+        }
+
+        switch( cmd.getCommandType() )
+          {
+          case RCommand.LINETO:
+            command('L');
+            point(cmd.endPoint.x, cmd.endPoint.y, true);
+            break;
+
+          case RCommand.QUADBEZIERTO:
+            command('Q');
+            point(cmd.controlPoints[0].x, cmd.controlPoints[0].y, false);
+            point(cmd.endPoint.x, cmd.endPoint.y, true);
+            break;
+
+          case RCommand.CUBICBEZIERTO:
+            command('C');
+            point(cmd.controlPoints[0].x, cmd.controlPoints[0].y, false);
+            point(cmd.controlPoints[1].x, cmd.controlPoints[1].y, false);
+            point(cmd.endPoint.x, cmd.endPoint.y, true);
+            break;
+          }
+      }
+
+      if (path.closed && path.countCommands() > 0) {
+        command('Z');
+        lastCommand = 0;
+        currentX = startX;
+        currentY = startY;
+      }
+    }
+  }
+
+  private void command(char c) throws IOException {
+    char letter = absolute ? c : Character.toLowerCase(c);
+    if (compact && c != 'M' && c != 'Z' && lastCommand == letter) {
+      // Repeated commands are implicit
+      return;
+    }
+
+    if (!compact && started) {
+      out.write(' ');
+    }
+    out.write(letter);
+    started = true;
+    lastCommand = letter;
+    separatorPending = false;
+  }
+
+  /* Write a point, relative to the current point if needed, and move the current point if it is an end point */
+  private void point(float x, float y, boolean endPoint) throws IOException {
+    float px = round(x);
+    float py = round(y);
+
+    if (!absolute) {
+      number(round(px - currentX));
+      number(round(py - currentY));
+    } else {
+      number(px);
+      number(py);
+    }
+
+    if (endPoint) {
+      if (!absolute) {
+        // Follow the rounded positions, so that rounding errors do not accumulate
+        currentX += round(px - currentX);
+        currentY += round(py - currentY);
+      } else {
+        currentX = px;
+        currentY = py;
+      }
+    }
+  }
+
+  private float round(float v){
+    if (precision < 0) {
+      return v;
+    }
+    long p = POWERS_OF_TEN[precision];
+    double scaled = (double)v * p;
+    if (Math.abs(scaled) >= 1e17) {
+      return v;
+    }
+    return (float)((double)Math.round(scaled) / p);
+  }
+
+  private void number(float v) throws IOException {
+    int n = format(v);
+
+    if (separatorPending) {
+      // A separator is only needed when the number could be read as part of the previous one
+      boolean needed = !compact || !(digits[0] == '-' || (digits[0] == '.' && lastHasDot));
+      if (needed) {
+        out.write(' ');
+      }
+    }
+
+    out.write(digits, 0, n);
+
+    lastHasDot = false;
+    for (int i = 0; i < n; i++) {
+      if (digits[i] == '.' || digits[i] == 'E') {
+        lastHasDot = true;
+        break;
+      }
+    }
+    separatorPending = true;
+  }
+
+  /* Format a number in the digits buffer, returns the number of characters */
+  private int format(float v){
+    long scale = (precision < 0) ? 0 : POWERS_OF_TEN[precision];
+    double scaled = (double)v * scale;
+
+    if (precision < 0 || Float.isNaN(v) || Float.isInfinite(v) || Math.abs(scaled) >= 1e17) {
+      String s = Float.toString(v);
+      if (s.endsWith(".0")) {
+        s = s.substring(0, s.length() - 2);
+      }
+      if (compact) {
+        if (s.startsWith("0.")) s = s.substring(1);
+        else if (s.startsWith("-0.")) s = "-" + s.substring(2);
+      }
+      int n = s.length();
+      if (n > digits.length) {
+        digits = new char[n];
+      }
+      s.getChars(0, n, digits, 0);
+      return n;
+    }
+
+    long value = Math.round(scaled);
+    boolean negative = value < 0;
+    if (negative) {
+      value = -value;
+    }
+
+    long intPart = value / scale;
+    long fracPart = value % scale;
+
+    int n = 0;
+    if (negative && value != 0) {
+      digits[n++] = '-';
+    }
+
+    if (intPart != 0 || fracPart == 0 || !compact) {
+      n = writeLong(intPart, n);
+    }
+
+    if (fracPart != 0) {
+      // Remove the trailing zeros of the decimals
+      int numDecimals = precision;
+      while (fracPart % 10 == 0) {
+        fracPart /= 10;
+        numDecimals--;
+      }
+      digits[n++] = '.';
+      for (int i = numDecimals - 1; i >= 0; i--) {
+        digits[n + i] = (char)('0' + fracPart % 10);
+        fracPart /= 10;
+      }
+      n += numDecimals;
+    }
+
+    return n;
+  }
+
+  private int writeLong(long value, int n){
+    int start = n;
+    do {
+      digits[n++] = (char)('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+
+    // Reverse the digits
+    for (int i = start, j = n - 1; i < j; i++, j--) {
+      char t = digits[i];
+      digits[i] = digits[j];
+      digits[j] = t;
+    }
+    return n;
+  }
+
+  private void style(RStyle style) throws IOException {
+    out.write(" style=\"");
+
+    if (style.fillDef) {
+      if (!style.fill) {
+        out.write("fill:none;");
+      } else {
+        out.write("fill:#");
+        out.write(hex(style.fillColor));
+        out.write(";");
+      }
+    }
+
+    if (style.fillAlphaDef) {
+      out.write("fill-opacity:");
+      out.write(Float.toString(style.fillAlpha/255.0f));
+      out.write(";");
+    }
+
+    if (style.strokeDef) {
+      if (!style.stroke) {
+        out.write("stroke:none;");
+      } else {
+        out.write("stroke:#");
+        out.write(hex(style.strokeColor));
+        out.write(";");
+      }
+    }
+
+    if (style.strokeAlphaDef) {
+      out.write("stroke-opacity:");
+      out.write(Float.toString(style.strokeAlpha/255.0f));
+      out.write(";");
+    }
+
+    if (style.strokeWeightDef) {
+      out.write("stroke-width:");
+      out.write(Float.toString(style.strokeWeight));
+      out.write(";");
+    }
+
+    if(style.strokeCapDef) {
+      out.write("stroke-linecap:");
+
+      switch (style.strokeCap) {
+      case RG.SQUARE:
+        out.write("butt");
+        break;
+      case RG.ROUND:
+        out.write("round");
+        break;
+      case RG.PROJECT:
+        out.write("square");
+        break;
+
+      default:
+        break;
+      }
+
+      out.write(";");
+    }
+
+    if(style.strokeJoinDef) {
+      out.write("stroke-linejoin:");
+
+      switch (style.strokeJoin) {
+      case RG.MITER:
+        out.write("miter");
+        break;
+      case RG.ROUND:
+        out.write("round");
+        break;
+      case RG.BEVEL:
+        out.write("bevel");
+        break;
+
+      default:
+        break;
+      }
+
+      out.write(";");
+    }
+
+    out.write("\" ");
+  }
+
+  private static String hex(int color){
+    String s = Integer.toHexString(color & 0x00ffffff).toUpperCase();
+    while (s.length() < 6) {
+      s = "0" + s;
+    }
+    return s;
+  }
+}
@@ -20,6 +20,8 @@
 package geomerative ;
 import processing.core.*;
 
+import java.util.ArrayList;
+
 /**
  * RShape is a reduced interface for creating, holding and drawing complex shapes. Shapes are groups of one or more paths (RPath).  Shapes can be selfintersecting and can contain holes.  This interface also allows you to transform shapes into polygons by segmenting the curves forming the shape.
  * @eexample RShape
@@ -46,6 +48,30 @@ public class RShape extends RGeomElem
   public RShape[] children = null;
   protected int currentChild;
 
+  /* Meshes of the fill and the stroke of the paths, cached for drawing with the internal tesselator */
+  RMesh fillMesh = null;
+  RPoint fillMeshOffset = null;
+  RMesh strokeMesh = null;
+  float strokeMeshWeight;
+  int strokeMeshCap;
+  int strokeMeshJoin;
+
+  /* Points sampled along the paths of the shape with their distances, built the first time text is placed along the shape */
+  private RArcLengthTable arcLengthTable = null;
+
+  /* Index of the names of the shapes of the tree, built by the first lookup by name */
+  private RShapeIndex nameIndex = null;
+
+  /* The shape this one was last added to, whose index is dropped along with the ones of its ancestors when this shape changes */
+  private RShape parentShape = null;
+
+  /* Builds the paths of the shape the first time they are needed, for the shapes loaded lazily from SVG documents */
+  volatile Runnable loader = null;
+
+  /* For the instances of a shared shape, such as the elements drawn by SVG <use> elements, the shared shape and the transformation placing the instance.  They are dropped when the instance gets its own copy of the shape */
+  RShape instanceOf = null;
+  RMatrix instanceMatrix = null;
+
   // ----------------------
   // --- Public Methods ---
   // ----------------------
@@ -81,6 +107,16 @@ public class RShape extends RGeomElem
   }
 
   public RShape(RShape s){
+    // The copies of an instance share the same shape
+    RShape shared = s.instanceOf;
+    RMatrix matrix = s.instanceMatrix;
+    if(shared != null && matrix != null){
+      setInstance(shared, matrix);
+      type = RGeomElem.SHAPE;
+      setStyle(s);
+      return;
+    }
+
     for(int i=0;i<s.countPaths();i++){
       this.append(new RPath(s.paths[i]));
     }
@@ -207,9 +243,41 @@ public class RShape extends RGeomElem
     return createEllipse(x, y, d, d);
   }
 
+  /**
+   * Use this method to create an instance of a shape, placed by a transformation.  The instances share the paths of the shape instead of copying them: drawing an instance, getting its bounds or testing whether it contains a point applies its transformation on the fly.  The instance only gets its own transformed copy of the shape, as its only child, when it is changed or when its paths or children are asked for.  The shape should not be changed while it has instances.
+   * @eexample createInstance
+   * @param shp  the shape shared by the instances
+   * @param m  the transformation placing the instance
+   * @return RShape, the instance
+   */
+  static public RShape createInstance(RShape shp, RMatrix m){
+    RShape instance = new RShape();
+    instance.setInstance(shp, m);
+    return instance;
+  }
+
+  void setInstance(RShape shp, RMatrix m){
+    instanceOf = shp;
+    instanceMatrix = new RMatrix(m);
+    loader = new Runnable(){
+        public void run(){
+          instantiate();
+        }
+      };
+  }
+
+  /* Give an instance its own copy of the shared shape, transformed, as its only child */
+  private void instantiate(){
+    RShape copy = new RShape(instanceOf);
+    copy.transform(instanceMatrix);
+    instanceOf = null;
+    instanceMatrix = null;
+    appendChild(copy);
+  }
+
   /**
    *
-   * Extracts a shape by its name. The shape is returned as an RShape object, or null is returned if no shape with the name has been found.
+   * Extracts a shape by its name. The shape is returned as an RShape object, or null is returned if no shape with the name has been found.  The names of the shapes of the tree are indexed the first time a shape is looked up, so that the following lookups are fast.  The index is rebuilt after children are added or removed with addChild and removeChild, or shapes are renamed with setName, anywhere in the tree.  When the shape is not found in the index, or has been renamed, the tree is searched again, so that the changes made directly to the names and children of the shapes are found too.
    * @return RShape or null, the target shape or null if not found
    *
    */
@@ -218,12 +286,170 @@ public class RShape extends RGeomElem
       return this;
     }
 
-    for (int i = 0; i < countChildren(); i++) {
-      RShape shp = children[i].getChild(target);
-      if (shp != null) return shp;
+    RShape shp = getIndex().get(target);
+    if (shp != null && !target.equals(shp.name)) {
+      // The shape has been renamed through its field, index the tree again
+      nameIndex = null;
+      shp = getIndex().get(target);
     }
+    return shp;
+  }
 
-    return null;
+  /**
+   *
+   * Extracts all the shapes whose names match a pattern, where '*' stands for any sequence of characters and '?' for any single character.  For example "fr*" finds all the shapes whose names start with "fr".
+   * @param pattern  the pattern of the names
+   * @return RShape[], the shapes found in the order of the tree, empty if none matches
+   * @related getChild ( )
+   *
+   */
+  public RShape[] getChildren(String pattern){
+    RShape[] shps = getIndex().find(pattern);
+    if (shps == null) {
+      nameIndex = null;
+      shps = getIndex().find(pattern);
+    }
+    return shps;
+  }
+
+  private RShapeIndex getIndex(){
+    RShapeIndex index = nameIndex;
+    if (index == null) {
+      index = new RShapeIndex(this);
+      nameIndex = index;
+    }
+    return index;
+  }
+
+  /* Drop the indices of the names and the arc-length tables of this shape and of its ancestors */
+  private void invalidateIndex(){
+    for (RShape shp = this; shp != null; shp = shp.parentShape) {
+      shp.nameIndex = null;
+      shp.arcLengthTable = null;
+    }
+  }
+
+  /* The table of the distances along the paths of the shape, kept until the shape or its children change */
+  RArcLengthTable getArcLengthTable(){
+    RArcLengthTable table = arcLengthTable;
+    if (table == null) {
+      table = new RArcLengthTable(this);
+      arcLengthTable = table;
+    }
+    return table;
+  }
+
+  /**
+   * Use this method to set the name of the shape, by which it can be found with getChild.
+   * @param str  the new name of the shape
+   * @related getChild ( )
+   */
+  public void setName(String str){
+    super.setName(str);
+    invalidateIndex();
+  }
+
+  /* Give the shape all its children at once, as built by the readers */
+  void setChildren(RShape[] shps){
+    children = shps;
+    currentChild = (shps == null) ? 0 : shps.length - 1;
+    for (int i = 0; shps != null && i < shps.length; i++) {
+      shps[i].parentShape = this;
+    }
+    invalidateIndex();
+  }
+
+  /**
+   * Use this method to get the bounding box of the shape.
+   * @eexample getBounds
+   * @return RRectangle, the bounding box of the shape in the form of a four-point contour
+   * @related getCenter ( )
+   */
+  public RRectangle getBounds(){
+    // Go through the handles in place, the instances are measured without copying their shapes
+    float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+    addBounds(box, null);
+    return new RRectangle(new RPoint(box[0], box[1]), new RPoint(box[2], box[3]));
+  }
+
+  /* Add the points of the paths of the shape and of its children transformed by a matrix, without changing the shape */
+  private void addPointsInPaths(ArrayList<RPoint[]> result, RMatrix m){
+    RShape shared = instanceOf;
+    RMatrix matrix = instanceMatrix;
+    if(shared != null && matrix != null){
+      if(m != null){
+        matrix = new RMatrix(m);
+        matrix.apply(instanceMatrix);
+      }
+      shared.addPointsInPaths(result, matrix);
+      return;
+    }
+
+    for(int i=0;i<countPaths();i++){
+      RPoint[][] pointpaths = paths[i].getPointsInPaths();
+      if(pointpaths == null){
+        continue;
+      }
+
+      for(int j=0;j<pointpaths.length;j++){
+        RPoint[] points = pointpaths[j];
+        if(points == null){
+          continue;
+        }
+
+        // The points may be the handles of the shared shape, transform copies of them
+        if(m != null){
+          for(int k=0;k<points.length;k++){
+            RPoint p = points[k];
+            points[k] = new RPoint(m.m00*p.x + m.m01*p.y + m.m02, m.m10*p.x + m.m11*p.y + m.m12);
+          }
+        }
+        result.add(points);
+      }
+    }
+
+    for(int i=0;i<countChildren();i++){
+      children[i].addPointsInPaths(result, m);
+    }
+  }
+
+  /* Extend a bounding box with the handles of the shape transformed by a matrix, without changing the shape */
+  private void addBounds(float[] box, RMatrix m){
+    RShape shared = instanceOf;
+    RMatrix matrix = instanceMatrix;
+    if(shared != null && matrix != null){
+      if(m != null){
+        matrix = new RMatrix(m);
+        matrix.apply(instanceMatrix);
+      }
+      shared.addBounds(box, matrix);
+      return;
+    }
+
+    for(int i=0;i<countPaths();i++){
+      RPoint[] handles = paths[i].getHandles();
+      if(handles == null){
+        continue;
+      }
+
+      for(int j=0;j<handles.length;j++){
+        float x = handles[j].x;
+        float y = handles[j].y;
+        if(m != null){
+          x = m.m00*handles[j].x + m.m01*handles[j].y + m.m02;
+          y = m.m10*handles[j].x + m.m11*handles[j].y + m.m12;
+        }
+
+        box[0] = Math.min(box[0], x);
+        box[1] = Math.min(box[1], y);
+        box[2] = Math.max(box[2], x);
+        box[3] = Math.max(box[3], y);
+      }
+    }
+
+    for(int i=0;i<countChildren();i++){
+      children[i].addBounds(box, m);
+    }
   }
 
   /**
@@ -234,6 +460,7 @@ public class RShape extends RGeomElem
    * @related getCenter ( )
    */
   public RPoint getCentroid(){
+    load();
     RPoint bestCentroid = new RPoint();
     float bestArea = Float.NEGATIVE_INFINITY;
     if(paths != null){
@@ -256,6 +483,7 @@ public class RShape extends RGeomElem
    * @related addPath ( )
    */
   public int countPaths(){
+    load();
     if(this.paths==null){
       return 0;
     }
@@ -265,6 +493,9 @@ public class RShape extends RGeomElem
 
 
   public int countChildren(){
+    if(instanceOf != null){
+      load();
+    }
     if(this.children==null){
       return 0;
     }
@@ -310,6 +541,32 @@ public class RShape extends RGeomElem
     this.appendChild(s);
   }
 
+  /**
+   * Use this method to remove a child of the shape.
+   * @eexample removeChild
+   * @param indChild  the index of the child to remove
+   * @related addChild ( )
+   */
+  public void removeChild(int indChild){
+    if(indChild < 0 || indChild >= countChildren()){
+      throw new RuntimeException("The index of the child to remove is out of bounds.");
+    }
+
+    RShape[] newshapes = null;
+    if(this.children.length > 1){
+      newshapes = new RShape[this.children.length-1];
+      System.arraycopy(this.children,0,newshapes,0,indChild);
+      System.arraycopy(this.children,indChild+1,newshapes,indChild,this.children.length-indChild-1);
+    }
+    RShape removed = this.children[indChild];
+    if(removed.parentShape == this){
+      removed.parentShape = null;
+    }
+    this.children = newshapes;
+    currentChild = Math.min(currentChild, countChildren()-1);
+    invalidateIndex();
+  }
+
   /**
    * Use this method to set the current path.
    * @eexample setPath
@@ -335,6 +592,7 @@ public class RShape extends RGeomElem
    * @related setPath ( )
    */
   public void addMoveTo(float endx, float endy){
+    load();
     if (paths == null){
       this.append(new RPath(endx,endy));
     }else if(paths[currentPath].countCommands() == 0){
@@ -360,6 +618,7 @@ public class RShape extends RGeomElem
    * @related setPath ( )
    */
   public void addLineTo(float endx, float endy){
+    load();
     if (paths == null) {
       this.append(new RPath());
     }
@@ -384,6 +643,7 @@ public class RShape extends RGeomElem
    * @related setPath ( )
    */
   public void addQuadTo(float cp1x, float cp1y, float endx, float endy){
+    load();
     if (paths == null) {
       this.append(new RPath());
     }
@@ -410,6 +670,7 @@ public class RShape extends RGeomElem
    * @related setPath ( )
    */
   public void addBezierTo(float cp1x, float cp1y, float cp2x, float cp2y, float endx, float endy){
+    load();
     if (paths == null) {
       this.append(new RPath());
     }
@@ -421,6 +682,7 @@ public class RShape extends RGeomElem
   }
 
   public void addClose(){
+    load();
     if (paths == null) {
       this.append(new RPath());
     }
@@ -434,9 +696,47 @@ public class RShape extends RGeomElem
    * @related draw ( )
    */
   public RMesh toMesh(){
+    if(RG.useMeshCache){
+      ArrayList<RPath> allPaths = new ArrayList<RPath>();
+      collectPaths(allPaths);
+      return RMeshCache.getMeshCopy(allPaths);
+    }
+
     return toPolygon().toMesh();
   }
 
+  /**
+   * Use this method to create a new mesh covering the strokes of the shape and its children, using the stroke weight, cap and join of their styles.  The mesh can be drawn, transformed and exported like the meshes of the fills.
+   * @eexample toStrokeMesh
+   * @return RMesh, the mesh made of tristrips covering the strokes of the shape
+   * @related toMesh ( )
+   */
+  public RMesh toStrokeMesh(){
+    RMesh mesh = new RMesh();
+    addStrokeStrips(mesh, style.strokeWeight, style.strokeCap, style.strokeJoin);
+
+    mesh.setStyle(this);
+    mesh.setFill(style.strokeColor);
+    mesh.setFillAlpha(style.strokeAlphaDef ? style.strokeAlpha : (style.strokeColor >>> 24));
+    mesh.setStroke(false);
+    return mesh;
+  }
+
+  void addStrokeStrips(RMesh mesh, float weight, int cap, int join){
+    // The children inherit the stroke style of their parents
+    if(style.strokeWeightDef) weight = style.strokeWeight;
+    if(style.strokeCapDef) cap = style.strokeCap;
+    if(style.strokeJoinDef) join = style.strokeJoin;
+
+    for(int i=0;i<countPaths();i++){
+      paths[i].addStrokeStrip(mesh, weight, cap, join);
+    }
+
+    for(int i=0;i<countChildren();i++){
+      children[i].addStrokeStrips(mesh, weight, cap, join);
+    }
+  }
+
   /**
    * Use this method to create a new polygon from a given shape.
    * @eexample toPolygon
@@ -486,6 +786,49 @@ public class RShape extends RGeomElem
     }
   }
 
+  /**
+   * Use this to simplify all the paths of the shape and of its children.  Each path is segmented using the current segmentator and then simplified using the current simplifier, so that it deviates less than the tolerance from the original.  The borders shared by several paths are simplified once, so that the paths stay joined, as long as the shared vertices are the same points in all the paths.  Shapes with many paths are simplified in parallel.
+   * @eexample simplify
+   * @param tolerance  the maximum distance between the original and the simplified paths
+   * @related polygonize ( )
+   * @related RSimplifier
+   */
+  public void simplify(float tolerance){
+    ArrayList<RPath> allPaths = new ArrayList<RPath>();
+    collectPaths(allPaths);
+
+    // The segmentator is not thread safe, segment all the paths first
+    int numPaths = allPaths.size();
+    float[][] xys = new float[numPaths][];
+    int[] numPoints = new int[numPaths];
+    boolean[] closed = new boolean[numPaths];
+    for(int i=0;i<numPaths;i++){
+      RPath path = allPaths.get(i);
+      RPoint[] pnts = path.getPoints();
+      xys[i] = (pnts == null) ? new float[0] : RSimplifier.toBuffer(pnts);
+      numPoints[i] = (pnts == null) ? 0 : pnts.length;
+      closed[i] = path.closed;
+    }
+
+    RSimplifier.simplify(xys, numPoints, closed, tolerance);
+
+    for(int i=0;i<numPaths;i++){
+      allPaths.get(i).setPolyline(xys[i], numPoints[i]);
+    }
+
+    clearCache();
+  }
+
+  void collectPaths(ArrayList<RPath> result){
+    for(int i=0;i<countPaths();i++){
+      result.add(this.paths[i]);
+    }
+
+    for(int i=0;i<countChildren();i++){
+      this.children[i].collectPaths(result);
+    }
+  }
+
 
   /**
    * @invisible
@@ -762,7 +1105,7 @@ public class RShape extends RGeomElem
   public RPoint[] getPoints(){
     int numPaths = countPaths();
 
-    RCommand.segmentAccOffset = RCommand.segmentOffset;
+    RCommand.setSegmentAccOffset(RCommand.segmentOffset);
     RPoint[] result=null;
     RPoint[] newresult=null;
     for(int i=0;i<numPaths;i++){
@@ -832,6 +1175,18 @@ public class RShape extends RGeomElem
    * @return boolean, true if the point is in the path.
    * */
   public boolean contains(RPoint p){
+    RShape shared = instanceOf;
+    RMatrix m = instanceMatrix;
+    if(shared != null && m != null){
+      // Test the point brought back to the coordinates of the shared shape
+      float det = m.m00*m.m11 - m.m01*m.m10;
+      if(det != 0F){
+        float dx = p.x - m.m02;
+        float dy = p.y - m.m12;
+        return shared.contains(new RPoint((m.m11*dx - m.m01*dy)/det, (m.m00*dy - m.m10*dx)/det));
+      }
+    }
+
     float testx = p.x;
     float testy = p.y;
 
@@ -847,12 +1202,14 @@ public class RShape extends RGeomElem
       return false;
     }
 
-    // Test for containment in shape
-    RPoint[][] pointpaths = getPointsInPaths();
+    // Test for containment in shape, the instances among the children are not copied
+    ArrayList<RPoint[]> pointlist = new ArrayList<RPoint[]>();
+    addPointsInPaths(pointlist, null);
 
-    if(pointpaths == null){
+    if(pointlist.isEmpty()){
       return false;
     }
+    RPoint[][] pointpaths = pointlist.toArray(new RPoint[pointlist.size()][]);
 
     RPoint[] verts = pointpaths[0];
     for(int k=1;k<pointpaths.length;k++){
@@ -1088,8 +1445,7 @@ public class RShape extends RGeomElem
     }
 
     // Clear the cache
-    lenCurves = null;
-    lenCurve = -1F;
+    clearCache();
 
     return;
   }
@@ -1114,8 +1470,7 @@ public class RShape extends RGeomElem
     }
 
     // Clear the cache
-    lenCurves = null;
-    lenCurve = -1F;
+    clearCache();
 
     return;
   }
@@ -1540,36 +1895,62 @@ public class RShape extends RGeomElem
   }
 
   public void draw(PGraphics g){
+    RStyle.Context old = null;
     if(!RG.ignoreStyles){
-      saveContext(g);
+      old = saveContext(g);
       setContext(g);
     }
 
-    this.drawPaths(g);
-
-    for(int i=0;i<countChildren();i++){
-      this.children[i].draw(g);
-    }
+    try{
+      RShape shared = instanceOf;
+      RMatrix m = instanceMatrix;
+      if(shared != null && m != null){
+        // Draw the shared shape with the transformation of the instance
+        g.pushMatrix();
+        g.applyMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12);
+        shared.draw(g);
+        g.popMatrix();
+      }else{
+        this.drawPaths(g);
 
-    if(!RG.ignoreStyles){
-      restoreContext(g);
+        for(int i=0;i<countChildren();i++){
+          this.children[i].draw(g);
+        }
+      }
+    }finally{
+      if(old != null){
+        restoreContext(g, old);
+      }
     }
   }
 
   public void draw(PApplet g){
+    RStyle.Context old = null;
     if(!RG.ignoreStyles){
-      saveContext(g);
+      old = saveContext(g);
       setContext(g);
     }
 
-    this.drawPaths(g);
-
-    for(int i=0;i<countChildren();i++){
-      this.children[i].draw(g);
-    }
+    try{
+      RShape shared = instanceOf;
+      RMatrix m = instanceMatrix;
+      if(shared != null && m != null){
+        // Draw the shared shape with the transformation of the instance
+        g.pushMatrix();
+        g.applyMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12);
+        shared.draw(g);
+        g.popMatrix();
+      }else{
+        this.drawPaths(g);
 
-    if(!RG.ignoreStyles){
-      restoreContext(g);
+        for(int i=0;i<countChildren();i++){
+          this.children[i].draw(g);
+        }
+      }
+    }finally{
+      if(old != null){
+        restoreContext(g, old);
+      }
     }
   }
 
@@ -1607,6 +1988,16 @@ public class RShape extends RGeomElem
 
     }
     */
+    if(RG.useInternalTesselator){
+      drawUsingInternalTesselator(g);
+      return;
+    }
+
+    if(RG.useLevelOfDetail){
+      drawUsingLevelOfDetail(g);
+      return;
+    }
+
     drawUsingBreakShape(g);
   }
 
@@ -1640,6 +2031,16 @@ public class RShape extends RGeomElem
 
     }
     */
+    if(RG.useInternalTesselator){
+      drawUsingInternalTesselator(g);
+      return;
+    }
+
+    if(RG.useLevelOfDetail){
+      drawUsingLevelOfDetail(g);
+      return;
+    }
+
     drawUsingBreakShape(g);
   }
 
@@ -1647,6 +2048,25 @@ public class RShape extends RGeomElem
   // --- Private Methods ---
   // ----------------------
 
+  protected void clearCache(){
+    super.clearCache();
+    fillMesh = null;
+    strokeMesh = null;
+
+    // The tables of the ancestors measure this shape too
+    for(RShape shp = this; shp != null; shp = shp.parentShape){
+      shp.arcLengthTable = null;
+    }
+
+    for(int i=0;i<countPaths();i++){
+      paths[i].clearCache();
+    }
+
+    for(int i=0;i<countChildren();i++){
+      children[i].clearCache();
+    }
+  }
+
   protected void calculateCurveLengths(){
     lenCurves = new float[countPaths() + countChildren()];
     lenCurve = 0F;
@@ -1705,11 +2125,26 @@ public class RShape extends RGeomElem
       currentChild++;
     }
     this.children = newshapes;
+    nextshape.parentShape = this;
+    invalidateIndex();
   }
 
 
+  /* Build the paths of a shape loaded lazily, once */
+  void load(){
+    if(loader != null){
+      synchronized(this){
+        if(loader != null){
+          loader.run();
+          loader = null;
+        }
+      }
+    }
+  }
+
   private void append(RPath nextpath)
   {
+    load();
     RPath[] newpaths;
     if(paths==null){
       newpaths = new RPath[1];
@@ -1722,6 +2157,9 @@ public class RShape extends RGeomElem
       currentPath++;
     }
     this.paths=newpaths;
+
+    fillMesh = null;
+    strokeMesh = null;
   }
 
   private void drawUsingInternalTesselator(PGraphics g){
@@ -1733,7 +2171,6 @@ public class RShape extends RGeomElem
         // Save the information about the current context
         boolean strokeBefore = g.stroke;
         int strokeColorBefore = g.strokeColor;
-        float strokeWeightBefore = g.strokeWeight;
         int smoothBefore = g.smooth;
         boolean fillBefore = g.fill;
         int fillColorBefore = g.fillColor;
@@ -1742,53 +2179,48 @@ public class RShape extends RGeomElem
         int lastSegmentator = RCommand.segmentType;
         RCommand.setSegmentator(RCommand.ADAPTATIVE);
 
-        // Check whether to draw the fill or not
-        if(g.fill){
-          // Since we are drawing the different tristrips we must turn off the stroke or make it the same color as the fill
-          // NOTE: there's currently no way of drawing the outline of a mesh, since no information is kept about what vertices are at the edge
-
-          // This is here because when rendering meshes we get unwanted lines between the triangles
-          g.noStroke();
-          try{
-            g.noSmooth();
-          }catch(Exception e){}
+        // This is here because when rendering meshes we get unwanted lines between the triangles
+        g.noStroke();
+        try{
+          g.noSmooth();
+        }catch(Exception e){}
 
-          RMesh tempMesh = this.toMesh();
-          tempMesh.draw(g);
-
-          // Restore the old context
-          g.stroke(strokeColorBefore);
-          if(!strokeBefore){
-            g.noStroke();
-          }
-
-          try{
-            if(smoothBefore > 0){
-              g.smooth();
+        // Check whether to draw the fill or not
+        if(fillBefore){
+          RMesh mesh = getFillMesh();
+          if(mesh != null){
+            if(fillMeshOffset != null){
+              g.pushMatrix();
+              g.translate(fillMeshOffset.x, fillMeshOffset.y);
+              mesh.draw(g);
+              g.popMatrix();
+            }else{
+              mesh.draw(g);
             }
-          }catch(Exception e){}
-        }
-
-        // Check whether to draw the stroke
-        g.noFill();
-        if(!strokeBefore){
-          // If there is no stroke to draw
-          // we will still draw one the color of the fill in order to have antialiasing
-          g.stroke(g.fillColor);
-          g.strokeWeight(1F);
+          }
         }
 
-        for(int i=0;i<numPaths;i++){
-          paths[i].draw(g);
+        // Check whether to draw the stroke, the stroke mesh is drawn as a fill
+        if(strokeBefore){
+          g.fill(strokeColorBefore);
+          RMesh mesh = getStrokeMesh(g.strokeWeight, g.strokeCap, g.strokeJoin);
+          if(mesh != null){
+            mesh.draw(g);
+          }
         }
 
         // Restore the fill state and stroke state and color
+        try{
+          if(smoothBefore > 0){
+            g.smooth();
+          }
+        }catch(Exception e){}
+
         if(fillBefore){
           g.fill(fillColorBefore);
         } else {
           g.noFill();
         }
-        g.strokeWeight(strokeWeightBefore);
         g.stroke(strokeColorBefore);
         if(!strokeBefore){
           g.noStroke();
@@ -1801,87 +2233,87 @@ public class RShape extends RGeomElem
   }
 
   private void drawUsingInternalTesselator(PApplet p){
-    int numPaths = countPaths();
-
-    if(numPaths!=0){
-      if(isIn(p)) {
-        // Save the information about the current context
-        boolean strokeBefore = p.g.stroke;
-        int strokeColorBefore = p.g.strokeColor;
-        float strokeWeightBefore = p.g.strokeWeight;
-        int smoothBefore = p.g.smooth;
-        boolean fillBefore = p.g.fill;
-        int fillColorBefore = p.g.fillColor;
+    drawUsingInternalTesselator(p.g);
+  }
 
-        // By default always drawy with an ADAPTATIVE segmentator
-        int lastSegmentator = RCommand.segmentType;
-        RCommand.setSegmentator(RCommand.ADAPTATIVE);
+  /* Mesh of the fill of the paths, cached for drawing with the internal tesselator */
+  private RMesh getFillMesh(){
+    if(fillMesh == null && RG.useMeshCache){
+      // Share the mesh with the shapes with the same paths, and draw it translated
+      ArrayList<RPath> ownPaths = new ArrayList<RPath>();
+      for(int i=0;i<countPaths();i++){
+        ownPaths.add(paths[i]);
+      }
+      fillMeshOffset = new RPoint();
+      fillMesh = RMeshCache.getMesh(ownPaths, fillMeshOffset);
+    }
 
-        // Check whether to draw the fill or not
-        if(p.g.fill){
-          // Since we are drawing the different tristrips we must turn off the stroke
-          // or make it the same color as the fill
-          // NOTE: there's currently no way of drawing the outline of a mesh,
-          // since no information is kept about what vertices are at the edge
-
-          // This is here because when rendering meshes we get unwanted lines between the triangles
-          p.noStroke();
-          try{
-            p.noSmooth();
-          }catch(Exception e){}
-
-          RMesh tempMesh = this.toMesh();
-          if ( tempMesh != null ){
-            tempMesh.draw(p);
-          }
+    if(fillMesh == null){
+      fillMeshOffset = null;
+      RPolygon poly = new RPolygon();
+      for(int i=0;i<countPaths();i++){
+        RPoint[] pnts = paths[i].getPoints();
+        if(pnts != null){
+          poly.addContour(new RContour(pnts));
+        }
+      }
+      fillMesh = RClip.polygonToMesh(poly);
+    }
 
-          // Restore the old context
-          p.stroke(strokeColorBefore);
-          p.strokeWeight(strokeWeightBefore);
-          if(!strokeBefore){
-            p.noStroke();
-          }
+    return fillMesh;
+  }
 
-          try{
-            if(smoothBefore > 0){
-              p.smooth();
-            }
-          }catch(Exception e){}
-        }
+  /* Mesh of the stroke of the paths, cached for drawing with the internal tesselator */
+  private RMesh getStrokeMesh(float weight, int cap, int join){
+    if(strokeMesh == null || strokeMeshWeight != weight || strokeMeshCap != cap || strokeMeshJoin != join){
+      strokeMesh = new RMesh();
+      for(int i=0;i<countPaths();i++){
+        paths[i].addStrokeStrip(strokeMesh, weight, cap, join);
+      }
+      strokeMeshWeight = weight;
+      strokeMeshCap = cap;
+      strokeMeshJoin = join;
+    }
 
+    return strokeMesh;
+  }
 
-        // Check whether to draw the stroke
-        p.noFill();
-        if((smoothBefore > 0 && fillBefore) || strokeBefore){
-          if(!strokeBefore){
-            // If there is no stroke to draw
-            // we will still draw one the color
-            // of the fill in order to have antialiasing
-            p.stroke(fillColorBefore);
-            p.strokeWeight(1F);
+  private void drawUsingLevelOfDetail(PGraphics g){
+    int numPaths = countPaths();
+    if(numPaths!=0){
+      if(isIn(g)){
+        float scale = RCommand.getGraphicScale(g);
+        boolean closed = false;
+        boolean useContours = (numPaths>1);
+        g.beginShape();
+        for(int i=0;i<numPaths;i++){
+          if (useContours && i>0) {
+            g.beginContour();
           }
 
-          for(int i=0;i<numPaths;i++){
-            paths[i].draw(p);
-          }
+          RPath path = paths[i];
+          closed |= path.closed;
 
-          // Restore the old context
-          if(fillBefore){
-            p.fill(fillColorBefore);
+          RPoint[] pnts = path.getPointsForScale(scale);
+          if(pnts != null){
+            for(int j = 0; j < pnts.length; j++ ){
+              g.vertex( pnts[j].x, pnts[j].y );
+            }
           }
-          p.strokeWeight(strokeWeightBefore);
-          p.stroke(strokeColorBefore);
-          if(!strokeBefore){
-            p.noStroke();
+
+          if (useContours && i>0) {
+            g.endContour();
           }
         }
-
-        // Restore the user set segmentator
-        RCommand.setSegmentator(lastSegmentator);
+        g.endShape(closed ? PConstants.CLOSE : PConstants.OPEN);
       }
     }
   }
 
+  private void drawUsingLevelOfDetail(PApplet g){
+    drawUsingLevelOfDetail(g.g);
+  }
+
   private void drawUsingBreakShape(PGraphics g){
     int numPaths = countPaths();
     if(numPaths!=0){
@@ -0,0 +1,593 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * RShapeFile saves shapes in a compact binary format and opens them back by mapping the file in memory, which is much faster than parsing an SVG file again.  Opening a file only reads its header, the shapes are decoded when they are asked for, so that a single child of a big file can be used without decoding the rest.
+ * <p>
+ * The file starts with the header, followed by the tables of the names, the styles and the shapes, and by the geometry of the paths.  The shapes are stored in breadth first order so that the children of a shape are consecutive, and each of them is a fixed size record with the indexes of its name, its style and its first child, and the position of its paths.  Each path is stored as the bytes of the types of its commands followed by their coordinates as floats.  The styles are shared by all the shapes and paths that have the same style.  All values are little endian.
+ * @eexample RShapeFile
+ * @usage Geometry
+ * @related RShape
+ */
+public class RShapeFile
+{
+  /**
+   * The version of the format written.  Files of a newer version can not be opened.
+   */
+  public static final int VERSION = 1;
+
+  /* The first bytes of the files, "RGEO" */
+  static final int MAGIC = 0x4F454752;
+
+  static final int HEADER_SIZE = 40;
+  static final int STYLE_SIZE = 32;
+  static final int NODE_SIZE = 40;
+
+  /* Flag of a command type telling that its start point is not the end point of the previous command */
+  static final int EXPLICIT_START = 0x80;
+
+  private static final int[] NUM_CONTROL_POINTS = {0, 1, 2};
+
+  private final ByteBuffer buffer;
+  private final int numStrings;
+  private final int stringsOffset;
+  private final int numStyles;
+  private final int stylesOffset;
+  private final int numNodes;
+  private final int nodesOffset;
+  private final int geometryOffset;
+
+  private final String[] strings;
+  private final RStyle[] styles;
+  private RShape shape = null;
+
+  /**
+   * Open a file of shapes, mapping it in memory.
+   * @eexample RShapeFile
+   * @param filename  the path of the file
+   */
+  public RShapeFile(String filename){
+    this(map(filename));
+  }
+
+  /**
+   * Open the shapes held in a buffer.
+   * @eexample RShapeFile
+   * @param buffer  the buffer holding the file
+   */
+  public RShapeFile(ByteBuffer buffer){
+    this.buffer = buffer.duplicate();
+    this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    if(this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC){
+      throw new RuntimeException("The data is not a file of shapes.");
+    }
+
+    int version = this.buffer.getInt(4);
+    if(version > VERSION){
+      throw new RuntimeException("The version " + version + " of the file of shapes is not supported, the newest version supported is " + VERSION + ".");
+    }
+
+    numStrings = this.buffer.getInt(8);
+    stringsOffset = this.buffer.getInt(12);
+    numStyles = this.buffer.getInt(16);
+    stylesOffset = this.buffer.getInt(20);
+    numNodes = this.buffer.getInt(24);
+    nodesOffset = this.buffer.getInt(28);
+    geometryOffset = this.buffer.getInt(32);
+
+    if(numNodes < 1 || geometryOffset > this.buffer.limit()){
+      throw new RuntimeException("The file of shapes is truncated.");
+    }
+
+    strings = new String[numStrings];
+    styles = new RStyle[numStyles];
+  }
+
+  /**
+   * Use this method to get the whole shape held in the file.  The shape is decoded the first time it is asked for.
+   * @eexample getShape
+   * @return RShape, the shape
+   */
+  public RShape getShape(){
+    if(shape == null){
+      shape = readNode(0);
+    }
+    return shape;
+  }
+
+  /**
+   * Use this method to know the number of children of the shape, without decoding it.
+   * @eexample countChildren
+   * @return int, the number of children
+   */
+  public int countChildren(){
+    return nodeInt(0, 4);
+  }
+
+  /**
+   * Use this method to get the name of a child of the shape, without decoding it.
+   * @eexample getChildName
+   * @param i  the index of the child
+   * @return String, the name of the child, or null if it has none
+   */
+  public String getChildName(int i){
+    return getString(nodeInt(childNode(i), 0));
+  }
+
+  /**
+   * Use this method to get one child of the shape, decoding only that child.
+   * @eexample getChild
+   * @param i  the index of the child
+   * @return RShape, the child
+   */
+  public RShape getChild(int i){
+    if(shape != null){
+      return shape.children[i];
+    }
+    return readNode(childNode(i));
+  }
+
+  /**
+   * Use this method to get the first shape of the file with a given name, decoding only that shape.
+   * @eexample getChild
+   * @param name  the name of the shape
+   * @return RShape, the shape or null if there is none with that name
+   */
+  public RShape getChild(String name){
+    if(shape != null){
+      return shape.getChild(name);
+    }
+
+    for(int i = 0; i < numNodes; i++){
+      if(name.equals(getString(nodeInt(i, 0)))){
+        return readNode(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Save a shape to a file.
+   * @eexample RShapeFile_save
+   * @param filename  the path of the file
+   * @param shp  the shape to save
+   */
+  public static void save(String filename, RShape shp){
+    OutputStream out = null;
+    try{
+      out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+      write(out, shp);
+    }catch(IOException e){
+      throw new RuntimeException("Could not save the shape to " + filename + ": " + e.getMessage());
+    }finally{
+      if(out != null){
+        try{
+          out.close();
+        }catch(IOException e){
+        }
+      }
+    }
+  }
+
+  /**
+   * Save a group to a file, as the shape it converts to.
+   * @param filename  the path of the file
+   * @param grp  the group to save
+   */
+  public static void save(String filename, RGroup grp){
+    save(filename, grp.toShape());
+  }
+
+  /**
+   * Write a shape to a stream.
+   * @param out  the stream on which to write
+   * @param shp  the shape to write
+   */
+  public static void write(OutputStream out, RShape shp) throws IOException {
+    // List the shapes in breadth first order, so that the children of each shape are consecutive
+    ArrayList<RShape> nodes = new ArrayList<RShape>();
+    nodes.add(shp);
+    int[] firstChild = new int[16];
+    for(int i = 0; i < nodes.size(); i++){
+      if(i == firstChild.length){
+        int[] newFirstChild = new int[firstChild.length * 2];
+        System.arraycopy(firstChild, 0, newFirstChild, 0, i);
+        firstChild = newFirstChild;
+      }
+
+      RShape node = nodes.get(i);
+      firstChild[i] = nodes.size();
+      for(int j = 0; j < node.countChildren(); j++){
+        nodes.add(node.children[j]);
+      }
+    }
+
+    ArrayList<String> strings = new ArrayList<String>();
+    HashMap<String, Integer> stringIndexes = new HashMap<String, Integer>();
+    ArrayList<int[]> styles = new ArrayList<int[]>();
+    HashMap<IntBuffer, Integer> styleIndexes = new HashMap<IntBuffer, Integer>();
+
+    Buffer nodeData = new Buffer(nodes.size() * NODE_SIZE);
+    Buffer geometry = new Buffer(1 << 16);
+
+    for(int i = 0; i < nodes.size(); i++){
+      RShape node = nodes.get(i);
+      nodeData.putInt(intern(node.name, strings, stringIndexes));
+      nodeData.putInt(intern(node.style, styles, styleIndexes));
+      nodeData.putInt(node.countPaths());
+      nodeData.putInt(geometry.size);
+      nodeData.putInt(node.countChildren());
+      nodeData.putInt(firstChild[i]);
+      nodeData.putFloat(node.width);
+      nodeData.putFloat(node.height);
+      nodeData.putFloat(node.origWidth);
+      nodeData.putFloat(node.origHeight);
+
+      for(int j = 0; j < node.countPaths(); j++){
+        RPath path = node.paths[j];
+        geometry.putInt(intern(path.style, styles, styleIndexes));
+        writePath(geometry, path);
+      }
+    }
+
+    Buffer stringData = new Buffer(strings.size() * 16);
+    for(int i = 0; i < strings.size(); i++){
+      byte[] bytes = utf8(strings.get(i));
+      stringData.putInt(bytes.length);
+      stringData.putBytes(bytes);
+      stringData.align();
+    }
+
+    // The offsets of the strings follow the header, then come the strings, the styles, the shapes and the geometry
+    int stringsOffset = HEADER_SIZE;
+    int stylesOffset = stringsOffset + 4 * strings.size() + stringData.size;
+    int nodesOffset = stylesOffset + STYLE_SIZE * styles.size();
+    int geometryOffset = nodesOffset + nodeData.size;
+
+    Buffer header = new Buffer(HEADER_SIZE + 4 * strings.size() + STYLE_SIZE * styles.size());
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(strings.size());
+    header.putInt(stringsOffset);
+    header.putInt(styles.size());
+    header.putInt(stylesOffset);
+    header.putInt(nodes.size());
+    header.putInt(nodesOffset);
+    header.putInt(geometryOffset);
+    header.putInt(0);
+
+    int offset = stringsOffset + 4 * strings.size();
+    for(int i = 0; i < strings.size(); i++){
+      header.putInt(offset);
+      offset += 4 + utf8(strings.get(i)).length;
+      offset = (offset + 3) & ~3;
+    }
+
+    out.write(header.data, 0, header.size);
+    out.write(stringData.data, 0, stringData.size);
+
+    Buffer styleData = new Buffer(STYLE_SIZE * styles.size());
+    for(int i = 0; i < styles.size(); i++){
+      int[] style = styles.get(i);
+      for(int j = 0; j < style.length; j++){
+        styleData.putInt(style[j]);
+      }
+    }
+    out.write(styleData.data, 0, styleData.size);
+    out.write(nodeData.data, 0, nodeData.size);
+    out.write(geometry.data, 0, geometry.size);
+    out.flush();
+  }
+
+  private static void writePath(Buffer geometry, RPath path){
+    int numCommands = path.countCommands();
+    geometry.putInt(numCommands);
+    geometry.putInt(path.closed ? 1 : 0);
+
+    RPoint last = (numCommands > 0) ? path.commands[0].startPoint : path.lastPoint;
+    if(last == null){
+      last = new RPoint();
+    }
+
+    RPoint previous = null;
+    for(int i = 0; i < numCommands; i++){
+      RCommand cmd = path.commands[i];
+      int type = cmd.getCommandType();
+      if(previous != null && (cmd.startPoint.x != previous.x || cmd.startPoint.y != previous.y)){
+        type |= EXPLICIT_START;
+      }
+      geometry.putByte(type);
+      previous = cmd.endPoint;
+    }
+    geometry.align();
+
+    geometry.putFloat(last.x);
+    geometry.putFloat(last.y);
+    previous = null;
+    for(int i = 0; i < numCommands; i++){
+      RCommand cmd = path.commands[i];
+      if(previous != null && (cmd.startPoint.x != previous.x || cmd.startPoint.y != previous.y)){
+        geometry.putFloat(cmd.startPoint.x);
+        geometry.putFloat(cmd.startPoint.y);
+      }
+      for(int j = 0; j < cmd.countControlPoints(); j++){
+        geometry.putFloat(cmd.controlPoints[j].x);
+        geometry.putFloat(cmd.controlPoints[j].y);
+      }
+      geometry.putFloat(cmd.endPoint.x);
+      geometry.putFloat(cmd.endPoint.y);
+      previous = cmd.endPoint;
+    }
+  }
+
+  private RShape readNode(int node){
+    RShape shp = new RShape();
+    shp.name = getString(nodeInt(node, 0));
+    shp.setStyle(getStyle(nodeInt(node, 1)));
+
+    int numPaths = nodeInt(node, 2);
+    if(numPaths > 0){
+      int pos = geometryOffset + nodeInt(node, 3);
+      shp.paths = new RPath[numPaths];
+      for(int i = 0; i < numPaths; i++){
+        RPath path = new RPath();
+        path.setStyle(getStyle(buffer.getInt(pos)));
+        pos = readPath(pos + 4, path);
+        shp.paths[i] = path;
+      }
+      shp.currentPath = numPaths - 1;
+    }
+
+    int numChildren = nodeInt(node, 4);
+    if(numChildren > 0){
+      int first = nodeInt(node, 5);
+      RShape[] shps = new RShape[numChildren];
+      for(int i = 0; i < numChildren; i++){
+        shps[i] = readNode(first + i);
+      }
+      shp.setChildren(shps);
+    }
+
+    shp.width = nodeFloat(node, 6);
+    shp.height = nodeFloat(node, 7);
+    shp.origWidth = nodeFloat(node, 8);
+    shp.origHeight = nodeFloat(node, 9);
+    return shp;
+  }
+
+  /* Read a path and return the position following it */
+  private int readPath(int pos, RPath path){
+    int numCommands = buffer.getInt(pos);
+    path.closed = buffer.getInt(pos + 4) != 0;
+    int typesPos = pos + 8;
+    pos = (typesPos + numCommands + 3) & ~3;
+
+    RPoint last = new RPoint(buffer.getFloat(pos), buffer.getFloat(pos + 4));
+    pos += 8;
+    path.lastPoint = last;
+    if(numCommands == 0){
+      return pos;
+    }
+
+    path.commands = new RCommand[numCommands];
+    for(int i = 0; i < numCommands; i++){
+      int type = buffer.get(typesPos + i) & 0xff;
+
+      RCommand cmd = new RCommand();
+      if(i > 0 && (type & EXPLICIT_START) != 0){
+        cmd.startPoint = new RPoint(buffer.getFloat(pos), buffer.getFloat(pos + 4));
+        pos += 8;
+      }else{
+        cmd.startPoint = last;
+      }
+      type &= ~EXPLICIT_START;
+      if(type < 0 || type >= NUM_CONTROL_POINTS.length){
+        throw new RuntimeException("The file of shapes has an unknown command type " + type + ".");
+      }
+
+      cmd.commandType = type;
+      int numControlPoints = NUM_CONTROL_POINTS[type];
+      if(numControlPoints > 0){
+        cmd.controlPoints = new RPoint[numControlPoints];
+        for(int j = 0; j < numControlPoints; j++){
+          cmd.controlPoints[j] = new RPoint(buffer.getFloat(pos), buffer.getFloat(pos + 4));
+          pos += 8;
+        }
+      }
+
+      cmd.endPoint = new RPoint(buffer.getFloat(pos), buffer.getFloat(pos + 4));
+      pos += 8;
+      last = cmd.endPoint;
+      path.commands[i] = cmd;
+    }
+
+    path.lastPoint = last;
+    return pos;
+  }
+
+  private int childNode(int i){
+    if(i < 0 || i >= countChildren()){
+      throw new RuntimeException("The index " + i + " of the child is out of bounds.");
+    }
+    return nodeInt(0, 5) + i;
+  }
+
+  private int nodeInt(int node, int field){
+    return buffer.getInt(nodesOffset + node * NODE_SIZE + 4 * field);
+  }
+
+  private float nodeFloat(int node, int field){
+    return buffer.getFloat(nodesOffset + node * NODE_SIZE + 4 * field);
+  }
+
+  private String getString(int index){
+    if(index < 0){
+      return null;
+    }
+
+    if(strings[index] == null){
+      int pos = buffer.getInt(stringsOffset + 4 * index);
+      byte[] bytes = new byte[buffer.getInt(pos)];
+      for(int i = 0; i < bytes.length; i++){
+        bytes[i] = buffer.get(pos + 4 + i);
+      }
+      try{
+        strings[index] = new String(bytes, "UTF-8");
+      }catch(UnsupportedEncodingException e){
+        throw new RuntimeException(e.getMessage());
+      }
+    }
+    return strings[index];
+  }
+
+  /* Get a style, shared by all the shapes and paths that have it */
+  private RStyle getStyle(int index){
+    if(styles[index] == null){
+      int pos = stylesOffset + STYLE_SIZE * index;
+      int[] record = new int[STYLE_SIZE / 4];
+      for(int i = 0; i < record.length; i++){
+        record[i] = buffer.getInt(pos + 4 * i);
+      }
+
+      RStyle style = new RStyle(record);
+      style.shared = true;
+      styles[index] = style;
+    }
+    return styles[index];
+  }
+
+  private static int intern(String name, ArrayList<String> strings, HashMap<String, Integer> indexes){
+    if(name == null){
+      return -1;
+    }
+
+    Integer index = indexes.get(name);
+    if(index == null){
+      index = Integer.valueOf(strings.size());
+      strings.add(name);
+      indexes.put(name, index);
+    }
+    return index.intValue();
+  }
+
+  private static int intern(RStyle style, ArrayList<int[]> styles, HashMap<IntBuffer, Integer> indexes){
+    int[] record = style.toRecord();
+    IntBuffer key = IntBuffer.wrap(record);
+
+    Integer index = indexes.get(key);
+    if(index == null){
+      index = Integer.valueOf(styles.size());
+      styles.add(record);
+      indexes.put(key, index);
+    }
+    return index.intValue();
+  }
+
+  private static byte[] utf8(String str){
+    try{
+      return str.getBytes("UTF-8");
+    }catch(UnsupportedEncodingException e){
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  private static ByteBuffer map(String filename){
+    RandomAccessFile file = null;
+    try{
+      file = new RandomAccessFile(filename, "r");
+      FileChannel channel = file.getChannel();
+
+      // The mapping stays valid after the file is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }catch(IOException e){
+      throw new RuntimeException("Could not open the file of shapes " + filename + ": " + e.getMessage());
+    }finally{
+      if(file != null){
+        try{
+          file.close();
+        }catch(IOException e){
+        }
+      }
+    }
+  }
+
+  /* A growable little endian buffer */
+  private static final class Buffer {
+    byte[] data;
+    int size = 0;
+
+    Buffer(int capacity){
+      data = new byte[Math.max(16, capacity)];
+    }
+
+    void ensure(int n){
+      if(size + n > data.length){
+        byte[] newdata = new byte[Math.max(data.length * 2, size + n)];
+        System.arraycopy(data, 0, newdata, 0, size);
+        data = newdata;
+      }
+    }
+
+    void putByte(int v){
+      ensure(1);
+      data[size++] = (byte)v;
+    }
+
+    void putInt(int v){
+      ensure(4);
+      data[size++] = (byte)v;
+      data[size++] = (byte)(v >>> 8);
+      data[size++] = (byte)(v >>> 16);
+      data[size++] = (byte)(v >>> 24);
+    }
+
+    void putFloat(float v){
+      putInt(Float.floatToIntBits(v));
+    }
+
+    void putBytes(byte[] bytes){
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, data, size, bytes.length);
+      size += bytes.length;
+    }
+
+    /* Pad with zeros to a multiple of four bytes */
+    void align(){
+      while((size & 3) != 0){
+        putByte(0);
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Index of the names of the shapes of a tree, used by RShape to look up its children by name without going through the whole tree.  The shapes drop the index of their tree when children are added to them or removed, or when they are renamed.
+ * @invisible
+ */
+class RShapeIndex
+{
+  private static final int[] NONE = new int[0];
+
+  /* The named shapes of the tree, in document order */
+  private final RShape[] shapes;
+
+  /* The positions in shapes of the shapes with each name */
+  private final HashMap<String, int[]> positions = new HashMap<String, int[]>();
+
+  /* The names, sorted, to find the names starting with a prefix */
+  private final String[] names;
+
+  RShapeIndex(RShape root){
+    ArrayList<RShape> named = new ArrayList<RShape>();
+    collect(root, named);
+    shapes = named.toArray(new RShape[named.size()]);
+
+    for(int i = 0; i < shapes.length; i++){
+      int[] pos = positions.get(shapes[i].name);
+      if(pos == null){
+        positions.put(shapes[i].name, new int[] {i});
+      }else{
+        int[] newpos = new int[pos.length + 1];
+        System.arraycopy(pos, 0, newpos, 0, pos.length);
+        newpos[pos.length] = i;
+        positions.put(shapes[i].name, newpos);
+      }
+    }
+
+    names = positions.keySet().toArray(new String[positions.size()]);
+    Arrays.sort(names);
+  }
+
+  /* The first shape with a name when the index was built, or null */
+  RShape get(String name){
+    int[] pos = positions.get(name);
+    return (pos == null) ? null : shapes[pos[0]];
+  }
+
+  /* All the shapes with names matching a pattern, in document order, or null if some of them have been renamed */
+  RShape[] find(String pattern){
+    int wildcard = firstWildcard(pattern);
+    if(wildcard < 0){
+      return check(pattern, positions.containsKey(pattern) ? positions.get(pattern) : NONE);
+    }
+
+    // Only the names starting with the part of the pattern before the first wildcard can match
+    String prefix = pattern.substring(0, wildcard);
+    int first = Arrays.binarySearch(names, prefix);
+    if(first < 0){
+      first = -first - 1;
+    }
+
+    int[] found = new int[16];
+    int numFound = 0;
+    for(int i = first; i < names.length && names[i].startsWith(prefix); i++){
+      if(!matches(pattern, wildcard, names[i], wildcard)){
+        continue;
+      }
+
+      int[] pos = positions.get(names[i]);
+      if(numFound + pos.length > found.length){
+        int[] newfound = new int[Math.max(found.length * 2, numFound + pos.length)];
+        System.arraycopy(found, 0, newfound, 0, numFound);
+        found = newfound;
+      }
+      System.arraycopy(pos, 0, found, numFound, pos.length);
+      numFound += pos.length;
+    }
+
+    int[] result = new int[numFound];
+    System.arraycopy(found, 0, result, 0, numFound);
+    Arrays.sort(result);
+
+    RShape[] shps = new RShape[numFound];
+    for(int i = 0; i < numFound; i++){
+      shps[i] = shapes[result[i]];
+      if(!matches(pattern, 0, shps[i].name, 0)){
+        return null;
+      }
+    }
+    return shps;
+  }
+
+  private RShape[] check(String name, int[] pos){
+    RShape[] shps = new RShape[pos.length];
+    for(int i = 0; i < pos.length; i++){
+      shps[i] = shapes[pos[i]];
+      if(!name.equals(shps[i].name)){
+        return null;
+      }
+    }
+    return shps;
+  }
+
+  private static void collect(RShape shp, ArrayList<RShape> named){
+    if(shp.name != null && shp.name.length() > 0){
+      named.add(shp);
+    }
+
+    if(shp.children != null){
+      for(int i = 0; i < shp.children.length; i++){
+        collect(shp.children[i], named);
+      }
+    }
+  }
+
+  private static int firstWildcard(String pattern){
+    for(int i = 0; i < pattern.length(); i++){
+      char c = pattern.charAt(i);
+      if(c == '*' || c == '?'){
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /* Match a name against a pattern where '*' stands for any sequence of characters and '?' for any single character */
+  static boolean matches(String pattern, int p, String name, int n){
+    if(name == null){
+      return false;
+    }
+
+    int star = -1;
+    int starName = 0;
+    while(n < name.length()){
+      if(p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))){
+        p++;
+        n++;
+      }else if(p < pattern.length() && pattern.charAt(p) == '*'){
+        star = p++;
+        starName = n;
+      }else if(star >= 0){
+        // Let the last star take one more character
+        p = star + 1;
+        n = ++starName;
+      }else{
+        return false;
+      }
+    }
+
+    while(p < pattern.length() && pattern.charAt(p) == '*'){
+      p++;
+    }
+    return p == pattern.length();
+  }
+}
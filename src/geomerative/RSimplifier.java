@@ -0,0 +1,647 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * RSimplifier reduces the number of vertices of polylines while keeping their shape within a given tolerance.  It works on flat buffers of interleaved coordinates (x0, y0, x1, y1, ...) so that long polylines can be simplified without creating any RPoint.  Closed polylines never collapse to less than a triangle.
+ * @eexample RSimplifier
+ * @usage Geometry
+ * @related RPath
+ * @related RShape
+ * @related RPolygon
+ * @extended
+ */
+public class RSimplifier
+{
+  /**
+   * DOUGLASPEUCKER simplifier keeps the vertices that are further than the tolerance from the simplified polyline.
+   */
+  public static final int DOUGLASPEUCKER = 0;
+
+  /**
+   * VISVALINGAM simplifier removes iteratively the vertices that form the triangle with the smallest area, until all the triangles have an area bigger than the square of the tolerance.
+   */
+  public static final int VISVALINGAM = 1;
+
+  static int simplifierType = DOUGLASPEUCKER;
+
+  /* Minimum number of polylines to simplify them in parallel */
+  static final int PARALLEL_THRESHOLD = 64;
+
+  /**
+   * Use this to set the simplifier type.
+   * @eexample setSimplifier
+   * @param simplifierMethod  can be DOUGLASPEUCKER or VISVALINGAM
+   */
+  public static void setSimplifier(int simplifierMethod){
+    if(simplifierMethod != DOUGLASPEUCKER && simplifierMethod != VISVALINGAM){
+      throw new RuntimeException("The simplifier must be DOUGLASPEUCKER or VISVALINGAM.");
+    }
+
+    simplifierType = simplifierMethod;
+  }
+
+  /**
+   * Use this to simplify a polyline stored in a buffer of interleaved coordinates.  The buffer is compacted in place and the kept points are moved to the beginning of the buffer.
+   * @eexample simplify
+   * @param xy  the buffer of coordinates (x0, y0, x1, y1, ...)
+   * @param numPoints  the number of points in the buffer
+   * @param tolerance  the maximum distance allowed between the original and the simplified polyline
+   * @param closed  whether the polyline is a closed contour
+   * @return int, the number of points kept in the buffer
+   */
+  public static int simplify(float[] xy, int numPoints, float tolerance, boolean closed){
+    return simplify(xy, numPoints, tolerance, closed, simplifierType);
+  }
+
+  /**
+   * Use this to simplify a polyline stored in a buffer of interleaved coordinates using a given simplifier.
+   * @param xy  the buffer of coordinates (x0, y0, x1, y1, ...)
+   * @param numPoints  the number of points in the buffer
+   * @param tolerance  the maximum distance allowed between the original and the simplified polyline
+   * @param closed  whether the polyline is a closed contour
+   * @param simplifierMethod  can be DOUGLASPEUCKER or VISVALINGAM
+   * @return int, the number of points kept in the buffer
+   */
+  public static int simplify(float[] xy, int numPoints, float tolerance, boolean closed, int simplifierMethod){
+    if(numPoints <= (closed ? 3 : 2) || tolerance <= 0F){
+      return numPoints;
+    }
+
+    boolean[] keep = new boolean[numPoints];
+    switch(simplifierMethod){
+    case VISVALINGAM:
+      visvalingam(xy, numPoints, tolerance * tolerance, closed, keep);
+      break;
+
+    default:
+      douglasPeucker(xy, numPoints, tolerance * tolerance, closed, keep);
+      break;
+    }
+
+    return compact(xy, numPoints, keep);
+  }
+
+  /**
+   * Use this to simplify an array of points.
+   * @param points  the points of the polyline
+   * @param tolerance  the maximum distance allowed between the original and the simplified polyline
+   * @param closed  whether the polyline is a closed contour
+   * @return RPoint[], the kept points
+   */
+  public static RPoint[] simplify(RPoint[] points, float tolerance, boolean closed){
+    if(points == null){
+      return null;
+    }
+
+    float[] xy = toBuffer(points);
+    int n = simplify(xy, points.length, tolerance, closed);
+    return toPoints(xy, n);
+  }
+
+  /**
+   * Simplify many polylines at once.  The numPoints array is updated with the number of points kept in each buffer.  The borders shared by several polylines are split at the vertices where they meet other polylines and each piece is simplified the same way in all of them, so that neighbouring polylines stay joined.  When there are many polylines the work is spread over the available processors.
+   * @invisible
+   */
+  static void simplify(final float[][] xys, final int[] numPoints, final boolean[] closed, final float tolerance){
+    final int method = simplifierType;
+    final boolean[][] pinned = findJunctions(xys, numPoints, closed);
+    int numThreads = RThreadPool.size();
+
+    if(numThreads < 2 || xys.length < PARALLEL_THRESHOLD){
+      for(int i = 0; i < xys.length; i++){
+        numPoints[i] = simplify(xys[i], numPoints[i], tolerance, closed[i], method, pinned[i]);
+      }
+      return;
+    }
+
+    ExecutorService executor = RThreadPool.get();
+    List<Future<?>> results = new ArrayList<Future<?>>();
+    try{
+      int chunk = (xys.length + numThreads - 1) / numThreads;
+      for(int start = 0; start < xys.length; start += chunk){
+        final int from = start;
+        final int to = Math.min(xys.length, start + chunk);
+        results.add(executor.submit(new Runnable(){
+            public void run(){
+              for(int i = from; i < to; i++){
+                numPoints[i] = simplify(xys[i], numPoints[i], tolerance, closed[i], method, pinned[i]);
+              }
+            }
+          }));
+      }
+
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).get();
+      }
+    }catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The simplification was interrupted.");
+    }catch(ExecutionException e){
+      throw new RuntimeException("The simplification failed: " + e.getCause());
+    }finally{
+      // The shared threads are kept, only the work left is dropped
+      for(int i = 0; i < results.size(); i++){
+        results.get(i).cancel(true);
+      }
+    }
+  }
+
+  /* Simplify a polyline keeping the pinned vertices, each piece between two of them is simplified on its own */
+  private static int simplify(float[] xy, int numPoints, float tolerance, boolean closed, int simplifierMethod, boolean[] pins){
+    if(pins == null){
+      return simplify(xy, numPoints, tolerance, closed, simplifierMethod);
+    }
+    if(numPoints <= (closed ? 3 : 2) || tolerance <= 0F){
+      return numPoints;
+    }
+
+    int m = ringLength(xy, numPoints, closed);
+    if(!closed){
+      pins[0] = true;
+      pins[m - 1] = true;
+    }
+
+    int first = 0;
+    while(!pins[first]){
+      first++;
+    }
+
+    boolean[] keep = new boolean[numPoints];
+    float[] chain = new float[2 * (m + 1)];
+    boolean[] chainKeep = new boolean[m + 1];
+    int start = first;
+    do{
+      int end = start;
+      int len = 1;
+      do{
+        end = closed ? (end + 1) % m : end + 1;
+        len++;
+      }while(!pins[end]);
+
+      simplifyChain(xy, m, start, len, tolerance * tolerance, simplifierMethod, keep, chain, chainKeep);
+      start = end;
+    }while(closed ? start != first : start != m - 1);
+
+    if(m < numPoints){
+      keep[numPoints - 1] = keep[0];
+    }
+    if(closed){
+      ensureTriangle(xy, numPoints, keep);
+    }
+
+    if(m == numPoints){
+      return compact(xy, numPoints, keep);
+    }
+
+    // The first point may be gone, start the ring at its first pinned vertex, which is always kept, and close it with a copy of it
+    float[] ring = new float[2 * numPoints];
+    int n = 0;
+    for(int k = 0; k < m; k++){
+      int i = (first + k) % m;
+      if(keep[i]){
+        ring[2*n] = xy[2*i];
+        ring[2*n+1] = xy[2*i+1];
+        n++;
+      }
+    }
+    ring[2*n] = ring[0];
+    ring[2*n+1] = ring[1];
+    n++;
+    System.arraycopy(ring, 0, xy, 0, 2 * n);
+    return n;
+  }
+
+  /* Simplify the len points of a ring of m points starting at start, always in the same direction whichever polyline they come from */
+  private static void simplifyChain(float[] xy, int m, int start, int len, float tolSqr, int simplifierMethod, boolean[] keep, float[] chain, boolean[] chainKeep){
+    int last = (start + len - 1) % m;
+    boolean reversed = compare(xy, start, last) > 0;
+    for(int k = 0; k < len; k++){
+      int ind = (start + (reversed ? len - 1 - k : k)) % m;
+      chain[2*k] = xy[2*ind];
+      chain[2*k+1] = xy[2*ind+1];
+      chainKeep[k] = (len <= 2);
+    }
+
+    if(len > 2){
+      if(simplifierMethod == VISVALINGAM){
+        visvalingam(chain, len, tolSqr, false, chainKeep);
+      }else{
+        douglasPeucker(chain, len, tolSqr, false, chainKeep);
+      }
+    }
+
+    for(int k = 0; k < len; k++){
+      if(chainKeep[k]){
+        keep[(start + (reversed ? len - 1 - k : k)) % m] = true;
+      }
+    }
+  }
+
+  /* Find the vertices where the borders shared by several polylines begin and end, null for the polylines without any */
+  private static boolean[][] findJunctions(float[][] xys, int[] numPoints, boolean[] closed){
+    boolean[][] result = new boolean[xys.length][];
+
+    // For each vertex, the number of polylines going through it, the last of them and whether it is a junction
+    HashMap<Long, int[]> vertices = new HashMap<Long, int[]>();
+    boolean shared = false;
+    for(int i = 0; i < xys.length; i++){
+      int m = ringLength(xys[i], numPoints[i], closed[i]);
+      for(int k = 0; k < m; k++){
+        Long key = vertexKey(xys[i], k);
+        int[] v = vertices.get(key);
+        if(v == null){
+          vertices.put(key, new int[]{1, i, 0});
+        }else if(v[1] != i){
+          v[0]++;
+          v[1] = i;
+          shared = true;
+        }
+      }
+    }
+    if(!shared){
+      return result;
+    }
+
+    // A shared vertex is a junction where the polylines going through it change
+    int[][] counts = new int[xys.length][];
+    for(int i = 0; i < xys.length; i++){
+      int m = ringLength(xys[i], numPoints[i], closed[i]);
+      int[][] v = new int[m][];
+      counts[i] = new int[m];
+      for(int k = 0; k < m; k++){
+        v[k] = vertices.get(vertexKey(xys[i], k));
+        counts[i][k] = v[k][0];
+      }
+
+      boolean sharedRing = m > 0;
+      boolean junctions = false;
+      for(int k = 0; k < m; k++){
+        int c = counts[i][k];
+        if(c < 2){
+          sharedRing = false;
+          continue;
+        }
+
+        int prev = closed[i] ? (k + m - 1) % m : k - 1;
+        int next = closed[i] ? (k + 1) % m : k + 1;
+        if(prev < 0 || next >= m || counts[i][prev] != c || counts[i][next] != c){
+          v[k][2] = 1;
+          junctions = true;
+        }
+      }
+
+      // A ring lying entirely on other polylines is split at its smallest and largest vertices
+      if(closed[i] && sharedRing && !junctions){
+        int min = 0;
+        int max = 0;
+        for(int k = 1; k < m; k++){
+          if(compare(xys[i], k, min) < 0) min = k;
+          if(compare(xys[i], k, max) > 0) max = k;
+        }
+        v[min][2] = 1;
+        v[max][2] = 1;
+      }
+    }
+
+    for(int i = 0; i < xys.length; i++){
+      int m = counts[i].length;
+      for(int k = 0; k < m; k++){
+        if(counts[i][k] > 1 && vertices.get(vertexKey(xys[i], k))[2] == 1){
+          if(result[i] == null){
+            result[i] = new boolean[m];
+          }
+          result[i][k] = true;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /* The number of distinct points of a polyline, without the repeated first point closing a contour */
+  private static int ringLength(float[] xy, int numPoints, boolean closed){
+    if(closed && numPoints > 1 && xy[0] == xy[2*numPoints-2] && xy[1] == xy[2*numPoints-1]){
+      return numPoints - 1;
+    }
+    return numPoints;
+  }
+
+  private static Long vertexKey(float[] xy, int i){
+    // Adding zero turns -0 into 0, so that both give the same key
+    long x = Float.floatToIntBits(xy[2*i] + 0F);
+    long y = Float.floatToIntBits(xy[2*i+1] + 0F);
+    return Long.valueOf((x << 32) | (y & 0xffffffffL));
+  }
+
+  private static int compare(float[] xy, int a, int b){
+    if(xy[2*a] != xy[2*b]){
+      return (xy[2*a] < xy[2*b]) ? -1 : 1;
+    }
+    if(xy[2*a+1] != xy[2*b+1]){
+      return (xy[2*a+1] < xy[2*b+1]) ? -1 : 1;
+    }
+    return 0;
+  }
+
+  /* Move the kept points to the beginning of the buffer */
+  private static int compact(float[] xy, int numPoints, boolean[] keep){
+    int n = 0;
+    for(int i = 0; i < numPoints; i++){
+      if(keep[i]){
+        xy[2*n] = xy[2*i];
+        xy[2*n+1] = xy[2*i+1];
+        n++;
+      }
+    }
+    return n;
+  }
+
+  static float[] toBuffer(RPoint[] points){
+    float[] xy = new float[points.length * 2];
+    for(int i = 0; i < points.length; i++){
+      xy[2*i] = points[i].x;
+      xy[2*i+1] = points[i].y;
+    }
+    return xy;
+  }
+
+  static RPoint[] toPoints(float[] xy, int numPoints){
+    RPoint[] result = new RPoint[numPoints];
+    for(int i = 0; i < numPoints; i++){
+      result[i] = new RPoint(xy[2*i], xy[2*i+1]);
+    }
+    return result;
+  }
+
+  private static void douglasPeucker(float[] xy, int numPoints, float tolSqr, boolean closed, boolean[] keep){
+    int last = numPoints - 1;
+    keep[0] = true;
+    keep[last] = true;
+
+    int[] stack = new int[2 * numPoints];
+    int top = 0;
+
+    if(closed){
+      // Anchor the contour on the point furthest from the first one
+      int far = furthestFrom(xy, 0, numPoints);
+      keep[far] = true;
+      stack[top++] = 0; stack[top++] = far;
+      stack[top++] = far; stack[top++] = last;
+    }else{
+      stack[top++] = 0; stack[top++] = last;
+    }
+
+    while(top > 0){
+      int end = stack[--top];
+      int start = stack[--top];
+
+      float maxDist = tolSqr;
+      int ind = -1;
+      for(int i = start + 1; i < end; i++){
+        float d = segmentDistSqr(xy, i, start, end);
+        if(d > maxDist){
+          maxDist = d;
+          ind = i;
+        }
+      }
+
+      if(ind != -1){
+        keep[ind] = true;
+        stack[top++] = start; stack[top++] = ind;
+        stack[top++] = ind; stack[top++] = end;
+      }
+    }
+
+    if(closed){
+      ensureTriangle(xy, numPoints, keep);
+    }
+  }
+
+  private static void visvalingam(float[] xy, int numPoints, float minArea, boolean closed, boolean[] keep){
+    int[] prev = new int[numPoints];
+    int[] next = new int[numPoints];
+    float[] area = new float[numPoints];
+
+    // Binary min-heap of the point indices, ordered by area
+    int[] heap = new int[numPoints];
+    int[] heapPos = new int[numPoints];
+    int heapSize = 0;
+
+    for(int i = 0; i < numPoints; i++){
+      keep[i] = true;
+      prev[i] = i - 1;
+      next[i] = i + 1;
+    }
+
+    for(int i = 1; i < numPoints - 1; i++){
+      area[i] = triangleArea(xy, i - 1, i, i + 1);
+      heap[heapSize] = i;
+      heapPos[i] = heapSize;
+      heapSize++;
+      siftUp(heap, heapPos, area, heapSize - 1);
+    }
+
+    int remaining = numPoints;
+    int minRemaining = closed ? 4 : 2;
+    float lastArea = 0F;
+    while(heapSize > 0 && remaining > minRemaining){
+      int i = heap[0];
+      if(area[i] >= minArea){
+        break;
+      }
+
+      // Remove the top of the heap
+      heapSize--;
+      heap[0] = heap[heapSize];
+      heapPos[heap[0]] = 0;
+      siftDown(heap, heapPos, area, heapSize, 0);
+      heapPos[i] = -1;
+
+      // Never let a neighbour's area be smaller than the removed one,
+      // so that points are removed in order of significance
+      lastArea = Math.max(lastArea, area[i]);
+
+      keep[i] = false;
+      remaining--;
+
+      int p = prev[i];
+      int n = next[i];
+      next[p] = n;
+      prev[n] = p;
+
+      if(p > 0){
+        area[p] = Math.max(lastArea, triangleArea(xy, prev[p], p, n));
+        updateHeap(heap, heapPos, area, heapSize, p);
+      }
+      if(n < numPoints - 1){
+        area[n] = Math.max(lastArea, triangleArea(xy, p, n, next[n]));
+        updateHeap(heap, heapPos, area, heapSize, n);
+      }
+    }
+
+    if(closed){
+      ensureTriangle(xy, numPoints, keep);
+    }
+  }
+
+  private static void updateHeap(int[] heap, int[] heapPos, float[] area, int heapSize, int i){
+    int pos = heapPos[i];
+    if(pos < 0){
+      return;
+    }
+    siftUp(heap, heapPos, area, pos);
+    siftDown(heap, heapPos, area, heapSize, heapPos[i]);
+  }
+
+  private static void siftUp(int[] heap, int[] heapPos, float[] area, int pos){
+    int i = heap[pos];
+    while(pos > 0){
+      int parent = (pos - 1) / 2;
+      if(area[heap[parent]] <= area[i]){
+        break;
+      }
+      heap[pos] = heap[parent];
+      heapPos[heap[pos]] = pos;
+      pos = parent;
+    }
+    heap[pos] = i;
+    heapPos[i] = pos;
+  }
+
+  private static void siftDown(int[] heap, int[] heapPos, float[] area, int heapSize, int pos){
+    if(heapSize == 0){
+      return;
+    }
+    int i = heap[pos];
+    while(true){
+      int child = 2 * pos + 1;
+      if(child >= heapSize){
+        break;
+      }
+      if(child + 1 < heapSize && area[heap[child + 1]] < area[heap[child]]){
+        child++;
+      }
+      if(area[i] <= area[heap[child]]){
+        break;
+      }
+      heap[pos] = heap[child];
+      heapPos[heap[pos]] = pos;
+      pos = child;
+    }
+    heap[pos] = i;
+    heapPos[i] = pos;
+  }
+
+  /* Make sure a closed contour keeps at least three distinct vertices */
+  private static void ensureTriangle(float[] xy, int numPoints, boolean[] keep){
+    int last = numPoints - 1;
+    boolean repeated = (xy[0] == xy[2*last] && xy[1] == xy[2*last+1]);
+
+    int count = 0;
+    for(int i = 0; i < numPoints; i++){
+      if(keep[i]) count++;
+    }
+    if(repeated) count--;
+    if(count >= 3){
+      return;
+    }
+
+    int far = furthestFrom(xy, 0, numPoints);
+    keep[far] = true;
+
+    float maxDist = -1F;
+    int ind = -1;
+    for(int i = 1; i < numPoints; i++){
+      if(keep[i]) continue;
+      float d = lineDistSqr(xy, i, 0, far);
+      if(d > maxDist){
+        maxDist = d;
+        ind = i;
+      }
+    }
+    if(ind != -1){
+      keep[ind] = true;
+    }
+  }
+
+  private static int furthestFrom(float[] xy, int ind, int numPoints){
+    float maxDist = -1F;
+    int far = ind;
+    for(int i = 0; i < numPoints; i++){
+      float dx = xy[2*i] - xy[2*ind];
+      float dy = xy[2*i+1] - xy[2*ind+1];
+      float d = dx*dx + dy*dy;
+      if(d > maxDist){
+        maxDist = d;
+        far = i;
+      }
+    }
+    return far;
+  }
+
+  /* Squared distance from point i to the segment going from point a to point b */
+  private static float segmentDistSqr(float[] xy, int i, int a, int b){
+    float ax = xy[2*a], ay = xy[2*a+1];
+    float dx = xy[2*b] - ax, dy = xy[2*b+1] - ay;
+    float px = xy[2*i] - ax, py = xy[2*i+1] - ay;
+
+    float lenSqr = dx*dx + dy*dy;
+    if(lenSqr > 0F){
+      float t = (px*dx + py*dy) / lenSqr;
+      if(t > 1F){
+        px -= dx;
+        py -= dy;
+      }else if(t > 0F){
+        px -= t*dx;
+        py -= t*dy;
+      }
+    }
+
+    return px*px + py*py;
+  }
+
+  /* Squared distance from point i to the line going through points a and b */
+  private static float lineDistSqr(float[] xy, int i, int a, int b){
+    float ax = xy[2*a], ay = xy[2*a+1];
+    float dx = xy[2*b] - ax, dy = xy[2*b+1] - ay;
+    float px = xy[2*i] - ax, py = xy[2*i+1] - ay;
+
+    float lenSqr = dx*dx + dy*dy;
+    if(lenSqr == 0F){
+      return px*px + py*py;
+    }
+
+    float cross = px*dy - py*dx;
+    return cross*cross / lenSqr;
+  }
+
+  private static float triangleArea(float[] xy, int a, int b, int c){
+    float ax = xy[2*a], ay = xy[2*a+1];
+    return Math.abs((xy[2*b] - ax) * (xy[2*c+1] - ay) - (xy[2*c] - ax) * (xy[2*b+1] - ay)) * 0.5F;
+  }
+}
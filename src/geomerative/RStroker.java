@@ -0,0 +1,268 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package geomerative ;
+
+/**
+ * RStroker converts the outline of a polyline into a triangle strip, taking into account the width, the joins and the caps of the stroke.  All the pieces of the stroke are stitched together with degenerate triangles so that the whole outline can be drawn in one strip.
+ */
+class RStroker
+{
+  /* Same default as SVG, ratio between the miter length and the stroke width */
+  static final float MITER_LIMIT = 4F;
+
+  /* Maximum distance between a round join or cap and its approximation */
+  static final float ROUND_TOLERANCE = 0.25F;
+
+  static final float EPSILON = 1.192092896e-07F;
+
+  private float[] buffer = new float[64];
+  private int numVertices = 0;
+  private boolean newPiece = false;
+
+  private float halfWeight;
+  private float angleStep;
+
+  /**
+   * Stroke a polyline.
+   * @param points  the points of the polyline
+   * @param closed  whether the polyline is closed, closed polylines have joins at every vertex and no caps
+   * @param weight  the width of the stroke
+   * @param cap  RG.SQUARE, RG.PROJECT or RG.ROUND
+   * @param join  RG.MITER, RG.BEVEL or RG.ROUND
+   * @return RStrip, the triangle strip covering the stroke or null if the polyline has no length
+   */
+  static RStrip strokePolyline(RPoint[] points, boolean closed, float weight, int cap, int join){
+    if(points == null || weight <= 0F){
+      return null;
+    }
+
+    // Remove the consecutive repeated points
+    float[] xy = new float[points.length * 2];
+    int n = 0;
+    for(int i = 0; i < points.length; i++){
+      if(n > 0 && points[i].x == xy[2*n-2] && points[i].y == xy[2*n-1]){
+        continue;
+      }
+      xy[2*n] = points[i].x;
+      xy[2*n+1] = points[i].y;
+      n++;
+    }
+
+    if(closed && n > 1 && xy[0] == xy[2*n-2] && xy[1] == xy[2*n-1]){
+      n--;
+    }
+
+    if(n < 2){
+      return null;
+    }
+
+    if(n == 2){
+      closed = false;
+    }
+
+    RStroker stroker = new RStroker(weight);
+    stroker.stroke(xy, n, closed, cap, join);
+    return stroker.toStrip();
+  }
+
+  private RStroker(float weight){
+    halfWeight = weight / 2F;
+
+    // Angle between the segments of round joins and caps, so that they deviate less than the tolerance
+    float cos = 1F - ROUND_TOLERANCE / (halfWeight * RCommand.segmentApproxScale);
+    angleStep = (cos <= 0F) ? (float)(Math.PI / 2.0) : 2F * (float)Math.acos(cos);
+    angleStep = Math.max(angleStep, (float)(Math.PI / 64.0));
+  }
+
+  private void stroke(float[] xy, int n, boolean closed, int cap, int join){
+    int numSegments = closed ? n : n - 1;
+
+    // Bodies of the segments
+    for(int s = 0; s < numSegments; s++){
+      int a = s;
+      int b = (s + 1) % n;
+      float nx = -(xy[2*b+1] - xy[2*a+1]);
+      float ny = xy[2*b] - xy[2*a];
+      float len = (float)Math.sqrt(nx*nx + ny*ny);
+      nx *= halfWeight / len;
+      ny *= halfWeight / len;
+
+      beginPiece();
+      addVertex(xy[2*a] + nx, xy[2*a+1] + ny);
+      addVertex(xy[2*a] - nx, xy[2*a+1] - ny);
+      addVertex(xy[2*b] + nx, xy[2*b+1] + ny);
+      addVertex(xy[2*b] - nx, xy[2*b+1] - ny);
+    }
+
+    // Joins between the segments
+    int first = closed ? 0 : 1;
+    int last = closed ? n - 1 : n - 2;
+    for(int i = first; i <= last; i++){
+      int prev = (i + n - 1) % n;
+      int next = (i + 1) % n;
+      addJoin(xy[2*prev], xy[2*prev+1], xy[2*i], xy[2*i+1], xy[2*next], xy[2*next+1], join);
+    }
+
+    // Caps at the ends
+    if(!closed){
+      addCap(xy[2], xy[3], xy[0], xy[1], cap);
+      addCap(xy[2*n-4], xy[2*n-3], xy[2*n-2], xy[2*n-1], cap);
+    }
+  }
+
+  private void addJoin(float ax, float ay, float px, float py, float bx, float by, int join){
+    float d0x = px - ax, d0y = py - ay;
+    float d1x = bx - px, d1y = by - py;
+    float len0 = (float)Math.sqrt(d0x*d0x + d0y*d0y);
+    float len1 = (float)Math.sqrt(d1x*d1x + d1y*d1y);
+    d0x /= len0; d0y /= len0;
+    d1x /= len1; d1y /= len1;
+
+    float cross = d0x*d1y - d0y*d1x;
+    float dot = d0x*d1x + d0y*d1y;
+    if(Math.abs(cross) < EPSILON && dot > 0F){
+      // Collinear segments, the bodies already cover the join
+      return;
+    }
+
+    // Unit normals pointing to the outer side of the turn
+    float side = (cross > 0F) ? -1F : 1F;
+    float n0x = -d0y * side, n0y = d0x * side;
+    float n1x = -d1y * side, n1y = d1x * side;
+
+    float o0x = px + n0x * halfWeight, o0y = py + n0y * halfWeight;
+    float o1x = px + n1x * halfWeight, o1y = py + n1y * halfWeight;
+
+    if(join == RG.ROUND){
+      addArc(px, py, o0x, o0y, o1x, o1y);
+      return;
+    }
+
+    float normalsDot = n0x*n1x + n0y*n1y;
+    if(join == RG.MITER && 1F + normalsDot > EPSILON
+       && 2F / (1F + normalsDot) <= MITER_LIMIT * MITER_LIMIT){
+      float mx = px + (n0x + n1x) * halfWeight / (1F + normalsDot);
+      float my = py + (n0y + n1y) * halfWeight / (1F + normalsDot);
+
+      beginPiece();
+      addVertex(o0x, o0y);
+      addVertex(px, py);
+      addVertex(mx, my);
+      addVertex(o1x, o1y);
+      return;
+    }
+
+    // Bevel joins and miter joins over the limit
+    beginPiece();
+    addVertex(o0x, o0y);
+    addVertex(px, py);
+    addVertex(o1x, o1y);
+  }
+
+  private void addCap(float ax, float ay, float px, float py, int cap){
+    float dx = px - ax, dy = py - ay;
+    float len = (float)Math.sqrt(dx*dx + dy*dy);
+    dx *= halfWeight / len;
+    dy *= halfWeight / len;
+
+    // Normal of the segment
+    float nx = -dy, ny = dx;
+
+    if(cap == RG.PROJECT){
+      beginPiece();
+      addVertex(px + nx, py + ny);
+      addVertex(px - nx, py - ny);
+      addVertex(px + nx + dx, py + ny + dy);
+      addVertex(px - nx + dx, py - ny + dy);
+    }else if(cap == RG.ROUND){
+      addArc(px, py, px + nx, py + ny, px - nx, py - ny, px + dx, py + dy);
+    }
+  }
+
+  /* Fan around the center (cx, cy) going the short way from (x0, y0) to (x1, y1) */
+  private void addArc(float cx, float cy, float x0, float y0, float x1, float y1){
+    float a0 = (float)Math.atan2(y0 - cy, x0 - cx);
+    float a1 = (float)Math.atan2(y1 - cy, x1 - cx);
+    float sweep = a1 - a0;
+    if(sweep > Math.PI) sweep -= 2F * (float)Math.PI;
+    if(sweep < -Math.PI) sweep += 2F * (float)Math.PI;
+    addFan(cx, cy, a0, sweep);
+  }
+
+  /* Fan around the center (cx, cy) going from (x0, y0) to (x1, y1) through the point (xm, ym) */
+  private void addArc(float cx, float cy, float x0, float y0, float x1, float y1, float xm, float ym){
+    float a0 = (float)Math.atan2(y0 - cy, x0 - cx);
+    float am = (float)Math.atan2(ym - cy, xm - cx);
+    float sweep = am - a0;
+    if(sweep > Math.PI) sweep -= 2F * (float)Math.PI;
+    if(sweep < -Math.PI) sweep += 2F * (float)Math.PI;
+    addFan(cx, cy, a0, 2F * sweep);
+  }
+
+  private void addFan(float cx, float cy, float a0, float sweep){
+    int steps = Math.max(1, (int)Math.ceil(Math.abs(sweep) / angleStep));
+
+    // The center is repeated between the points of the arc, which gives a fan made of a strip
+    beginPiece();
+    for(int k = 0; k <= steps; k++){
+      float a = a0 + sweep * k / steps;
+      addVertex(cx + halfWeight * (float)Math.cos(a), cy + halfWeight * (float)Math.sin(a));
+      if(k < steps){
+        addVertex(cx, cy);
+      }
+    }
+  }
+
+  private void beginPiece(){
+    newPiece = (numVertices > 0);
+  }
+
+  private void addVertex(float x, float y){
+    if(newPiece){
+      // Stitch the pieces with degenerate triangles
+      newPiece = false;
+      addVertex(buffer[2*numVertices-2], buffer[2*numVertices-1]);
+      addVertex(x, y);
+    }
+
+    if(2*numVertices + 2 > buffer.length){
+      float[] newBuffer = new float[buffer.length * 2];
+      System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
+      buffer = newBuffer;
+    }
+
+    buffer[2*numVertices] = x;
+    buffer[2*numVertices+1] = y;
+    numVertices++;
+  }
+
+  private RStrip toStrip(){
+    if(numVertices == 0){
+      return null;
+    }
+
+    RStrip strip = new RStrip();
+    strip.vertices = new RPoint[numVertices];
+    for(int i = 0; i < numVertices; i++){
+      strip.vertices[i] = new RPoint(buffer[2*i], buffer[2*i+1]);
+    }
+    return strip;
+  }
+}
@@ -20,6 +20,9 @@
 package geomerative ;
 import processing.core.*;
 
+import java.nio.IntBuffer;
+import java.util.HashMap;
+
 /**
  * @extended
  */  
@@ -49,14 +52,28 @@ public class RStyle{
   public boolean strokeJoinDef = false;
   public int strokeJoin = RG.MITER;
 
-  private boolean oldFill = false;
-  private int oldFillColor = 0;
-  
-  private boolean oldStroke = false;
-  private int oldStrokeColor = 0;
-  private float oldStrokeWeight = 1F;
-  private int oldStrokeCap = RG.PROJECT;
-  private int oldStrokeJoin = RG.MITER;
+  /* Whether the style is shared by several elements, which copy it before changing it */
+  boolean shared = false;
+
+  /* The style of the elements that have not been given any, shared by all of them */
+  static final RStyle DEFAULT = new RStyle();
+  static {
+    DEFAULT.shared = true;
+  }
+
+  /**
+   * The state of a graphics object saved before drawing an element with its style, given back to restore it.  The styles of nested elements can be the same one, so the state is kept by the caller and not by the style.
+   * @invisible
+   */
+  public static final class Context {
+    boolean fill;
+    int fillColor;
+    boolean stroke;
+    int strokeColor;
+    float strokeWeight;
+    int strokeCap;
+    int strokeJoin;
+  }
 
   public RStyle(){}
 
@@ -85,6 +102,56 @@ public class RStyle{
     strokeJoin = p.strokeJoin;
   }
 
+  /* Create a style from the values given by toRecord() */
+  RStyle(int[] record){
+    int flags = record[0];
+    fillDef = (flags & 1) != 0;
+    fill = (flags & 2) != 0;
+    fillAlphaDef = (flags & 4) != 0;
+    strokeDef = (flags & 8) != 0;
+    stroke = (flags & 16) != 0;
+    strokeAlphaDef = (flags & 32) != 0;
+    strokeWeightDef = (flags & 64) != 0;
+    strokeCapDef = (flags & 128) != 0;
+    strokeJoinDef = (flags & 256) != 0;
+    fillColor = record[1];
+    fillAlpha = record[2];
+    strokeColor = record[3];
+    strokeAlpha = record[4];
+    strokeWeight = Float.intBitsToFloat(record[5]);
+    strokeCap = record[6];
+    strokeJoin = record[7];
+  }
+
+  /* The values of the style, without its texture, packed in 8 ints */
+  int[] toRecord(){
+    int flags = (fillDef ? 1 : 0) | (fill ? 2 : 0) | (fillAlphaDef ? 4 : 0)
+      | (strokeDef ? 8 : 0) | (stroke ? 16 : 0) | (strokeAlphaDef ? 32 : 0)
+      | (strokeWeightDef ? 64 : 0) | (strokeCapDef ? 128 : 0) | (strokeJoinDef ? 256 : 0);
+
+    int[] record = {flags, fillColor, fillAlpha, strokeColor, strokeAlpha, Float.floatToIntBits(strokeWeight), strokeCap, strokeJoin};
+    return record;
+  }
+
+  /**
+   * Get the shared style of a table equal to a style, adding the style to the table if there is none.  Styles with a texture are never shared.
+   * @invisible
+   */
+  static RStyle intern(RStyle style, HashMap<IntBuffer, RStyle> table){
+    if(style.texture != null){
+      return style;
+    }
+
+    IntBuffer key = IntBuffer.wrap(style.toRecord());
+    RStyle shared = table.get(key);
+    if(shared == null){
+      shared = style.shared ? style : new RStyle(style);
+      shared.shared = true;
+      table.put(key, shared);
+    }
+    return shared;
+  }
+
   protected void setStyle(String styleString){
     //RG.parent().println("Style parsing: " + styleString);
     String[] styleTokens = PApplet.splitTokens(styleString, ";");
@@ -191,13 +258,13 @@ public class RStyle{
     strokeCapDef = true;
 
     if(str.equals("butt")){
-      strokeCap = RG.PROJECT;
+      strokeCap = RG.SQUARE;
 
     }else if(str.equals("round")){
       strokeCap = RG.ROUND;
 
     }else if(str.equals("square")){
-      strokeCap = RG.SQUARE;
+      strokeCap = RG.PROJECT;
 
     }
   }
@@ -268,70 +335,74 @@ public class RStyle{
     setAlpha(PApplet.parseFloat(str));
   }
 
-  protected void saveContext(PGraphics g){
-    oldFill = g.fill;
-    oldFillColor = g.fillColor;
-    oldStroke = g.stroke;
-    oldStrokeColor = g.strokeColor;
-    oldStrokeWeight = g.strokeWeight;
-    oldStrokeCap = g.strokeCap;
-    oldStrokeJoin = g.strokeJoin;
+  protected Context saveContext(PGraphics g){
+    Context old = new Context();
+    old.fill = g.fill;
+    old.fillColor = g.fillColor;
+    old.stroke = g.stroke;
+    old.strokeColor = g.strokeColor;
+    old.strokeWeight = g.strokeWeight;
+    old.strokeCap = g.strokeCap;
+    old.strokeJoin = g.strokeJoin;
+    return old;
   }
 
-  protected void saveContext(PApplet p){
-    oldFill = p.g.fill;
-    oldFillColor = p.g.fillColor;
-    oldStroke = p.g.stroke;
-    oldStrokeColor = p.g.strokeColor;
-    oldStrokeWeight = p.g.strokeWeight;    
-    oldStrokeCap = p.g.strokeCap;
-    oldStrokeJoin = p.g.strokeJoin;
+  protected Context saveContext(PApplet p){
+    return saveContext(p.g);
   }
 
-  protected void saveContext(){
-    saveContext(RG.parent());
+  protected Context saveContext(){
+    return saveContext(RG.parent());
   }
 
-  protected void restoreContext(PGraphics g){
-    g.fill(oldFillColor);
-    if(!oldFill){
+  protected void restoreContext(PGraphics g, Context old){
+    if(old == null){
+      throw new RuntimeException("There is no saved context to restore.");
+    }
+
+    g.fill(old.fillColor);
+    if(!old.fill){
       g.noFill();
     }
 
-    g.stroke(oldStrokeColor);
-    g.strokeWeight(oldStrokeWeight);
+    g.stroke(old.strokeColor);
+    g.strokeWeight(old.strokeWeight);
 
     try{
-      g.strokeCap(oldStrokeCap);
-      g.strokeJoin(oldStrokeJoin);
+      g.strokeCap(old.strokeCap);
+      g.strokeJoin(old.strokeJoin);
     }catch(RuntimeException e){}
 
-    if(!oldStroke){
+    if(!old.stroke){
       g.noStroke();
     }
   }
 
-  protected void restoreContext(PApplet p){
-    p.fill(oldFillColor);
-    if(!oldFill){
+  protected void restoreContext(PApplet p, Context old){
+    if(old == null){
+      throw new RuntimeException("There is no saved context to restore.");
+    }
+
+    p.fill(old.fillColor);
+    if(!old.fill){
       p.noFill();
     }
 
-    p.stroke(oldStrokeColor);
-    p.strokeWeight(oldStrokeWeight);
+    p.stroke(old.strokeColor);
+    p.strokeWeight(old.strokeWeight);
 
     try{
-      p.strokeCap(oldStrokeCap);
-      p.strokeJoin(oldStrokeJoin);
+      p.strokeCap(old.strokeCap);
+      p.strokeJoin(old.strokeJoin);
     }catch(RuntimeException e){}
 
-    if(!oldStroke){
+    if(!old.stroke){
       p.noStroke();
     }    
   }
 
-  protected void restoreContext(){
-    restoreContext(RG.parent());
+  protected void restoreContext(Context old){
+    restoreContext(RG.parent(), old);
   }
 
   protected void setContext(PGraphics g){
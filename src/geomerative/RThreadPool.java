@@ -0,0 +1,60 @@
+/**
+    Copyright 2004-2008 Ricard Marxer  <email@ricardmarxer.com>
+
+    This file is part of Geomerative.
+
+    Geomerative is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Geomerative is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Geomerative.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package geomerative ;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * RThreadPool holds the threads shared by the operations that spread their work over the available processors.  The threads are created the first time they are needed and are daemon threads, so they never keep the sketch from exiting.
+ * @invisible
+ */
+class RThreadPool
+{
+  /* The shared executor, created on the first call to get() */
+  private static ExecutorService executor = null;
+
+  /**
+   * The number of threads of the shared executor.
+   */
+  static int size(){
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the shared executor, creating it if needed.  The tasks submitted must not wait for other tasks of the same executor.
+   */
+  static synchronized ExecutorService get(){
+    if(executor == null){
+      executor = Executors.newFixedThreadPool(size(), new ThreadFactory(){
+          private int count = 0;
+
+          public synchronized Thread newThread(Runnable r){
+            Thread t = new Thread(r, "geomerative-worker-" + (count++));
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    }
+    return executor;
+  }
+}
@@ -0,0 +1,607 @@
+package geomerative;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PMatrix;
+import processing.core.PMatrix2D;
+import junit.framework.TestCase;
+
+import org.apache.batik.svggen.font.Font;
+import org.apache.batik.svggen.font.table.GlyfTable;
+import org.apache.batik.svggen.font.table.GlyphDescription;
+
+/**
+ *
+ * Checks that the glyphs decoded on demand, with and without a bound
+ * on the number of glyphs kept, are the same, that the outlines taken
+ * from the cache of a font are the same as the ones built again and
+ * serve all its sizes, that small sizes are not rounded, that the
+ * kerning agrees with Java2D, that the fonts opened from a file share
+ * its face, that the texts outlined in parallel are the same as the
+ * ones outlined one by one, that the texts laid out along a path
+ * follow it, and measures the time to open a font and to outline a
+ * text.
+ *
+ */
+public class FontTest extends TestCase
+{
+    static final String FONT = "examples/Tutorial_01_HelloWorld/data/FreeSans.ttf";
+
+    public void testLazyGlyphs() {
+      byte[] bs = PApplet.loadBytes(new java.io.File(FONT));
+      Font all = Font.create(bs);
+      Font few = Font.create(bs);
+      few.getGlyfTable().setCacheSize(2);
+
+      GlyfTable glyf = all.getGlyfTable();
+      int composites = 0;
+      for(int i = 0; i < all.getNumGlyphs(); i++) {
+        GlyphDescription a = glyf.getDescription(i);
+        GlyphDescription b = few.getGlyfTable().getDescription(i);
+        if(a == null) {
+          assertNull(b);
+          continue;
+        }
+        assertSame(a, glyf.getDescription(i));
+        if(a.isComposite()) composites++;
+
+        assertEquals(a.getContourCount(), b.getContourCount());
+        assertEquals(a.getPointCount(), b.getPointCount());
+        for(int j = 0; j < a.getPointCount(); j++) {
+          assertEquals(a.getXCoordinate(j), b.getXCoordinate(j));
+          assertEquals(a.getYCoordinate(j), b.getYCoordinate(j));
+          assertEquals(a.getFlags(j), b.getFlags(j));
+        }
+      }
+      assertTrue(composites > 0);
+
+      assertNull(glyf.getDescription(-1));
+      assertNull(glyf.getDescription(all.getNumGlyphs()));
+    }
+
+    public void testText() {
+      RFont font = createFont(FONT, 72);
+      RShape shp = font.toShape("H\u00e9llo");
+      assertEquals(5, shp.countChildren());
+      assertTrue(shp.getWidth() > 100);
+
+      // The glyphs looked up in one cmap table are not used for the other one
+      font.forceAscii = true;
+      assertEquals(5, font.toShape("H\u00e9llo").countChildren());
+      assertSamePoints(shp.children[0], font.toShape("H\u00e9llo").children[0]);
+      font.forceAscii = false;
+      assertSamePoints(shp, font.toShape("H\u00e9llo"));
+    }
+
+    public void testOpenBenchmark() {
+      byte[] bs = PApplet.loadBytes(new java.io.File(FONT));
+      Font.create(bs);
+
+      int runs = 50;
+      long t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        Font.create(bs);
+      }
+      t = System.nanoTime() - t;
+      System.out.println(FONT + ": " + (t / runs / 1000) + " us to open");
+    }
+
+    public void testSharedFace() {
+      // Fonts can be created from a path, whether the library is initialized or not
+      RFont small = new RFont(FONT, 12);
+      RFont big = createFont(FONT, 48, RFont.CENTER);
+      assertSame(small.f, big.f);
+      assertSame(small.f, new RFont(new java.io.File(FONT).getAbsolutePath(), 24).f);
+
+      // The mapped face gives the same outlines as the one read in memory
+      RFont read = new RFont(FONT, 12);
+      read.f = Font.create(PApplet.loadBytes(new java.io.File(FONT)));
+      assertSamePoints(read.toShape("Hello, world"), small.toShape("Hello, world"));
+
+      RShape s = small.toShape("Hello");
+      RShape b = big.toShape("Hello");
+      assertEquals(s.getWidth() * 4, b.getWidth(), 0.5f);
+
+      int runs = 50;
+      long t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        new RFont(FONT, 8 + i);
+      }
+      t = System.nanoTime() - t;
+      System.out.println(FONT + ": " + (t / runs / 1000) + " us to create a font of a face already open");
+    }
+
+    public void testMissingFont() {
+      try {
+        new RFont("no/such/font.ttf", 12);
+        fail();
+      } catch(RuntimeException e) {
+        assertTrue(e.getMessage().indexOf("no/such/font.ttf") >= 0);
+      }
+    }
+
+    public void testOutlineCache() {
+      RFont cached = createFont(FONT, 36);
+      RFont uncached = createFont(FONT, 36);
+      uncached.setCacheSize(0);
+
+      String text = "the quick brown fox jumps over the lazy dog";
+      assertSamePoints(uncached.toShape(text), cached.toShape(text));
+      assertSamePoints(uncached.toShape(text), cached.toShape(text));
+      assertEquals(0, uncached.getCacheHits());
+      assertEquals(2 * text.length() - 27, cached.getCacheHits());
+
+      // Changing the returned shapes does not change the cache
+      RShape first = cached.toShape("e");
+      first.children[0].translate(100, 0);
+      assertSamePoints(uncached.toShape("e"), cached.toShape("e"));
+
+      // The same outlines serve the other sizes
+      int misses = cached.getCacheMisses();
+      cached.setSize(72);
+      uncached.setSize(72);
+      assertSamePoints(uncached.toGroup(text).toShape(), cached.toGroup(text).toShape());
+      assertEquals(misses, cached.getCacheMisses());
+
+      // Only the outlines used last are kept
+      cached.setCacheSize(4);
+      cached.clearCache();
+      cached.toShape("abcdefgh");
+      cached.toShape("efgh");
+      assertEquals(4, cached.getCacheHits());
+      cached.toShape("abcd");
+      assertEquals(4, cached.getCacheHits());
+      assertEquals(12, cached.getCacheMisses());
+    }
+
+    public void testSmallSizes() {
+      RFont font = createFont(FONT, 100);
+      String text = "iiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiii";
+      float large = font.toShape(text).getWidth();
+      font.setSize(5);
+      RShape small = font.toShape(text);
+
+      // The advances do not lose a fraction of a pixel per character
+      assertEquals(large / 20, small.getWidth(), 0.01f);
+
+      // The outlines are not rounded to whole pixels
+      RShape i = small.children[0];
+      boolean fractional = false;
+      RPoint[] points = i.getPoints();
+      for(int j = 0; j < points.length; j++) {
+        fractional |= points[j].x != Math.round(points[j].x);
+      }
+      assertTrue(fractional);
+    }
+
+    public void testKerning() throws Exception {
+      // The GPOS table of FreeSans and the kern table of BMWCdLt agree with Java2D
+      String[] fonts = {FONT, "old_examples/geomerativeEx5d_RPolygon/data/BMWCdLt.ttf"};
+      String[] pairs = {"AV", "To", "LT", "P.", "ke", "rs", "ab"};
+      for(int i = 0; i < fonts.length; i++) {
+        RFont font = createFont(fonts[i], 1000);
+        java.awt.Font awt = java.awt.Font.createFont(java.awt.Font.TRUETYPE_FONT, new java.io.File(fonts[i])).deriveFont(1000f);
+        java.util.Map<java.awt.font.TextAttribute, Object> attributes = new java.util.HashMap<java.awt.font.TextAttribute, Object>();
+        attributes.put(java.awt.font.TextAttribute.KERNING, java.awt.font.TextAttribute.KERNING_ON);
+        java.awt.Font kerned = awt.deriveFont(attributes);
+        java.awt.font.FontRenderContext frc = new java.awt.font.FontRenderContext(null, false, true);
+
+        for(int j = 0; j < pairs.length; j++) {
+          float expected = new java.awt.font.TextLayout(pairs[j], kerned, frc).getAdvance() - new java.awt.font.TextLayout(pairs[j], awt, frc).getAdvance();
+          assertEquals(fonts[i] + " " + pairs[j], expected, font.getKerning(pairs[j].charAt(0), pairs[j].charAt(1)), 1f);
+        }
+        assertTrue(font.getKerning('A', 'V') < 0);
+      }
+
+      // The kerning moves the characters following the pairs
+      RFont font = createFont(FONT, 100);
+      float kerning = font.getKerning('A', 'V') + font.getKerning('V', 'o');
+      float kernedX = font.toShape("AVo").children[2].getX();
+      font.setKerning(false);
+      float x = font.toShape("AVo").children[2].getX();
+      assertEquals(x + kerning, kernedX, 0.01f);
+    }
+
+    public void testParagraph() {
+      RFont font = createFont(FONT, 24);
+      String text = "the quick brown fox jumps over the lazy dog";
+
+      // Without a width the lines are only broken at the new lines
+      assertSamePoints(font.toShape(text), font.toShape(text, 0));
+      assertEquals(1, font.toLines(text, 0).length);
+      RShape[] lines = font.toLines("the quick\r\nbrown fox\n", 0);
+      assertEquals(2, lines.length);
+      assertEquals(8, lines[1].countChildren());
+      assertTrue(lines[1].getY() - lines[0].getY() > 24);
+      float spacing = font.getLineSpacing();
+      assertTrue(spacing > 24);
+      lines = font.toLines("bbb\nbbb", 0);
+      assertEquals(spacing, lines[1].getY() - lines[0].getY(), 1e-3f);
+      font.setLineSpacing(50);
+      assertEquals(50, font.getLineSpacing(), 0f);
+      lines = font.toLines("the quick\nbrown fox", 0);
+      assertEquals(50, lines[1].getY() - lines[0].getY(), 2f);
+      assertEquals(2, font.toLines("\n\n", 0).length);
+
+      // The words are moved to the next line when they do not fit
+      float width = font.toShape("the quick brown").getWidth() + 10;
+      lines = font.toLines(text + " " + text, width);
+      assertTrue(lines.length > 3);
+      int count = 0;
+      for(int i = 0; i < lines.length; i++) {
+        assertTrue(lines[i].getWidth() <= width);
+        assertEquals(0, lines[i].getX(), 3f);
+        count += lines[i].countChildren();
+      }
+      assertEquals(2 * text.replaceAll(" ", "").length(), count);
+      assertSamePoints(font.toShape("the quick brown"), lines[0]);
+      assertEquals(2 * text.replaceAll(" ", "").length(), font.toShape(text + " " + text, width).countChildren());
+
+      // The words wider than a line are cut
+      lines = font.toLines("supercalifragilistic", font.toShape("super").getWidth() + 5);
+      assertTrue(lines.length > 3);
+      assertEquals(5, lines[0].countChildren());
+
+      // And the lines are aligned
+      font.setAlign(RFont.RIGHT);
+      lines = font.toLines(text, width);
+      for(int i = 0; i < lines.length; i++) {
+        assertEquals(0, lines[i].getX() + lines[i].getWidth(), 3f);
+      }
+    }
+
+    public void testDraw() {
+      RFont font = createFont(FONT, 24);
+      String text = "the quick brown fox";
+      boolean tesselator = RG.useInternalTesselator;
+      try {
+        for(int align = 0; align < 3; align++) {
+          font.setAlign(new int[] {RFont.LEFT, RFont.CENTER, RFont.RIGHT}[align]);
+          for(int k = 0; k < 2; k++) {
+            RG.useInternalTesselator(k == 0);
+            RecordingGraphics expected = new RecordingGraphics();
+            font.toGroup(text).draw(expected);
+            assertTrue(expected.points.length() > 100);
+            assertTrue(k == 1 || expected.area > 100);
+
+            // Twice, the second time with the cached shapes
+            for(int j = 0; j < 2; j++) {
+              RecordingGraphics actual = new RecordingGraphics();
+              font.draw(text, actual);
+              assertEquals(expected.area, actual.area, expected.area * 0.01f);
+              assertEquals(expected.points.length(), actual.points.length());
+              assertEquals(expected.minX, actual.minX, 0.01f);
+              assertEquals(expected.maxX, actual.maxX, 0.01f);
+            }
+          }
+        }
+      } finally {
+        RG.useInternalTesselator(tesselator);
+      }
+    }
+
+    public void testDrawBenchmark() {
+      RFont font = createFont(FONT, 24);
+      String text = "the quick brown fox jumps over the lazy dog";
+      boolean tesselator = RG.useInternalTesselator;
+      RG.useInternalTesselator(true);
+      try {
+        RecordingGraphics g = new RecordingGraphics();
+        font.draw(text, g);
+        font.toGroup(text).draw(g);
+
+        int frames = 50;
+        long t = System.nanoTime();
+        for(int i = 0; i < frames; i++) {
+          font.toGroup(text).draw(g);
+        }
+        long tShapes = (System.nanoTime() - t) / frames;
+
+        t = System.nanoTime();
+        for(int i = 0; i < frames; i++) {
+          font.draw(text, g);
+        }
+        long tCached = (System.nanoTime() - t) / frames;
+        System.out.println(text.length() + " characters drawn: " + (tShapes / 1000) + " us outlining and tesselating, " + (tCached / 1000) + " us with the cached meshes");
+      } finally {
+        RG.useInternalTesselator(tesselator);
+      }
+    }
+
+    /* Graphics that only keep the area of the triangles drawn, the extent of the points drawn and their count */
+    static class RecordingGraphics extends PGraphics {
+      PMatrix2D matrix = new PMatrix2D();
+      java.util.Stack<PMatrix2D> stack = new java.util.Stack<PMatrix2D>();
+      int kind;
+      float[] strip = new float[4];
+      int stripLength;
+      float area = 0;
+      float minX = Float.MAX_VALUE;
+      float maxX = -Float.MAX_VALUE;
+      StringBuffer points = new StringBuffer();
+
+      RecordingGraphics() {
+        setParent(RG.parent());
+        setPrimary(false);
+        setSize(400, 60);
+        fill = true;
+        stroke = false;
+        translate(200, 40);
+      }
+
+      public void pushMatrix() { stack.push(matrix.get()); }
+      public void popMatrix() { matrix = stack.pop(); }
+      public void translate(float x, float y) { matrix.translate(x, y); }
+      public void rotate(float angle) { matrix.rotate(angle); }
+      public void applyMatrix(float n00, float n01, float n02, float n10, float n11, float n12) { matrix.apply(n00, n01, n02, n10, n11, n12); }
+      public PMatrix getMatrix() { return matrix.get(); }
+      public float screenX(float x, float y) { return matrix.multX(x, y); }
+      public float screenY(float x, float y) { return matrix.multY(x, y); }
+      public void smooth() {}
+      public void noSmooth() {}
+      public void beginShape(int kind) { this.kind = kind; stripLength = 0; }
+      public void beginContour() {}
+      public void endContour() {}
+      public void endShape(int mode) {}
+      public void bezierVertex(float x1, float y1, float x2, float y2, float x3, float y3) { vertex(x3, y3); }
+
+      public void vertex(float x, float y) {
+        float sx = matrix.multX(x, y);
+        float sy = matrix.multY(x, y);
+        minX = Math.min(minX, sx);
+        maxX = Math.max(maxX, sx);
+        points.append('.');
+
+        if(kind == TRIANGLE_STRIP) {
+          if(stripLength >= 2) {
+            area += Math.abs((strip[2] - strip[0]) * (sy - strip[1]) - (sx - strip[0]) * (strip[3] - strip[1])) / 2;
+            strip[0] = strip[2];
+            strip[1] = strip[3];
+            strip[2] = sx;
+            strip[3] = sy;
+          } else {
+            strip[2 * stripLength] = sx;
+            strip[2 * stripLength + 1] = sy;
+          }
+          stripLength++;
+        }
+      }
+    }
+
+    public void testOutlineBenchmark() {
+      RFont cached = createFont(FONT, 36);
+      RFont uncached = createFont(FONT, 36);
+      uncached.setCacheSize(0);
+
+      StringBuffer paragraph = new StringBuffer();
+      for(int i = 0; i < 20; i++) {
+        paragraph.append("the quick brown fox jumps over the lazy dog ");
+      }
+      String text = paragraph.toString();
+      cached.toShape(text);
+      uncached.toShape(text);
+
+      int runs = 20;
+      long t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        uncached.toShape(text);
+      }
+      long tUncached = (System.nanoTime() - t) / runs;
+
+      t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        cached.toShape(text);
+      }
+      long tCached = (System.nanoTime() - t) / runs;
+
+      System.out.println(text.length() + " characters: " + (tUncached / 1000) + " us without cache, " + (tCached / 1000) + " us with cache, " + cached.getCacheHits() + " hits, " + cached.getCacheMisses() + " misses");
+
+      t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        cached.toLines(text, 300);
+      }
+      System.out.println(text.length() + " characters in lines of 300: " + ((System.nanoTime() - t) / runs / 1000) + " us");
+    }
+
+    public void testTextOnPath() {
+      RFont font = createFont(FONT, 24);
+      String text = "AVery long text";
+
+      // Along a straight line the text is laid out as usual
+      RShape line = RShape.createLine(0, 0, 1000, 0);
+      assertSamePoints(font.toShape(text), font.toShape(text, line, 0, 0));
+      RShape raised = font.toShape(text, line, 100, 10);
+      RShape usual = font.toShape(text);
+      usual.translate(100, -10);
+      assertSamePoints(usual, raised);
+
+      // The alignment is taken at the offset, from the advances of the characters
+      font.setAlign(RFont.RIGHT);
+      RShape right = font.toShape(text, line, 500, 0);
+      font.setAlign(RFont.LEFT);
+      assertEquals(500, right.getX() + right.getWidth(), 5);
+
+      // The path is measured once, and again after it changes
+      RArcLengthTable table = line.getArcLengthTable();
+      font.toShape(text, line, 300, 0);
+      assertSame(table, line.getArcLengthTable());
+      line.translate(0, 50);
+      assertNotSame(table, line.getArcLengthTable());
+      usual.translate(0, 50);
+      assertSamePoints(usual, font.toShape(text, line, 100, 10));
+      RShape parent = new RShape();
+      parent.addChild(RShape.createLine(0, 0, 100, 0));
+      table = parent.getArcLengthTable();
+      parent.children[0].scale(10);
+      assertNotSame(table, parent.getArcLengthTable());
+      assertEquals(1000, parent.getArcLengthTable().getLength(), 1e-2f);
+      line.translate(0, -50);
+
+      // The characters past the ends of an open path are left out
+      assertEquals(0, font.toShape(text, line, 2000, 0).countChildren());
+      assertEquals(4, font.toShape(text, RShape.createLine(0, 0, 50, 0), 0, 0).countChildren());
+
+      // Around a closed path the text wraps, with the tops of the characters outside of a circle drawn clockwise
+      RShape circle = RShape.createCircle(0, 0, 400);
+      RShape around = font.toShape(text + text + text + text + text, circle, 0, 5);
+      assertEquals(65, around.countChildren());
+      for(int i = 0; i < around.countChildren(); i++) {
+        RPoint c = around.children[i].getCenter();
+        float r = (float)Math.sqrt(c.x * c.x + c.y * c.y);
+        assertTrue(r > 200 && r < 230);
+      }
+
+      // Drawing along the path gives the same outlines
+      RecordingGraphics expected = new RecordingGraphics();
+      font.toShape(text, circle, 100, 5).draw(expected);
+      RecordingGraphics actual = new RecordingGraphics();
+      font.draw(text, circle, 100, 5, actual);
+      assertEquals(expected.points.length(), actual.points.length());
+      assertEquals(expected.minX, actual.minX, 0.01f);
+      assertEquals(expected.maxX, actual.maxX, 0.01f);
+    }
+
+    public void testTextOnPathBenchmark() {
+      RFont font = createFont(FONT, 12);
+      StringBuffer buffer = new StringBuffer();
+      for(int i = 0; i < 50; i++) {
+        buffer.append("the quick brown fox jumps over the lazy dog ");
+      }
+      String text = buffer.toString();
+
+      // A spiral long enough for the whole text
+      RShape spiral = new RShape();
+      spiral.addMoveTo(0, 0);
+      for(int i = 1; i <= 200; i++) {
+        float a = i * 0.3f;
+        float r = i * 4;
+        spiral.addBezierTo(r * (float)Math.cos(a - 0.1f), r * (float)Math.sin(a - 0.1f), r * (float)Math.cos(a - 0.05f), r * (float)Math.sin(a - 0.05f), r * (float)Math.cos(a), r * (float)Math.sin(a));
+      }
+
+      RecordingGraphics g = new RecordingGraphics();
+      for(int i = 0; i < 3; i++) {
+        font.draw(text, spiral, 0, 0, g);
+        font.toShape(text, spiral, 0, 0);
+      }
+      font.toShape(text).adapt(spiral);
+
+      // The first placement measures the path, the following ones only move the text along it
+      spiral.clearCache();
+      long t = System.nanoTime();
+      font.toShape(text, spiral, 0, 0);
+      long tFirst = System.nanoTime() - t;
+
+      int runs = 5;
+      t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        font.toShape(text, spiral, i, 0);
+      }
+      long tShape = (System.nanoTime() - t) / runs;
+
+      t = System.nanoTime();
+      for(int i = 0; i < runs; i++) {
+        font.draw(text, spiral, i, 0, g);
+      }
+      long tDraw = (System.nanoTime() - t) / runs;
+
+      t = System.nanoTime();
+      font.toShape(text).adapt(spiral);
+      long tAdapt = System.nanoTime() - t;
+
+      System.out.println(text.length() + " characters along a path: " + (tFirst / 1000) + " us outlining with a new path, " + (tShape / 1000) + " us outlining at a new offset, " + (tDraw / 1000) + " us drawing at a new offset, " + (tAdapt / 1000) + " us outlining and adapting");
+    }
+
+    static String[] labels(int count) {
+      String[] words = {"Main St", "Rue de la Paix", "Avenue", "Bahnhofstra\u00dfe", "Park", "River", "AV-7", "Toledo", "Lake", "Hill Rd"};
+      String[] labels = new String[count];
+      for(int i = 0; i < count; i++) {
+        labels[i] = words[i % words.length] + " " + (i % 997);
+      }
+      return labels;
+    }
+
+    public void testParallelOutlines() {
+      RFont font = createFont(FONT, 24, RFont.CENTER);
+      String[] texts = labels(500);
+
+      RShape[] shapes = font.toShapes(texts, 4);
+      assertEquals(texts.length, shapes.length);
+      for(int i = 0; i < texts.length; i++) {
+        assertSamePoints(font.toShape(texts[i]), shapes[i]);
+      }
+
+      // The offset of the segmentator carried along the paths is not mixed up between the threads
+      int type = RCommand.segmentType;
+      float length = RCommand.segmentLength;
+      RG.setPolygonizer(RG.UNIFORMLENGTH);
+      RG.setPolygonizerLength(3);
+      try {
+        RPolygon[] polygons = font.toPolygons(texts, 4);
+        RPolygon[] serial = font.toPolygons(texts, 1);
+        for(int i = 0; i < texts.length; i++) {
+          RPolygon expected = font.toShape(texts[i]).toPolygon();
+          assertEquals(expected.countContours(), polygons[i].countContours());
+          for(int j = 0; j < expected.countContours(); j++) {
+            RPoint[] a = expected.contours[j].points;
+            RPoint[] b = polygons[i].contours[j].points;
+            RPoint[] c = serial[i].contours[j].points;
+            assertEquals(a.length, b.length);
+            assertEquals(a.length, c.length);
+            for(int k = 0; k < a.length; k++) {
+              assertEquals(a[k].x, b[k].x, 1e-3f);
+              assertEquals(a[k].y, b[k].y, 1e-3f);
+              assertEquals(a[k].x, c[k].x, 1e-3f);
+            }
+          }
+        }
+      } finally {
+        RG.setPolygonizer(type);
+        RG.setPolygonizerLength(length);
+      }
+    }
+
+    public void testParallelBenchmark() {
+      RFont font = createFont(FONT, 12);
+      String[] texts = labels(20000);
+      font.toShapes(texts, 1);
+      font.toShapes(texts);
+
+      long t = System.nanoTime();
+      font.toShapes(texts, 1);
+      long tSerial = System.nanoTime() - t;
+
+      t = System.nanoTime();
+      font.toShapes(texts);
+      long tParallel = System.nanoTime() - t;
+
+      t = System.nanoTime();
+      font.toPolygons(texts);
+      long tPolygons = System.nanoTime() - t;
+
+      System.out.println(texts.length + " labels on " + Runtime.getRuntime().availableProcessors() + " processors: "
+                         + (long)(texts.length * 1e9 / tSerial) + " labels/s with one thread, "
+                         + (long)(texts.length * 1e9 / tParallel) + " labels/s in parallel, "
+                         + (long)(texts.length * 1e9 / tPolygons) + " labels/s in parallel into polygons");
+    }
+
+    static RFont createFont(String path, int size) {
+      return createFont(path, size, RFont.LEFT);
+    }
+
+    static RFont createFont(String path, int size, int align) {
+      PApplet applet = new PApplet();
+      applet.sketchPath();
+      RG.init(applet);
+      return new RFont(path, size, align);
+    }
+
+    static void assertSamePoints(RShape expected, RShape actual) {
+      RPoint[] a = expected.getPoints();
+      RPoint[] b = actual.getPoints();
+      assertEquals(a.length, b.length);
+      for(int i = 0; i < a.length; i++) {
+        assertEquals(a[i].x, b[i].x, 1e-3f);
+        assertEquals(a[i].y, b[i].y, 1e-3f);
+      }
+    }
+}
@@ -0,0 +1,101 @@
+package geomerative;
+
+import processing.core.PApplet;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that the paths segmented for a scale stay within half a
+ * pixel of the curve up to the highest level of detail, that each
+ * level is cached once and dropped when the path changes, and that
+ * the settings of the segmentator are left untouched.
+ *
+ */
+public class LevelOfDetailTest extends TestCase
+{
+    public void setUp() {
+      RG.init(new PApplet());
+    }
+
+    public void tearDown() {
+      RG.setPolygonizer(RG.UNIFORMLENGTH);
+      RG.setPolygonizerLength(4);
+      RCommand.setSegmentScale(1);
+    }
+
+    public void testTolerance() {
+      float[] scales = {1, 16, 256, 1024};
+      int last = 0;
+      for(int i = 0; i < scales.length; i++) {
+        RPoint[] pnts = createParabola().getPointsForScale(scales[i]);
+        assertTrue(pnts.length > last);
+        last = pnts.length;
+
+        // Between two points the parabola y = 2x - x^2/50 is at most 0.005 dx^2 away from the chord
+        for(int j = 1; j < pnts.length; j++) {
+          float dx = pnts[j].x - pnts[j-1].x;
+          assertTrue(0.005f * dx * dx <= 0.5f / scales[i] + 1e-5f);
+        }
+      }
+
+      // Further zooms are segmented as the highest level
+      RPath path = createParabola();
+      assertSame(path.getPointsForScale(1 << RCommand.LOD_MAX_LEVEL), path.getPointsForScale(1 << 14));
+    }
+
+    public void testCache() {
+      RPath path = createParabola();
+      RPoint[] one = path.getPointsForScale(1);
+      assertSame(one, path.getPointsForScale(0.9f));
+      assertNotSame(one, path.getPointsForScale(1.5f));
+      assertSame(path.getPointsForScale(1.5f), path.getPointsForScale(2));
+
+      int filled = 0;
+      assertEquals(RCommand.LOD_MAX_LEVEL - RCommand.LOD_MIN_LEVEL + 1, path.lodPoints.length);
+      for(int i = 0; i < path.lodPoints.length; i++) {
+        if(path.lodPoints[i] != null) {
+          filled++;
+        }
+      }
+      assertEquals(2, filled);
+
+      // Changing the path drops the cache
+      path.translate(10, 0);
+      assertNull(path.lodPoints);
+      RPoint[] moved = path.getPointsForScale(1);
+      assertNotSame(one, moved);
+      assertEquals(one[0].x + 10, moved[0].x, 1e-4f);
+      assertEquals(one.length, moved.length);
+    }
+
+    public void testSegmentatorUntouched() {
+      RG.setPolygonizer(RG.UNIFORMLENGTH);
+      RG.setPolygonizerLength(7);
+      RCommand.setSegmentScale(3);
+      int[] settings = RCommand.getSegmentatorSettings();
+      float scale = RCommand.segmentApproxScale;
+
+      RPath path = createParabola();
+      RPoint[] before = path.getPoints();
+      path.getPointsForScale(64);
+      path.getPointsForScale(0.1f);
+
+      assertTrue(java.util.Arrays.equals(settings, RCommand.getSegmentatorSettings()));
+      assertEquals(scale, RCommand.segmentApproxScale, 0f);
+
+      // The current segmentator still gives the same points
+      RPoint[] after = path.getPoints();
+      assertEquals(before.length, after.length);
+      for(int i = 0; i < before.length; i++) {
+        assertEquals(before[i].x, after[i].x, 0f);
+        assertEquals(before[i].y, after[i].y, 0f);
+      }
+    }
+
+    /* The parabola going from (0, 0) to (100, 0) with its top at (50, 50) */
+    private RPath createParabola() {
+      RPath path = new RPath(new RPoint(0, 0));
+      path.addQuadTo(new RPoint(50, 100), new RPoint(100, 0));
+      return path;
+    }
+}
@@ -0,0 +1,152 @@
+package geomerative;
+
+import java.util.ArrayList;
+
+import processing.core.PApplet;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that the mesh cache shares the meshes of translated copies
+ * of a shape but not of rotated or scaled ones, that its keys depend
+ * on the settings of the segmentator, and that it evicts the least
+ * recently used meshes to stay within its size limit.
+ *
+ */
+public class MeshCacheTest extends TestCase
+{
+    public void setUp() {
+      RG.init(new PApplet());
+      RG.setPolygonizer(RG.ADAPTATIVE);
+      RMeshCache.clear();
+    }
+
+    public void tearDown() {
+      RMeshCache.setMaxSize(1 << 20);
+      RMeshCache.clear();
+      RG.setPolygonizer(RG.UNIFORMLENGTH);
+      RG.setPolygonizerLength(4);
+    }
+
+    public void testTranslated() {
+      RPoint offset = new RPoint();
+      RMesh mesh = RMeshCache.getMesh(paths(createDrop()), offset);
+      assertNotNull(mesh);
+      assertEquals(0f, offset.x, 0f);
+      assertEquals(0f, offset.y, 0f);
+
+      RShape moved = createDrop();
+      moved.translate(100, 50);
+      assertSame(mesh, RMeshCache.getMesh(paths(moved), offset));
+      assertEquals(100f, offset.x, 1e-4f);
+      assertEquals(50f, offset.y, 1e-4f);
+      assertEquals(0.5f, RMeshCache.getHitRate(), 0f);
+
+      // The copies are placed at the position of the paths
+      RMesh copy = RMeshCache.getMeshCopy(paths(moved));
+      assertNotSame(mesh, copy);
+      assertEquals(mesh.getX() + 100f, copy.getX(), 1e-3f);
+      assertEquals(mesh.getY() + 50f, copy.getY(), 1e-3f);
+    }
+
+    public void testTransformed() {
+      RPoint offset = new RPoint();
+      RMesh mesh = RMeshCache.getMesh(paths(createDrop()), offset);
+
+      RShape rotated = createDrop();
+      rotated.rotate(PApplet.HALF_PI, 0, 0);
+      RMesh rotatedMesh = RMeshCache.getMesh(paths(rotated), offset);
+      assertNotSame(mesh, rotatedMesh);
+      assertEquals(mesh.getHeight(), rotatedMesh.getWidth(), 1e-2f);
+      assertEquals(mesh.getWidth(), rotatedMesh.getHeight(), 1e-2f);
+
+      RShape scaled = createDrop();
+      scaled.scale(2, 0, 0);
+      RMesh scaledMesh = RMeshCache.getMesh(paths(scaled), offset);
+      assertNotSame(mesh, scaledMesh);
+      assertEquals(2 * mesh.getWidth(), scaledMesh.getWidth(), 0.2f);
+      assertEquals(0f, RMeshCache.getHitRate(), 0f);
+    }
+
+    public void testSegmentatorSettings() {
+      RPoint offset = new RPoint();
+      RMesh adaptative = RMeshCache.getMesh(paths(createDrop()), offset);
+
+      RG.setPolygonizer(RG.UNIFORMLENGTH);
+      RG.setPolygonizerLength(4);
+      RMesh uniform = RMeshCache.getMesh(paths(createDrop()), offset);
+      assertNotSame(adaptative, uniform);
+      assertSame(uniform, RMeshCache.getMesh(paths(createDrop()), offset));
+
+      RG.setPolygonizerLength(8);
+      RMesh longer = RMeshCache.getMesh(paths(createDrop()), offset);
+      assertNotSame(uniform, longer);
+      assertTrue(countVertices(longer) < countVertices(uniform));
+
+      // Going back to the same settings finds the first mesh again
+      RG.setPolygonizerLength(4);
+      RG.setPolygonizer(RG.ADAPTATIVE);
+      assertSame(adaptative, RMeshCache.getMesh(paths(createDrop()), offset));
+    }
+
+    public void testEviction() {
+      RPoint offset = new RPoint();
+      // Polygons of the same size in the cache
+      RShape a = RShape.createStar(0, 0, 10, 5, 7);
+      RShape b = RShape.createStar(0, 0, 20, 5, 7);
+      RShape c = RShape.createStar(0, 0, 30, 5, 7);
+
+      RMesh meshA = RMeshCache.getMesh(paths(a), offset);
+      int sizeA = RMeshCache.getSize();
+      RMesh meshB = RMeshCache.getMesh(paths(b), offset);
+      int sizeAB = RMeshCache.getSize();
+      assertTrue(sizeA > 0);
+      assertEquals(2 * sizeA, sizeAB);
+
+      // Using a keeps it, adding c evicts b, the least recently used
+      assertSame(meshA, RMeshCache.getMesh(paths(a), offset));
+      RMeshCache.setMaxSize(sizeAB);
+      RMesh meshC = RMeshCache.getMesh(paths(c), offset);
+      assertTrue(RMeshCache.getSize() <= sizeAB);
+      assertSame(meshC, RMeshCache.getMesh(paths(c), offset));
+      assertSame(meshA, RMeshCache.getMesh(paths(a), offset));
+      assertNotSame(meshB, RMeshCache.getMesh(paths(b), offset));
+
+      RMeshCache.setMaxSize(0);
+      assertEquals(0, RMeshCache.getSize());
+      assertNotSame(meshA, RMeshCache.getMesh(paths(a), offset));
+      assertEquals(0, RMeshCache.getSize());
+
+      try {
+        RMeshCache.setMaxSize(-1);
+        fail();
+      } catch(RuntimeException e) {
+      }
+    }
+
+    /* A closed shape without any symmetry, made of lines and curves */
+    private RShape createDrop() {
+      RPath path = new RPath(new RPoint(0, 0));
+      path.addLineTo(30, 0);
+      path.addBezierTo(new RPoint(40, 10), new RPoint(35, 25), new RPoint(20, 30));
+      path.addQuadTo(new RPoint(5, 30), new RPoint(0, 0));
+      path.addClose();
+      RShape shp = new RShape();
+      shp.addPath(path);
+      return shp;
+    }
+
+    private ArrayList<RPath> paths(RShape shp) {
+      ArrayList<RPath> result = new ArrayList<RPath>();
+      shp.collectPaths(result);
+      return result;
+    }
+
+    private int countVertices(RMesh mesh) {
+      int count = 0;
+      for(int i = 0; i < mesh.countStrips(); i++) {
+        count += mesh.strips[i].countVertices();
+      }
+      return count;
+    }
+}
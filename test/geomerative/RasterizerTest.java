@@ -0,0 +1,119 @@
+package geomerative;
+
+import java.io.File;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks the fill rules and the antialiasing of the rasterizer, and
+ * compares its speed with Java2D on the bundled world map.
+ *
+ */
+public class RasterizerTest extends TestCase
+{
+    public void setUp() {
+      RG.init(new PApplet());
+    }
+
+    public void testFillRules() {
+      RShape shp = new RShape();
+      shp.addPath(RShape.createRectangle(0, 0, 10, 10).paths[0]);
+      shp.addPath(RShape.createRectangle(2, 2, 6, 6).paths[0]);
+      shp.setFill(0xff0000ff);
+      shp.setStroke(false);
+
+      RRasterizer r = new RRasterizer(10, 10);
+      r.draw(shp);
+      assertEquals(0xff0000ff, r.pixels[5 * 10 + 5]);
+      assertEquals(0xff0000ff, r.pixels[1 * 10 + 1]);
+
+      r = new RRasterizer(10, 10);
+      r.setFillRule(RRasterizer.EVENODD);
+      r.draw(shp);
+      assertEquals(0, r.pixels[5 * 10 + 5]);
+      assertEquals(0xff0000ff, r.pixels[1 * 10 + 1]);
+    }
+
+    public void testAntialiasing() {
+      RShape shp = RShape.createRectangle(0, 0, 4.5f, 4);
+      shp.setFill(0xffffffff);
+      shp.setStroke(false);
+
+      RRasterizer r = new RRasterizer(8, 4);
+      r.background(0xff000000);
+      r.draw(shp);
+      assertEquals(0xffffffff, r.pixels[8 + 3]);
+      assertEquals(0xff808080, r.pixels[8 + 4]);
+      assertEquals(0xff000000, r.pixels[8 + 5]);
+    }
+
+    public void testWorldMapBenchmark() throws Exception {
+      RShape shp = new RSVG().elemToCompositeShape(new XML(new File("data/world-map.svg")));
+      int w = 1024;
+      int h = 512;
+      float scale = Math.min(w / shp.getWidth(), h / shp.getHeight());
+      RMatrix m = new RMatrix();
+      m.scale(scale);
+      m.translate(-shp.getX(), -shp.getY());
+
+      // Warm up the segmentation caches and the JIT
+      RRasterizer r = new RRasterizer(w, h);
+      r.setMatrix(m);
+      r.draw(shp);
+
+      int n = 5;
+      long start = System.currentTimeMillis();
+      for(int i = 0; i < n; i++) {
+        r.background(0xffffffff);
+        r.draw(shp);
+      }
+      long rasterizerTime = (System.currentTimeMillis() - start) / n;
+      System.out.println("RRasterizer world-map " + w + "x" + h + ": " + rasterizerTime + " ms");
+
+      int covered = 0;
+      for(int i = 0; i < r.pixels.length; i++) {
+        if(r.pixels[i] != 0xffffffff) covered++;
+      }
+      assertTrue(covered > 0);
+
+      PGraphics g;
+      try {
+        // PGraphicsJava2D moved from processing.core to processing.awt in Processing 3
+        Class<?> java2d;
+        try {
+          java2d = Class.forName("processing.awt.PGraphicsJava2D");
+        } catch(ClassNotFoundException e) {
+          java2d = Class.forName("processing.core.PGraphicsJava2D");
+        }
+        g = (PGraphics)java2d.newInstance();
+        g.setParent(new PApplet());
+        g.setPrimary(false);
+        g.setSize(w, h);
+
+        g.beginDraw();
+        g.smooth();
+        g.applyMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12);
+        shp.draw(g);
+        g.endDraw();
+      } catch(Throwable e) {
+        System.out.println("PGraphicsJava2D not available: " + e);
+        return;
+      }
+
+      start = System.currentTimeMillis();
+      for(int i = 0; i < n; i++) {
+        g.beginDraw();
+        g.background(255);
+        g.applyMatrix(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12);
+        shp.draw(g);
+        g.loadPixels();
+        g.endDraw();
+      }
+      long java2dTime = (System.currentTimeMillis() - start) / n;
+      System.out.println("PGraphicsJava2D world-map " + w + "x" + h + ": " + java2dTime + " ms");
+    }
+}
@@ -0,0 +1,172 @@
+package geomerative;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import processing.core.PApplet;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks the parsing of the SVG path data and reports the speed of the
+ * parser on the path data of the bundled maps.
+ *
+ */
+public class SVGPathTest extends TestCase
+{
+    static final String[] FILES = {"data/world-map.svg", "data/mapa.svg", "data/Lion.svg"};
+
+    public void setUp() {
+      RG.init(new PApplet());
+    }
+
+    public void testNumbers() {
+      RShape shp = RSVGPathParser.parseShape("M1.5.5L-1e2-2E+1,3.25e-1 .5 4,-0.125");
+      assertEquals(1, shp.countPaths());
+
+      RCommand[] cmds = shp.paths[0].commands;
+      assertEquals(3, cmds.length);
+      assertEquals(1.5f, cmds[0].startPoint.x, 0f);
+      assertEquals(0.5f, cmds[0].startPoint.y, 0f);
+      assertEquals(-100f, cmds[0].endPoint.x, 0f);
+      assertEquals(-20f, cmds[0].endPoint.y, 0f);
+      assertEquals(0.325f, cmds[1].endPoint.x, 0f);
+      assertEquals(0.5f, cmds[1].endPoint.y, 0f);
+      assertEquals(4f, cmds[2].endPoint.x, 0f);
+      assertEquals(-0.125f, cmds[2].endPoint.y, 0f);
+
+      shp = RSVGPathParser.parseShape("M0.1234567890123456789 1234567890123456789e-10");
+      assertEquals(Float.parseFloat("0.1234567890123456789"), shp.paths[0].lastPoint.x, 0f);
+      assertEquals(Float.parseFloat("1234567890123456789e-10"), shp.paths[0].lastPoint.y, 0f);
+    }
+
+    public void testImplicitCommands() {
+      RShape shp = RSVGPathParser.parseShape("m10 10 10 0 0 10z m5 5 c1 1 2 2 3 3 1 1 2 2 3 3 h-6v-6");
+      assertEquals(2, shp.countPaths());
+      assertTrue(shp.paths[0].closed);
+      assertEquals(3, shp.paths[0].countCommands());
+      assertEquals(20f, shp.paths[0].commands[1].endPoint.x, 0f);
+      assertEquals(20f, shp.paths[0].commands[1].endPoint.y, 0f);
+
+      // After the closepath the relative moveto starts from the start of the subpath
+      RCommand[] cmds = shp.paths[1].commands;
+      assertEquals(15f, cmds[0].startPoint.x, 0f);
+      assertEquals(RCommand.CUBICBEZIERTO, cmds[1].getCommandType());
+      assertEquals(21f, cmds[1].endPoint.x, 0f);
+      assertEquals(15f, cmds[3].endPoint.y, 0f);
+    }
+
+    public void testQuadratics() {
+      RShape shp = RSVGPathParser.parseShape("M200,300 Q400,50 600,300 T1000,300 t400 0");
+      RCommand[] cmds = shp.paths[0].commands;
+      assertEquals(3, cmds.length);
+      for(int i = 0; i < cmds.length; i++) {
+        assertEquals(RCommand.QUADBEZIERTO, cmds[i].getCommandType());
+      }
+
+      // The control points of T are the reflections of the previous ones
+      assertEquals(800f, cmds[1].controlPoints[0].x, 0f);
+      assertEquals(550f, cmds[1].controlPoints[0].y, 0f);
+      assertEquals(1200f, cmds[2].controlPoints[0].x, 0f);
+      assertEquals(50f, cmds[2].controlPoints[0].y, 0f);
+      assertEquals(1400f, cmds[2].endPoint.x, 0f);
+
+      // Without a previous quadratic the control point is the current point
+      shp = RSVGPathParser.parseShape("M0 0 L10 0 T20 10");
+      cmds = shp.paths[0].commands;
+      assertEquals(10f, cmds[1].controlPoints[0].x, 0f);
+      assertEquals(0f, cmds[1].controlPoints[0].y, 0f);
+    }
+
+    public void testArcs() {
+      // A half circle is made of two quarters of circle, the flags may be written without separators
+      RShape shp = RSVGPathParser.parseShape("M0 0 A10 10 0 0120 0");
+      RCommand[] cmds = shp.paths[0].commands;
+      assertEquals(2, cmds.length);
+      assertEquals(RCommand.CUBICBEZIERTO, cmds[0].getCommandType());
+      assertEquals(10f, cmds[0].endPoint.x, 1e-4f);
+      assertEquals(-10f, cmds[0].endPoint.y, 1e-4f);
+      assertEquals(20f, cmds[1].endPoint.x, 0f);
+      assertEquals(0f, cmds[1].endPoint.y, 0f);
+      for(int i = 0; i < cmds.length; i++) {
+        for(int j = 0; j <= 10; j++) {
+          RPoint p = cmds[i].getPoint(j / 10f);
+          assertEquals(10f, (float)Math.sqrt((p.x - 10) * (p.x - 10) + p.y * p.y), 0.01f);
+        }
+      }
+
+      // Three quarters of circle
+      shp = RSVGPathParser.parseShape("M300,200 h-150 a150,150 0 1,0 150,-150 z");
+      assertEquals(1 + 3 + 1, shp.paths[0].countCommands());
+      assertEquals(150f, shp.getX(), 0.01f);
+      assertEquals(450f, shp.getX() + shp.getWidth(), 0.01f);
+      assertEquals(50f, shp.getY(), 0.01f);
+      assertEquals(350f, shp.getY() + shp.getHeight(), 0.01f);
+
+      // A rotated ellipse with the radii scaled up to reach the endpoint
+      shp = RSVGPathParser.parseShape("M0 0 a1 1 30 0 0 100 0");
+      assertEquals(2, shp.paths[0].countCommands());
+      assertEquals(100f, shp.paths[0].commands[1].endPoint.x, 0f);
+
+      // Zero radii make a line, equal endpoints omit the arc
+      shp = RSVGPathParser.parseShape("M0 0 A0 10 0 0 1 20 0 A5 5 0 0 1 20 0");
+      assertEquals(1, shp.paths[0].countCommands());
+      assertEquals(RCommand.LINETO, shp.paths[0].commands[0].getCommandType());
+    }
+
+    public void testErrors() {
+      // The path data is rendered until the first error
+      RShape shp = RSVGPathParser.parseShape("M0 0 L10 10 L20 # 30 40");
+      assertEquals(1, shp.paths[0].countCommands());
+
+      shp = RSVGPathParser.parseShape("M0 0 L10 10 20");
+      assertEquals(1, shp.paths[0].countCommands());
+
+      shp = RSVGPathParser.parseShape("");
+      assertEquals(0, shp.countPaths());
+    }
+
+    public void testBenchmark() throws Exception {
+      for(int f = 0; f < FILES.length; f++) {
+        ArrayList<String> list = new ArrayList<String>();
+        collectPathData(new XML(new File(FILES[f])), list);
+        String[] data = list.toArray(new String[list.size()]);
+        long chars = 0;
+        for(int i = 0; i < data.length; i++) {
+          chars += data[i].length();
+        }
+
+        // Warm up the JIT
+        for(int i = 0; i < data.length; i++) {
+          RSVGPathParser.parseShape(data[i]);
+        }
+
+        int n = 20;
+        int commands = 0;
+        long start = System.currentTimeMillis();
+        for(int k = 0; k < n; k++) {
+          commands = 0;
+          for(int i = 0; i < data.length; i++) {
+            RShape shp = RSVGPathParser.parseShape(data[i]);
+            for(int j = 0; j < shp.countPaths(); j++) {
+              commands += shp.paths[j].countCommands();
+            }
+          }
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        assertTrue(commands > 0);
+        System.out.println(FILES[f] + ": " + data.length + " paths, " + commands + " commands, " + (chars * n / 1000 / time) + " MB/s");
+      }
+    }
+
+    private void collectPathData(XML elem, ArrayList<String> list) {
+      if(elem.getName().equals("path") && elem.getString("d") != null) {
+        list.add(elem.getString("d"));
+      }
+      XML[] children = elem.getChildren();
+      for(int i = 0; i < children.length; i++) {
+        collectPathData(children[i], list);
+      }
+    }
+}
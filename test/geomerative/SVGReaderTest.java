@@ -0,0 +1,323 @@
+package geomerative;
+
+import java.io.File;
+import java.io.StringReader;
+
+import processing.core.PApplet;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that the streaming SVG reader builds the same shapes as the
+ * loader working on the XML tree, the use of visitors, and compares
+ * the loading times of both.
+ *
+ */
+public class SVGReaderTest extends TestCase
+{
+    static final String[] FILES = {"data/world-map.svg", "data/Lion.svg", "data/mapa.svg", "data/mapaAzimutal.svg", "data/paths3.svg", "data/Toucan.svg"};
+
+    public void testWithoutPApplet() {
+      RShape shp = new RSVGReader().read(new StringReader("<svg width=\"10\" height=\"20\"><g transform=\"translate(10,0)\"><rect id=\"r\" x=\"1\" y=\"2\" width=\"3\" height=\"4\" fill=\"#FF0000\"/></g><text>ignored</text></svg>"));
+      assertEquals(1, shp.countChildren());
+      RShape rect = shp.getChild("r");
+      assertNotNull(rect);
+      assertEquals(11f, rect.getX(), 0f);
+      assertEquals(4f, rect.getHeight(), 0f);
+      assertEquals(0xffff0000, rect.getStyle().fillColor);
+      assertEquals(10f, shp.width, 0f);
+    }
+
+    public void testSameAsTree() throws Exception {
+      RG.init(new PApplet());
+      for(int f = 0; f < FILES.length; f++) {
+        RShape expected = new RSVG().elemToCompositeShape(new XML(new File(FILES[f])));
+        RShape shp = new RSVGReader().read(FILES[f]);
+        compare(expected, shp);
+
+        RSVGReader reader = new RSVGReader();
+        reader.setParallel(true);
+        compare(expected, reader.read(FILES[f]));
+      }
+    }
+
+    public void testUse() {
+      RG.init(new PApplet());
+      String svg = "<svg width=\"100\" height=\"100\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">"
+        + "<defs><rect id=\"box\" x=\"0\" y=\"0\" width=\"10\" height=\"5\" fill=\"#00FF00\"/>"
+        + "<g id=\"pair\"><use xlink:href=\"#box\"/><use xlink:href=\"#box\" x=\"20\"/></g></defs>"
+        + "<symbol id=\"sym\"><circle cx=\"0\" cy=\"0\" r=\"2\"/></symbol>"
+        + "<g transform=\"translate(100,0)\">"
+        + "<use id=\"a\" xlink:href=\"#box\" x=\"5\" y=\"5\"/>"
+        + "<use id=\"b\" href=\"#pair\" transform=\"scale(2)\"/>"
+        + "<use id=\"c\" xlink:href=\"#later\" y=\"10\"/>"
+        + "<use id=\"d\" xlink:href=\"#d\"/>"
+        + "<use id=\"e\" xlink:href=\"#sym\"/>"
+        + "</g><path id=\"later\" d=\"M0 0 L1 1\"/>"
+        + "<g transform=\"translate(100,0)\"><rect id=\"r\" x=\"0\" y=\"0\" width=\"10\" height=\"5\"/></g>"
+        + "<use id=\"f\" xlink:href=\"#r\" x=\"5\"/></svg>";
+
+      final int[] visited = new int[1];
+      RSVGVisitor visitor = new RSVGVisitor() {
+          public int endElement(RSVGReader reader, String name, RShape shape) {
+            assertFalse(name.equals("defs") || name.equals("symbol"));
+            assertFalse(name.equals("rect") && !"r".equals(shape.name));
+            visited[0]++;
+            return CONTINUE;
+          }
+        };
+      RShape shp = new RSVGReader(visitor).read(new StringReader(svg));
+      assertEquals(11, visited[0]);
+      assertEquals(4, shp.countChildren());
+
+      // The instances are measured and tested without copying the shared shapes
+      RShape a = shp.getChild("a");
+      RShape b = shp.getChild("b");
+      assertEquals(105f, a.getX(), 1e-4f);
+      assertEquals(10f, a.getWidth(), 1e-4f);
+      assertEquals(5f, a.getHeight(), 1e-4f);
+      assertTrue(a.contains(110, 7));
+      assertFalse(a.contains(120, 7));
+      assertEquals(100f, b.getX(), 1e-4f);
+      assertEquals(60f, b.getWidth(), 1e-4f);
+      assertEquals(10f, b.getHeight(), 1e-4f);
+      assertTrue(b.contains(145, 5));
+      assertFalse(b.contains(125, 5));
+      assertNotNull(a.instanceOf);
+      assertSame(a.instanceOf, b.instanceOf.children[0].instanceOf);
+      assertSame(b.instanceOf, new RShape(b).instanceOf);
+
+      // Forward references, cycles and symbols
+      RShape c = shp.getChild("c");
+      assertEquals(100f, c.getX(), 1e-4f);
+      assertEquals(10f, c.getY(), 1e-4f);
+      assertNull(shp.getChild("d").instanceOf);
+      assertEquals(4f, shp.getChild("e").getWidth(), 1e-3f);
+
+      // The elements drawn in the document are used without the transformations of their parents
+      RShape f = shp.getChild("f");
+      assertEquals(5f, f.getX(), 1e-4f);
+      assertEquals(10f, f.getWidth(), 1e-4f);
+      assertEquals(100f, shp.getChild("r").getX(), 1e-4f);
+
+      // The instances are the same when building the shapes in parallel or lazily
+      for(int mode = 0; mode < 2; mode++) {
+        RSVGReader reader = new RSVGReader();
+        reader.setParallel(mode == 0);
+        reader.setLazy(mode == 1);
+        RShape other = reader.read(new StringReader(svg));
+        String[] ids = {"a", "b", "c", "e", "f"};
+        for(int i = 0; i < ids.length; i++) {
+          assertEquals(shp.getChild(ids[i]).getX(), other.getChild(ids[i]).getX(), 0f);
+          assertEquals(shp.getChild(ids[i]).getWidth(), other.getChild(ids[i]).getWidth(), 0f);
+        }
+      }
+
+      // Changing an instance gives it its own copy
+      a.translate(1, 0);
+      assertNull(a.instanceOf);
+      assertEquals(1, a.countChildren());
+      assertEquals(0xff00ff00, a.children[0].getStyle().fillColor);
+      assertEquals(106f, a.getX(), 1e-4f);
+      assertEquals(100f, b.getX(), 1e-4f);
+      assertEquals(0f, b.instanceOf.children[0].instanceOf.getX(), 0f);
+    }
+
+    public void testVisitor() {
+      // Skip France and stop after the first ten paths
+      RSVGVisitor visitor = new RSVGVisitor() {
+          int paths = 0;
+
+          public int startElement(RSVGReader reader, String name) {
+            return "fr".equals(reader.getAttribute("id")) ? SKIP : CONTINUE;
+          }
+
+          public int endElement(RSVGReader reader, String name, RShape shape) {
+            if(name.equals("path")) paths++;
+            return (paths == 10) ? STOP : CONTINUE;
+          }
+        };
+
+      RShape all = new RSVGReader().read("data/world-map.svg");
+      assertNotNull(all.getChild("fr"));
+
+      RShape shp = new RSVGReader(visitor).read("data/world-map.svg");
+      assertNull(shp.getChild("fr"));
+      assertTrue(shp.countChildren() >= 2 && shp.countChildren() <= 10);
+      assertTrue(shp.countChildren() < all.countChildren());
+    }
+
+    public void testParallelVisitor() {
+      // The visitor is notified in document order of every element read, with its shape built
+      final String[] ids = new String[5000];
+      final int[] count = new int[1];
+      RSVGVisitor visitor = new RSVGVisitor() {
+          public int endElement(RSVGReader reader, String name, RShape shape) {
+            assertTrue(shape.countPaths() > 0 || shape.countChildren() > 0 || reader.getDepth() == 0);
+            ids[count[0]++] = shape.name;
+            return CONTINUE;
+          }
+        };
+
+      new RSVGReader(visitor).read("data/world-map.svg");
+      int serialCount = count[0];
+      String[] serialIds = new String[serialCount];
+      System.arraycopy(ids, 0, serialIds, 0, serialCount);
+
+      count[0] = 0;
+      RSVGReader reader = new RSVGReader(visitor);
+      reader.setParallel(true);
+      reader.read("data/world-map.svg");
+      assertEquals(serialCount, count[0]);
+      for(int i = 0; i < serialCount; i++) {
+        assertEquals(serialIds[i], ids[i]);
+      }
+
+      // Stopping keeps at least the elements notified
+      RSVGVisitor stop = new RSVGVisitor() {
+          int paths = 0;
+
+          public int endElement(RSVGReader reader, String name, RShape shape) {
+            return (reader.getDepth() == 1 && ++paths == 10) ? STOP : CONTINUE;
+          }
+        };
+      reader.setVisitor(stop);
+      RShape shp = reader.read("data/world-map.svg");
+      assertTrue(shp.countChildren() >= 10);
+    }
+
+    public void testLazy() throws Exception {
+      RG.init(new PApplet());
+      for(int f = 0; f < FILES.length; f++) {
+        RShape expected = new RSVG().elemToCompositeShape(new XML(new File(FILES[f])));
+        RSVGReader reader = new RSVGReader();
+        reader.setLazy(true);
+        RShape shp = reader.read(FILES[f]);
+        assertEquals(new RSVGReader().read(FILES[f]).width, shp.width, 0f);
+        compare(expected, shp);
+      }
+
+      // Looking up a child by name builds none of the paths, using it only builds its own
+      RSVGReader reader = new RSVGReader();
+      reader.setLazy(true);
+      RShape shp = reader.read("data/world-map.svg");
+      RShape fr = shp.getChild("fr");
+      assertNotNull(fr);
+      int lazyPaths = countLazy(shp);
+      int lazyPathsOfFr = countLazy(fr);
+      assertEquals(2285, lazyPaths);
+      assertTrue(lazyPathsOfFr > 0);
+      assertEquals(new RSVGReader().read("data/world-map.svg").getChild("fr").getBounds().getMinX(), fr.getBounds().getMinX(), 0f);
+      assertEquals(0, countLazy(fr));
+      assertEquals(lazyPaths - lazyPathsOfFr, countLazy(shp));
+    }
+
+    public void testLazyBenchmark() {
+      String file = "data/mapaAzimutal.svg";
+      RSVGReader lazy = new RSVGReader();
+      lazy.setLazy(true);
+      lazy.read(file);
+      new RSVGReader().read(file);
+
+      int n = 5;
+      long start = System.currentTimeMillis();
+      for(int i = 0; i < n; i++) {
+        new RSVGReader().read(file);
+      }
+      long eagerTime = (System.currentTimeMillis() - start) / n;
+
+      start = System.currentTimeMillis();
+      for(int i = 0; i < n; i++) {
+        lazy.read(file);
+      }
+      long lazyTime = (System.currentTimeMillis() - start) / n;
+
+      long base = usedMemory();
+      RShape shp = new RSVGReader().read(file);
+      long eagerMemory = usedMemory() - base;
+      assertTrue(shp.countChildren() > 0);
+      shp = null;
+
+      base = usedMemory();
+      shp = lazy.read(file);
+      long lazyMemory = usedMemory() - base;
+      assertTrue(shp.countChildren() > 0);
+
+      System.out.println(file + ": eager " + eagerTime + " ms, " + eagerMemory / 1024 + " KB, lazy " + lazyTime + " ms, " + lazyMemory / 1024 + " KB");
+    }
+
+    public void testBenchmark() throws Exception {
+      RG.init(new PApplet());
+      String[] files = {"data/world-map.svg", "data/Lion.svg", "data/mapaAzimutal.svg"};
+      for(int f = 0; f < files.length; f++) {
+        // Warm up
+        new RSVG().elemToCompositeShape(new XML(new File(files[f])));
+        new RSVGReader().read(files[f]);
+
+        int n = 5;
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+          new RSVG().elemToCompositeShape(new XML(new File(files[f])));
+        }
+        long treeTime = (System.currentTimeMillis() - start) / n;
+
+        start = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+          new RSVGReader().read(files[f]);
+        }
+        long streamTime = (System.currentTimeMillis() - start) / n;
+
+        RSVGReader reader = new RSVGReader();
+        reader.setParallel(true);
+        reader.read(files[f]);
+        start = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+          reader.read(files[f]);
+        }
+        long parallelTime = (System.currentTimeMillis() - start) / n;
+
+        System.out.println(files[f] + ": XML tree " + treeTime + " ms, streaming " + streamTime + " ms, parallel streaming " + parallelTime + " ms on " + Runtime.getRuntime().availableProcessors() + " processors");
+      }
+    }
+
+    private int countLazy(RShape shp) {
+      int count = (shp.loader != null) ? 1 : 0;
+      for(int i = 0; i < shp.countChildren(); i++) {
+        count += countLazy(shp.children[i]);
+      }
+      return count;
+    }
+
+    private long usedMemory() {
+      Runtime runtime = Runtime.getRuntime();
+      System.gc();
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void compare(RShape expected, RShape shp) {
+      assertEquals(expected.name, shp.name);
+      assertEquals(expected.countPaths(), shp.countPaths());
+      assertEquals(expected.countChildren(), shp.countChildren());
+      assertEquals(expected.getStyle().fillColor, shp.getStyle().fillColor);
+      assertEquals(expected.getStyle().strokeColor, shp.getStyle().strokeColor);
+      assertEquals(expected.getStyle().strokeWeight, shp.getStyle().strokeWeight, 0f);
+
+      for(int i = 0; i < expected.countPaths(); i++) {
+        RPoint[] a = expected.paths[i].getHandles();
+        RPoint[] b = shp.paths[i].getHandles();
+        assertEquals(a == null, b == null);
+        if(a == null) continue;
+        assertEquals(a.length, b.length);
+        for(int j = 0; j < a.length; j++) {
+          float tol = 1e-4f * Math.max(1f, Math.abs(a[j].x) + Math.abs(a[j].y));
+          assertEquals(a[j].x, b[j].x, tol);
+          assertEquals(a[j].y, b[j].y, tol);
+        }
+      }
+
+      for(int i = 0; i < expected.countChildren(); i++) {
+        compare(expected.children[i], shp.children[i]);
+      }
+    }
+}
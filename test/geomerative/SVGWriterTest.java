@@ -0,0 +1,138 @@
+package geomerative;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import processing.core.PApplet;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that the shapes written by RSVGWriter are read back the same,
+ * and reports the writing speed on the bundled data files.
+ *
+ */
+public class SVGWriterTest extends TestCase
+{
+    static final String[] FILES = {"data/world-map.svg", "data/Lion.svg", "data/mapa.svg", "data/Toucan.svg"};
+
+    public void setUp() {
+      RG.init(new PApplet());
+    }
+
+    public void testNumberFormat() {
+      RShape shp = new RShape();
+      shp.addMoveTo(0.5f, -0.25f);
+      shp.addLineTo(10, 20);
+      shp.addLineTo(10.0004f, -3.14159f);
+
+      StringWriter str = new StringWriter();
+      RSVGWriter writer = new RSVGWriter(str);
+      writer.setPrecision(3);
+      writer.writeShapeElement(shp);
+      assertTrue(str.toString().indexOf("d=\"M0.5 -0.25 L10 20 L10 -3.142\"") != -1);
+
+      str = new StringWriter();
+      writer = new RSVGWriter(str);
+      writer.setPrecision(3);
+      writer.setCompact(true);
+      writer.setRelative(true);
+      writer.writeShapeElement(shp);
+      assertTrue(str.toString().indexOf("d=\"m.5-.25 9.5 20.25 0-23.142\"") != -1);
+    }
+
+    public void testRoundTrip() throws Exception {
+      for(int f = 0; f < FILES.length; f++) {
+        RShape shp = loadShape(FILES[f]);
+
+        RSVGWriter[] writers = new RSVGWriter[3];
+        StringWriter[] outs = new StringWriter[3];
+        for(int i = 0; i < writers.length; i++) {
+          outs[i] = new StringWriter();
+          writers[i] = new RSVGWriter(outs[i]);
+        }
+        writers[1].setPrecision(3);
+        writers[1].setRelative(true);
+        writers[2].setPrecision(3);
+        writers[2].setRelative(true);
+        writers[2].setCompact(true);
+
+        for(int i = 0; i < writers.length; i++) {
+          writers[i].writeShape(shp);
+          RShape read = new RSVG().elemToCompositeShape(XML.parse(outs[i].toString()));
+          assertEquals(shp.getHandles().length, read.getHandles().length);
+          assertEquals(shp.getX(), read.getX(), 0.01f);
+          assertEquals(shp.getY(), read.getY(), 0.01f);
+          assertEquals(shp.getWidth(), read.getWidth(), 0.01f);
+          assertEquals(shp.getHeight(), read.getHeight(), 0.01f);
+        }
+      }
+    }
+
+    public void testBenchmark() throws Exception {
+      int n = 10;
+      for(int f = 0; f < FILES.length; f++) {
+        RShape shp = loadShape(FILES[f]);
+        String[] names = {"exact", "compact relative 2 decimals"};
+
+        for(int m = 0; m < names.length; m++) {
+          long bytes = 0;
+          long start = System.currentTimeMillis();
+          for(int i = 0; i < n; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            RSVGWriter writer = new RSVGWriter(out);
+            if(m == 1) {
+              writer.setPrecision(2);
+              writer.setCompact(true);
+              writer.setRelative(true);
+            }
+            writer.writeShape(shp);
+            writer.close();
+            bytes = out.size();
+          }
+          long time = Math.max(1, System.currentTimeMillis() - start);
+          System.out.println(FILES[f] + " " + names[m] + ": " + bytes + " bytes, " + (bytes * n / 1000 / time) + " MB/s");
+        }
+      }
+    }
+
+    public void testSaveErrorNotHiddenByClose() {
+      RG.init(new PApplet() {
+          public OutputStream createOutput(String filename) {
+            return new OutputStream() {
+                public void write(int b) throws IOException {
+                  throw new IOException("disk full");
+                }
+                public void close() throws IOException {
+                  throw new IOException("already broken");
+                }
+              };
+          }
+        });
+
+      RShape shp = RShape.createRectangle(0, 0, 10, 10);
+      try {
+        new RSVG().saveShape("broken.svg", shp);
+        fail();
+      } catch(RuntimeException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Error writing the SVG"));
+      }
+
+      RGroup grp = new RGroup();
+      grp.addElement(shp);
+      try {
+        new RSVG().saveGroup("broken.svg", grp);
+        fail();
+      } catch(RuntimeException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Error writing the SVG"));
+      }
+    }
+
+    private RShape loadShape(String filename) throws Exception {
+      return new RSVG().elemToCompositeShape(new XML(new File(filename)));
+    }
+}
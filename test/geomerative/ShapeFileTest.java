@@ -0,0 +1,158 @@
+package geomerative;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import processing.core.PApplet;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that shapes saved in the binary format are read back exactly,
+ * also when their commands do not follow each other,
+ * that single children can be read without decoding the whole file,
+ * and compares the opening times with the parsing of the SVG files.
+ *
+ */
+public class ShapeFileTest extends TestCase
+{
+    static final String[] FILES = {"data/world-map.svg", "data/Lion.svg", "data/mapa.svg"};
+
+    public void testRoundTrip() throws Exception {
+      RG.init(new PApplet());
+      for(int f = 0; f < FILES.length; f++) {
+        RShape expected = new RSVG().elemToCompositeShape(new XML(new File(FILES[f])));
+
+        File file = File.createTempFile("shapes", ".rgeo");
+        file.deleteOnExit();
+        RShapeFile.save(file.getPath(), expected);
+
+        compare(expected, new RShapeFile(file.getPath()).getShape());
+      }
+    }
+
+    public void testLazyChildren() throws Exception {
+      RShape expected = new RSVGReader().read("data/world-map.svg");
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      RShapeFile.write(out, expected);
+
+      RShapeFile shapes = new RShapeFile(ByteBuffer.wrap(out.toByteArray()));
+      assertEquals(expected.countChildren(), shapes.countChildren());
+      for(int i = 0; i < expected.countChildren(); i++) {
+        assertEquals(expected.children[i].name, shapes.getChildName(i));
+      }
+      compare(expected.children[3], shapes.getChild(3));
+      compare(expected.getChild("fr"), shapes.getChild("fr"));
+      assertNull(shapes.getChild("no such child"));
+    }
+
+    public void testDisconnectedCommands() throws Exception {
+      // The second command does not start where the first one ends
+      RPath path = new RPath(RCommand.createLine(0, 0, 10, 0));
+      path.addCommand(RCommand.createBezier3(20, 20, 25, 30, 30, 20));
+      path.addLineTo(40, 40);
+      RShape expected = new RShape(path);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      RShapeFile.write(out, expected);
+      RShape shp = new RShapeFile(ByteBuffer.wrap(out.toByteArray())).getShape();
+
+      compare(expected, shp);
+      RCommand[] commands = shp.paths[0].commands;
+      assertEquals(RCommand.QUADBEZIERTO, commands[1].getCommandType());
+      for(int i = 0; i < commands.length; i++) {
+        assertEquals(path.commands[i].startPoint.x, commands[i].startPoint.x, 0f);
+        assertEquals(path.commands[i].startPoint.y, commands[i].startPoint.y, 0f);
+      }
+    }
+
+    public void testErrors() {
+      try {
+        new RShapeFile(ByteBuffer.wrap(new byte[64]));
+        fail();
+      } catch(RuntimeException e) {
+      }
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        RShapeFile.write(out, new RShape());
+      } catch(java.io.IOException e) {
+        fail();
+      }
+      byte[] data = out.toByteArray();
+      data[4] = (byte)(RShapeFile.VERSION + 1);
+      try {
+        new RShapeFile(ByteBuffer.wrap(data));
+        fail();
+      } catch(RuntimeException e) {
+      }
+    }
+
+    public void testBenchmark() throws Exception {
+      String[] files = {"data/world-map.svg", "data/mapaAzimutal.svg"};
+      for(int f = 0; f < files.length; f++) {
+        File file = File.createTempFile("shapes", ".rgeo");
+        file.deleteOnExit();
+        RShapeFile.save(file.getPath(), new RSVGReader().read(files[f]));
+
+        // Warm up
+        new RSVGReader().read(files[f]);
+        new RShapeFile(file.getPath()).getShape();
+
+        int n = 5;
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+          new RSVGReader().read(files[f]);
+        }
+        long svgTime = (System.currentTimeMillis() - start) / n;
+
+        start = System.currentTimeMillis();
+        for(int i = 0; i < n; i++) {
+          new RShapeFile(file.getPath()).getShape();
+        }
+        long binaryTime = (System.currentTimeMillis() - start) / n;
+
+        System.out.println(files[f] + ": SVG " + new File(files[f]).length() / 1024 + " KB in " + svgTime + " ms, binary " + file.length() / 1024 + " KB in " + binaryTime + " ms");
+      }
+    }
+
+    private void compare(RShape expected, RShape shp) {
+      assertEquals(expected.name, shp.name);
+      assertEquals(expected.countPaths(), shp.countPaths());
+      assertEquals(expected.countChildren(), shp.countChildren());
+      assertEquals(expected.width, shp.width, 0f);
+      assertEquals(expected.height, shp.height, 0f);
+      compare(expected.getStyle(), shp.getStyle());
+
+      for(int i = 0; i < expected.countPaths(); i++) {
+        compare(expected.paths[i].getStyle(), shp.paths[i].getStyle());
+        assertEquals(expected.paths[i].closed, shp.paths[i].closed);
+        assertEquals(expected.paths[i].countCommands(), shp.paths[i].countCommands());
+        RPoint[] a = expected.paths[i].getHandles();
+        RPoint[] b = shp.paths[i].getHandles();
+        assertEquals(a == null, b == null);
+        if(a == null) continue;
+        assertEquals(a.length, b.length);
+        for(int j = 0; j < a.length; j++) {
+          assertEquals(a[j].x, b[j].x, 0f);
+          assertEquals(a[j].y, b[j].y, 0f);
+        }
+      }
+
+      for(int i = 0; i < expected.countChildren(); i++) {
+        compare(expected.children[i], shp.children[i]);
+      }
+    }
+
+    private void compare(RStyle expected, RStyle style) {
+      assertEquals(expected.fillDef, style.fillDef);
+      assertEquals(expected.fill, style.fill);
+      assertEquals(expected.fillColor, style.fillColor);
+      assertEquals(expected.strokeDef, style.strokeDef);
+      assertEquals(expected.stroke, style.stroke);
+      assertEquals(expected.strokeColor, style.strokeColor);
+      assertEquals(expected.strokeWeight, style.strokeWeight, 0f);
+    }
+}
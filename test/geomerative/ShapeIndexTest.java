@@ -0,0 +1,183 @@
+package geomerative;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks the lookups of shapes by name and by pattern against a
+ * search through the whole tree, that the index follows the changes
+ * of the tree, and compares the times of both.
+ *
+ */
+public class ShapeIndexTest extends TestCase
+{
+    public void testSameAsSearch() {
+      RShape shp = new RSVGReader().read("data/world-map.svg");
+      String[] names = new String[4096];
+      int numNames = collectNames(shp, names, 0);
+      assertTrue(numNames > 200);
+
+      for(int i = 0; i < numNames; i++) {
+        assertSame(search(shp, names[i]), shp.getChild(names[i]));
+      }
+      assertNull(shp.getChild("no such shape"));
+    }
+
+    public void testPatterns() {
+      assertTrue(RShapeIndex.matches("fr*", 0, "france", 0));
+      assertTrue(RShapeIndex.matches("*an*e", 0, "france", 0));
+      assertTrue(RShapeIndex.matches("f?", 0, "fr", 0));
+      assertFalse(RShapeIndex.matches("f?", 0, "fra", 0));
+      assertFalse(RShapeIndex.matches("*x*", 0, "france", 0));
+
+      RShape root = new RShape();
+      String[] ids = {"b1", "a1", "b2", "a2", "b10"};
+      for(int i = 0; i < ids.length; i++) {
+        RShape child = new RShape();
+        child.name = ids[i];
+        root.addChild(child);
+      }
+
+      RShape[] found = root.getChildren("b*");
+      assertEquals(3, found.length);
+      assertEquals("b1", found[0].name);
+      assertEquals("b2", found[1].name);
+      assertEquals("b10", found[2].name);
+      assertEquals(2, root.getChildren("?2").length);
+      assertEquals(1, root.getChildren("a1").length);
+      assertEquals(0, root.getChildren("c*").length);
+    }
+
+    public void testChanges() {
+      RShape root = new RShape();
+      RShape group = new RShape();
+      root.addChild(group);
+      RShape a = new RShape();
+      a.name = "a";
+      group.addChild(a);
+      assertSame(a, root.getChild("a"));
+
+      RShape b = new RShape();
+      b.name = "b";
+      group.addChild(b);
+      assertSame(b, root.getChild("b"));
+
+      group.removeChild(0);
+      assertNull(root.getChild("a"));
+      assertEquals(1, group.countChildren());
+
+      b.name = "c";
+      assertNull(root.getChild("b"));
+      assertEquals(1, root.getChildren("c").length);
+
+      // A shape that had no children when the index was built gets some
+      RShape sub = new RShape();
+      sub.name = "sub";
+      b.addChild(sub);
+      assertSame(sub, root.getChild("sub"));
+
+      // Shapes renamed through the field are not found under their old name, and are indexed again
+      RShape other = new RShape();
+      other.name = "other";
+      root.addChild(other);
+      assertSame(other, root.getChild("other"));
+      other.name = "renamed";
+      assertNull(root.getChild("other"));
+      assertSame(other, root.getChild("renamed"));
+
+      other.setName("again");
+      assertEquals(1, root.getChildren("again").length);
+      assertEquals(0, root.getChildren("renamed").length);
+    }
+
+    public void testChangesInReadTree() {
+      RShape shp = new RSVGReader().read("data/world-map.svg");
+      RShape fr = shp.getChild("fr");
+      assertNotNull(fr);
+
+      RShape sub = new RShape();
+      sub.name = "paris";
+      fr.addChild(sub);
+      assertSame(sub, shp.getChild("paris"));
+      assertEquals(1, shp.getChildren("par*").length);
+
+      fr.removeChild(fr.countChildren() - 1);
+      assertNull(shp.getChild("paris"));
+      assertEquals(0, shp.getChildren("par*").length);
+    }
+
+    public void testMissLoadsNothing() {
+      // The shapes read lazily and the instances are not built by looking up missing names
+      RSVGReader reader = new RSVGReader();
+      reader.setLazy(true);
+      RShape shp = reader.read("data/world-map.svg");
+      RShape instance = RShape.createInstance(shp.getChild("fr"), new RMatrix());
+      instance.name = "instance";
+      shp.addChild(instance);
+      int lazy = countLazy(shp);
+      assertTrue(lazy > 200);
+
+      assertNull(shp.getChild("no such shape"));
+      assertNull(shp.getChild("no such shape"));
+      assertSame(instance, shp.getChild("instance"));
+      assertNotNull(instance.instanceOf);
+      assertEquals(lazy, countLazy(shp));
+    }
+
+    public void testBenchmark() {
+      RShape shp = new RSVGReader().read("data/world-map.svg");
+      String[] names = new String[4096];
+      int numNames = collectNames(shp, names, 0);
+
+      int n = 20;
+      long start = System.nanoTime();
+      for(int k = 0; k < n; k++) {
+        for(int i = 0; i < numNames; i++) {
+          search(shp, names[i]);
+        }
+      }
+      long searchTime = (System.nanoTime() - start) / (n * numNames);
+
+      shp.getChild(names[0]);
+      start = System.nanoTime();
+      for(int k = 0; k < n; k++) {
+        for(int i = 0; i < numNames; i++) {
+          shp.getChild(names[i]);
+        }
+      }
+      long indexTime = (System.nanoTime() - start) / (n * numNames);
+
+      System.out.println("data/world-map.svg: " + numNames + " names, search " + searchTime + " ns, index " + indexTime + " ns per lookup");
+    }
+
+    private int collectNames(RShape shp, String[] names, int numNames) {
+      if(shp.name != null && shp.name.length() > 0) {
+        names[numNames++] = shp.name;
+      }
+      for(int i = 0; i < shp.countChildren(); i++) {
+        numNames = collectNames(shp.children[i], names, numNames);
+      }
+      return numNames;
+    }
+
+    /* The number of shapes of the tree not built yet, read without building them */
+    private int countLazy(RShape shp) {
+      int count = (shp.loader != null) ? 1 : 0;
+      for(int i = 0; shp.children != null && i < shp.children.length; i++) {
+        count += countLazy(shp.children[i]);
+      }
+      return count;
+    }
+
+    /* The recursive search through the tree */
+    private RShape search(RShape shp, String target) {
+      if(target.equals(shp.name)) {
+        return shp;
+      }
+      for(int i = 0; i < shp.countChildren(); i++) {
+        RShape found = search(shp.children[i], target);
+        if(found != null) return found;
+      }
+      return null;
+    }
+}
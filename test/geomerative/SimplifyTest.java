@@ -0,0 +1,170 @@
+package geomerative;
+
+import java.io.File;
+
+import processing.core.PApplet;
+import processing.data.XML;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks the simplifiers, that the borders shared by several paths
+ * stay joined, and reports the vertex counts and timings on the
+ * bundled data files.
+ *
+ */
+public class SimplifyTest extends TestCase
+{
+    static final String[] FILES = {"data/world-map.svg", "data/Lion.svg", "data/mapa.svg"};
+
+    public void setUp() {
+      RG.init(new PApplet());
+      RG.setPolygonizer(RG.ADAPTATIVE);
+    }
+
+    public void tearDown() {
+      RG.setSimplifier(RG.DOUGLASPEUCKER);
+    }
+
+    public void testCollinearPoints() {
+      float[] xy = {0, 0, 1, 0.001f, 2, 0, 3, -0.001f, 4, 0};
+      assertEquals(2, RSimplifier.simplify(xy, 5, 0.1f, false, RSimplifier.DOUGLASPEUCKER));
+      assertEquals(4f, xy[2], 0f);
+
+      xy = new float[]{0, 0, 1, 0.001f, 2, 0, 3, -0.001f, 4, 0};
+      assertEquals(2, RSimplifier.simplify(xy, 5, 0.1f, false, RSimplifier.VISVALINGAM));
+      assertEquals(4f, xy[2], 0f);
+    }
+
+    public void testClosedContourKeepsTriangle() {
+      RPolygon poly = RPolygon.createCircle(0, 0, 1, 100);
+      poly.simplify(10);
+      assertEquals(3, poly.contours[0].countPoints());
+
+      RG.setSimplifier(RG.VISVALINGAM);
+      poly = RPolygon.createCircle(0, 0, 1, 100);
+      poly.simplify(10);
+      assertTrue(poly.contours[0].countPoints() >= 3);
+    }
+
+    public void testSharedBorders() {
+      int[] methods = {RG.DOUGLASPEUCKER, RG.VISVALINGAM};
+      for(int m = 0; m < methods.length; m++) {
+        RG.setSimplifier(methods[m]);
+
+        // Two cells on both sides of a wavy border, going through it in opposite directions
+        RPoint[] border = new RPoint[41];
+        for(int k = 0; k < border.length; k++) {
+          border[k] = new RPoint(10 + 2 * (float)Math.sin(k * 0.45f) * (k % 4) / 3f, k * 0.5f);
+        }
+        RPath left = new RPath(new RPoint(0, 20));
+        left.addLineTo(0, 0);
+        for(int k = 0; k < border.length; k++) {
+          left.addLineTo(border[k].x, border[k].y);
+        }
+        left.addClose();
+        RPath right = new RPath(new RPoint(30, 0));
+        right.addLineTo(30, 20);
+        for(int k = border.length - 1; k >= 0; k--) {
+          right.addLineTo(border[k].x, border[k].y);
+        }
+        right.addClose();
+
+        RShape shp = new RShape();
+        shp.addPath(left);
+        shp.addPath(right);
+        shp.simplify(0.6f);
+
+        String kept = borderPoints(shp.paths[0].getPoints());
+        assertTrue(kept.length() > 0);
+        assertEquals(kept, borderPoints(shp.paths[1].getPoints()));
+
+        // A hole filled by another contour
+        RPolygon poly = RPolygon.createStar(0, 0, 8, 10, 40);
+        RContour hole = RPolygon.createStar(0, 0, 8, 10, 40).contours[0];
+        poly.contours[0].points = new RPoint[]{new RPoint(-20, -20), new RPoint(20, -20), new RPoint(20, 20), new RPoint(-20, 20)};
+        poly.addContour(hole);
+        RPoint[] reversed = new RPoint[hole.points.length];
+        for(int k = 0; k < reversed.length; k++) {
+          reversed[k] = new RPoint(hole.points[reversed.length - 1 - k]);
+        }
+        poly.addContour(reversed);
+        poly.simplify(3f);
+
+        assertEquals(4, poly.contours[0].countPoints());
+        assertTrue(poly.contours[1].countPoints() < 80);
+        assertEquals(borderPoints(poly.contours[1].points), borderPoints(poly.contours[2].points));
+      }
+    }
+
+    public void testClosingPoint() {
+      // Two cells closed by a copy of their first point, which is in the middle of the border they share
+      float[] left = {0, 50, 0.2f, 60, 0, 70, 0.3f, 80, 0, 100, -50, 100, -50, 0, 0, 0, 0.2f, 10, 0, 20, 0.3f, 30, 0, 40, 0, 50};
+      float[] right = {0, 100, 0.3f, 80, 0, 70, 0.2f, 60, 0, 50, 0, 40, 0.3f, 30, 0, 20, 0.2f, 10, 0, 0, 50, 0, 50, 100, 0, 100};
+      float[][] xys = {left, right};
+      int[] numPoints = {left.length / 2, right.length / 2};
+      RSimplifier.simplify(xys, numPoints, new boolean[]{true, true}, 1f);
+
+      for(int i = 0; i < xys.length; i++) {
+        int n = numPoints[i];
+        assertTrue(n < xys[i].length / 2);
+        assertEquals(xys[i][0], xys[i][2*n-2], 0f);
+        assertEquals(xys[i][1], xys[i][2*n-1], 0f);
+        for(int k = 0; k < n; k++) {
+          assertFalse(xys[i][2*k] == 0 && xys[i][2*k+1] == 50);
+        }
+      }
+    }
+
+    public void testEmptyPolyline() {
+      RPath path = new RPath(new RPoint(5, 5));
+      path.addLineTo(10, 10);
+      path.setPolyline(new float[0], 0);
+      assertEquals(0, path.countCommands());
+      assertEquals(0f, path.lastPoint.x, 0f);
+      path.addLineTo(1, 1);
+      assertEquals(0f, path.getPoints()[0].x, 0f);
+    }
+
+    /* The sorted points of a polyline, without the corners of the cells around the shared borders */
+    private String borderPoints(RPoint[] pnts) {
+      java.util.TreeSet<String> result = new java.util.TreeSet<String>();
+      for(int i = 0; i < pnts.length; i++) {
+        if(pnts[i].x > -10 && pnts[i].x < 29 && pnts[i].y > -10 && pnts[i].y < 20 && pnts[i].x != 0) {
+          result.add(pnts[i].x + "," + pnts[i].y);
+        }
+      }
+      return result.toString();
+    }
+
+    public void testDataFiles() throws Exception {
+      float tolerance = 0.5f;
+      int[] methods = {RG.DOUGLASPEUCKER, RG.VISVALINGAM};
+      String[] names = {"douglas-peucker", "visvalingam"};
+
+      for(int f = 0; f < FILES.length; f++) {
+        for(int m = 0; m < methods.length; m++) {
+          RShape shp = loadShape(FILES[f]);
+          shp.polygonize();
+          int before = shp.getPoints().length;
+          float width = shp.getWidth();
+
+          RG.setSimplifier(methods[m]);
+          long start = System.currentTimeMillis();
+          shp.simplify(tolerance);
+          long time = System.currentTimeMillis() - start;
+
+          int after = shp.getPoints().length;
+          System.out.println(FILES[f] + " " + names[m] + ": " + before + " -> " + after + " vertices in " + time + " ms");
+
+          assertTrue(after < before);
+          assertEquals(width, shp.getWidth(), 2 * tolerance);
+        }
+      }
+    }
+
+    private RShape loadShape(String filename) throws Exception {
+      XML svg = new XML(new File(filename));
+      return new RSVG().elemToCompositeShape(svg);
+    }
+}
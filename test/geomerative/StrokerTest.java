@@ -0,0 +1,128 @@
+package geomerative;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks the area covered by the strips of the stroker for each kind
+ * of join and cap on a right angled polyline, and that miter joins
+ * fall back to bevel joins over the miter limit.
+ *
+ */
+public class StrokerTest extends TestCase
+{
+    /* A polyline turning left at (100, 0), stroked 20 units wide */
+    static final RPoint[] CORNER = {new RPoint(0, 0), new RPoint(100, 0), new RPoint(100, 100)};
+    static final float WEIGHT = 20;
+
+    /* The area of the bodies of the two segments, which overlap in a 10 by 10 square */
+    static final double BODIES = 2 * 100 * 20 - 10 * 10;
+
+    public void testJoins() {
+      // The outer corner is a 10 by 10 square, filled whole, cut in half or rounded
+      assertEquals(BODIES + 100, area(stroke(CORNER, RG.SQUARE, RG.MITER)), 1e-2);
+      assertEquals(BODIES + 50, area(stroke(CORNER, RG.SQUARE, RG.BEVEL)), 1e-2);
+
+      double round = area(stroke(CORNER, RG.SQUARE, RG.ROUND));
+      assertTrue(round <= BODIES + 25 * Math.PI + 1e-2);
+      assertTrue(round >= BODIES + 0.95 * 25 * Math.PI);
+    }
+
+    public void testCaps() {
+      // Square caps add a 20 by 10 rectangle at each end, round caps half a disc
+      assertEquals(BODIES + 100, area(stroke(CORNER, RG.SQUARE, RG.MITER)), 1e-2);
+      assertEquals(BODIES + 100 + 2 * 200, area(stroke(CORNER, RG.PROJECT, RG.MITER)), 1e-2);
+
+      double round = area(stroke(CORNER, RG.ROUND, RG.MITER));
+      assertTrue(round <= BODIES + 100 + 100 * Math.PI + 1e-2);
+      assertTrue(round >= BODIES + 100 + 0.95 * 100 * Math.PI);
+
+      // The caps stay on the line of the end segments
+      float[] b = bounds(stroke(CORNER, RG.PROJECT, RG.MITER));
+      assertEquals(-10f, b[0], 1e-3f);
+      assertEquals(110f, b[3], 1e-3f);
+    }
+
+    public void testMiterLimit() {
+      // A right angle is within the limit, its miter reaches the outer corner
+      float[] b = bounds(stroke(CORNER, RG.SQUARE, RG.MITER));
+      assertEquals(110f, b[2], 1e-3f);
+      assertEquals(-10f, b[1], 1e-3f);
+
+      // A turn back of 174 degrees would give a miter 19 times longer than the width, it is beveled
+      RPoint[] sharp = {new RPoint(0, 0), new RPoint(100, 0), new RPoint(0, 10)};
+      double miter = area(stroke(sharp, RG.SQUARE, RG.MITER));
+      assertEquals(area(stroke(sharp, RG.SQUARE, RG.BEVEL)), miter, 1e-2);
+      assertTrue(bounds(stroke(sharp, RG.SQUARE, RG.MITER))[2] < 110f);
+
+      // A turn of 120 degrees gives a miter twice as long as the width, within the limit
+      RPoint[] open = {new RPoint(0, 0), new RPoint(100, 0), new RPoint(50, 50 * (float)Math.sqrt(3))};
+      double bevel = area(stroke(open, RG.SQUARE, RG.BEVEL));
+      miter = area(stroke(open, RG.SQUARE, RG.MITER));
+      // The miter adds the triangle between the bevel, of length 10 sqrt(3) at 5 from the vertex, and the tip at 20
+      assertEquals(bevel + 0.5 * 10 * Math.sqrt(3) * 15, miter, 1e-1);
+    }
+
+    public void testClosed() {
+      // A closed square has joins at every corner and no caps
+      RPoint[] square = {new RPoint(0, 0), new RPoint(100, 0), new RPoint(100, 100), new RPoint(0, 100)};
+      RStrip strip = RStroker.strokePolyline(square, true, WEIGHT, RG.ROUND, RG.MITER);
+      assertEquals(120 * 120 - 80 * 80, area(strip), 1e-2);
+    }
+
+    private RStrip stroke(RPoint[] points, int cap, int join) {
+      return RStroker.strokePolyline(points, false, WEIGHT, cap, join);
+    }
+
+    /* The smallest and largest coordinates of the vertices of a strip */
+    private float[] bounds(RStrip strip) {
+      float[] result = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+      RPoint[] v = strip.vertices;
+      for(int i = 0; i < v.length; i++) {
+        result[0] = Math.min(result[0], v[i].x);
+        result[1] = Math.min(result[1], v[i].y);
+        result[2] = Math.max(result[2], v[i].x);
+        result[3] = Math.max(result[3], v[i].y);
+      }
+      return result;
+    }
+
+    /* The area of the union of the triangles of a strip */
+    private double area(RStrip strip) {
+      Area union = new Area();
+      RPoint[] v = strip.vertices;
+      for(int i = 0; i + 2 < v.length; i++) {
+        Path2D.Double t = new Path2D.Double();
+        t.moveTo(v[i].x, v[i].y);
+        t.lineTo(v[i+1].x, v[i+1].y);
+        t.lineTo(v[i+2].x, v[i+2].y);
+        t.closePath();
+        union.add(new Area(t));
+      }
+
+      // The union is made of polygons, add up their signed areas
+      double result = 0;
+      double[] c = new double[6];
+      double x0 = 0, y0 = 0, px = 0, py = 0;
+      for(PathIterator it = union.getPathIterator(null); !it.isDone(); it.next()) {
+        int type = it.currentSegment(c);
+        if(type == PathIterator.SEG_MOVETO) {
+          x0 = px = c[0];
+          y0 = py = c[1];
+        } else if(type == PathIterator.SEG_LINETO) {
+          result += px * c[1] - c[0] * py;
+          px = c[0];
+          py = c[1];
+        } else if(type == PathIterator.SEG_CLOSE) {
+          result += px * y0 - x0 * py;
+          px = x0;
+          py = y0;
+        }
+      }
+      return Math.abs(result) / 2;
+    }
+}
@@ -0,0 +1,128 @@
+package geomerative;
+
+import java.util.IdentityHashMap;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import junit.framework.TestCase;
+
+/**
+ *
+ * Checks that the elements loaded with the same style share it, that
+ * changing the style of an element does not change the others, and
+ * that drawing nested elements with the same style restores the
+ * context, even when drawing fails.
+ *
+ */
+public class StyleTest extends TestCase
+{
+    public void testShared() {
+      RG.init(new PApplet());
+      RShape shp = new RSVGReader().read("data/world-map.svg");
+      IdentityHashMap<RStyle, Boolean> styles = new IdentityHashMap<RStyle, Boolean>();
+      int count = collectStyles(shp, styles);
+      System.out.println("data/world-map.svg: " + count + " elements, " + styles.size() + " styles");
+      assertTrue(count > 2000);
+      assertTrue(styles.size() <= 16);
+
+      // Two countries with the same style
+      RShape fr = shp.getChild("fr");
+      RShape es = null;
+      RShape[] countries = shp.getChildren("??");
+      for(int i = 0; i < countries.length && es == null; i++) {
+        if(countries[i] != fr && countries[i].style == fr.style) es = countries[i];
+      }
+      assertNotNull(es);
+      int fill = es.style.fillColor;
+
+      // Changing the style of an element gives it its own copy
+      fr.setFill(0xff123456);
+      assertNotSame(fr.style, es.style);
+      assertEquals(0xff123456, fr.style.fillColor);
+      assertEquals(fill, es.style.fillColor);
+
+      fr.getStyle().strokeWeight = 7f;
+      assertFalse(es.style.strokeWeight == 7f);
+
+      // Copies keep sharing the style
+      RShape copy = new RShape(es);
+      assertSame(es.style, copy.style);
+    }
+
+    public void testDefault() {
+      RShape a = new RShape();
+      RShape b = new RShape();
+      assertSame(a.style, b.style);
+      a.setStroke(false);
+      assertTrue(b.style.shared);
+      assertFalse(b.style.strokeDef);
+    }
+
+    public void testNestedContexts() {
+      // The state of the base graphics is enough, nothing is drawn
+      PGraphics g = new PGraphics();
+      g.setParent(new PApplet());
+      g.fill(0xff00ff00);
+      g.strokeWeight(3f);
+
+      RShape root = new RShape();
+      RShape child = new RShape();
+      root.setFill(0xffff0000);
+      root.setStrokeWeight(2f);
+      child.setStyle(root.style);
+      root.style.shared = true;
+
+      RStyle.Context rootContext = root.saveContext(g);
+      root.setContext(g);
+      RStyle.Context childContext = child.saveContext(g);
+      child.setContext(g);
+      assertEquals(0xffff0000, g.fillColor);
+      child.restoreContext(g, childContext);
+      assertEquals(0xffff0000, g.fillColor);
+      assertEquals(2f, g.strokeWeight, 0f);
+      root.restoreContext(g, rootContext);
+      assertEquals(0xff00ff00, g.fillColor);
+      assertEquals(3f, g.strokeWeight, 0f);
+
+      try {
+        root.restoreContext(g, null);
+        fail();
+      } catch(RuntimeException e) {
+      }
+    }
+
+    public void testFailedDraw() {
+      PGraphics g = new PGraphics();
+      g.setParent(new PApplet());
+      g.fill(0xff00ff00);
+
+      RShape root = new RShape();
+      root.setFill(0xffff0000);
+      root.addChild(new RShape() {
+          public void draw(PGraphics g) {
+            throw new RuntimeException("Drawing failed.");
+          }
+        });
+
+      try {
+        root.draw(g);
+        fail();
+      } catch(RuntimeException e) {
+        assertEquals("Drawing failed.", e.getMessage());
+      }
+      assertEquals(0xff00ff00, g.fillColor);
+    }
+
+    private int collectStyles(RShape shp, IdentityHashMap<RStyle, Boolean> styles) {
+      styles.put(shp.style, Boolean.TRUE);
+      int count = 1;
+      for(int i = 0; i < shp.countPaths(); i++) {
+        styles.put(shp.paths[i].style, Boolean.TRUE);
+        count++;
+      }
+      for(int i = 0; i < shp.countChildren(); i++) {
+        count += collectStyles(shp.children[i], styles);
+      }
+      return count;
+    }
+}